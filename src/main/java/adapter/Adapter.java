@@ -389,6 +389,24 @@ public abstract class Adapter implements Serializable {
         || nowOpType == OperationType.INSERT;
   }
 
+  /**
+   * 获取回放时重置数据库所使用的快照策略，默认逐表 INSERT ... SELECT 复制，各DBMS可以覆盖以提供更快的实现
+   *
+   * @return snapshotStrategy
+   */
+  public SnapshotStrategy getSnapshotStrategy() {
+    return new CopyTableSnapshot(this);
+  }
+
+  /**
+   * 是否允许多个连接同时写入，不允许时初始数据只用一个连接导入
+   *
+   * @return supportsConcurrentWrites
+   */
+  public boolean supportsConcurrentWrites() {
+    return true;
+  }
+
   public void copyTable(String fromDB, String fromTable, String toDB, String toTable)
       throws SQLException {
     String copySQL =
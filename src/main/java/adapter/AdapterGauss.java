@@ -6,4 +6,10 @@ public class AdapterGauss extends AdapterPostgreSQL {
   public AdapterGauss(DataFormat dataFormat) {
     super(dataFormat);
   }
+
+  /** GaussDB 只允许以 template0 为模板建库，使用通用的复制策略 */
+  @Override
+  public SnapshotStrategy getSnapshotStrategy() {
+    return new CopyTableSnapshot(this);
+  }
 }
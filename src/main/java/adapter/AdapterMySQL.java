@@ -464,6 +464,11 @@ public class AdapterMySQL extends Adapter {
     IOUtils.writeString(lines, dest, false);
   }
 
+  @Override
+  public SnapshotStrategy getSnapshotStrategy() {
+    return new TruncateCopySnapshot(this);
+  }
+
   @Override
   public String getDatabase(String connUrl) {
     String[] words = connUrl.split("\\?")[0].split("/");
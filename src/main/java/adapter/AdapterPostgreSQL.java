@@ -270,6 +270,11 @@ public class AdapterPostgreSQL extends Adapter {
     throw new NotImplementedException();
   }
 
+  @Override
+  public SnapshotStrategy getSnapshotStrategy() {
+    return new TemplateDatabaseSnapshot(this);
+  }
+
   @Override
   public String getDatabase(String connUrl) {
     throw new NotImplementedException();
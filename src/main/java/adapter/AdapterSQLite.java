@@ -336,6 +336,17 @@ public class AdapterSQLite extends AdapterOceanBase {
     throw new NotImplementedException();
   }
 
+  @Override
+  public SnapshotStrategy getSnapshotStrategy() {
+    return new SQLiteBackupSnapshot();
+  }
+
+  // SQLite 同一时刻只允许一个连接写入
+  @Override
+  public boolean supportsConcurrentWrites() {
+    return false;
+  }
+
   @Override
   public String getDatabase(String connUrl) {
     throw new NotImplementedException();
@@ -0,0 +1,44 @@
+package adapter;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import util.jdbc.DataSourceUtils;
+
+/** 通用的快照策略：把各表复制到 dbName_restore 库中，恢复时重建数据库并用 INSERT ... SELECT 逐表复制回来 */
+public class CopyTableSnapshot implements SnapshotStrategy {
+  protected final Adapter adapter;
+
+  public CopyTableSnapshot(Adapter adapter) {
+    super();
+    this.adapter = adapter;
+  }
+
+  @Override
+  public void save(String dbName, Set<String> tableList) throws SQLException {
+    String restoreDBName = dbName + RESTORE_SUFFIX;
+    adapter.dropDatabase(restoreDBName);
+    adapter.createDatabase(restoreDBName);
+
+    for (String tableName : tableList) {
+      adapter.copyTableSchema(dbName, tableName, restoreDBName, tableName);
+      // copy data from dbName.tableName to restoreDBName.tableName
+      adapter.copyTable(dbName, tableName, restoreDBName, tableName);
+    }
+  }
+
+  @Override
+  public void restore(String dbName, Set<String> tableList, List<String> schema, boolean schemaChanged)
+      throws SQLException {
+    // recreate database
+    adapter.dropDatabase(dbName);
+    adapter.createDatabase(dbName);
+    DataSourceUtils.loadInertList(schema);
+
+    String restoreDBName = dbName + RESTORE_SUFFIX;
+    for (String tableName : tableList) {
+      // copy data from restoreDBName.tableName to dbName.tableName
+      adapter.copyTable(restoreDBName, tableName, dbName, tableName);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package adapter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import lombok.Cleanup;
+import util.jdbc.DataSourceUtils;
+
+/** SQLite 的快照策略：通过 sqlite-jdbc 提供的 backup/restore 命令在数据库文件间整体复制页，表结构和数据一并恢复 */
+public class SQLiteBackupSnapshot implements SnapshotStrategy {
+
+  @Override
+  public void save(String dbName, Set<String> tableList) throws SQLException {
+    execute(String.format("backup to %s", backupFile(dbName)));
+  }
+
+  @Override
+  public void restore(String dbName, Set<String> tableList, List<String> schema, boolean schemaChanged)
+      throws SQLException {
+    execute(String.format("restore from %s", backupFile(dbName)));
+  }
+
+  private static String backupFile(String dbName) {
+    return dbName + RESTORE_SUFFIX + ".db";
+  }
+
+  private static void execute(String sql) throws SQLException {
+    @Cleanup Connection conn = DataSourceUtils.getJDBCConnection(true);
+    @Cleanup Statement stat = conn.createStatement();
+    stat.executeUpdate(sql);
+  }
+}
@@ -0,0 +1,33 @@
+package adapter;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 数据库快照与恢复策略。回放时初始数据只导入一次，之后每次变异检查前都通过快照把数据库恢复到初始状态， 不同的DBMS可以提供更快的实现，见 {@link
+ * Adapter#getSnapshotStrategy()}
+ */
+public interface SnapshotStrategy {
+  /** 快照所在数据库（或文件）名称的后缀 */
+  String RESTORE_SUFFIX = "_restore";
+
+  /**
+   * 初始数据导入完成后，保存数据库的快照
+   *
+   * @param dbName 数据库名称
+   * @param tableList 需要保存的表
+   */
+  void save(String dbName, Set<String> tableList) throws SQLException;
+
+  /**
+   * 将数据库恢复到快照时的状态
+   *
+   * @param dbName 数据库名称
+   * @param tableList 需要恢复的表
+   * @param schema 建表语句，需要重建数据库时使用
+   * @param schemaChanged 回放的用例是否包含DDL，不包含时表结构不变，可以只恢复数据
+   */
+  void restore(String dbName, Set<String> tableList, List<String> schema, boolean schemaChanged)
+      throws SQLException;
+}
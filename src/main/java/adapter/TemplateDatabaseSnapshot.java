@@ -0,0 +1,43 @@
+package adapter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import lombok.Cleanup;
+import util.jdbc.DataSourceUtils;
+
+/**
+ * PostgreSQL 的快照策略：以初始数据库为模板创建 dbName_restore，恢复时重建 dbName 并以 dbName_restore 为模板，
+ * 由服务端直接复制数据文件，表结构和数据一并恢复。注意 CREATE DATABASE ... TEMPLATE 要求模板库上没有其他连接
+ */
+public class TemplateDatabaseSnapshot implements SnapshotStrategy {
+  private final Adapter adapter;
+
+  public TemplateDatabaseSnapshot(Adapter adapter) {
+    super();
+    this.adapter = adapter;
+  }
+
+  @Override
+  public void save(String dbName, Set<String> tableList) throws SQLException {
+    String restoreDBName = dbName + RESTORE_SUFFIX;
+    adapter.dropDatabase(restoreDBName);
+    createFromTemplate(restoreDBName, dbName);
+  }
+
+  @Override
+  public void restore(String dbName, Set<String> tableList, List<String> schema, boolean schemaChanged)
+      throws SQLException {
+    adapter.dropDatabase(dbName);
+    createFromTemplate(dbName, dbName + RESTORE_SUFFIX);
+  }
+
+  private void createFromTemplate(String dbName, String templateName) throws SQLException {
+    String sql = String.format("create database %s template %s;", dbName, templateName);
+    @Cleanup Connection conn = DataSourceUtils.getJDBCConnection(false);
+    @Cleanup Statement stat = conn.createStatement();
+    stat.execute(sql);
+  }
+}
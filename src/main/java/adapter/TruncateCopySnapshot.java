@@ -0,0 +1,71 @@
+package adapter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import lombok.Cleanup;
+import util.jdbc.DataSourceUtils;
+
+/**
+ * MySQL/TiDB 的快照策略：用例不包含DDL时不重建数据库，而是并行地对每张表 TRUNCATE 后从 dbName_restore 复制数据，
+ * 每张表使用独立连接并关闭外键检查；包含DDL时退化为 {@link CopyTableSnapshot}
+ */
+public class TruncateCopySnapshot extends CopyTableSnapshot {
+
+  public TruncateCopySnapshot(Adapter adapter) {
+    super(adapter);
+  }
+
+  @Override
+  public void restore(String dbName, Set<String> tableList, List<String> schema, boolean schemaChanged)
+      throws SQLException {
+    if (schemaChanged || tableList.isEmpty()) {
+      super.restore(dbName, tableList, schema, true);
+      return;
+    }
+
+    String restoreDBName = dbName + RESTORE_SUFFIX;
+    int threadNum = Math.min(tableList.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (String tableName : tableList) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  restoreTable(restoreDBName, dbName, tableName);
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while restoring database " + dbName, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new SQLException("Failed to restore database " + dbName, e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void restoreTable(String fromDB, String toDB, String tableName) throws SQLException {
+    @Cleanup Connection conn = DataSourceUtils.getJDBCConnection(true);
+    @Cleanup Statement stat = conn.createStatement();
+    stat.execute("SET FOREIGN_KEY_CHECKS = 0;");
+    stat.execute(String.format("TRUNCATE TABLE %s.%s;", toDB, tableName));
+    stat.execute(
+        String.format("INSERT INTO %s.%s SELECT * FROM %s.%s;", toDB, tableName, fromDB, tableName));
+  }
+}
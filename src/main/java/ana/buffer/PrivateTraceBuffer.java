@@ -40,6 +40,14 @@ public class PrivateTraceBuffer {
     return privateBuffer.pollFirst();
   }
 
+  public OperationTrace peekTrace() {
+    return privateBuffer.peekFirst();
+  }
+
+  public boolean isEmpty() {
+    return privateBuffer.isEmpty();
+  }
+
   /**
    * 返回当前buffer的警戒线,如果没有trace，则返回MAX_VALUE，表示该buffer任何一个trace都可以读取
    *
@@ -0,0 +1,188 @@
+package ana.buffer;
+
+import static ana.main.OrcaVerify.logger;
+
+import ana.main.Config;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import trace.OperationTrace;
+
+/**
+ * 以多路归并的方式实现的Share Trace Buffer。每个trace file（loader）中的trace本身按开始时间有序，
+ * 因此只需要为每个file维护一个游标，用一个按开始时间排序的小根堆（堆中是file的编号，键是file当前头部trace的开始时间）选出下一条trace，
+ * 不需要缓存并排序所有读入的trace
+ *
+ * <p>每个file有两个private trace buffer：一个正在被归并，另一个由常驻的预读线程池提前填充，前一个取空时直接替换，
+ * 不再每一轮补充trace都为每个file新建IO线程。警戒线就是归并的前沿，即下一条trace的开始时间，所有file都读完时为MAX_VALUE
+ *
+ * @author like_
+ */
+public class ShareTraceBufferMerge extends ShareTraceBuffer {
+  /** 每个file正在归并的buffer */
+  private PrivateTraceBuffer[] current;
+
+  /** 每个file正在预读的下一个buffer，file读完之后为null */
+  private List<Future<PrivateTraceBuffer>> prefetch;
+
+  /** 小根堆，存放file的编号 */
+  private int[] heap;
+
+  /** 每个file头部trace的开始时间，file读完之后为MAX_VALUE */
+  private long[] keys;
+
+  /** 预读线程池，线程空闲一段时间后自动退出 */
+  private ThreadPoolExecutor executor;
+
+  /**
+   * 查看归并的下一条trace
+   *
+   * @return 开始时间最小的trace，只有当所有trace都已经被取出时，才会返回null
+   */
+  @Override
+  public OperationTrace peekLastTrace() {
+    if (heap == null) {
+      begin();
+    }
+    return current[heap[0]].peekTrace();
+  }
+
+  /** 取出归并的下一条trace，并推进对应file的游标 */
+  @Override
+  public void removeTrace() {
+    if (heap == null) {
+      begin();
+    }
+    int fileID = heap[0];
+    if (current[fileID].removeTrace() == null) {
+      throw new RuntimeException("last trace must not be null");
+    }
+
+    // 1.buffer取空时换上预读好的buffer，并开始预读下一个
+    if (current[fileID].isEmpty() && prefetch.get(fileID) != null) {
+      current[fileID] = take(prefetch.get(fileID));
+      prefetch.set(fileID, current[fileID].isEmpty() ? null : submit(fileID));
+    }
+
+    // 2.更新file的键，维护堆，堆顶就是新的归并前沿
+    keys[fileID] = current[fileID].peekCordonLine();
+    siftDown(0);
+    cordonLine = keys[heap[0]];
+    if (cordonLine == Long.MAX_VALUE) {
+      executor.shutdown();
+    }
+  }
+
+  private void begin() {
+    int numberFile = Config.NUMBER_THREAD;
+    int numberThread = Math.min(numberFile, Runtime.getRuntime().availableProcessors());
+    executor =
+        new ThreadPoolExecutor(
+            numberThread,
+            numberThread,
+            1,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread = new Thread(runnable);
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+
+    current = new PrivateTraceBuffer[numberFile];
+    prefetch = new ArrayList<>(numberFile);
+    heap = new int[numberFile];
+    keys = new long[numberFile];
+
+    // 1.并行读入每个file的第一个buffer
+    for (int fileID = 0; fileID < numberFile; fileID++) {
+      prefetch.add(submit(fileID));
+    }
+    for (int fileID = 0; fileID < numberFile; fileID++) {
+      current[fileID] = take(prefetch.get(fileID));
+      prefetch.set(fileID, current[fileID].isEmpty() ? null : submit(fileID));
+      keys[fileID] = current[fileID].peekCordonLine();
+      heap[fileID] = fileID;
+    }
+
+    // 2.建堆
+    for (int i = numberFile / 2 - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+    cordonLine = keys[heap[0]];
+  }
+
+  private Future<PrivateTraceBuffer> submit(int fileID) {
+    return executor.submit(
+        () -> {
+          PrivateTraceBuffer privateTraceBuffer = new PrivateTraceBuffer();
+          privateTraceBuffer.fillBuffer(fileID);
+          return privateTraceBuffer;
+        });
+  }
+
+  private PrivateTraceBuffer take(Future<PrivateTraceBuffer> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof OutOfMemoryError) {
+        // IO过程中可能会导致JVM内存溢出
+        logger.warn("prefetching traces cause OOM");
+        System.exit(-1);
+      }
+      throw new RuntimeException("Read Operation Trace Error: " + e.getCause().getMessage());
+    }
+  }
+
+  /** 开始时间相同时按file编号排序，保证归并结果是确定的 */
+  private boolean less(int fileID1, int fileID2) {
+    return keys[fileID1] < keys[fileID2] || keys[fileID1] == keys[fileID2] && fileID1 < fileID2;
+  }
+
+  private void siftDown(int i) {
+    int fileID = heap[i];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= heap.length) {
+        break;
+      }
+      if (child + 1 < heap.length && less(heap[child + 1], heap[child])) {
+        child++;
+      }
+      if (!less(heap[child], fileID)) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = fileID;
+  }
+
+  /**
+   * 返回该类中的所有对象，服务于内存开销的统计
+   *
+   * @return all object instances for memory statistics
+   */
+  @Override
+  public Object[] getAllObject() {
+    return new Object[] {heap, keys, cordonLine};
+  }
+
+  /**
+   * 返回正在归并和正在预读的buffer，服务于内存开销的统计
+   *
+   * @return all private trace buffers
+   */
+  @Override
+  public Object[] getAllPrivateBufferObject() {
+    return new Object[] {current, prefetch};
+  }
+}
@@ -76,7 +76,7 @@ public class Dependency {
       // 2.1如果nextVersion已经考察过与其前驱版本的WW依赖，那么该nextVersion之前的所有Version都已经考察过WW依赖了，结束遍历
       if (nextVersion.isWW()) {
         long finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseTrackWW(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseTrackWW(finishTS - startTS);
         return;
       }
 
@@ -128,7 +128,7 @@ public class Dependency {
     }
 
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseTrackWW(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseTrackWW(finishTS - startTS);
   }
 
   /**
@@ -162,7 +162,7 @@ public class Dependency {
     }
 
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseTrackWR(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseTrackWR(finishTS - startTS);
   }
 
   public static final String WW = "ww";
@@ -10,18 +10,39 @@ import ana.window.Active;
 import ana.window.WriteSet;
 import ana.window.profile.Profile;
 import ana.window.profile.ProfileMap;
+import context.RunContext;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.AsSubgraph;
 import org.jgrapht.graph.SimpleDirectedGraph;
 
 public class DependencyGraph {
-  /** 核心数据结构：一个简单有向图，图的节点是Profile，图的边是依赖 */
-  private static SimpleDirectedGraph<Profile, Dependency> dependencyGraph;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** 核心数据结构：一个简单有向图，图的节点是Profile，图的边是依赖 */
+    private SimpleDirectedGraph<Profile, Dependency> dependencyGraph;
+
+    /** 增量维护依赖图的拓扑序，只有新边闭合了环才去枚举具体的环路，第一次检测环路时创建 */
+    private IncrementalCycleDetector<Profile, Dependency> cycleDetector;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
 
   public static void initialize() {
-    dependencyGraph = new SimpleDirectedGraph<>(Dependency.class);
+    state().dependencyGraph = new SimpleDirectedGraph<>(Dependency.class);
+    state().cycleDetector = null;
+  }
+
+  private static IncrementalCycleDetector<Profile, Dependency> cycleDetector() {
+    if (state().cycleDetector == null) {
+      state().cycleDetector = new IncrementalCycleDetector<>(state().dependencyGraph);
+    }
+    return state().cycleDetector;
   }
 
   /**
@@ -30,9 +51,12 @@ public class DependencyGraph {
    * @param profile 需要添加的事务节点
    */
   public static void addProfile(Profile profile) {
-    dependencyGraph.addVertex(profile);
+    state().dependencyGraph.addVertex(profile);
+    if (state().cycleDetector != null) {
+      state().cycleDetector.addVertex(profile);
+    }
 
-    if (Config.LAUNCH_GC && dependencyGraph.vertexSet().size() >= Config.GRAPH_PURGE_SIZE) {
+    if (Config.LAUNCH_GC && state().dependencyGraph.vertexSet().size() >= Config.GRAPH_PURGE_SIZE) {
       pruningGraph();
     }
   }
@@ -46,7 +70,7 @@ public class DependencyGraph {
 
     // 2.找到需要剪枝的事务节点
     ArrayList<Profile> pruningProfile = new ArrayList<>();
-    for (Profile profile : dependencyGraph.vertexSet()) {
+    for (Profile profile : state().dependencyGraph.vertexSet()) {
       // 2.1可以被清理的事务Profile需要满足下述四个条件
       // 2.1.1其不是一个活跃的事务，即事务的所有trace都已经被分析过了，那么其所有的读操作都经过了WR依赖的判断（WR入边依赖），不可能有新的WR依赖产生
       // 2.1.2其结束操作的结束时间戳完全在最早读一致性时间区间开始时间戳之前，那么其所有的写操作都经过了RW依赖的判断（RW入边依赖），不可能有新的RW依赖产生
@@ -56,18 +80,18 @@ public class DependencyGraph {
           && profile.getEndFinishTimestamp()
               < earliestConsistentReadTimeInterval.getStartTimestamp()
           && WriteSet.allIsWW(WriteSet.getHistoryVersion(), profile.getTransactionID())
-          && dependencyGraph.inDegreeOf(profile) == 0) {
+          && state().dependencyGraph.inDegreeOf(profile) == 0) {
         pruningProfile.add(profile);
       }
     }
 
     // 3.移除可以剪枝的事务节点
     for (Profile profile : pruningProfile) {
-      dependencyGraph.removeVertex(profile);
+      removeVertex(profile);
     }
 
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increasePruningGraph(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increasePruningGraph(finishTS - startTS);
   }
 
   /**
@@ -80,7 +104,7 @@ public class DependencyGraph {
     // 1.优化：为了降低搜索Profile的代价，第一步先在ProfileMap中通过Hash找到指定的profile
     Profile tempProfile = ProfileMap.getProfile(transactionID);
     if (tempProfile != null) {
-      if (dependencyGraph.containsVertex(tempProfile)) {
+      if (state().dependencyGraph.containsVertex(tempProfile)) {
         return tempProfile;
       } else {
         return null;
@@ -88,7 +112,7 @@ public class DependencyGraph {
     }
 
     // 2.如果在profileMap中找不到，那么启动全图搜索
-    for (Profile profile : dependencyGraph.vertexSet()) {
+    for (Profile profile : state().dependencyGraph.vertexSet()) {
       if (profile.getTransactionID().equals(transactionID)) {
         return profile;
       }
@@ -103,7 +127,14 @@ public class DependencyGraph {
    * @throws NullPointerException 可能要被移除的事务节点在依赖图中不存在
    */
   public static void removeProfile(String transactionID) {
-    dependencyGraph.removeVertex(getProfile(transactionID));
+    removeVertex(getProfile(transactionID));
+  }
+
+  private static void removeVertex(Profile profile) {
+    state().dependencyGraph.removeVertex(profile);
+    if (state().cycleDetector != null) {
+      state().cycleDetector.removeVertex(profile);
+    }
   }
 
   /**
@@ -123,8 +154,7 @@ public class DependencyGraph {
       String dependencyKey,
       String fromOperationID,
       String toOperationID) {
-    OutputStructure.outputStructure(
-        "SC+" + newDependency + ":" + transactionID1 + "*" + transactionID2);
+    OutputStructure.outputDependency(newDependency, transactionID1, transactionID2);
 
     long startTS1 = System.nanoTime();
 
@@ -138,10 +168,10 @@ public class DependencyGraph {
     }
 
     // 3.添加依赖边，如果已经有依赖边，那么将新的边融合到旧的依赖边中
-    Dependency oldDependency = dependencyGraph.getEdge(profile1, profile2);
+    Dependency oldDependency = state().dependencyGraph.getEdge(profile1, profile2);
     if (oldDependency != null) {
       oldDependency.incorporate(newDependency);
-      dependencyGraph.addEdge(profile1, profile2, oldDependency);
+      state().dependencyGraph.addEdge(profile1, profile2, oldDependency);
     } else {
       if (Config.PG_OPTIMIZATION) {
         // 3.1.1忽略非并行事务产生的依赖
@@ -151,7 +181,7 @@ public class DependencyGraph {
         }
       }
       // 3.1.2添加新依赖边
-      dependencyGraph.addEdge(
+      state().dependencyGraph.addEdge(
           profile1,
           profile2,
           new Dependency(newDependency, dependencyKey, fromOperationID, toOperationID));
@@ -159,13 +189,13 @@ public class DependencyGraph {
       // 3.1.3统计
       switch (newDependency) {
         case Dependency.WW:
-          OrcaVerify.numberStatistic.increaseDependency(0);
+          OrcaVerify.getNumberStatistic().increaseDependency(0);
           break;
         case Dependency.WR:
-          OrcaVerify.numberStatistic.increaseDependency(1);
+          OrcaVerify.getNumberStatistic().increaseDependency(1);
           break;
         case Dependency.RW:
-          OrcaVerify.numberStatistic.increaseDependency(2);
+          OrcaVerify.getNumberStatistic().increaseDependency(2);
           break;
       }
 
@@ -173,11 +203,9 @@ public class DependencyGraph {
         // 3.2如果成功添加新依赖边，基于新添加的边发动一次环路搜索算法
         long startTS = System.nanoTime();
         if (!Config.PG_OPTIMIZATION) {
-          // 3.2.1不开启环路搜索优化算法，直接暴力搜索环路
-          JohnsonSimpleCycles<Profile, Dependency> johnsonSimpleCycles =
-              new JohnsonSimpleCycles<>(dependencyGraph);
-          if (!Config.CLOSE_CYCLE_DETECTION) {
-            List<List<Profile>> cycles = johnsonSimpleCycles.findSimpleCycles(profile1);
+          // 3.2.1不开启环路搜索优化算法，增量地判断新边是否闭合了环，闭合时再在所在的强连通分量上枚举环路
+          if (!Config.CLOSE_CYCLE_DETECTION && cycleDetector().addEdge(profile1, profile2)) {
+            List<List<Profile>> cycles = findCyclesThrough(profile1, profile2);
             if (!cycles.isEmpty()) {
               for (int i = 0; i < cycles.size(); i++) {
                 ErrorStatistics.increase(
@@ -193,8 +221,10 @@ public class DependencyGraph {
           if (newDependency.equals(Dependency.RW)) {
 
             // 3.2.2.2找到与当前依赖相邻的所有依赖
-            Set<Dependency> profile1IncomingEdges = dependencyGraph.incomingEdgesOf(profile1);
-            Set<Dependency> profile2OutgoingEdges = dependencyGraph.outgoingEdgesOf(profile2);
+            Set<Dependency> profile1IncomingEdges =
+                state().dependencyGraph.incomingEdgesOf(profile1);
+            Set<Dependency> profile2OutgoingEdges =
+                state().dependencyGraph.outgoingEdgesOf(profile2);
 
             // 3.2.2.3判断是否存在RW依赖
             for (Dependency dependency : profile1IncomingEdges) {
@@ -219,16 +249,35 @@ public class DependencyGraph {
         }
 
         long finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseDependencyGraph(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseDependencyGraph(finishTS - startTS);
       }
     }
 
     long finishTS1 = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseAddDependency(finishTS1 - startTS1);
+    OrcaVerify.getRuntimeStatistic().increaseAddDependency(finishTS1 - startTS1);
+  }
+
+  /**
+   * 枚举经过新边的环路，只在新边所在的强连通分量上运行Johnson算法
+   *
+   * @param profile1 新边的起点
+   * @param profile2 新边的终点
+   * @return 以profile1开头、第二个节点为profile2的环路
+   */
+  private static List<List<Profile>> findCyclesThrough(Profile profile1, Profile profile2) {
+    Graph<Profile, Dependency> component =
+        new AsSubgraph<>(state().dependencyGraph, state().cycleDetector.getComponent(profile1));
+    List<List<Profile>> cycles = new ArrayList<>();
+    for (List<Profile> cycle : new JohnsonSimpleCycles<>(component).findSimpleCycles(profile1)) {
+      if (cycle.get(1 % cycle.size()).equals(profile2)) {
+        cycles.add(cycle);
+      }
+    }
+    return cycles;
   }
 
   public static SimpleDirectedGraph<Profile, Dependency> getGraph() {
-    return dependencyGraph;
+    return state().dependencyGraph;
   }
 
   /** 将图整理成指定格式 */
@@ -267,6 +316,6 @@ public class DependencyGraph {
    * @return 类的所有对象
    */
   public static Object[] getAllObject() {
-    return new Object[] {dependencyGraph};
+    return new Object[] {state().dependencyGraph};
   }
 }
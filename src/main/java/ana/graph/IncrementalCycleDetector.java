@@ -0,0 +1,258 @@
+package ana.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jgrapht.Graph;
+
+/**
+ * 增量的环路检测。在图的强连通分量上维护一个拓扑序（Pearce–Kelly 动态拓扑排序），每加入一条边只检查受影响的区间，
+ * 从而判断这条边是否闭合了一个环，不需要每次都在全图上枚举环路。
+ *
+ * <p>闭合环路的边会把环上的分量合并成一个分量，之后分量内部的边都视为闭合了环。删除节点不会拆分分量，
+ * 因此结果是保守的：addEdge返回false时一定没有新的环，返回true时由调用方在该分量上确认具体的环路。
+ * 图本身由调用方维护，节点和边需要先加入图，再通知本类
+ *
+ * @param <V> 节点类型
+ * @param <E> 边类型
+ */
+public class IncrementalCycleDetector<V, E> {
+  private final Graph<V, E> graph;
+
+  /** 节点所在的分量 */
+  private final Map<V, Component<V>> componentOf = new HashMap<>();
+
+  /** 下一个新分量使用的拓扑序号，新节点没有边，放在最后即可 */
+  private int nextOrder = 0;
+
+  private static class Component<V> {
+    private final Set<V> members = new HashSet<>();
+    private int order;
+
+    Component(int order) {
+      this.order = order;
+    }
+  }
+
+  public IncrementalCycleDetector(Graph<V, E> graph) {
+    this.graph = graph;
+    for (V vertex : graph.vertexSet()) {
+      addVertex(vertex);
+    }
+    for (E edge : graph.edgeSet()) {
+      addEdge(graph.getEdgeSource(edge), graph.getEdgeTarget(edge));
+    }
+  }
+
+  public void addVertex(V vertex) {
+    if (!componentOf.containsKey(vertex)) {
+      Component<V> component = new Component<>(nextOrder++);
+      component.members.add(vertex);
+      componentOf.put(vertex, component);
+    }
+  }
+
+  public void removeVertex(V vertex) {
+    Component<V> component = componentOf.remove(vertex);
+    if (component != null) {
+      component.members.remove(vertex);
+    }
+  }
+
+  /**
+   * 返回节点所在分量的所有节点，用于在分量内枚举具体的环路
+   *
+   * @param vertex 节点
+   * @return 与vertex处于同一分量的节点
+   */
+  public Set<V> getComponent(V vertex) {
+    return componentOf.get(vertex).members;
+  }
+
+  /**
+   * 通知一条已经加入图的新边，维护拓扑序
+   *
+   * @param source 边的起点
+   * @param target 边的终点
+   * @return 这条边是否（可能）闭合了一个环
+   */
+  public boolean addEdge(V source, V target) {
+    Component<V> from = componentOf.get(source);
+    Component<V> to = componentOf.get(target);
+    if (from == to) {
+      return true;
+    }
+    if (from.order < to.order) {
+      return false;
+    }
+
+    // 1.从终点向前搜索拓扑序不超过起点的分量，搜到起点说明闭合了环
+    int upperBound = from.order;
+    Set<Component<V>> forward = new LinkedHashSet<>();
+    if (searchForward(to, from, upperBound, forward)) {
+      mergeCycle(from, forward);
+      return true;
+    }
+
+    // 2.从起点向后搜索拓扑序不小于终点的分量，两部分按原来的序号重新排列，后向部分整体排在前向部分之前
+    int lowerBound = to.order;
+    Set<Component<V>> backward = new LinkedHashSet<>();
+    searchBackward(from, lowerBound, backward);
+    reorder(new ArrayList<>(backward), new ArrayList<>(forward));
+    return false;
+  }
+
+  private boolean searchForward(
+      Component<V> start, Component<V> goal, int upperBound, Set<Component<V>> visited) {
+    // 搜到起点之后继续搜完，合并环路时需要完整的前向区域
+    boolean reached = false;
+    Deque<Component<V>> stack = new ArrayDeque<>();
+    stack.push(start);
+    visited.add(start);
+    while (!stack.isEmpty()) {
+      Component<V> component = stack.pop();
+      for (Component<V> next : successors(component)) {
+        if (next == goal) {
+          reached = true;
+        } else if (next.order < upperBound && visited.add(next)) {
+          stack.push(next);
+        }
+      }
+    }
+    return reached;
+  }
+
+  private void searchBackward(Component<V> start, int lowerBound, Set<Component<V>> visited) {
+    Deque<Component<V>> stack = new ArrayDeque<>();
+    stack.push(start);
+    visited.add(start);
+    while (!stack.isEmpty()) {
+      Component<V> component = stack.pop();
+      for (Component<V> previous : predecessors(component)) {
+        if (previous.order > lowerBound && visited.add(previous)) {
+          stack.push(previous);
+        }
+      }
+    }
+  }
+
+  private void reorder(List<Component<V>> backward, List<Component<V>> forward) {
+    Comparator<Component<V>> byOrder = Comparator.comparingInt(c -> c.order);
+    backward.sort(byOrder);
+    forward.sort(byOrder);
+    List<Integer> orders = new ArrayList<>(backward.size() + forward.size());
+    for (Component<V> component : backward) {
+      orders.add(component.order);
+    }
+    for (Component<V> component : forward) {
+      orders.add(component.order);
+    }
+    orders.sort(null);
+    int i = 0;
+    for (Component<V> component : backward) {
+      component.order = orders.get(i++);
+    }
+    for (Component<V> component : forward) {
+      component.order = orders.get(i++);
+    }
+  }
+
+  /**
+   * 新边闭合了环：前向搜索到的分量中能到达起点的那些都在环上，把它们并入起点所在的分量，再重新计算拓扑序。
+   * 闭合环路的边就是错误，出现得很少，所以这里直接在全图上重排
+   */
+  private void mergeCycle(Component<V> from, Set<Component<V>> forward) {
+    Set<Component<V>> onCycle = new HashSet<>();
+    onCycle.add(from);
+    Deque<Component<V>> stack = new ArrayDeque<>();
+    stack.push(from);
+    while (!stack.isEmpty()) {
+      Component<V> component = stack.pop();
+      for (Component<V> previous : predecessors(component)) {
+        if (forward.contains(previous) && onCycle.add(previous)) {
+          stack.push(previous);
+        }
+      }
+    }
+
+    for (Component<V> component : onCycle) {
+      if (component != from) {
+        for (V vertex : component.members) {
+          componentOf.put(vertex, from);
+        }
+        from.members.addAll(component.members);
+      }
+    }
+    renumber();
+  }
+
+  /** 在分量构成的图上用Kahn算法重新计算拓扑序 */
+  private void renumber() {
+    Set<Component<V>> components = new LinkedHashSet<>(componentOf.values());
+    Map<Component<V>, Integer> inDegree = new HashMap<>();
+    for (Component<V> component : components) {
+      inDegree.putIfAbsent(component, 0);
+      for (Component<V> next : successors(component)) {
+        inDegree.merge(next, 1, Integer::sum);
+      }
+    }
+    List<Component<V>> sources = new ArrayList<>();
+    for (Component<V> component : components) {
+      if (inDegree.get(component) == 0) {
+        sources.add(component);
+      }
+    }
+    sources.sort(Comparator.comparingInt(c -> c.order));
+    Deque<Component<V>> queue = new ArrayDeque<>(sources);
+
+    int order = 0;
+    while (!queue.isEmpty()) {
+      Component<V> component = queue.poll();
+      component.order = order++;
+      components.remove(component);
+      for (Component<V> next : successors(component)) {
+        if (inDegree.merge(next, -1, Integer::sum) == 0) {
+          queue.add(next);
+        }
+      }
+    }
+    // 删除节点后残留的分量理论上不会成环，保险起见按原顺序排在最后
+    for (Component<V> component : components) {
+      component.order = order++;
+    }
+    nextOrder = order;
+  }
+
+  private Set<Component<V>> successors(Component<V> component) {
+    Set<Component<V>> result = new LinkedHashSet<>();
+    for (V vertex : component.members) {
+      for (E edge : graph.outgoingEdgesOf(vertex)) {
+        Component<V> next = componentOf.get(graph.getEdgeTarget(edge));
+        if (next != null && next != component) {
+          result.add(next);
+        }
+      }
+    }
+    return result;
+  }
+
+  private Set<Component<V>> predecessors(Component<V> component) {
+    Set<Component<V>> result = new LinkedHashSet<>();
+    for (V vertex : component.members) {
+      for (E edge : graph.incomingEdgesOf(vertex)) {
+        Component<V> previous = componentOf.get(graph.getEdgeSource(edge));
+        if (previous != null && previous != component) {
+          result.add(previous);
+        }
+      }
+    }
+    return result;
+  }
+}
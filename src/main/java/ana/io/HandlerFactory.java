@@ -1,10 +1,14 @@
 package ana.io;
 
 import ana.main.Config;
+import context.RunContext;
 import java.io.IOException;
 import java.util.ArrayList;
 import trace.BufferedTransactionTraceReader;
+import trace.MemoryTraceStore;
+import trace.MemoryTransactionTraceReader;
 import trace.OperationTrace;
+import trace.StreamTransactionTraceReader;
 
 /**
  * Trace文件io相关操作
@@ -13,14 +17,21 @@ import trace.OperationTrace;
  */
 public class HandlerFactory {
 
-  /** 处理每一个trace file的io句柄 */
-  private static ArrayList<BufferedTransactionTraceReader> fileHandler;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** 处理每一个trace file的io句柄 */
+    private ArrayList<BufferedTransactionTraceReader> fileHandler;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
 
   /** 初始化fileHandler和rotation */
   public static void initialize() {
-    fileHandler = new ArrayList<>();
+    state().fileHandler = new ArrayList<>();
     for (int threadID = 0; threadID < Config.NUMBER_THREAD; threadID++) {
-      fileHandler.add(null);
+      state().fileHandler.add(null);
     }
   }
 
@@ -32,17 +43,32 @@ public class HandlerFactory {
    */
   public static OperationTrace nextOperationTrace(int threadID) {
     try {
-      if (fileHandler.get(threadID) == null) {
-        BufferedTransactionTraceReader traceReader =
-            new BufferedTransactionTraceReader(
-                Config.JSON_TRACE_OUTPUT_DIRECTORY + "loader-" + threadID);
+      if (state().fileHandler.get(threadID) == null) {
+        BufferedTransactionTraceReader traceReader;
+        if (MemoryTraceStore.isStreaming()) {
+          // 边回放边分析，等待回放线程产生trace
+          traceReader =
+              new BufferedTransactionTraceReader(
+                  new StreamTransactionTraceReader(MemoryTraceStore.getStream(threadID)));
+        } else if (MemoryTraceStore.isActive()) {
+          // 回放产生的trace直接从内存中读取，不经过文件
+          traceReader =
+              new BufferedTransactionTraceReader(
+                  new MemoryTransactionTraceReader(MemoryTraceStore.getTraces(threadID)));
+        } else {
+          traceReader =
+              new BufferedTransactionTraceReader(
+                  RunContext.current().resolveOutput(Config.JSON_TRACE_OUTPUT_DIRECTORY, "trace/")
+                      + "loader-"
+                      + threadID);
+        }
         //				System.err.println(Config.JSON_TRACE_OUTPUT_DIRECTORY +
         //						"loader-" + threadID);
         traceReader.begin();
-        fileHandler.set(threadID, traceReader);
+        state().fileHandler.set(threadID, traceReader);
       }
-      if (fileHandler.get(threadID).hasNext()) {
-        return fileHandler.get(threadID).readOperationTrace();
+      if (state().fileHandler.get(threadID).hasNext()) {
+        return state().fileHandler.get(threadID).readOperationTrace();
       } else {
         return null;
       }
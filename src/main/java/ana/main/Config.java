@@ -54,6 +54,9 @@ public class Config {
 
   public static boolean CLOSE_CYCLE_DETECTION;
 
+  /** 读一致性和first-updater-wins验证按key分片并行的分片数，为1时在分析线程上逐个检查 */
+  public static int VERIFY_THREADS;
+
   public static String ANALYSIS_TARGET_DIR;
 
   public static String JSON_TRACE_OUTPUT_DIRECTORY;
@@ -139,6 +142,7 @@ public class Config {
       OUTPUT_RUNTIME = true;
       VERIFY = true;
       CLOSE_CYCLE_DETECTION = true;
+      VERIFY_THREADS = Runtime.getRuntime().availableProcessors();
       PG_OPTIMIZATION = false;
 
       ANALYSIS_TARGET_DIR = analysisTargetDir;
@@ -1,10 +1,11 @@
 package ana.main;
 
 import ana.buffer.ShareTraceBuffer;
-import ana.buffer.ShareTraceBufferHeap;
+import ana.buffer.ShareTraceBufferMerge;
 import ana.io.HandlerFactory;
 import ana.output.*;
 import ana.thread.AnalysisThread;
+import context.RunContext;
 import java.io.File;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,7 +13,7 @@ import replay.controller.ReplayController;
 
 public class OrcaVerify {
   public static void main(String[] args) {
-    runtimeStatistic.initialUserRealTime();
+    getRuntimeStatistic().initialUserRealTime();
 
     // 0.初始化配置信息
     if (args.length != 5) {
@@ -42,7 +43,7 @@ public class OrcaVerify {
     // buffer
     HandlerFactory.initialize();
     ReplayController.init();
-    shareTraceBuffer = new ShareTraceBufferHeap();
+    setShareTraceBuffer(new ShareTraceBufferMerge());
 
     // output
     ErrorStatistics.initialize();
@@ -63,14 +64,15 @@ public class OrcaVerify {
 
     // 3.启动分析线程
     long startTS = System.nanoTime();
-    analysisThread = new AnalysisThread();
-    analysisThread.run();
+    setAnalysisThread(new AnalysisThread());
+    getAnalysisThread().run();
     long finishTS = System.nanoTime();
-    runtimeStatistic.setAnalysisTotalTime(finishTS - startTS);
+    getRuntimeStatistic().setAnalysisTotalTime(finishTS - startTS);
 
     // 4.输出分析结果
     ErrorStatistics.outputStatistics();
     OutputCertificate.flush();
+    OutputStructure.close();
   }
 
   public static void printUsageAndExit() {
@@ -84,13 +86,44 @@ public class OrcaVerify {
     System.exit(-1);
   }
 
-  // 主任务
-  public static ShareTraceBuffer shareTraceBuffer;
-  public static AnalysisThread analysisThread;
+  /** 主任务，每次运行独立，见 RunContext */
+  private static class State {
+    private ShareTraceBuffer shareTraceBuffer;
+    private AnalysisThread analysisThread;
+
+    // 用于性能统计，并发分析的各个运行分别计数
+    private final NumberStatistic numberStatistic = new NumberStatistic();
+    private final RuntimeStatistic runtimeStatistic = new RuntimeStatistic();
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  public static ShareTraceBuffer getShareTraceBuffer() {
+    return state().shareTraceBuffer;
+  }
+
+  public static void setShareTraceBuffer(ShareTraceBuffer shareTraceBuffer) {
+    state().shareTraceBuffer = shareTraceBuffer;
+  }
+
+  public static AnalysisThread getAnalysisThread() {
+    return state().analysisThread;
+  }
+
+  public static void setAnalysisThread(AnalysisThread analysisThread) {
+    state().analysisThread = analysisThread;
+  }
+
+  public static NumberStatistic getNumberStatistic() {
+    return state().numberStatistic;
+  }
+
+  public static RuntimeStatistic getRuntimeStatistic() {
+    return state().runtimeStatistic;
+  }
 
-  // 用于性能统计
-  public static final NumberStatistic numberStatistic = new NumberStatistic();
-  public static final RuntimeStatistic runtimeStatistic = new RuntimeStatistic();
   public static final Thread mainThread = Thread.currentThread();
 
   // 用于输出命令行输出，全局唯一一个
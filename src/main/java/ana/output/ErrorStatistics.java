@@ -1,13 +1,37 @@
 package ana.output;
 
 import ana.main.OrcaVerify;
+import context.RunContext;
 import java.util.*;
 
 public class ErrorStatistics {
-  /** error统计 */
-  public static Map<ErrorType, Set<String>> errorStatistics = null;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** error统计 */
+    private Map<ErrorType, Set<String>> errorStatistics = null;
 
-  public static boolean triggerBug = false;
+    /** 回放过程中是否已经触发了bug，回放线程写入，主线程读取 */
+    private volatile boolean triggerBug = false;
+
+    /** 记录到与原始错误相同的错误时的回调，边回放边分析时用于提前终止回放 */
+    private volatile Runnable sameErrorListener = null;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  public static Map<ErrorType, Set<String>> getErrorStatistics() {
+    return state().errorStatistics;
+  }
+
+  public static boolean isTriggerBug() {
+    return state().triggerBug;
+  }
+
+  public static void setTriggerBug(boolean triggerBug) {
+    state().triggerBug = triggerBug;
+  }
 
   /**
    * 判断是否存在至少一个和原始错误相同的错误
@@ -19,9 +43,9 @@ public class ErrorStatistics {
     //    errorStatistics.put(ErrorType.READ_OTHER_ERROR, new HashSet<>());
     for (ErrorType err : ErrorType.values()) {
       // 判断是否是同一种错误
-      if (!errorStatistics.get(err).isEmpty() && originalErrorTypes.contains(err)) {
+      if (!state().errorStatistics.get(err).isEmpty() && originalErrorTypes.contains(err)) {
         // 判断错误的事物是不是同一个
-        for (String id : errorStatistics.get(err)) {
+        for (String id : state().errorStatistics.get(err)) {
           if (originalErrorTransactions.contains(id)) {
             hasSameError = true;
             break;
@@ -46,22 +70,38 @@ public class ErrorStatistics {
   public static final Set<String> originalErrorTransactions = new HashSet<>();
 
   public static void initialize() {
-    errorStatistics = new HashMap<>();
+    state().errorStatistics = new HashMap<>();
     for (ErrorType err : ErrorType.values()) {
-      errorStatistics.put(err, new HashSet<>());
+      state().errorStatistics.put(err, new HashSet<>());
     }
   }
 
   public static void increase(ErrorType errorType, String opId) {
-    errorStatistics.get(errorType).add(opId);
+    state().errorStatistics.get(errorType).add(opId);
+
+    Runnable listener = state().sameErrorListener;
+    if (listener != null
+        && originalErrorTypes.contains(errorType)
+        && originalErrorTransactions.contains(opId)) {
+      listener.run();
+    }
+  }
+
+  /**
+   * 设置记录到与原始错误（见pinError）相同的错误时的回调，不会被initialize清除
+   *
+   * @param listener 回调，为null时取消
+   */
+  public static void setSameErrorListener(Runnable listener) {
+    state().sameErrorListener = listener;
   }
 
   /** 输出测试结果的分类统计 */
   public static void outputStatistics() {
     List<Integer> errorStatisticsList = new ArrayList<>();
     for (ErrorType err : ErrorType.values()) {
-      errorStatisticsList.add(errorStatistics.get(err).size());
-      OrcaVerify.logger.info("{}={}", err.toString(), errorStatistics.get(err).size());
+      errorStatisticsList.add(state().errorStatistics.get(err).size());
+      OrcaVerify.logger.info("{}={}", err.toString(), state().errorStatistics.get(err).size());
     }
 
     OrcaVerify.logger.info("End of Verification: Error Statistics{}", errorStatisticsList);
@@ -71,7 +111,7 @@ public class ErrorStatistics {
     int sum = 0;
     //    errorStatistics.put(ErrorType.READ_OTHER_ERROR, new HashSet<>());
     //    errorStatistics.put(ErrorType.READ_SELF_ERROR, new HashSet<>());
-    for (Set<String> ids : errorStatistics.values()) {
+    for (Set<String> ids : state().errorStatistics.values()) {
       sum += ids.size();
     }
     return sum > 0;
@@ -84,9 +124,9 @@ public class ErrorStatistics {
     originalErrorTransactions.clear();
 
     for (ErrorType err : ErrorType.values()) {
-      if (!errorStatistics.get(err).isEmpty()) {
+      if (!state().errorStatistics.get(err).isEmpty()) {
         originalErrorTypes.add(err);
-        originalErrorTransactions.addAll(errorStatistics.get(err));
+        originalErrorTransactions.addAll(state().errorStatistics.get(err));
       }
     }
   }
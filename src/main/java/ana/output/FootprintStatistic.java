@@ -1,6 +1,5 @@
 package ana.output;
 
-import ana.buffer.PrivateTraceBufferList;
 import ana.graph.DependencyGraph;
 import ana.main.OrcaVerify;
 import ana.version.HistoryVersion;
@@ -55,9 +54,10 @@ public class FootprintStatistic {
             () -> {
               // 1.1计算
               fs.setShareTraceBuffer(
-                  RamUsageEstimator.sizeOf(OrcaVerify.shareTraceBuffer.getAllObject()));
+                  RamUsageEstimator.sizeOf(OrcaVerify.getShareTraceBuffer().getAllObject()));
               fs.setPrivateTraceBufferList(
-                  RamUsageEstimator.sizeOf(PrivateTraceBufferList.getAllObject()));
+                  RamUsageEstimator.sizeOf(
+                      OrcaVerify.getShareTraceBuffer().getAllPrivateBufferObject()));
               fs.setBufferModule(fs.getPrivateTraceBufferList() + fs.getShareTraceBuffer());
 
               // 1.2统计
@@ -62,6 +62,10 @@ public class NumberStatistic {
     this.mutualExclusive++;
   }
 
+  public void increaseMutualExclusive(long increment) {
+    this.mutualExclusive += increment;
+  }
+
   public void increaseFirstUpdaterWins() {
     this.firstUpdaterWins++;
   }
@@ -73,7 +77,7 @@ public class NumberStatistic {
    */
   public void statistic(OperationTrace operationTrace) {
 
-    OrcaVerify.numberStatistic.increaseTrace();
+    increaseTrace();
 
     switch (operationTrace.getOperationTraceType()) {
       case START:
@@ -81,23 +85,23 @@ public class NumberStatistic {
             "T:" + operationTrace.getTransactionID() + " IL:" + operationTrace.getIsolationLevel());
         break;
       case COMMIT:
-        OrcaVerify.numberStatistic.increaseTransaction(0);
+        increaseTransaction(0);
         break;
       case ROLLBACK:
-        OrcaVerify.numberStatistic.increaseTransaction(1);
+        increaseTransaction(1);
         break;
       case INSERT:
       case DELETE:
       case UPDATE:
         if (operationTrace.getWriteTupleList() != null) {
-          OrcaVerify.numberStatistic.increaseWriteTuple(operationTrace.getWriteTupleList().size());
+          increaseWriteTuple(operationTrace.getWriteTupleList().size());
         }
         break;
       case SELECT:
         if (operationTrace.getReadTupleList() == null) {
-          OrcaVerify.numberStatistic.increaseReadTuple(0);
+          increaseReadTuple(0);
         } else {
-          OrcaVerify.numberStatistic.increaseReadTuple(operationTrace.getReadTupleList().size());
+          increaseReadTuple(operationTrace.getReadTupleList().size());
         }
         break;
     }
@@ -9,6 +9,7 @@ import ana.version.VersionChain;
 import ana.window.WriteSet;
 import ana.window.profile.Profile;
 import com.google.gson.Gson;
+import context.RunContext;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,19 +26,35 @@ public class OutputCertificate {
 
   private static final Logger logger = LogManager.getLogger(OutputCertificate.class);
 
-  /** certificate 写io handler */
-  private static BufferedWriter certificateHandler4RecordLock = null;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** certificate 写io handler */
+    private BufferedWriter certificateHandler4RecordLock = null;
+
+    private BufferedWriter certificateHandler4PredicateLock = null;
+    private BufferedWriter certificateHandler4ReadSelf = null;
+    private BufferedWriter certificateHandler4ReadOther = null;
+    private BufferedWriter tempHandler4ReadOther = null;
+    private BufferedWriter certificateHandler4SerializeAccess = null;
+    private BufferedWriter certificateHandler4DependencyCycle = null;
+  }
 
-  private static BufferedWriter certificateHandler4PredicateLock = null;
-  private static BufferedWriter certificateHandler4ReadSelf = null;
-  private static BufferedWriter certificateHandler4ReadOther = null;
-  private static BufferedWriter tempHandler4ReadOther = null;
-  private static BufferedWriter certificateHandler4SerializeAccess = null;
-  private static BufferedWriter certificateHandler4DependencyCycle = null;
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
 
   /** 将对象按json格式输出 */
   private static Gson gson = null;
 
+  /**
+   * 本次运行的certificate文件前缀
+   *
+   * @return 默认运行使用全局的输出路径，其他运行输出到各自的目录下
+   */
+  private static String certificatePrefix() {
+    return RunContext.current().resolveOutput(Config.CERTIFICATE_OUTPUT_FILE, "certificate");
+  }
+
   public static void initialize() {
     gson = new Gson();
   }
@@ -69,13 +86,13 @@ public class OutputCertificate {
     ArrayList<OperationTraceJson> certificateRecordLock = new ArrayList<>();
 
     try {
-      certificateHandler4RecordLock =
+      state().certificateHandler4RecordLock =
           new BufferedWriter(
               new OutputStreamWriter(
                   new FileOutputStream(
-                      Config.CERTIFICATE_OUTPUT_FILE
+                      certificatePrefix()
                           + "RecordLock"
-                          + ErrorStatistics.errorStatistics
+                          + ErrorStatistics.getErrorStatistics()
                               .get(ErrorStatistics.ErrorType.RECORD_LOCK_ERROR)
                               .size()
                           + ".json")));
@@ -108,9 +125,9 @@ public class OutputCertificate {
         new OperationTraceJson("the conflict tuple-level lock(R2) held by T2,Op: ", tupleTrace2));
 
     try {
-      certificateHandler4RecordLock.write(gson.toJson(certificateRecordLock));
-      certificateHandler4RecordLock.flush();
-      certificateHandler4RecordLock.close();
+      state().certificateHandler4RecordLock.write(gson.toJson(certificateRecordLock));
+      state().certificateHandler4RecordLock.flush();
+      state().certificateHandler4RecordLock.close();
     } catch (IOException e) {
       logger.warn(e);
     }
@@ -129,13 +146,13 @@ public class OutputCertificate {
     ArrayList<OperationTraceJson> certificatePredicateLock = new ArrayList<>();
 
     try {
-      certificateHandler4PredicateLock =
+      state().certificateHandler4PredicateLock =
           new BufferedWriter(
               new OutputStreamWriter(
                   new FileOutputStream(
-                      Config.CERTIFICATE_OUTPUT_FILE
+                      certificatePrefix()
                           + "PredicateLock"
-                          + ErrorStatistics.errorStatistics
+                          + ErrorStatistics.getErrorStatistics()
                               .get(ErrorStatistics.ErrorType.PREDICATE_LOCK_ERROR)
                               .size()
                           + ".json")));
@@ -166,9 +183,9 @@ public class OutputCertificate {
         new OperationTraceJson("the conflict tuple-level lock(R): ", tupleTrace));
 
     try {
-      certificateHandler4PredicateLock.write(gson.toJson(certificatePredicateLock));
-      certificateHandler4PredicateLock.flush();
-      certificateHandler4PredicateLock.close();
+      state().certificateHandler4PredicateLock.write(gson.toJson(certificatePredicateLock));
+      state().certificateHandler4PredicateLock.flush();
+      state().certificateHandler4PredicateLock.close();
     } catch (IOException e) {
       logger.warn(e);
     }
@@ -187,13 +204,13 @@ public class OutputCertificate {
     ArrayList<OperationTraceJson> certificateReadSelf = new ArrayList<>();
 
     try {
-      certificateHandler4ReadSelf =
+      state().certificateHandler4ReadSelf =
           new BufferedWriter(
               new OutputStreamWriter(
                   new FileOutputStream(
-                      Config.CERTIFICATE_OUTPUT_FILE
+                      certificatePrefix()
                           + "ReadSelf"
-                          + ErrorStatistics.errorStatistics
+                          + ErrorStatistics.getErrorStatistics()
                               .get(ErrorStatistics.ErrorType.READ_SELF_ERROR)
                               .size()
                           + ".json")));
@@ -215,9 +232,9 @@ public class OutputCertificate {
             "the version chain(VC) on R: ", HistoryVersion.getVersionChain(tupleTrace.getKey())));
 
     try {
-      certificateHandler4ReadSelf.write(gson.toJson(certificateReadSelf));
-      certificateHandler4ReadSelf.flush();
-      certificateHandler4ReadSelf.close();
+      state().certificateHandler4ReadSelf.write(gson.toJson(certificateReadSelf));
+      state().certificateHandler4ReadSelf.flush();
+      state().certificateHandler4ReadSelf.close();
     } catch (IOException e) {
       logger.warn(e);
     }
@@ -232,13 +249,13 @@ public class OutputCertificate {
     ArrayList<OperationTraceJson> certificateReadOther = new ArrayList<>();
 
     try {
-      certificateHandler4ReadOther =
+      state().certificateHandler4ReadOther =
           new BufferedWriter(
               new OutputStreamWriter(
                   new FileOutputStream(
-                      Config.CERTIFICATE_OUTPUT_FILE
+                      certificatePrefix()
                           + "ReadOther"
-                          + ErrorStatistics.errorStatistics
+                          + ErrorStatistics.getErrorStatistics()
                               .get(ErrorStatistics.ErrorType.READ_OTHER_ERROR)
                               .size()
                           + ".json")));
@@ -271,9 +288,9 @@ public class OutputCertificate {
 
     try {
 
-      certificateHandler4ReadOther.write(gson.toJson(certificateReadOther));
-      certificateHandler4ReadOther.flush();
-      certificateHandler4ReadOther.close();
+      state().certificateHandler4ReadOther.write(gson.toJson(certificateReadOther));
+      state().certificateHandler4ReadOther.flush();
+      state().certificateHandler4ReadOther.close();
     } catch (IOException e) {
       logger.warn(e);
     }
@@ -285,7 +302,7 @@ public class OutputCertificate {
     //                  new FileOutputStream(
     //                      Config.CERTIFICATE_OUTPUT_FILE
     //                          + "ReadOther"
-    //                          + ErrorStatistics.errorStatistics
+    //                          + ErrorStatistics.getErrorStatistics()
     //                              .get(ErrorStatistics.ErrorType.READ_OTHER_ERROR)
     //                              .size()
     //                          + "-temp.json")));
@@ -323,13 +340,13 @@ public class OutputCertificate {
     ArrayList<OperationTraceJson> certificateSerializeAccess = new ArrayList<>();
 
     try {
-      certificateHandler4SerializeAccess =
+      state().certificateHandler4SerializeAccess =
           new BufferedWriter(
               new OutputStreamWriter(
                   new FileOutputStream(
-                      Config.CERTIFICATE_OUTPUT_FILE
+                      certificatePrefix()
                           + "SerializeAccess"
-                          + ErrorStatistics.errorStatistics
+                          + ErrorStatistics.getErrorStatistics()
                               .get(ErrorStatistics.ErrorType.SERIALIZE_ACCESS_ERROR)
                               .size()
                           + ".json")));
@@ -379,9 +396,9 @@ public class OutputCertificate {
         new OperationTraceJson("the version chain(VC) on R1: ", versionChain));
 
     try {
-      certificateHandler4SerializeAccess.write(gson.toJson(certificateSerializeAccess));
-      certificateHandler4SerializeAccess.flush();
-      certificateHandler4SerializeAccess.close();
+      state().certificateHandler4SerializeAccess.write(gson.toJson(certificateSerializeAccess));
+      state().certificateHandler4SerializeAccess.flush();
+      state().certificateHandler4SerializeAccess.close();
     } catch (IOException e) {
       logger.warn(e);
     }
@@ -394,13 +411,13 @@ public class OutputCertificate {
     ArrayList<OperationTraceJson> certificateDependencyCycle = new ArrayList<>();
 
     try {
-      certificateHandler4DependencyCycle =
+      state().certificateHandler4DependencyCycle =
           new BufferedWriter(
               new OutputStreamWriter(
                   new FileOutputStream(
-                      Config.CERTIFICATE_OUTPUT_FILE
+                      certificatePrefix()
                           + "DependencyCycle"
-                          + ErrorStatistics.errorStatistics
+                          + ErrorStatistics.getErrorStatistics()
                               .get(ErrorStatistics.ErrorType.DEPENDENCY_CYCLE_ERROR)
                               .size()
                           + ".json")));
@@ -439,9 +456,9 @@ public class OutputCertificate {
             "The Whole Dependency Graph", DependencyGraph.outputGraph(DependencyGraph.getGraph())));
 
     try {
-      certificateHandler4DependencyCycle.write(gson.toJson(certificateDependencyCycle));
-      certificateHandler4DependencyCycle.flush();
-      certificateHandler4DependencyCycle.close();
+      state().certificateHandler4DependencyCycle.write(gson.toJson(certificateDependencyCycle));
+      state().certificateHandler4DependencyCycle.flush();
+      state().certificateHandler4DependencyCycle.close();
     } catch (IOException e) {
       logger.warn(e);
     }
@@ -2,70 +2,449 @@ package ana.output;
 
 import ana.main.Config;
 import com.google.gson.Gson;
+import context.RunContext;
 import java.io.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/**
+ * 分析过程中的debug输出（debug.json），每行一个json字符串
+ *
+ * <p>调用方只把记录的类型和引用到的id放进一个无锁的环形缓冲区，由后台的写线程拼接成行、批量写入并定期flush，
+ * 分析线程上不再有json序列化和每条记录一次的flush。level为OFF时调用方直接返回，不构造任何记录
+ *
+ * <p>运行结束时调用close写完剩余的记录、关闭文件并结束写线程；之后同一运行中再有输出时重新打开文件，追加写入
+ */
 public class OutputStructure {
 
   private static final Logger logger = LogManager.getLogger(OutputCertificate.class);
 
+  /** 输出级别，高级别包含低级别的记录 */
+  public enum Level {
+    /** 不输出 */
+    OFF,
+    /** 只输出分析过的操作 */
+    OPERATION,
+    /** 同时输出推断出的ME、FUW依赖以及加入依赖图的依赖，默认级别 */
+    ALL
+  }
+
+  /** 记录的类型，决定一行的格式 */
+  public enum Kind {
+    /** 分析过的操作：operationID */
+    OPERATION,
+    /** ME推断出的依赖：ME:from*to */
+    ME,
+    /** FUW推断出的依赖：FUW:from*to */
+    FUW,
+    /** 加入依赖图的依赖：SC+dependency:from*to */
+    SC,
+    /** 调用方已经格式化好的json，写入debug.json */
+    JSON,
+    /** 调用方已经格式化好的json，写入unified.json */
+    UNIFIED
+  }
+
   /** 将对象按json格式输出 */
-  private static Gson gson = null;
+  private static final Gson gson = new Gson();
+
+  /** 环形缓冲区的大小 */
+  static final int RING_SIZE = 1 << 14;
+
+  /** 写线程在缓冲区为空时的等待时间，以及持续写入时两次flush之间的最长间隔 */
+  static final long FLUSH_INTERVAL_NANOS = 10_000_000L;
+
+  /** 缓冲区已满或者等待flush时，调用方每次park的时间 */
+  private static final long WAIT_NANOS = 100_000L;
+
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** 输出级别 */
+    private volatile Level level = Level.ALL;
+
+    /** 写io handler */
+    private BufferedWriter debugIOHandler = null;
+
+    /** 将所有trace整合到统一的文件中 */
+    private BufferedWriter unifiedIOHandler = null;
+
+    private Ring ring = null;
 
-  /** 写io handler */
-  private static BufferedWriter debugIOHandler = null;
+    private Thread writer = null;
 
-  /** 将所有trace整合到统一的文件中 */
-  private static BufferedWriter unifiedIOHandler = null;
+    /** 写线程已经写入并flush的记录数 */
+    private volatile long flushed = 0;
 
-  private static void initialize() {
-    gson = new Gson();
+    /** 写线程写完缓冲区中的记录后退出，见 close */
+    private volatile boolean closing = false;
 
+    /** 写线程异常退出的原因 */
+    private volatile Throwable failure = null;
+
+    /** 本次运行是否已经打开过输出文件，再次打开时追加写入 */
+    private boolean opened = false;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  /**
+   * 多个生产者、一个消费者的有界无锁环形缓冲区。每个槽位有一个序号：等于位置时可以写入，等于位置加一时可以读出，
+   * 读出之后加上容量，留给下一圈的写入
+   */
+  private static final class Ring {
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final Kind[] kinds;
+    private final String[] firsts;
+    private final String[] seconds;
+    private final String[] thirds;
+
+    /** 下一个写入的位置，生产者竞争 */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** 下一个读出的位置，只有写线程访问 */
+    private long head = 0;
+
+    Ring(int size) {
+      mask = size - 1;
+      sequences = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+        sequences.set(i, i);
+      }
+      kinds = new Kind[size];
+      firsts = new String[size];
+      seconds = new String[size];
+      thirds = new String[size];
+    }
+
+    /**
+     * 写入一条记录
+     *
+     * @return 缓冲区已满时返回false
+     */
+    boolean offer(Kind kind, String first, String second, String third) {
+      long position = tail.get();
+      while (true) {
+        int index = (int) position & mask;
+        long difference = sequences.get(index) - position;
+        if (difference == 0) {
+          if (tail.compareAndSet(position, position + 1)) {
+            kinds[index] = kind;
+            firsts[index] = first;
+            seconds[index] = second;
+            thirds[index] = third;
+            sequences.set(index, position + 1);
+            return true;
+          }
+          position = tail.get();
+        } else if (difference < 0) {
+          return false;
+        } else {
+          position = tail.get();
+        }
+      }
+    }
+
+    long written() {
+      return tail.get();
+    }
+
+    /**
+     * 按写入的顺序读出已经写完的记录
+     *
+     * @return 读出的记录数
+     */
+    int drain(BufferedWriter debug, BufferedWriter unified) throws IOException {
+      int count = 0;
+      while (true) {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+          return count;
+        }
+        Kind kind = kinds[index];
+        BufferedWriter out = kind == Kind.UNIFIED ? unified : debug;
+        // 文件打开失败时丢弃记录
+        if (out != null) {
+          format(out, kind, firsts[index], seconds[index], thirds[index]);
+          out.newLine();
+        }
+        firsts[index] = null;
+        seconds[index] = null;
+        thirds[index] = null;
+        sequences.set(index, head + mask + 1);
+        head++;
+        count++;
+      }
+    }
+  }
+
+  /** 与gson.toJson(String)的输出相同：常见的id直接加上引号，含有需要转义的字符时交给gson */
+  private static void format(
+      BufferedWriter out, Kind kind, String first, String second, String third)
+      throws IOException {
+    String line;
+    switch (kind) {
+      case OPERATION:
+        line = first;
+        break;
+      case ME:
+        line = "ME:" + first + "*" + second;
+        break;
+      case FUW:
+        line = "FUW:" + first + "*" + second;
+        break;
+      case SC:
+        line = "SC+" + first + ":" + second + "*" + third;
+        break;
+      default:
+        out.write(first);
+        return;
+    }
+    if (needsEscape(line)) {
+      out.write(gson.toJson(line));
+    } else {
+      out.write('"');
+      out.write(line);
+      out.write('"');
+    }
+  }
+
+  private static boolean needsEscape(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x20
+          || c == '"'
+          || c == '\\'
+          || c == '<'
+          || c == '>'
+          || c == '&'
+          || c == '='
+          || c == '\''
+          || c == '\u2028'
+          || c == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static synchronized void initialize(State state) {
+    if (state.ring != null) {
+      return;
+    }
     try {
-      debugIOHandler =
+      state.debugIOHandler =
           new BufferedWriter(
-              new OutputStreamWriter(new FileOutputStream(Config.DEBUG_OUTPUT_FILE)));
+              new OutputStreamWriter(
+                  new FileOutputStream(
+                      RunContext.current().resolveOutput(Config.DEBUG_OUTPUT_FILE, "debug.json"),
+                      state.opened)));
     } catch (FileNotFoundException e) {
       logger.warn(e);
     }
 
     try {
-      unifiedIOHandler =
+      state.unifiedIOHandler =
           new BufferedWriter(
-              new OutputStreamWriter(new FileOutputStream(Config.UNIFIED_OUTPUT_FILE)));
+              new OutputStreamWriter(
+                  new FileOutputStream(
+                      RunContext.current()
+                          .resolveOutput(Config.UNIFIED_OUTPUT_FILE, "unified.json"),
+                      state.opened)));
     } catch (FileNotFoundException e) {
       logger.warn(e);
     }
+
+    state.opened = true;
+    state.closing = false;
+    state.failure = null;
+    state.flushed = 0;
+    state.ring = new Ring(RING_SIZE);
+    state.writer = new Thread(() -> write(state), "structure-writer");
+    state.writer.setDaemon(true);
+    state.writer.start();
   }
 
-  /** 将想输出的结构输出，方便随意改写，外部代码随时都可以调用 */
-  public static void outputStructure(Object object) {
+  /**
+   * 写线程：取出缓冲区中的记录批量写入，缓冲区为空或者距离上次flush超过间隔时flush。close之后写完剩余的记录，
+   * 关闭文件并退出
+   */
+  private static void write(State state) {
+    BufferedWriter debug = state.debugIOHandler;
+    BufferedWriter unified = state.unifiedIOHandler;
+    long drained = 0;
+    long lastFlush = System.nanoTime();
     try {
-      if (debugIOHandler == null) {
-        initialize();
+      while (true) {
+        try {
+          int count = state.ring.drain(debug, unified);
+          drained += count;
+          if (drained != state.flushed
+              && (count == 0 || System.nanoTime() - lastFlush >= FLUSH_INTERVAL_NANOS)) {
+            if (debug != null) {
+              debug.flush();
+            }
+            if (unified != null) {
+              unified.flush();
+            }
+            lastFlush = System.nanoTime();
+            state.flushed = drained;
+          }
+        } catch (IOException e) {
+          logger.warn(e);
+        }
+        if (drained == state.ring.written()) {
+          // close之后不再有新的记录，关闭文件时会flush剩余的内容
+          if (state.closing) {
+            break;
+          }
+          LockSupport.parkNanos(FLUSH_INTERVAL_NANOS);
+        }
       }
+    } catch (RuntimeException | Error e) {
+      state.failure = e;
+      throw e;
+    } finally {
+      closeQuietly(debug);
+      closeQuietly(unified);
+      state.flushed = drained;
+    }
+  }
 
-      debugIOHandler.write(gson.toJson(object));
-      debugIOHandler.newLine();
-      debugIOHandler.flush();
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+    try {
+      closeable.close();
     } catch (IOException e) {
       logger.warn(e);
     }
   }
 
+  /** 写线程已经退出时抛出异常，避免调用方一直等待 */
+  private static void checkWriter(State state) {
+    if (!state.writer.isAlive()) {
+      throw new IllegalStateException("structure writer has stopped", state.failure);
+    }
+  }
+
+  private static void offer(Level level, Kind kind, String first, String second, String third) {
+    State state = state();
+    if (state.level.compareTo(level) < 0) {
+      return;
+    }
+    if (state.ring == null) {
+      initialize(state);
+    }
+    while (!state.ring.offer(kind, first, second, third)) {
+      // 缓冲区已满，唤醒写线程并等待它腾出空间
+      checkWriter(state);
+      LockSupport.unpark(state.writer);
+      LockSupport.parkNanos(WAIT_NANOS);
+    }
+  }
+
+  /**
+   * 设置本次运行的输出级别
+   *
+   * @param level 输出级别
+   */
+  public static void setLevel(Level level) {
+    state().level = level;
+  }
+
+  public static Level getLevel() {
+    return state().level;
+  }
+
+  /**
+   * 输出分析过的操作
+   *
+   * @param operationID 操作的id
+   */
+  public static void outputOperation(String operationID) {
+    offer(Level.OPERATION, Kind.OPERATION, operationID, null, null);
+  }
+
+  /**
+   * 输出推断出的依赖
+   *
+   * @param kind ME或者FUW
+   * @param from 依赖的前驱
+   * @param to 依赖的后继
+   */
+  public static void outputInference(Kind kind, String from, String to) {
+    offer(Level.ALL, kind, from, to, null);
+  }
+
+  /**
+   * 输出加入依赖图的依赖
+   *
+   * @param dependency 依赖的类型
+   * @param from 依赖的起点事务
+   * @param to 依赖的终点事务
+   */
+  public static void outputDependency(String dependency, String from, String to) {
+    offer(Level.ALL, Kind.SC, dependency, from, to);
+  }
+
+  /** 将想输出的结构输出，方便随意改写，外部代码随时都可以调用 */
+  public static void outputStructure(Object object) {
+    if (state().level == Level.ALL) {
+      offer(Level.ALL, Kind.JSON, gson.toJson(object), null, null);
+    }
+  }
+
   /** 将想输出的结构输出，方便随意改写，外部代码随时都可以调用 */
   public static void outputTrace(Object object) {
+    if (state().level == Level.ALL) {
+      offer(Level.ALL, Kind.UNIFIED, gson.toJson(object), null, null);
+    }
+  }
+
+  /** 等待写线程写完并flush此前的所有记录，分析结束时调用 */
+  public static void flush() {
+    State state = state();
+    if (state.ring == null) {
+      return;
+    }
+    long target = state.ring.written();
+    while (state.flushed < target) {
+      checkWriter(state);
+      LockSupport.unpark(state.writer);
+      LockSupport.parkNanos(WAIT_NANOS);
+    }
+  }
+
+  /** 写完此前的所有记录，关闭输出文件并结束写线程，运行结束、不再有并发的输出时调用 */
+  public static synchronized void close() {
+    State state = state();
+    if (state.ring == null) {
+      return;
+    }
+    state.closing = true;
+    LockSupport.unpark(state.writer);
     try {
-      if (unifiedIOHandler == null) {
-        initialize();
+      state.writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("closing structure output is interrupted", e);
+    } finally {
+      if (!state.writer.isAlive()) {
+        state.ring = null;
+        state.writer = null;
+        state.debugIOHandler = null;
+        state.unifiedIOHandler = null;
       }
-
-      unifiedIOHandler.write(gson.toJson(object));
-      unifiedIOHandler.newLine();
-      unifiedIOHandler.flush();
-    } catch (IOException e) {
-      logger.warn(e);
+    }
+    if (state.failure != null) {
+      throw new IllegalStateException("structure writer has stopped", state.failure);
     }
   }
 }
@@ -50,7 +50,7 @@ public class PerformanceStatisticThread implements Runnable {
       }
       if (Config.OUTPUT_RUNTIME) {
         gson.toJson(
-            new RuntimeStatisticHuman(OrcaVerify.runtimeStatistic),
+            new RuntimeStatisticHuman(OrcaVerify.getRuntimeStatistic()),
             RuntimeStatisticHuman.class,
             performanceIOHandler);
       }
@@ -67,7 +67,7 @@ public class PerformanceStatisticThread implements Runnable {
         try {
           sumFootprintStatistic.average(counter);
 
-          OrcaVerify.runtimeStatistic.setUserRealTime();
+          OrcaVerify.getRuntimeStatistic().setUserRealTime();
 
           // 2.3.1输出空间占用的平均值
           gson.toJson(
@@ -83,12 +83,12 @@ public class PerformanceStatisticThread implements Runnable {
 
           // 2.3.3输出时间性能统计信息
           gson.toJson(
-              new RuntimeStatisticHuman(OrcaVerify.runtimeStatistic),
+              new RuntimeStatisticHuman(OrcaVerify.getRuntimeStatistic()),
               RuntimeStatisticHuman.class,
               performanceIOHandler);
 
           // 2.3.4负载特征数量统计信息
-          gson.toJson(OrcaVerify.numberStatistic, NumberStatistic.class, performanceIOHandler);
+          gson.toJson(OrcaVerify.getNumberStatistic(), NumberStatistic.class, performanceIOHandler);
 
           performanceIOHandler.endArray();
           performanceIOHandler.flush();
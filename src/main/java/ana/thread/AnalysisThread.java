@@ -12,6 +12,7 @@ import ana.window.AnalysisWindow;
 import ana.window.WriteSet;
 import ana.window.profile.Profile;
 import ana.window.profile.ProfileMap;
+import context.RunContext;
 import gen.schema.Schema;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,10 +35,24 @@ public class AnalysisThread implements Runnable {
 
   private static final Logger logger = LogManager.getLogger(AnalysisThread.class);
 
-  @Getter private static DispatchThread dispatchThread = null;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    private DispatchThread dispatchThread = null;
 
-  /** 需要一个数据库适配器，不同数据库有不同的特性，分析是需要用不同的方法 */
-  private static Adapter adapter = null;
+    /** 需要一个数据库适配器，不同数据库有不同的特性，分析是需要用不同的方法 */
+    private Adapter adapter = null;
+
+    /** 是否需要提前结束分析，例如边回放边分析时已经确认了结论 */
+    private volatile boolean stopped = false;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  public static DispatchThread getDispatchThread() {
+    return state().dispatchThread;
+  }
 
   /** schema，服务于satisfy predicate */
   @Getter private static final Schema schema = null;
@@ -49,13 +64,24 @@ public class AnalysisThread implements Runnable {
 
     DependencyGraph.initialize();
 
-    AnalysisThread.adapter = adapter;
+    VerifyShards.initialize(Config.VERIFY_THREADS, VerifyShards.PARALLEL_THRESHOLD);
+
+    state().adapter = adapter;
+    state().stopped = false;
+  }
+
+  /** 提前结束分析，已经分析出的错误仍然保留，分析线程在处理下一条trace之前退出 */
+  public static void stop() {
+    state().stopped = true;
   }
 
   @Override
   public void run() {
 
     while (true) { // 逐trace分析
+      if (state().stopped) {
+        return;
+      }
 
       // 1.准备分析环境,不断调度trace
       // 1.1从分析窗口种获取第一条trace,如果为空说明analysis window为空，一定要调度trace
@@ -74,7 +100,7 @@ public class AnalysisThread implements Runnable {
       long startTS = System.nanoTime();
 
       OperationTrace operationTrace;
-      dispatchThread = new DispatchThread();
+      state().dispatchThread = new DispatchThread();
       while (
       // 1.1
       (operationTrace = AnalysisWindow.peekFromCursor()) == null
@@ -93,13 +119,13 @@ public class AnalysisThread implements Runnable {
               >= AnalysisWindow.peekLastTrace().getStartTimestamp()
           ||
           // 1.5
-          (operationTrace.getFinishTimestamp() >= OrcaVerify.shareTraceBuffer.getCordonLine())
+          (operationTrace.getFinishTimestamp() >= OrcaVerify.getShareTraceBuffer().getCordonLine())
       // 1.4
       // operationTrace.getStartTimestamp() >= TimestampLine.getMinTimestampLine()) {
       /*operationTrace.getStartTimestamp() >=  AnalysisWindow.peekLastTrace().getStartTimestamp()*/ ) {
 
         // 说明dispatchThread将所有的trace都调度到了analysis window中，不需要再继续调度trace了
-        if (dispatchThread.isOver()) {
+        if (state().dispatchThread.isOver()) {
           // 当所有的trace调度完毕，那么每一个Version Chain的最后一个成员都具备检查WW依赖的条件，向所有Version Chain发起一次WW依赖检查
           for (String key : HistoryVersion.getHistoryVersion().keySet()) {
             Dependency.trackWW(key, HistoryVersion.getVersionChain(key));
@@ -108,20 +134,21 @@ public class AnalysisThread implements Runnable {
           break;
         } else {
           // 逐行调度trace
-          dispatchThread.run();
+          state().dispatchThread.run();
         }
       }
       long finishTS = System.nanoTime();
-      OrcaVerify.runtimeStatistic.increaseWhile1(finishTS - startTS);
+      OrcaVerify.getRuntimeStatistic().increaseWhile1(finishTS - startTS);
 
       // 说明所有的trace都被analysis window分析完毕，结束分析
       if (AnalysisWindow.peekFromCursor() == null) {
         return;
       }
-      OutputStructure.outputStructure(operationTrace.getOperationID());
+      OutputStructure.outputOperation(operationTrace.getOperationID());
 
       if (Config.VERIFY) {
         // 2.并行启动MutualExclusive、read consistency checking、first-updater-wins
+        // 后两者对每个tuple的检查按key分片并行，见 VerifyShards
         startTS = System.nanoTime();
         CountDownLatch countDownLatch = new CountDownLatch(3);
 
@@ -134,7 +161,7 @@ public class AnalysisThread implements Runnable {
         new FirstUpdaterWins(countDownLatch).run();
 
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseVerify(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseVerify(finishTS - startTS);
 
         // 3.等待线程检查结束，
         try {
@@ -147,12 +174,12 @@ public class AnalysisThread implements Runnable {
       // 4.移除window中的第一个trace
       // 4.1统计workload特征
       startTS = System.nanoTime();
-      OrcaVerify.numberStatistic.statistic(operationTrace);
+      OrcaVerify.getNumberStatistic().statistic(operationTrace);
 
       // 4.2移除一条trace
       AnalysisWindow.removeFromCursor();
       finishTS = System.nanoTime();
-      OrcaVerify.runtimeStatistic.increaseClear(finishTS - startTS);
+      OrcaVerify.getRuntimeStatistic().increaseClear(finishTS - startTS);
     }
   }
 
@@ -196,27 +223,30 @@ public class AnalysisThread implements Runnable {
       terminalOperationTraceCertificate =
           new OperationTrace(
               operationTrace.getThreadID(),
-              operationTrace.getTransactionID().split(",")[1],
+              String.valueOf(OperationId.txnOf(operationTrace.getPackedOperationID())),
               "+inf");
       terminalOperationTraceCertificate.setStartTime(profile.getEndStartTimestamp());
       terminalOperationTraceCertificate.setFinishTime(profile.getEndFinishTimestamp());
       terminalOperationTraceCertificate.setOperationTraceType(profile.getEndType());
 
-      OperationTrace nextOperationTrace;
-      // 2.遍历analysis window，包括当前operationTrace，直到找到trace所在事务的结束操作，在遍历Analysis Window结束之前一定会推出循环
-      ListIterator<OperationTrace> listIterator = AnalysisWindow.listIterator();
-      while (!((operationTrace
-              .getTransactionID()
-              .equals((nextOperationTrace = listIterator.next()).getTransactionID()))
-          && (profile.getEndType() == nextOperationTrace.getOperationTraceType()))) {}
-      OperationTrace terminalOperationTrace = nextOperationTrace;
-
-      // 3.遍历analysis window，包括当前operationTrace，直到找到开始时间在trace所在事务的结束操作结束时间之后的操作
-      listIterator = AnalysisWindow.listIterator();
-      while (listIterator.hasNext()
-          && !(terminalOperationTrace.getFinishTimestamp()
-              <= (nextOperationTrace = listIterator.next()).getStartTimestamp())) {
-        OrcaVerify.numberStatistic.increaseMutualExclusive();
+      // 2.trace所在事务的结束操作，在分析这条trace之前已经加入了analysis window，记录在profile中
+      // 只有所有trace都调度完毕时才可能遇到没有结束操作的事务（trace不完整），无法检查
+      OperationTrace terminalOperationTrace = profile.getEndOperationTrace();
+      if (terminalOperationTrace == null) {
+        countDownLatch.countDown();
+        return;
+      }
+
+      // 3.analysis window中从当前operationTrace开始（含）到开始时间在结束操作结束时间之后的操作之前（不含）的操作都需要检查，
+      // 其中只有与operationTrace读写了相同数据的操作才可能锁冲突，通过倒排表直接找到这些操作，按window中的顺序检查
+      long fromSequence = AnalysisWindow.getCursorSequence();
+      long toSequence =
+          AnalysisWindow.findFirstStartingFrom(
+              fromSequence, terminalOperationTrace.getFinishTimestamp());
+      OrcaVerify.getNumberStatistic().increaseMutualExclusive(toSequence - fromSequence);
+      for (long sequence :
+          AnalysisWindow.findSharingTuple(operationTrace, fromSequence, toSequence)) {
+        OperationTrace nextOperationTrace = AnalysisWindow.get(sequence);
 
         // 3.1
         // 两个操作要在不同的事务中才满足进一步分析的条件
@@ -235,32 +265,29 @@ public class AnalysisThread implements Runnable {
           // 3.1.3推断依赖
           if (OperationTrace.isOverlapping(operationTrace, nextOperationTrace)
               && OperationTrace.isOverlapping(terminalOperationTrace, nextOperationTrace)) {
-            OutputStructure.outputStructure(
-                "ME:"
-                    + operationTrace.getOperationID()
-                    + "*"
-                    + nextOperationTrace.getOperationID());
-            ReplayController.sequenceDependency.addDependency(
+            OutputStructure.outputInference(
+                OutputStructure.Kind.ME,
+                operationTrace.getOperationID(),
+                nextOperationTrace.getOperationID());
+            ReplayController.getSequenceDependency().addDependency(
                 terminalOperationTrace.getOperationID(), nextOperationTrace.getOperationID());
           }
           if (OperationTrace.isOverlapping(operationTrace, nextOperationTrace)
               && !OperationTrace.isOverlapping(terminalOperationTrace, nextOperationTrace)) {
-            OutputStructure.outputStructure(
-                "ME:"
-                    + nextOperationTrace.getOperationID()
-                    + "*"
-                    + operationTrace.getOperationID());
-            ReplayController.sequenceDependency.addDependency(
+            OutputStructure.outputInference(
+                OutputStructure.Kind.ME,
+                nextOperationTrace.getOperationID(),
+                operationTrace.getOperationID());
+            ReplayController.getSequenceDependency().addDependency(
                 nextOperationTrace.getOperationID(), operationTrace.getOperationID());
           }
           if (!OperationTrace.isOverlapping(operationTrace, nextOperationTrace)
               && OperationTrace.isOverlapping(terminalOperationTrace, nextOperationTrace)) {
-            OutputStructure.outputStructure(
-                "ME:"
-                    + terminalOperationTrace.getOperationID()
-                    + "*"
-                    + nextOperationTrace.getOperationID());
-            ReplayController.sequenceDependency.addDependency(
+            OutputStructure.outputInference(
+                OutputStructure.Kind.ME,
+                terminalOperationTrace.getOperationID(),
+                nextOperationTrace.getOperationID());
+            ReplayController.getSequenceDependency().addDependency(
                 terminalOperationTrace.getOperationID(), nextOperationTrace.getOperationID());
           }
         }
@@ -269,7 +296,7 @@ public class AnalysisThread implements Runnable {
       // return之前通知Analysis Window
       countDownLatch.countDown();
       long finishTS = System.nanoTime();
-      OrcaVerify.runtimeStatistic.increaseMutualExclusive(finishTS - startTS);
+      OrcaVerify.getRuntimeStatistic().increaseMutualExclusive(finishTS - startTS);
     }
 
     /**
@@ -421,102 +448,113 @@ public class AnalysisThread implements Runnable {
       final Version consistentReadTimestampInterval = getConsistentReadTimeInterval();
       // 2.3如果读操作的read mode不是UNCOMMITTED_READ，那么都需要忽略未提交版本
       boolean isIgnoreUncommitted = operationTrace.getReadMode() != ReadMode.UNCOMMITTED_READ;
-      // 2.4线程池
-      // executor = Executors.newCachedThreadPool();
-
-      // 3.对trace中读取的所有tuple做读一致性验证
+      // 2.4检查期间不能修改history version，提前创建被读取的version chain
       for (TupleTrace tupleTrace : readTupleList) {
-        // executor.execute(new Thread(new Runnable() {
-        // 在这里实现并行
-        // 优点：线程间共享的数据比较集中，增加cache命中率
-        // 缺点：线程过多，上下文切换开销大
-        // public void run() {
-        Version selfVersion;
-        ArrayList<Version> candidateReadSet;
-
-        // 3.1如果被读取的tuple已经被事务之前的写操作写了，那么检查读操作是否读取到自己产生的写
-        if (writeSet != null && (selfVersion = writeSet.get(tupleTrace.getKey())) != null) {
-          // 3.1.1如果事务无法读取到自己的写
-          if (!selfVersion.isCompatible(tupleTrace.getValueMap())) {
-            // 出错，事务无法读取到自己产生的写
-            OutputCertificate.outputReadSelfError(operationTrace, tupleTrace, writeSet);
-          }
-        } else {
-          // 3.2如果被读取的tuple没有被事务之前的写操作写，那么检查是否一致地读取到了别人产生的写
+        if (writeSet == null || writeSet.get(tupleTrace.getKey()) == null) {
+          HistoryVersion.getVersionChain(tupleTrace.getKey());
+        }
+      }
 
-          // 3.2.1寻找candidate read set
-          candidateReadSet =
-              getCandidateReadSet(
-                  tupleTrace.getKey(),
+      // 3.对trace中读取的所有tuple做读一致性验证，按key分片并行检查，检查的结论按tuple的顺序输出
+      VerifyShards.verify(
+          readTupleList,
+          tupleTrace ->
+              check(
+                  operationTrace,
+                  tupleTrace,
+                  writeSet,
                   consistentReadTimestampInterval,
-                  false,
-                  isIgnoreUncommitted,
-                  isIgnoreUncommitted);
-
-          // 3.2.2看读结果是否与candidateReadSet中的某一个version兼容
-          boolean isCompatible = false;
-          Version compatibleVersion = null;
-          for (Version candidateVersion : candidateReadSet) {
-            if (candidateVersion.isCompatible(tupleTrace.getValueMap())) {
-              if (!isCompatible) {
-                isCompatible = true;
-                compatibleVersion = candidateVersion;
-              } else {
-                // 存在两个version与之兼容
-                compatibleVersion = null;
-              }
-            }
-          }
+                  isIgnoreUncommitted));
 
-          // 3.2.2检查candidateReadSet中是否只有一个Version与读操作兼容，如果是，则构建该Version的readList,服务于依赖追踪
-          if (compatibleVersion != null) {
-            compatibleVersion.addNewReader(
-                operationTrace.getTransactionID(),
-                tupleTrace.getKey(),
-                operationTrace.getOperationID());
-            //            OutputStructure.outputStructure(
-            //                "CR:"
-            //                    + compatibleVersion.getTransactionID()
-            //                    + "*"
-            //                    + operationTrace.getOperationID());
-          }
+      // 4.通知Analysis Window
+      // return之前通知Analysis Window
+      countDownLatch.countDown();
+      long finishTS = System.nanoTime();
+      OrcaVerify.getRuntimeStatistic().increaseReadConsistency(finishTS - startTS);
+    }
 
-          // debug 输出与读操作结果匹配的Candidate Version
-          //          for (Version candidateVersion : candidateReadSet) {
-          //            if (candidateVersion.isCompatible(tupleTrace.getValueMap())) {
-          //              OutputStructure.outputStructure(
-          //                  "CV:"
-          //                      + operationTrace.getTransactionID()
-          //                      + "*"
-          //                      + candidateVersion.getTransactionID());
-          //            }
-          //          }
-
-          // 3.2.3.1如果没有与读结果兼容的version，那么说明读结果出错
+    /**
+     * 对一个tuple做读一致性验证，只读取分析状态，可以在分片的工作线程上执行
+     *
+     * @return 需要在分析线程上执行的动作，没有结论时返回null
+     */
+    private static Runnable check(
+        OperationTrace operationTrace,
+        TupleTrace tupleTrace,
+        HashMap<String, Version> writeSet,
+        Version consistentReadTimestampInterval,
+        boolean isIgnoreUncommitted) {
+      Version selfVersion;
+
+      // 3.1如果被读取的tuple已经被事务之前的写操作写了，那么检查读操作是否读取到自己产生的写
+      if (writeSet != null && (selfVersion = writeSet.get(tupleTrace.getKey())) != null) {
+        // 3.1.1如果事务无法读取到自己的写
+        if (!selfVersion.isCompatible(tupleTrace.getValueVector())) {
+          // 出错，事务无法读取到自己产生的写
+          return () -> OutputCertificate.outputReadSelfError(operationTrace, tupleTrace, writeSet);
+        }
+        return null;
+      }
+
+      // 3.2如果被读取的tuple没有被事务之前的写操作写，那么检查是否一致地读取到了别人产生的写
+
+      // 3.2.1寻找candidate read set
+      ArrayList<Version> candidateReadSet =
+          getCandidateReadSet(
+              tupleTrace.getKey(),
+              consistentReadTimestampInterval,
+              false,
+              isIgnoreUncommitted,
+              isIgnoreUncommitted);
+
+      // 3.2.2看读结果是否与candidateReadSet中的某一个version兼容
+      boolean isCompatible = false;
+      Version compatibleVersion = null;
+      for (Version candidateVersion : candidateReadSet) {
+        if (candidateVersion.isCompatible(tupleTrace.getValueVector())) {
           if (!isCompatible) {
-            // 出错
-            OutputCertificate.outputReadOtherError(operationTrace, tupleTrace, candidateReadSet);
+            isCompatible = true;
+            compatibleVersion = candidateVersion;
+          } else {
+            // 存在两个version与之兼容
+            compatibleVersion = null;
           }
         }
-        // }
-        // }));
       }
 
-      // 4.等待分析线程结束
-      /*
-      executor.shutdown();
-      try {
-      	while (!executor.awaitTermination(10, TimeUnit.SECONDS));
-      } catch (InterruptedException e) {
-      	e.printStackTrace();
+      // 3.2.2检查candidateReadSet中是否只有一个Version与读操作兼容，如果是，则构建该Version的readList,服务于依赖追踪
+      if (compatibleVersion != null) {
+        //            OutputStructure.outputStructure(
+        //                "CR:"
+        //                    + compatibleVersion.getTransactionID()
+        //                    + "*"
+        //                    + operationTrace.getOperationID());
+        Version reader = compatibleVersion;
+        return () ->
+            reader.addNewReader(
+                operationTrace.getTransactionID(),
+                tupleTrace.getKey(),
+                operationTrace.getOperationID());
       }
-       */
 
-      // 5.通知Analysis Window
-      // return之前通知Analysis Window
-      countDownLatch.countDown();
-      long finishTS = System.nanoTime();
-      OrcaVerify.runtimeStatistic.increaseReadConsistency(finishTS - startTS);
+      // debug 输出与读操作结果匹配的Candidate Version
+      //          for (Version candidateVersion : candidateReadSet) {
+      //            if (candidateVersion.isCompatible(tupleTrace.getValueVector())) {
+      //              OutputStructure.outputStructure(
+      //                  "CV:"
+      //                      + operationTrace.getTransactionID()
+      //                      + "*"
+      //                      + candidateVersion.getTransactionID());
+      //            }
+      //          }
+
+      // 3.2.3.1如果没有与读结果兼容的version，那么说明读结果出错
+      if (!isCompatible) {
+        // 出错
+        return () ->
+            OutputCertificate.outputReadOtherError(operationTrace, tupleTrace, candidateReadSet);
+      }
+      return null;
     }
   }
 
@@ -557,7 +595,7 @@ public class AnalysisThread implements Runnable {
       // 2.1.3判断数据库的隔离级别如果不做FirstUpdaterWins的检查，那么跳过检查
       if (writeTupleList == null
           || operationTrace.getReadMode() != ReadMode.CONSISTENT_READ
-          || !adapter.doFirstUpdaterWins(profile.getIsolationLevel())) {
+          || !state().adapter.doFirstUpdaterWins(profile.getIsolationLevel())) {
         // return之前通知Analysis Thread
         countDownLatch.countDown();
         return;
@@ -570,67 +608,102 @@ public class AnalysisThread implements Runnable {
       if (consistentReadTimeInterval == null) {
         throw new RuntimeException("consistentReadTimeInterval must not be null");
       }
-      // 2.3事务读一致性快照的结束时间戳
-      long consistentReadTimeFinishTimestamp = consistentReadTimeInterval.getFinishTimestamp();
-      // 2.4操作的开始时间戳
+      // 2.3操作的开始时间戳
       long startTimestamp = operationTrace.getStartTimestamp();
 
       // 3.针对trace写的每一个tuple去history
       // version中检查是否满足first-updater-wins的条件，即在事务读一致性快照的结束时间戳和操作的开始时间戳之间是否产生了新的version
-      ListIterator<Version> listIterator;
-      VersionChain versionChain;
+      // 检查期间不能修改history version，提前创建被写的version chain
       for (TupleTrace tupleTrace : writeTupleList) {
-        OrcaVerify.numberStatistic.increaseFirstUpdaterWins();
-
-        versionChain = HistoryVersion.getVersionChain(tupleTrace.getKey());
-        listIterator = versionChain.getIterator();
+        OrcaVerify.getNumberStatistic().increaseFirstUpdaterWins();
+        HistoryVersion.getVersionChain(tupleTrace.getKey());
+      }
+      // 按key分片并行检查，检查的结论按tuple的顺序输出
+      VerifyShards.verify(
+          writeTupleList,
+          tupleTrace ->
+              check(
+                  operationTrace,
+                  tupleTrace,
+                  profile,
+                  consistentReadTimeInterval,
+                  startTimestamp));
 
-        // 3.1找到一个已提交的version（不能是一个未提交版本，如果是我一个未提交版本不能确定性产生了first updater wins），
-        // version的开始时间戳在consistentReadTimeFinishTimestamp之后，结束时间戳在startTimestamp之前
-        Version nextVersion;
-        while (VersionChain.hasNext(listIterator, true)) {
+      // 4.return之前通知Analysis Thread
+      countDownLatch.countDown();
 
-          nextVersion = listIterator.next();
+      long finishTS = System.nanoTime();
+      OrcaVerify.getRuntimeStatistic().increaseFirstUpdaterWins(finishTS - startTS);
+    }
 
-          // 3.1.1如果nextVersion的结束时间小于事务开始操作的结束时间戳，那么该VersionChain之后的所有Version都不满足搜索条件，结束搜索
-          if (nextVersion.getFinishTimestamp() < consistentReadTimeFinishTimestamp) {
-            break;
-          }
+    /**
+     * 对一个tuple做first-updater-wins验证并推断依赖，只读取分析状态，可以在分片的工作线程上执行
+     *
+     * @return 需要在分析线程上执行的动作，没有结论时返回null
+     */
+    private static Runnable check(
+        OperationTrace operationTrace,
+        TupleTrace tupleTrace,
+        Profile profile,
+        Version consistentReadTimeInterval,
+        long startTimestamp) {
+      // 事务读一致性快照的结束时间戳
+      long consistentReadTimeFinishTimestamp = consistentReadTimeInterval.getFinishTimestamp();
+      VersionChain versionChain = HistoryVersion.getVersionChain(tupleTrace.getKey());
+      // 开始时间晚于这两个时间戳的version既不满足搜索条件，也不与两个区间重叠，直接跳过
+      ListIterator<Version> listIterator =
+          versionChain.getIterator(
+              Math.max(consistentReadTimeFinishTimestamp, operationTrace.getFinishTimestamp()));
+      Version releaseSnapshotTimeInterval =
+          new Version(operationTrace.getStartTimestamp(), operationTrace.getFinishTimestamp());
+      List<Runnable> actions = new ArrayList<>();
+
+      // 3.1找到一个已提交的version（不能是一个未提交版本，如果是我一个未提交版本不能确定性产生了first updater wins），
+      // version的开始时间戳在consistentReadTimeFinishTimestamp之后，结束时间戳在startTimestamp之前
+      Version nextVersion;
+      while (VersionChain.hasNext(listIterator, true)) {
+
+        nextVersion = listIterator.next();
+        Version version = nextVersion;
+
+        // 3.1.1如果nextVersion的结束时间小于事务开始操作的结束时间戳，那么该VersionChain之后的所有Version都不满足搜索条件，结束搜索
+        if (nextVersion.getFinishTimestamp() < consistentReadTimeFinishTimestamp) {
+          break;
+        }
 
-          // 3.1.2如果nextVersion的时间区间落在consistentReadTimeFinishTimestamp和startTimestamp之间，那么满足搜索条件
-          if (nextVersion.getStartTimestamp() > consistentReadTimeFinishTimestamp
-              && nextVersion.getFinishTimestamp() < startTimestamp) {
-            // 违反了first-updater-wins
-            OutputCertificate.outputSerializeAccessError(
-                operationTrace, profile, nextVersion, versionChain);
-          }
+        // 3.1.2如果nextVersion的时间区间落在consistentReadTimeFinishTimestamp和startTimestamp之间，那么满足搜索条件
+        if (nextVersion.getStartTimestamp() > consistentReadTimeFinishTimestamp
+            && nextVersion.getFinishTimestamp() < startTimestamp) {
+          // 违反了first-updater-wins
+          actions.add(
+              () ->
+                  OutputCertificate.outputSerializeAccessError(
+                      operationTrace, profile, version, versionChain));
+        }
 
-          // 3.1.3利用FUW推断依赖
-          Version releaseSnapshotTimeInterval =
-              new Version(operationTrace.getStartTimestamp(), operationTrace.getFinishTimestamp());
-          if (Version.isOverlapping(nextVersion, consistentReadTimeInterval)
-              && Version.isOverlapping(nextVersion, releaseSnapshotTimeInterval)) {
-            OutputStructure.outputStructure(
-                "FUW:" + nextVersion.getTransactionID() + "*" + operationTrace.getTransactionID());
-          }
-          if (Version.isOverlapping(nextVersion, consistentReadTimeInterval)
-              && !Version.isOverlapping(nextVersion, releaseSnapshotTimeInterval)) {
-            OutputStructure.outputStructure(
-                "FUW:" + nextVersion.getTransactionID() + "*" + operationTrace.getTransactionID());
-          }
-          if (!Version.isOverlapping(nextVersion, consistentReadTimeInterval)
-              && Version.isOverlapping(nextVersion, releaseSnapshotTimeInterval)) {
-            OutputStructure.outputStructure(
-                "FUW:" + operationTrace.getTransactionID() + "*" + nextVersion.getTransactionID());
-          }
+        // 3.1.3利用FUW推断依赖
+        boolean consistentRead = Version.isOverlapping(nextVersion, consistentReadTimeInterval);
+        boolean releaseSnapshot = Version.isOverlapping(nextVersion, releaseSnapshotTimeInterval);
+        if (consistentRead) {
+          actions.add(
+              () ->
+                  OutputStructure.outputInference(
+                      OutputStructure.Kind.FUW,
+                      version.getTransactionID(),
+                      operationTrace.getTransactionID()));
+        } else if (releaseSnapshot) {
+          actions.add(
+              () ->
+                  OutputStructure.outputInference(
+                      OutputStructure.Kind.FUW,
+                      operationTrace.getTransactionID(),
+                      version.getTransactionID()));
         }
       }
-
-      // 4.return之前通知Analysis Thread
-      countDownLatch.countDown();
-
-      long finishTS = System.nanoTime();
-      OrcaVerify.runtimeStatistic.increaseFirstUpdaterWins(finishTS - startTS);
+      if (actions.isEmpty()) {
+        return null;
+      }
+      return () -> actions.forEach(Runnable::run);
     }
   }
 
@@ -648,7 +721,7 @@ public class AnalysisThread implements Runnable {
     }
 
     // 2.细节交给适配器完成
-    return adapter.getConsistentReadTimeInterval(operationTrace, profile);
+    return state().adapter.getConsistentReadTimeInterval(operationTrace, profile);
   }
 
   /**
@@ -687,7 +760,12 @@ public class AnalysisThread implements Runnable {
       boolean isIgnoreUncommitted2) {
     ArrayList<Version> candidateReadSet = new ArrayList<>();
     VersionChain versionChain = HistoryVersion.getVersionChain(key);
-    ListIterator<Version> listIterator = versionChain.getIterator();
+    // 开始时间晚于读一致性时间区间的version都是Future Version，不会进入candidate read set，直接跳过
+    ListIterator<Version> listIterator =
+        versionChain.getIterator(
+            Math.max(
+                consistentReadTimestampInterval.getStartTimestamp(),
+                consistentReadTimestampInterval.getFinishTimestamp()));
 
     Version nextVersion = null;
     // 1.搜索Future Version、Overlapping Version
@@ -703,7 +781,7 @@ public class AnalysisThread implements Runnable {
       }
     }
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseCRS1(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseCRS1(finishTS - startTS);
 
     // 2.搜索Pseudo Pivot Version、Pivot Version
     // 2.1对于搜索Future Version、Overlapping
@@ -762,11 +840,11 @@ public class AnalysisThread implements Runnable {
     Version pivotVersion = pseudoPivotVersion;
     candidateReadSet.add(pivotVersion);
     finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseCRS2(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseCRS2(finishTS - startTS);
 
     // 3.搜索Overlapping Pivot Version
     startTS = System.nanoTime();
-    nextVersion = null; // 1,三处设置nextVersion为null，否则，会错误清理不该清理的版本
+    nextVersion = null; // 1,两处设置nextVersion为null，否则，会错误清理不该清理的版本
     while (VersionChain.hasNext(listIterator, isIgnoreUncommitted2)
         && (nextVersion = listIterator.next()).getFinishTimestamp()
             > pivotVersion.getStartTimestamp()) {
@@ -775,35 +853,30 @@ public class AnalysisThread implements Runnable {
       nextVersion = null; // 2
     }
     finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseCRS3(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseCRS3(finishTS - startTS);
 
     // 4.搜索Garbage Version
     startTS = System.nanoTime();
-    if (isPrune) {
-      // 循环退出，有两种可能，
-      // 第一，version chain没有next(即nextVersion==null)；
-      // 第二，当前nextVersion不满足条件(即version chain还有nextVersion，该nextVersion由1.3循环条件产生但不满足循环条件)
-      while (nextVersion != null
-          || (listIterator.hasNext() && (nextVersion = listIterator.next()) != null)) {
-
-        // 4.1nextVersion符合清理条件，清理出version chain,并将nextVersion设为null(必须，从而上述循环才能继续生效)
-        listIterator.remove();
-
+    // 循环退出，有两种可能，
+    // 第一，version chain没有next(即nextVersion==null)，此时迭代器已经到达末尾，没有需要清理的version；
+    // 第二，当前nextVersion不满足条件(即version chain还有nextVersion，该nextVersion由1.3循环条件产生但不满足循环条件)
+    if (isPrune && nextVersion != null) {
+      // 4.1从nextVersion开始的一段version都符合清理条件，整段清理出version chain
+      for (Version garbageVersion : versionChain.truncate(listIterator.previousIndex())) {
         // 4.2如果该version是一个已提交版本（不包括初始版本）或者回滚版本，那么将writeSet(History version）中对应version移除
-        if (nextVersion.getStatus() == VersionStatus.ROLLBACK
-            || nextVersion.getStatus() == VersionStatus.COMMITTED
-                && !(nextVersion.getTransactionID().equals("-1,-1"))) {
+        if (garbageVersion.getStatus() == VersionStatus.ROLLBACK
+            || garbageVersion.getStatus() == VersionStatus.COMMITTED
+                && !(garbageVersion.getTransactionID().equals("-1,-1"))) {
           // 4.2.1由于判断Pseudo Pivot Version的可见性需要用到事务结束操作的相关信息（profile），所以清理事务profile的时间点应该延后到History
           // Version中事务对应的所有版本都被清理完成的时间
           // 内部完成profile的清理工作，即当事务对应的WriteSet(HistoryVersion)中的Version全部都被清理，那么可以将对应的profile清理掉
-          WriteSet.removeVersion(WriteSet.getHistoryVersion(), nextVersion.getTransactionID(), key);
+          WriteSet.removeVersion(
+              WriteSet.getHistoryVersion(), garbageVersion.getTransactionID(), key);
         }
-
-        nextVersion = null; // 3
       }
     }
     finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseCRS4(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseCRS4(finishTS - startTS);
 
     return candidateReadSet;
   }
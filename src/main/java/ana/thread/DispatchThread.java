@@ -27,15 +27,15 @@ public class DispatchThread implements Runnable {
 
     // 1.从share operationTrace buffer中取出一条trace，并移除
     long startTS = System.nanoTime();
-    OperationTrace operationTrace = OrcaVerify.shareTraceBuffer.peekLastTrace();
+    OperationTrace operationTrace = OrcaVerify.getShareTraceBuffer().peekLastTrace();
     if (operationTrace == null) {
       // 说明所有的trace都已经被调度到analysis window，share trace buffer完成了使命
       isOver = true;
       return;
     }
-    OrcaVerify.shareTraceBuffer.removeTrace();
+    OrcaVerify.getShareTraceBuffer().removeTrace();
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseBufferModel(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseBufferModel(finishTS - startTS);
 
     // 2.将trace加入到analysis window中，并同步维护相关结构
     startTS = System.nanoTime();
@@ -43,13 +43,13 @@ public class DispatchThread implements Runnable {
         && operationTrace.getOperationTraceType() != OperationTraceType.DistributeSchedule
         && operationTrace.getOperationTraceType() != OperationTraceType.FAULT) {
       AnalysisWindow.addTrace(operationTrace);
-      ReplayController.sequenceDependency.addTrace(operationTrace);
+      ReplayController.getSequenceDependency().addTrace(operationTrace);
     }
     if (operationTrace.getOperationTraceType() == OperationTraceType.DDL) {
-      ReplayController.sequenceDependency.addTrace(operationTrace);
+      ReplayController.getSequenceDependency().addTrace(operationTrace);
     }
 
     finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increasePreparePurgeContext(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increasePreparePurgeContext(finishTS - startTS);
   }
 }
@@ -0,0 +1,169 @@
+package ana.thread;
+
+import context.RunContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import trace.TupleTrace;
+
+/**
+ * 按key分片并行的tuple检查，服务于读一致性验证和first-updater-wins验证
+ *
+ * <p>这两种验证对每个tuple的检查只读取该key的version chain以及事务的profile，不同key之间相互独立。按key的哈希将tuple
+ * 分给固定的分片，各分片并行检查，检查期间分析线程等待各分片结束，分析状态不会被修改。检查得到的结论（输出证书、构建依赖等）
+ * 以动作的形式返回，由分析线程按tuple原来的顺序执行，因此输出与逐个检查完全相同
+ *
+ * <p>检查中不能创建version chain，调用方需要事先创建好。getCandidateReadSet中的耗时统计在并行时只是近似值
+ */
+class VerifyShards {
+
+  /** 默认的并行阈值，tuple数少于该值时直接在分析线程上检查，避免线程切换的开销 */
+  static final int PARALLEL_THRESHOLD = 16;
+
+  /** 空闲的工作线程在该时间之后退出 */
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** 分片数，分析线程负责第0个分片，其余分片交给工作线程 */
+    private int shards = 1;
+
+    private int threshold = PARALLEL_THRESHOLD;
+
+    private ThreadPoolExecutor executor = null;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  /**
+   * 每次分析开始前调用
+   *
+   * @param shards 分片数，不大于1时在分析线程上逐个检查
+   * @param threshold tuple数不少于该值的trace才并行检查
+   */
+  static void initialize(int shards, int threshold) {
+    State state = state();
+    state.shards = Math.max(shards, 1);
+    state.threshold = threshold;
+    if (state.executor != null) {
+      state.executor.shutdown();
+      state.executor = null;
+    }
+    if (state.shards > 1) {
+      state.executor =
+          new ThreadPoolExecutor(
+              state.shards - 1,
+              state.shards - 1,
+              KEEP_ALIVE_SECONDS,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(),
+              runnable -> {
+                Thread thread =
+                    new Thread(runnable, "verify-shard-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+      state.executor.allowCoreThreadTimeOut(true);
+    }
+  }
+
+  static int shardOf(String key, int shards) {
+    return Math.floorMod(key.hashCode(), shards);
+  }
+
+  /**
+   * 检查所有tuple，再按tuple的顺序执行检查得到的动作
+   *
+   * @param tupleList 被检查的tuple
+   * @param check 检查一个tuple，返回需要在分析线程上执行的动作，没有结论时返回null
+   */
+  static void verify(List<TupleTrace> tupleList, Function<TupleTrace, Runnable> check) {
+    for (Runnable action : check(tupleList, check)) {
+      if (action != null) {
+        action.run();
+      }
+    }
+  }
+
+  /**
+   * 按key分片并行检查所有tuple
+   *
+   * @return 与tupleList一一对应的动作
+   */
+  static List<Runnable> check(List<TupleTrace> tupleList, Function<TupleTrace, Runnable> check) {
+    State state = state();
+    Runnable[] actions = new Runnable[tupleList.size()];
+    if (state.executor == null || tupleList.size() < state.threshold) {
+      for (int i = 0; i < actions.length; i++) {
+        actions[i] = check.apply(tupleList.get(i));
+      }
+      return Arrays.asList(actions);
+    }
+
+    // 1.按key划分tuple
+    List<List<Integer>> shards = new ArrayList<>(state.shards);
+    for (int i = 0; i < state.shards; i++) {
+      shards.add(new ArrayList<>());
+    }
+    for (int i = 0; i < actions.length; i++) {
+      shards.get(shardOf(tupleList.get(i).getKey(), state.shards)).add(i);
+    }
+
+    // 2.工作线程检查其余分片，分析线程检查第0个分片
+    RunContext context = RunContext.current();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int shard = 1; shard < state.shards; shard++) {
+      List<Integer> indexes = shards.get(shard);
+      if (!indexes.isEmpty()) {
+        futures.add(
+            state.executor.submit(
+                () -> {
+                  RunContext.bind(context);
+                  try {
+                    checkShard(tupleList, indexes, check, actions);
+                  } finally {
+                    RunContext.unbind();
+                  }
+                }));
+      }
+    }
+    checkShard(tupleList, shards.get(0), check, actions);
+
+    // 3.等待所有分片检查结束
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("verification is interrupted", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    return Arrays.asList(actions);
+  }
+
+  private static void checkShard(
+      List<TupleTrace> tupleList,
+      List<Integer> indexes,
+      Function<TupleTrace, Runnable> check,
+      Runnable[] actions) {
+    for (int index : indexes) {
+      actions[index] = check.apply(tupleList.get(index));
+    }
+  }
+}
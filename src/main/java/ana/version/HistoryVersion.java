@@ -6,8 +6,8 @@ import ana.main.OrcaVerify;
 import ana.thread.AnalysisThread;
 import ana.window.Active;
 import ana.window.WriteSet;
+import context.RunContext;
 import java.util.HashMap;
-import lombok.Getter;
 
 /**
  * 封装所有数据的version
@@ -16,13 +16,24 @@ import lombok.Getter;
  */
 public class HistoryVersion {
 
-  /** 核心数据结构 key:数据的唯一标识 value:该key对应的version chain */
-  @Getter private static HashMap<String, VersionChain> historyVersion;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** 核心数据结构 key:数据的唯一标识 value:该key对应的version chain */
+    private HashMap<String, VersionChain> historyVersion;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  public static HashMap<String, VersionChain> getHistoryVersion() {
+    return state().historyVersion;
+  }
 
   public static void initialize() {
     WriteSet.initialize();
 
-    historyVersion = new HashMap<>();
+    state().historyVersion = new HashMap<>();
 
     // init version
 
@@ -35,22 +46,22 @@ public class HistoryVersion {
    * @param newVersion version of this data
    */
   public static void addVersion(String key, Version newVersion) {
-    VersionChain versionChain = historyVersion.get(key);
+    VersionChain versionChain = state().historyVersion.get(key);
 
     // 1.如果对应的version chain不存在，那么新new一个
     long startTS = System.nanoTime();
     if (versionChain == null) {
       versionChain = new VersionChain(key);
-      historyVersion.put(key, versionChain);
+      state().historyVersion.put(key, versionChain);
     }
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseAddVersion1(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseAddVersion1(finishTS - startTS);
 
     // 2.将新的version添加到version chain中
     startTS = System.nanoTime();
     versionChain.addVersion(newVersion);
     finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseAddVersion2(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseAddVersion2(finishTS - startTS);
 
     // 3.如果新添加的版本是一个已提交版本，那么跟踪WW依赖，其他类型的版本不会参与且不会影响WW依赖的构建
     startTS = System.nanoTime();
@@ -58,7 +69,7 @@ public class HistoryVersion {
       Dependency.trackWW(key, versionChain);
     }
     finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseAddVersion3(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseAddVersion3(finishTS - startTS);
 
     // 4.如果versionChain的长度超过一定长度，那么就发起一个清理操作
     startTS = System.nanoTime();
@@ -70,7 +81,7 @@ public class HistoryVersion {
           key, earliestConsistentReadTimeInterval, true, true, false);
     }
     finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseAddVersion4(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseAddVersion4(finishTS - startTS);
   }
 
   /**
@@ -79,11 +90,11 @@ public class HistoryVersion {
    * @return chain of the key
    */
   public static VersionChain getVersionChain(String key) {
-    VersionChain versionChain = historyVersion.get(key);
+    VersionChain versionChain = state().historyVersion.get(key);
     if (versionChain == null) {
       // 如果对应的version chain不存在则new一个，放入historyVersion中
       versionChain = new VersionChain(key);
-      historyVersion.put(key, versionChain);
+      state().historyVersion.put(key, versionChain);
     }
 
     return versionChain;
@@ -95,6 +106,6 @@ public class HistoryVersion {
    * @return object themselves
    */
   public static Object[] getAllObject() {
-    return new Object[] {historyVersion};
+    return new Object[] {state().historyVersion};
   }
 }
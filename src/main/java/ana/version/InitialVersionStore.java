@@ -0,0 +1,265 @@
+package ana.version;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 一张表的初始数据（init_data/table*.csv），每个文件只解析一次，按pkId下标直接定位一行
+ *
+ * <p>较小的表按列保存拆分好的值；较大的表使用内存映射，堆上只保存每行在文件中的位置，查询时再拆分该行。
+ * 同一个文件的store在多次分析之间共享（例如约简过程中反复调用analyseCase），文件的大小或修改时间变化时重新加载
+ */
+public class InitialVersionStore {
+
+  /** 超过该大小的CSV使用内存映射 */
+  static final long MAPPED_THRESHOLD = 64L << 20;
+
+  /** 内存映射时每段的最大长度，段在行尾处切分 */
+  static final long REGION_SIZE = 1L << 30;
+
+  /** 文件路径 -> store */
+  private static final Map<Path, InitialVersionStore> stores = new ConcurrentHashMap<>();
+
+  private final long length;
+  private final long lastModified;
+
+  /** 表头，第0列为pkId */
+  private final String[] keys;
+
+  /** pkId -> 行号，没有初始数据的pkId为-1 */
+  private final int[] rowOfPkId;
+
+  /** 按列保存的值：columns[列][行]，使用内存映射时为null */
+  private final String[][] columns;
+
+  /** 内存映射的各段，以及每行所在的段（高32位）和段内偏移（低32位） */
+  private final MappedByteBuffer[] regions;
+
+  private final long[] rowPositions;
+
+  private InitialVersionStore(
+      long length,
+      long lastModified,
+      String[] keys,
+      int[] rowOfPkId,
+      String[][] columns,
+      MappedByteBuffer[] regions,
+      long[] rowPositions) {
+    this.length = length;
+    this.lastModified = lastModified;
+    this.keys = keys;
+    this.rowOfPkId = rowOfPkId;
+    this.columns = columns;
+    this.regions = regions;
+    this.rowPositions = rowPositions;
+  }
+
+  /**
+   * 获取文件对应的store，第一次访问或文件发生变化时加载
+   *
+   * @param file init_data目录下的csv文件
+   * @return store
+   * @throws IOException 文件不存在或读取失败
+   */
+  public static InitialVersionStore of(Path file) throws IOException {
+    Path path = file.toAbsolutePath().normalize();
+    try {
+      return stores.compute(
+          path,
+          (k, store) -> {
+            try {
+              if (store != null && store.isCurrent(path)) {
+                return store;
+              }
+              return load(path, MAPPED_THRESHOLD, REGION_SIZE);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private boolean isCurrent(Path path) throws IOException {
+    return Files.size(path) == length && Files.getLastModifiedTime(path).toMillis() == lastModified;
+  }
+
+  /**
+   * 获取pkId的初始数据
+   *
+   * @param pkId primary key id
+   * @return 列名 -> 值（不含pkId列），没有初始数据时返回null
+   */
+  public Map<String, String> get(int pkId) {
+    if (pkId < 0 || pkId >= rowOfPkId.length || rowOfPkId[pkId] < 0) {
+      return null;
+    }
+    int row = rowOfPkId[pkId];
+    Map<String, String> valueMap = new HashMap<>();
+    if (columns != null) {
+      for (int ind = 1; ind < keys.length; ind++) {
+        valueMap.put(keys[ind], columns[ind][row]);
+      }
+    } else {
+      String[] values = split(readLine(regions, rowPositions[row]));
+      for (int ind = 1; ind < keys.length; ind++) {
+        valueMap.put(keys[ind], values[ind]);
+      }
+    }
+    return valueMap;
+  }
+
+  static InitialVersionStore load(Path path, long mappedThreshold, long regionSize)
+      throws IOException {
+    long length = Files.size(path);
+    long lastModified = Files.getLastModifiedTime(path).toMillis();
+    if (length > mappedThreshold) {
+      return loadMapped(path, length, lastModified, regionSize);
+    }
+
+    String[] keys;
+    List<String[]> rows = new ArrayList<>();
+    try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      keys = splitHeader(br.readLine());
+      String recordLine;
+      while ((recordLine = br.readLine()) != null) {
+        rows.add(split(recordLine));
+      }
+    }
+
+    int[] rowOfPkId = indexRows(rows.size(), row -> rows.get(row)[0]);
+    String[][] columns = new String[keys.length][rows.size()];
+    for (int row = 0; row < rows.size(); row++) {
+      String[] values = rows.get(row);
+      for (int ind = 1; ind < keys.length; ind++) {
+        columns[ind][row] = values[ind];
+      }
+    }
+    return new InitialVersionStore(length, lastModified, keys, rowOfPkId, columns, null, null);
+  }
+
+  private static InitialVersionStore loadMapped(
+      Path path, long length, long lastModified, long regionSize) throws IOException {
+    List<MappedByteBuffer> regions = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long start = 0;
+      while (start < length) {
+        MappedByteBuffer region =
+            channel.map(
+                FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, length - start));
+        int limit = region.limit();
+        if (start + limit < length) {
+          // 在最后一个换行符处切分，保证一行不会跨段
+          while (limit > 0 && region.get(limit - 1) != '\n') {
+            limit--;
+          }
+          if (limit == 0) {
+            throw new IOException("Line longer than mapped region in " + path);
+          }
+          region.limit(limit);
+        }
+        regions.add(region);
+        start += limit;
+      }
+    }
+
+    MappedByteBuffer[] mapped = regions.toArray(new MappedByteBuffer[0]);
+    // 每行的起始位置，第0行为表头
+    long[] lineStarts = new long[1024];
+    int lines = 0;
+    for (int r = 0; r < mapped.length; r++) {
+      int lineStart = 0;
+      for (int i = 0; i <= mapped[r].limit(); i++) {
+        if (i == mapped[r].limit() ? lineStart < i : mapped[r].get(i) == '\n') {
+          if (lines == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+          }
+          lineStarts[lines++] = ((long) r << 32) | lineStart;
+          lineStart = i + 1;
+        }
+      }
+    }
+    if (lines == 0) {
+      throw new IOException("Empty initial data file " + path);
+    }
+
+    String[] keys = splitHeader(readLine(mapped, lineStarts[0]));
+    long[] rowPositions = Arrays.copyOfRange(lineStarts, 1, lines);
+    int[] rowOfPkId = indexRows(rowPositions.length, row -> readLine(mapped, rowPositions[row]));
+    return new InitialVersionStore(
+        length, lastModified, keys, rowOfPkId, null, mapped, rowPositions);
+  }
+
+  private interface FirstField {
+    String of(int row);
+  }
+
+  /** 根据每行的第一个字段（pkId）建立 pkId -> 行号 的下标，pkId重复时以第一次出现的为准 */
+  private static int[] indexRows(int rows, FirstField firstField) {
+    int[] pkIds = new int[rows];
+    int maxPkId = -1;
+    for (int row = 0; row < rows; row++) {
+      String firstElement = firstField.of(row);
+      int firstCommaIndex = firstElement.indexOf(',');
+      if (firstCommaIndex != -1) {
+        firstElement = firstElement.substring(0, firstCommaIndex);
+      }
+      pkIds[row] = Integer.parseInt(StringUtils.strip(firstElement, "\"'"));
+      maxPkId = Math.max(maxPkId, pkIds[row]);
+    }
+    int[] rowOfPkId = new int[maxPkId + 1];
+    Arrays.fill(rowOfPkId, -1);
+    for (int row = 0; row < rows; row++) {
+      if (pkIds[row] >= 0 && rowOfPkId[pkIds[row]] < 0) {
+        rowOfPkId[pkIds[row]] = row;
+      }
+    }
+    return rowOfPkId;
+  }
+
+  private static String readLine(MappedByteBuffer[] regions, long position) {
+    MappedByteBuffer region = regions[(int) (position >>> 32)];
+    int start = (int) position;
+    int end = start;
+    while (end < region.limit() && region.get(end) != '\n') {
+      end++;
+    }
+    if (end > start && region.get(end - 1) == '\r') {
+      end--;
+    }
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = region.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String[] splitHeader(String tableHeader) {
+    String[] keys = tableHeader.trim().split(",");
+    // 数据清洗
+    return Arrays.stream(keys).map(key -> StringUtils.strip(key, "\"'")).toArray(String[]::new);
+  }
+
+  private static String[] split(String recordLine) {
+    String[] values = recordLine.split(",", -1);
+    for (int i = 1; i < values.length; i++) {
+      values[i] = StringUtils.strip(values[i], "\"'");
+    }
+    return values;
+  }
+}
@@ -6,20 +6,15 @@ import ana.graph.Dependency;
 import ana.main.Config;
 import ana.main.OrcaVerify;
 import ana.window.profile.ProfileMap;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.commons.lang3.StringUtils;
 import trace.IsolationLevel;
 import trace.OperationTraceType;
+import trace.ValueVector;
 
 /**
  * 封装一个写操作产生的包含时间区间信息未提交的新版本 封装一个提交操作产生的包含时间区间信息的提交版本 封装初始数据生成器产生的提交版本 封装一个回滚操作产生的包含时间区间信息的回滚版本
@@ -40,8 +35,8 @@ public class Version {
 
   @Getter private long finishTimestamp;
 
-  /** 保存读写单元的读写结果 key为attributeID value为对应的读写结果 */
-  @Getter private Map<String, String> valueSet;
+  /** 保存读写单元的读写结果 key为attributeID value为对应的读写结果，以紧凑形式保存（见 ValueVector） */
+  @Getter private ValueVector valueSet;
 
   /** 存放该版本的状态 */
   @Getter private VersionStatus status;
@@ -65,9 +60,6 @@ public class Version {
   /** 在可以明确后继Version的情况下，记录该已提交Version的后继已提交Version，否则为null */
   @Setter private String successor;
 
-  // 从csv文件中读出来的初始数据的cache: tableId -> pkId -> values(未解析string)
-  private static Map<Integer, Map<Integer, String>> initialVersionCache = new HashMap<>();
-
   /**
    * 服务于读一致性时间区间的伪version
    *
@@ -91,7 +83,7 @@ public class Version {
       String transactionID,
       long startTimestamp,
       long finishTimestamp,
-      Map<String, String> valueSet,
+      ValueVector valueSet,
       String producerID,
       OperationTraceType producerType,
       String traceFile,
@@ -110,7 +102,7 @@ public class Version {
     this.traceFile = traceFile;
     this.sql = sql;
 
-    OrcaVerify.numberStatistic.increaseVersion(0);
+    OrcaVerify.getNumberStatistic().increaseVersion(0);
   }
 
   /**
@@ -147,10 +139,10 @@ public class Version {
     // 4.统计
     switch (this.status) {
       case COMMITTED:
-        OrcaVerify.numberStatistic.increaseVersion(1);
+        OrcaVerify.getNumberStatistic().increaseVersion(1);
         break;
       case ROLLBACK:
-        OrcaVerify.numberStatistic.increaseVersion(2);
+        OrcaVerify.getNumberStatistic().increaseVersion(2);
         break;
     }
   }
@@ -161,7 +153,7 @@ public class Version {
    * @param valueSet write data set
    */
   public Version(
-      Map<String, String> valueSet,
+      ValueVector valueSet,
       String producerID,
       OperationTraceType producerType,
       String traceFile,
@@ -181,25 +173,8 @@ public class Version {
    * @param valueSet value set checked
    * @return two value set is compatible
    */
-  public boolean isCompatible(Map<String, String> valueSet) {
-
-    String value;
-    for (Map.Entry<String, String> entry : this.valueSet.entrySet()) {
-      String key = entry.getKey();
-      if ((value = valueSet.get(key)) != null) {
-        try {
-          double valueNum = Double.parseDouble(value);
-          double enterNum = Double.parseDouble(entry.getValue());
-          return valueNum == enterNum;
-        } catch (NumberFormatException e) {
-          return value.equals(entry.getValue());
-        }
-      }
-    }
-    // 新版本和旧版本的存在性应该是一致的，也就是要不都是空集、要不都不是空集
-    boolean thisEmpty = this.valueSet.isEmpty();
-    boolean newEmpty = valueSet.isEmpty();
-    return (thisEmpty && newEmpty) || (!thisEmpty && !newEmpty);
+  public boolean isCompatible(ValueVector valueSet) {
+    return this.valueSet.isCompatible(valueSet);
   }
 
   /**
@@ -264,79 +239,22 @@ public class Version {
   public static Map<String, String> getInitialVersionValueSet(int tableId, int pkId) {
     long startTS = System.nanoTime();
 
-    // 如果没有对应表的cache，new 一个
-    initialVersionCache.computeIfAbsent(tableId, k -> new HashMap<>());
-
     Map<String, String> initialVersionValueSet = null;
 
     // 1.通过配置项CALCULATE_INITIAL_DATA决定以计算的方式还是以IO的方式生成初始数据
     if (!Config.CALCULATE_INITIAL_DATA) {
-
-      // 1.2通过IO获取初始数据
-      BufferedReader br = null;
+      // 1.2通过IO获取初始数据，每个csv文件只解析一次
       try {
-        br =
-            new BufferedReader(
-                new InputStreamReader(
-                    Files.newInputStream(
-                        Paths.get(
-                            Config.ANALYSIS_TARGET_DIR + "/init_data/table" + tableId + ".csv"))));
-
-        String recordLine;
-
-        // 1.2.1获取当前csv文件的表头信息
-        String tableHeader = br.readLine();
-        String[] keys = tableHeader.trim().split(",");
-        // 数据清洗
-        keys = Arrays.stream(keys).map(key -> StringUtils.strip(key, "\"'")).toArray(String[]::new);
-
-        if ((recordLine = initialVersionCache.get(tableId).get(pkId)) == null) { // 如果cache里没存
-          // 1.2.2逐行检查读取的recordLine是否是指定pkID的初始数据
-          while ((recordLine = br.readLine()) != null) {
-            int firstCommaIndex = recordLine.indexOf(',');
-            String firstElement =
-                (firstCommaIndex == -1) ? recordLine : recordLine.substring(0, firstCommaIndex);
-            firstElement = StringUtils.strip(firstElement, "\"'");
-            int dataId = Integer.parseInt(firstElement);
-            // 1.2.2.1指定pkID的所在recordLine的充要条件
-            if (dataId == pkId) {
-              break;
-            } else {
-              initialVersionCache.get(tableId).putIfAbsent(dataId, recordLine);
-            }
-          }
-        }
-        if (recordLine == null) {
-          return null;
-        }
-
-        String[] values = recordLine.split(",");
-        for (int i = 1; i < values.length; i++) {
-          values[i] = StringUtils.strip(values[i], "\"'");
-        }
-        initialVersionCache.get(tableId).remove(pkId);
-        // 1.2.2.2解析recordLine获取其代表的逻辑值valueMap
-        Map<String, String> valueMap = new HashMap<>();
-
-        for (int ind = 1; ind < keys.length; ind++) {
-          valueMap.put(keys[ind], values[ind]);
-        }
-
-        initialVersionValueSet = valueMap;
+        initialVersionValueSet =
+            InitialVersionStore.of(
+                    Paths.get(Config.ANALYSIS_TARGET_DIR + "/init_data/table" + tableId + ".csv"))
+                .get(pkId);
       } catch (IOException e) {
         logger.warn(e);
-      } finally {
-        if (br != null) {
-          try {
-            br.close();
-          } catch (IOException e) {
-            logger.warn(e);
-          }
-        }
       }
     }
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseGetInitialVersion(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseGetInitialVersion(finishTS - startTS);
 
     // 2.通过配置项TAKE_VC决定以虚拟列方式维护初始数据还是以真实列方式维护初始数据
     if (initialVersionValueSet != null) {
@@ -1,24 +1,44 @@
 package ana.version;
 
 import ana.main.OrcaVerify;
-import java.util.LinkedList;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.annotations.JsonAdapter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import trace.TupleTrace;
+import trace.ValueVector;
 
 /**
  * 封装一个数据所有的version,按照version的结束时间有序排序
  *
+ * <p>version按结束时间升序存放在数组的[head, head + size)区间里，对外按结束时间逆序访问，下标0是结束时间最大的version。
+ * 新version通常是最新的，插入在数组尾部附近；清理掉的垃圾版本是最老的一段，只需要移动head。查找时用二分跳过不可能相关的version
+ *
  * @author like_
  */
+@JsonAdapter(VersionChain.Serializer.class)
 public class VersionChain {
 
-  /** 核心数据结构 将所有Version按照结束时间有序存放(逆序)，结束时间大的放在前面 */
-  private final LinkedList<Version> versionChain;
+  /** 核心数据结构 将所有Version按照结束时间升序存放，有效区间为[head, head + size) */
+  private Version[] versions = new Version[8];
+
+  private int head = 0;
+  private int size = 0;
+
+  /** 链上出现过的最长version区间（结束时间戳-开始时间戳），清理时不减小，用于二分时保守地跳过version */
+  private long maxLength = 0;
 
   public VersionChain(String key) {
     super();
-    this.versionChain = new LinkedList<>();
 
     // 1.将key拆分成tableID、pK ID
     String[] t = key.split(TupleTrace.LINKER);
@@ -38,38 +58,81 @@ public class VersionChain {
                   "-1,-1",
                   Long.MIN_VALUE,
                   Long.MIN_VALUE + 1,
-                  initialVersionValueSet,
+                  ValueVector.of(initialVersionValueSet),
                   "-1,-1,-1",
                   null,
                   "initial version",
                   "initial version"),
               VersionStatus.COMMITTED);
-      this.versionChain.add(initialVersion);
+      addVersion(initialVersion);
 
       // 统计
-      OrcaVerify.numberStatistic.increaseVersion(3);
+      OrcaVerify.getNumberStatistic().increaseVersion(3);
     }
   }
 
+  /** 没有初始版本的空版本链 */
+  VersionChain() {
+    super();
+  }
+
   /**
-   * 按结束时间有序将Version添加到versionChain中
+   * 按结束时间有序将Version添加到versionChain中，结束时间相同的version，新加入的排在后面
    *
    * @param newVersion new version that is older than all in version chain
    */
   public void addVersion(Version newVersion) {
-    ListIterator<Version> listIterator = versionChain.listIterator();
-
-    Version nextVersion;
-    while (listIterator.hasNext()) {
-      nextVersion = listIterator.next();
+    long finishTimestamp = newVersion.getFinishTimestamp();
 
-      if (nextVersion.getFinishTimestamp() < newVersion.getFinishTimestamp()) {
-        listIterator.previous();
-        break;
+    // 1.二分找到第一个结束时间不小于新version的位置，在它之前插入
+    int low = head;
+    int high = head + size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (versions[mid].getFinishTimestamp() < finishTimestamp) {
+        low = mid + 1;
+      } else {
+        high = mid;
       }
     }
-    listIterator.add(newVersion);
-    return;
+
+    // 2.尾部没有空间时先整理数组，插入位置随之平移
+    if (head + size == versions.length) {
+      low -= head;
+      compact();
+      low += head;
+    }
+    System.arraycopy(versions, low, versions, low + 1, head + size - low);
+    versions[low] = newVersion;
+    size++;
+
+    // 3.溢出或者区间颠倒的version按最长处理，保证二分跳过的version一定不相关
+    long length = finishTimestamp - newVersion.getStartTimestamp();
+    maxLength = Math.max(maxLength, length < 0 ? Long.MAX_VALUE : length);
+  }
+
+  /** 把有效区间移到数组开头，空间不够时扩容 */
+  private void compact() {
+    Version[] target = size * 2 >= versions.length ? new Version[versions.length * 2] : versions;
+    System.arraycopy(versions, head, target, 0, size);
+    if (target == versions) {
+      Arrays.fill(versions, size, head + size, null);
+    }
+    versions = target;
+    head = 0;
+  }
+
+  /**
+   * 按结束时间逆序获取version
+   *
+   * @param index 下标，0是结束时间最大的version
+   * @return version
+   */
+  public Version get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+    }
+    return versions[head + size - 1 - index];
   }
 
   /**
@@ -78,7 +141,57 @@ public class VersionChain {
    * @return
    */
   public ListIterator<Version> getIterator() {
-    return this.versionChain.listIterator();
+    return new Cursor(0);
+  }
+
+  /**
+   * 返回一个跳过开始时间一定晚于timestamp的version的迭代器。被跳过的version的结束时间都大于timestamp，
+   * 它们不会与任何结束时间不晚于timestamp的区间重叠
+   *
+   * @param timestamp 时间戳
+   * @return 迭代器
+   */
+  public ListIterator<Version> getIterator(long timestamp) {
+    // 1.结束时间大于threshold的version，开始时间一定大于timestamp
+    long threshold =
+        timestamp > Long.MAX_VALUE - maxLength ? Long.MAX_VALUE : timestamp + maxLength;
+
+    // 2.二分找到第一个结束时间大于threshold的位置，它之后的version都被跳过
+    int low = head;
+    int high = head + size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (versions[mid].getFinishTimestamp() <= threshold) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return new Cursor(head + size - low);
+  }
+
+  /**
+   * 清理掉从index开始（含）的所有version，即结束时间最早的一段
+   *
+   * @param index 按结束时间逆序的下标
+   * @return 被清理的version，按结束时间逆序
+   */
+  public List<Version> truncate(int index) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+    }
+    int count = size - index;
+    List<Version> removed = new ArrayList<>(count);
+    for (int i = head + count - 1; i >= head; i--) {
+      removed.add(versions[i]);
+    }
+    Arrays.fill(versions, head, head + count, null);
+    head += count;
+    size -= count;
+    if (size == 0) {
+      head = 0;
+    }
+    return removed;
   }
 
   /**
@@ -87,7 +200,7 @@ public class VersionChain {
    * @return
    */
   public int getLength() {
-    return this.versionChain.size();
+    return size;
   }
 
   /**
@@ -97,7 +210,7 @@ public class VersionChain {
    * @return
    */
   public boolean isOverlapping(Version version) {
-    ListIterator<Version> listIterator = getIterator();
+    ListIterator<Version> listIterator = getIterator(version.getFinishTimestamp());
     Version nextVersion;
 
     // 1.对VersionChain中每一个已提交Version，检查是否与目标Version重叠
@@ -146,4 +259,95 @@ public class VersionChain {
     listIterator.previous();
     return true;
   }
+
+  /** 按结束时间逆序遍历的迭代器，不支持add和set */
+  private class Cursor implements ListIterator<Version> {
+    /** 下一个返回的version的逆序下标 */
+    private int cursor;
+
+    /** 上一次返回的version的逆序下标，-1表示没有或者已经删除 */
+    private int lastReturned = -1;
+
+    Cursor(int cursor) {
+      this.cursor = cursor;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return cursor < size;
+    }
+
+    @Override
+    public Version next() {
+      if (cursor >= size) {
+        throw new NoSuchElementException();
+      }
+      lastReturned = cursor;
+      return get(cursor++);
+    }
+
+    @Override
+    public boolean hasPrevious() {
+      return cursor > 0;
+    }
+
+    @Override
+    public Version previous() {
+      if (cursor <= 0) {
+        throw new NoSuchElementException();
+      }
+      lastReturned = --cursor;
+      return get(cursor);
+    }
+
+    @Override
+    public int nextIndex() {
+      return cursor;
+    }
+
+    @Override
+    public int previousIndex() {
+      return cursor - 1;
+    }
+
+    @Override
+    public void remove() {
+      if (lastReturned < 0) {
+        throw new IllegalStateException();
+      }
+      int position = head + size - 1 - lastReturned;
+      System.arraycopy(versions, position + 1, versions, position, head + size - 1 - position);
+      versions[head + size - 1] = null;
+      size--;
+      if (lastReturned < cursor) {
+        cursor--;
+      }
+      lastReturned = -1;
+    }
+
+    @Override
+    public void set(Version version) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(Version version) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** 输出证书时与原先的链表结构保持相同的json格式：{"versionChain":[按结束时间逆序的version]} */
+  static class Serializer implements JsonSerializer<VersionChain> {
+    @Override
+    public JsonElement serialize(
+        VersionChain versionChain, Type type, JsonSerializationContext context) {
+      JsonArray array = new JsonArray();
+      for (int i = 0; i < versionChain.size; i++) {
+        array.add(context.serialize(versionChain.get(i), Version.class));
+      }
+      JsonObject object = new JsonObject();
+      object.add("versionChain", array);
+      return object;
+    }
+  }
 }
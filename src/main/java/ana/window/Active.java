@@ -1,25 +1,33 @@
 package ana.window;
 
 import ana.version.Version;
+import context.RunContext;
 import java.util.HashMap;
 import java.util.Map;
 
 /** 保存当前活跃事务开始操作的时间区间，以Analysis window中第一条trace为基准 */
 public class Active {
-  /** 核心数据结构，保存当前活跃的事务开始操作的时间区间，key：trasactionID value:开始操作的时间区间 */
-  private static Map<String, Version> active;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** 核心数据结构，保存当前活跃的事务开始操作的时间区间，key：trasactionID value:开始操作的时间区间 */
+    private Map<String, Version> active;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
 
   public static void initialize() {
-    active = new HashMap<>();
+    state().active = new HashMap<>();
   }
 
   public static void putTransaction(
       String transactionID, long beginStartTimestamp, long beignFinishTimestamp) {
-    active.put(transactionID, new Version(beginStartTimestamp, beignFinishTimestamp));
+    state().active.put(transactionID, new Version(beginStartTimestamp, beignFinishTimestamp));
   }
 
   public static void removeTransaction(String transactionID) {
-    if (active.remove(transactionID) == null) {
+    if (state().active.remove(transactionID) == null) {
       throw new RuntimeException("most not be null");
     }
   }
@@ -30,7 +38,7 @@ public class Active {
    * @param transactionID 事务id
    */
   public static boolean isActive(String transactionID) {
-    return active.get(transactionID) != null;
+    return state().active.get(transactionID) != null;
   }
 
   /**
@@ -41,6 +49,7 @@ public class Active {
    * @return active中开始时间最早的版本
    */
   public static Version getEarliestConsistentReadTimeInterval() {
+    Map<String, Version> active = state().active;
     Version version;
     Version earliestConsistentReadTimeInterval = null;
     for (String transactionID : active.keySet()) {
@@ -72,6 +81,6 @@ public class Active {
    * @return 所有对象构成的数组
    */
   public static Object[] getAllObject() {
-    return new Object[] {active};
+    return new Object[] {state().active};
   }
 }
@@ -8,10 +8,13 @@ import ana.version.Version;
 import ana.version.VersionStatus;
 import ana.window.profile.Profile;
 import ana.window.profile.ProfileMap;
+import context.RunContext;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import trace.OperationTrace;
 import trace.ReadMode;
 import trace.TraceLockMode;
@@ -20,19 +23,89 @@ import trace.TupleTrace;
 /**
  * 分析所基于的窗口
  *
+ * <p>窗口中的trace按开始时间有序，每条trace有一个递增的序号，用环形数组按序号存放。同时为每个数据（table+pk）维护一个倒排表，
+ * 记录窗口中读写过该数据的trace序号，锁冲突检查只需要访问与当前trace有共同数据的trace
+ *
  * @author like_
  */
 public class AnalysisWindow {
-  /** 核心数据结构：分析窗口 */
-  private static LinkedList<OperationTrace> window = null;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** 核心数据结构：分析窗口，序号为sequence的trace存放在window[sequence & (window.length - 1)] */
+    private OperationTrace[] window = null;
+
+    /** 窗口头部trace的序号 */
+    private long first;
+
+    /** 下一条加入窗口的trace的序号 */
+    private long next;
+
+    /** 指示分析到window中的哪一条trace了 */
+    private int cursor;
+
+    /** key:数据的唯一标识 value:窗口中读写过该数据的trace序号 */
+    private HashMap<String, Postings> postings = null;
+  }
+
+  /** 一个数据的倒排表，trace序号升序存放在[from, to)中 */
+  private static class Postings {
+    private long[] sequences = new long[4];
+    private int from = 0;
+    private int to = 0;
+
+    private void add(long sequence) {
+      // 同一条trace读写同一个数据多次，只记录一次
+      if (to > from && sequences[to - 1] == sequence) {
+        return;
+      }
+      if (to == sequences.length) {
+        long[] target = (to - from) * 2 > sequences.length ? new long[to * 2] : sequences;
+        System.arraycopy(sequences, from, target, 0, to - from);
+        sequences = target;
+        to -= from;
+        from = 0;
+      }
+      sequences[to++] = sequence;
+    }
 
-  /** 指示分析到window中的哪一条trace了 */
-  private static int cursor;
+    private void removeBefore(long sequence) {
+      while (from < to && sequences[from] < sequence) {
+        from++;
+      }
+    }
+
+    private boolean isEmpty() {
+      return from == to;
+    }
+
+    /** 返回第一个不小于sequence的位置 */
+    private int lowerBound(long sequence) {
+      int low = from;
+      int high = to;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (sequences[mid] < sequence) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
 
   public static void initialize() {
-    window = new LinkedList<>();
+    state().window = new OperationTrace[1024];
+    state().first = 0;
+    state().next = 0;
 
-    cursor = 0;
+    state().cursor = 0;
+
+    state().postings = new HashMap<>();
 
     ProfileMap.initialize();
 
@@ -49,9 +122,9 @@ public class AnalysisWindow {
   public static void addTrace(OperationTrace operationTrace) {
     // 1.添加一个新的trace到window
     long startTS = System.nanoTime();
-    window.addLast(operationTrace);
+    addLast(operationTrace);
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseAWPrepare(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseAWPrepare(finishTS - startTS);
 
     // 2.同步维护相关结构
     // 2.1transaction profile
@@ -72,7 +145,7 @@ public class AnalysisWindow {
             operationTrace.getStartTimestamp(),
             operationTrace.getFinishTimestamp());
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseActive1(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseActive1(finishTS - startTS);
 
         // 2.1.1新构建trace所在事务的profile,并添加到ProfileMap中
         startTS = System.nanoTime();
@@ -86,13 +159,13 @@ public class AnalysisWindow {
                 operationTrace.getIsolationLevel());
         ProfileMap.addProfile(operationTrace.getTransactionID(), profile);
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseProfileMap1(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseProfileMap1(finishTS - startTS);
 
         // 2.3.1添加到DependencyGraph
         startTS = System.nanoTime();
         DependencyGraph.addProfile(profile);
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseDG1(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseDG1(finishTS - startTS);
         break;
 
       case SELECT:
@@ -105,7 +178,7 @@ public class AnalysisWindow {
         startTS = System.nanoTime();
         ProfileMap.setReadWrite(operationTrace.getTransactionID());
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseProfileMap2(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseProfileMap2(finishTS - startTS);
 
         // 2.2.1抽取operationTrace产生的所有unCommittedVersion同步加入到historyVersion和writeSet（History Version）
         startTS = System.nanoTime();
@@ -119,13 +192,13 @@ public class AnalysisWindow {
                     operationTrace.getTransactionID(),
                     operationTrace.getStartTimestamp(),
                     operationTrace.getFinishTimestamp(),
-                    tupleTrace.getValueMap(),
+                    tupleTrace.getValueVector(),
                     operationTrace.getOperationID(),
                     operationTrace.getOperationTraceType(),
                     operationTrace.getTraceFile(),
                     operationTrace.getSql());
             long finishTS1 = System.nanoTime();
-            OrcaVerify.runtimeStatistic.increaseHV11(finishTS1 - startTS1);
+            OrcaVerify.getRuntimeStatistic().increaseHV11(finishTS1 - startTS1);
 
             // 2.2.1.2将unCommittedVersion维护到WriteSet中
             startTS1 = System.nanoTime();
@@ -135,18 +208,18 @@ public class AnalysisWindow {
                 tupleTrace.getKey(),
                 unCommittedVersion);
             finishTS1 = System.nanoTime();
-            OrcaVerify.runtimeStatistic.increaseHV12(finishTS1 - startTS1);
+            OrcaVerify.getRuntimeStatistic().increaseHV12(finishTS1 - startTS1);
 
             // 2.2.1.3同步地将unCommittedVersion维护到History Version中，注意historyVersion和writeSet（History
             // Version）被加入的是同一个version对象
             startTS1 = System.nanoTime();
             HistoryVersion.addVersion(tupleTrace.getKey(), unCommittedVersion);
             finishTS1 = System.nanoTime();
-            OrcaVerify.runtimeStatistic.increaseHV13(finishTS1 - startTS1);
+            OrcaVerify.getRuntimeStatistic().increaseHV13(finishTS1 - startTS1);
           }
         }
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseHV1(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseHV1(finishTS - startTS);
         break;
 
       case ROLLBACK:
@@ -154,18 +227,14 @@ public class AnalysisWindow {
         startTS = System.nanoTime();
         DependencyGraph.removeProfile(operationTrace.getTransactionID());
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseDG2(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseDG2(finishTS - startTS);
 
       case COMMIT:
         // 2.1.3当事务结束时，使事务profile变得完整
         startTS = System.nanoTime();
-        ProfileMap.perfectProfile(
-            operationTrace.getTransactionID(),
-            operationTrace.getStartTimestamp(),
-            operationTrace.getFinishTimestamp(),
-            operationTrace.getOperationTraceType());
+        ProfileMap.perfectProfile(operationTrace);
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseProfileMap3(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseProfileMap3(finishTS - startTS);
 
         // 2.2.2当事务结束时，基于Write set（History Version）中所有未提交Version创建一个最终Version，
         // 包括已提交version和回滚version，
@@ -204,7 +273,7 @@ public class AnalysisWindow {
           }
         }
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.increaseHV2(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().increaseHV2(finishTS - startTS);
         break;
       case DDL:
       case FAULT:
@@ -218,21 +287,156 @@ public class AnalysisWindow {
     // operationTrace.getFinishTimestamp());
   }
 
+  /** 把trace放到窗口尾部并登记到它读写的每个数据的倒排表中，窗口满时扩容 */
+  private static void addLast(OperationTrace operationTrace) {
+    State state = state();
+    if (state.next - state.first == state.window.length) {
+      OperationTrace[] window = new OperationTrace[state.window.length * 2];
+      for (long sequence = state.first; sequence < state.next; sequence++) {
+        window[(int) (sequence & (window.length - 1))] = get(sequence);
+      }
+      state.window = window;
+    }
+    long sequence = state.next++;
+    state.window[(int) (sequence & (state.window.length - 1))] = operationTrace;
+
+    addPostings(operationTrace.getReadTupleList(), sequence);
+    addPostings(operationTrace.getWriteTupleList(), sequence);
+  }
+
+  private static void addPostings(List<TupleTrace> tupleList, long sequence) {
+    if (tupleList == null) {
+      return;
+    }
+    for (TupleTrace tupleTrace : tupleList) {
+      state().postings.computeIfAbsent(tupleTrace.getKey(), k -> new Postings()).add(sequence);
+    }
+  }
+
+  private static void removePostings(List<TupleTrace> tupleList) {
+    if (tupleList == null) {
+      return;
+    }
+    for (TupleTrace tupleTrace : tupleList) {
+      Postings postings = state().postings.get(tupleTrace.getKey());
+      if (postings != null) {
+        postings.removeBefore(state().first);
+        if (postings.isEmpty()) {
+          state().postings.remove(tupleTrace.getKey());
+        }
+      }
+    }
+  }
+
+  /**
+   * 按序号获取窗口中的trace
+   *
+   * @param sequence trace的序号，在[getCursorSequence(), getEndSequence())之间
+   * @return trace
+   */
+  public static OperationTrace get(long sequence) {
+    return state().window[(int) (sequence & (state().window.length - 1))];
+  }
+
+  /**
+   * 获取cursor所指向的trace的序号
+   *
+   * @return cursor指向的trace的序号
+   */
+  public static long getCursorSequence() {
+    return state().first + state().cursor;
+  }
+
+  /**
+   * 获取下一条加入窗口的trace的序号，即窗口尾部之后的序号
+   *
+   * @return 窗口尾部之后的序号
+   */
+  public static long getEndSequence() {
+    return state().next;
+  }
+
+  /**
+   * 从fromSequence开始，找到第一条开始时间不早于timestamp的trace，窗口中的trace按开始时间有序，因此可以二分查找
+   *
+   * @param fromSequence 起始序号
+   * @param timestamp 时间戳
+   * @return trace的序号，如果不存在则返回getEndSequence()
+   */
+  public static long findFirstStartingFrom(long fromSequence, long timestamp) {
+    long low = fromSequence;
+    long high = state().next;
+    while (low < high) {
+      long mid = (low + high) >>> 1;
+      if (get(mid).getStartTimestamp() < timestamp) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * 找到序号在[fromSequence, toSequence)之间、与operationTrace读写了相同数据的所有trace，只有这些trace可能与它锁冲突
+   *
+   * @param operationTrace trace
+   * @param fromSequence 起始序号（含）
+   * @param toSequence 结束序号（不含）
+   * @return trace的序号，升序且不重复
+   */
+  public static long[] findSharingTuple(
+      OperationTrace operationTrace, long fromSequence, long toSequence) {
+    Set<String> keys = new HashSet<>();
+    for (List<TupleTrace> tupleList :
+        Arrays.asList(operationTrace.getReadTupleList(), operationTrace.getWriteTupleList())) {
+      if (tupleList != null) {
+        for (TupleTrace tupleTrace : tupleList) {
+          keys.add(tupleTrace.getKey());
+        }
+      }
+    }
+
+    long[] sequences = new long[16];
+    int size = 0;
+    for (String key : keys) {
+      Postings postings = state().postings.get(key);
+      if (postings == null) {
+        continue;
+      }
+      for (int i = postings.lowerBound(fromSequence);
+          i < postings.to && postings.sequences[i] < toSequence;
+          i++) {
+        if (size == sequences.length) {
+          sequences = Arrays.copyOf(sequences, size * 2);
+        }
+        sequences[size++] = postings.sequences[i];
+      }
+    }
+
+    // 多个数据的倒排表合并之后排序去重，保持窗口中的顺序
+    Arrays.sort(sequences, 0, size);
+    int distinct = 0;
+    for (int i = 0; i < size; i++) {
+      if (distinct == 0 || sequences[distinct - 1] != sequences[i]) {
+        sequences[distinct++] = sequences[i];
+      }
+    }
+    return Arrays.copyOf(sequences, distinct);
+  }
+
   /**
    * 获取cursor所指向的trace返回
    *
    * @return cursor指向的trace
    */
   public static OperationTrace peekFromCursor() {
-    try {
-      return window.get(cursor);
-    } catch (IndexOutOfBoundsException e) {
-      return null;
-    }
+    long sequence = getCursorSequence();
+    return sequence < state().next ? get(sequence) : null;
   }
 
   public static OperationTrace peekLastTrace() {
-    return window.peekLast();
+    return state().next > state().first ? get(state().next - 1) : null;
   }
 
   /** 将analysis window头部的trace移除，并同步维护相关结构 如果不进行垃圾清理，那么下推游标 */
@@ -256,16 +460,16 @@ public class AnalysisWindow {
       }
 
       // 0.3下推游标，并不实际清理Window中的trace
-      cursor++;
+      state().cursor++;
 
       return;
     }
 
     // 1.移除analysis window中的第一条trace
     long startTS = System.nanoTime();
-    operationTrace = window.removeFirst();
+    operationTrace = removeFirst();
     long finishTS = System.nanoTime();
-    OrcaVerify.runtimeStatistic.increaseAWPrepare(finishTS - startTS);
+    OrcaVerify.getRuntimeStatistic().increaseAWPrepare(finishTS - startTS);
 
     // 2.同步维护相关结构
     // 2.1维护服务于读一致性验证的write set
@@ -278,7 +482,7 @@ public class AnalysisWindow {
         startTS = System.nanoTime();
         WriteSet.addTransactionVersions(WriteSet.getReadConsistency(), operationTrace);
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.setHV1(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().setHV1(finishTS - startTS);
         break;
 
       case COMMIT:
@@ -288,13 +492,13 @@ public class AnalysisWindow {
         WriteSet.removeTransactionVersions(
             WriteSet.getReadConsistency(), operationTrace.getTransactionID());
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.setHV1(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().setHV1(finishTS - startTS);
 
         // 2.2.1当事务结束时，从active中移除该事务
         startTS = System.nanoTime();
         Active.removeTransaction(operationTrace.getTransactionID());
         finishTS = System.nanoTime();
-        OrcaVerify.runtimeStatistic.setActive1(finishTS - startTS);
+        OrcaVerify.getRuntimeStatistic().setActive1(finishTS - startTS);
         break;
 
       default:
@@ -302,13 +506,19 @@ public class AnalysisWindow {
     }
   }
 
-  /**
-   * 获取从cursor所指向的trace开始的listIterator，包括cursor所指向的trace
-   *
-   * @return 获取cursor对应的迭代器
-   */
-  public static ListIterator<OperationTrace> listIterator() {
-    return window.listIterator(cursor);
+  private static OperationTrace removeFirst() {
+    State state = state();
+    if (state.first == state.next) {
+      throw new NoSuchElementException();
+    }
+    int index = (int) (state.first & (state.window.length - 1));
+    OperationTrace operationTrace = state.window[index];
+    state.window[index] = null;
+    state.first++;
+
+    removePostings(operationTrace.getReadTupleList());
+    removePostings(operationTrace.getWriteTupleList());
+    return operationTrace;
   }
 
   /**
@@ -317,6 +527,6 @@ public class AnalysisWindow {
    * @return 对象自身
    */
   public static Object[] getAllObject() {
-    return new Object[] {window};
+    return new Object[] {state().window, state().postings};
   }
 }
@@ -1,5 +1,6 @@
 package ana.window;
 
+import context.RunContext;
 import java.util.HashMap;
 
 /**
@@ -8,11 +9,18 @@ import java.util.HashMap;
  * @author like_
  */
 public class TimestampLine {
-  /** 核心数据结构 key:每一个线程的编号 value:对应线程被加入到analysis window的最大时间戳 */
-  private static HashMap<String, Long> timestampLineList;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** 核心数据结构 key:每一个线程的编号 value:对应线程被加入到analysis window的最大时间戳 */
+    private HashMap<String, Long> timestampLineList;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
 
   public static void initialize() {
-    timestampLineList = new HashMap<>();
+    state().timestampLineList = new HashMap<>();
   }
 
   /**
@@ -22,11 +30,12 @@ public class TimestampLine {
    * @param timestampLine
    */
   public static void updateTimestampLine(String threadID, long timestampLine) {
-    timestampLineList.put(threadID, timestampLine);
+    state().timestampLineList.put(threadID, timestampLine);
   }
 
   /** 获取当前timestampLineList中最小的timestampLine返回 */
   public static long getMinTimestampLine() {
+    HashMap<String, Long> timestampLineList = state().timestampLineList;
     long minTimestampLine = Long.MAX_VALUE;
     for (String key : timestampLineList.keySet()) {
       if (minTimestampLine > timestampLineList.get(key)) {
@@ -42,6 +51,6 @@ public class TimestampLine {
    * @return
    */
   public static Object[] getAllObject() {
-    return new Object[] {timestampLineList};
+    return new Object[] {state().timestampLineList};
   }
 }
@@ -2,9 +2,9 @@ package ana.window;
 
 import ana.version.Version;
 import ana.window.profile.ProfileMap;
+import context.RunContext;
 import java.util.HashMap;
 import java.util.List;
-import lombok.Getter;
 import trace.OperationTrace;
 import trace.OperationTraceType;
 import trace.TupleTrace;
@@ -16,25 +16,40 @@ import trace.TupleTrace;
  */
 public class WriteSet {
 
-  /**
-   * 服务于读一致性验证的writeSet，方便追踪一个每一个时刻所产生的version 加入时机：从Analysis
-   * Window头部移除一个trace时，如果该trace产生Version（只考虑未提交version），则将产生的version加入writeSet 移除时机：从Analysis
-   * Window头部移除一个trace时，如果该trace是提交或者回滚操作，则将该事务产生的version移除writeSet key:transactionID事务的唯一标识
-   * value:一个写入的所有Version。key：version的唯一标识tableID、PK，value:事务写入的Version
-   */
-  @Getter private static HashMap<String, HashMap<String, Version>> readConsistency;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /**
+     * 服务于读一致性验证的writeSet，方便追踪一个每一个时刻所产生的version 加入时机：从Analysis
+     * Window头部移除一个trace时，如果该trace产生Version（只考虑未提交version），则将产生的version加入writeSet 移除时机：从Analysis
+     * Window头部移除一个trace时，如果该trace是提交或者回滚操作，则将该事务产生的version移除writeSet key:transactionID事务的唯一标识
+     * value:一个写入的所有Version。key：version的唯一标识tableID、PK，value:事务写入的Version
+     */
+    private HashMap<String, HashMap<String, Version>> readConsistency;
+
+    /**
+     * 服务于History Version的writeSet，方便找到一个事务产生的所有已提交version
+     * 加入时机：当调度线程调度一个trace到上下文时，如果该trace产生Version（包括三类version），则将产生的version加入writeSet 移除时机：取决于History
+     * Version的清理算法，即当某个Version不需要保留在History Version中时，可以将其从Write Set中移除 key:transactionID事务的唯一标识
+     * value:一个写入的所有Version。key：version的唯一标识，value:事务写入的Version
+     */
+    private HashMap<String, HashMap<String, Version>> historyVersion;
+  }
 
-  /**
-   * 服务于History Version的writeSet，方便找到一个事务产生的所有已提交version
-   * 加入时机：当调度线程调度一个trace到上下文时，如果该trace产生Version（包括三类version），则将产生的version加入writeSet 移除时机：取决于History
-   * Version的清理算法，即当某个Version不需要保留在History Version中时，可以将其从Write Set中移除 key:transactionID事务的唯一标识
-   * value:一个写入的所有Version。key：version的唯一标识，value:事务写入的Version
-   */
-  @Getter private static HashMap<String, HashMap<String, Version>> historyVersion;
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  public static HashMap<String, HashMap<String, Version>> getReadConsistency() {
+    return state().readConsistency;
+  }
+
+  public static HashMap<String, HashMap<String, Version>> getHistoryVersion() {
+    return state().historyVersion;
+  }
 
   public static void initialize() {
-    readConsistency = new HashMap<>();
-    historyVersion = new HashMap<>();
+    state().readConsistency = new HashMap<>();
+    state().historyVersion = new HashMap<>();
   }
 
   /**
@@ -98,7 +113,7 @@ public class WriteSet {
         transactionVersion.put(
             tupleTrace.getKey(),
             new Version(
-                tupleTrace.getValueMap(),
+                tupleTrace.getValueVector(),
                 operationTrace.getOperationID(),
                 operationTrace.getOperationTraceType(),
                 operationTrace.getTraceFile(),
@@ -184,6 +199,6 @@ public class WriteSet {
    * @return
    */
   public static Object[] getAllObject() {
-    return new Object[] {readConsistency, historyVersion};
+    return new Object[] {state().readConsistency, state().historyVersion};
   }
 }
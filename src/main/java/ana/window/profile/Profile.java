@@ -4,6 +4,7 @@ import ana.version.Version;
 import lombok.Getter;
 import lombok.Setter;
 import trace.IsolationLevel;
+import trace.OperationTrace;
 import trace.OperationTraceType;
 
 /**
@@ -29,6 +30,9 @@ public class Profile {
   /** commit rollback */
   @Setter private OperationTraceType endType;
 
+  /** 事务的结束操作，事务结束之前为null。不参与证书的json输出 */
+  @Setter private transient OperationTrace endOperationTrace;
+
   /** 事务当前的隔离级别 */
   private final IsolationLevel isolationLevel;
 
@@ -1,6 +1,7 @@
 package ana.window.profile;
 
 import ana.main.Config;
+import context.RunContext;
 import java.util.HashMap;
 import java.util.Set;
 import trace.OperationTrace;
@@ -14,11 +15,18 @@ import trace.OperationTraceType;
  * @author like_
  */
 public class ProfileMap {
-  /** key:事务的id value:事务的profile */
-  private static HashMap<String, Profile> profileMap;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** key:事务的id value:事务的profile */
+    private HashMap<String, Profile> profileMap;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
 
   public static void initialize() {
-    profileMap = new HashMap<>();
+    state().profileMap = new HashMap<>();
   }
 
   /**
@@ -28,7 +36,7 @@ public class ProfileMap {
    * @param profile 事务开始的操作所形成的profile
    */
   public static void addProfile(String transactionID, Profile profile) {
-    profileMap.put(transactionID, profile);
+    state().profileMap.put(transactionID, profile);
   }
 
   /**
@@ -37,7 +45,7 @@ public class ProfileMap {
    * @param transactionID 事务id
    */
   public static void setReadWrite(String transactionID) {
-    Profile profile = profileMap.get(transactionID);
+    Profile profile = state().profileMap.get(transactionID);
     if (profile == null) {
       throw new RuntimeException("profile must not be null: " + transactionID);
     }
@@ -52,24 +60,19 @@ public class ProfileMap {
   /**
    * 当遇到一个事务的结束操作时，完善该事务的profile信息
    *
-   * @param transactionID 事务id
-   * @param endStartTimestamp 结束操作的startTime
-   * @param endFinishTimestamp 结束操作的finishTime
-   * @param operationTraceType commit/rollback
+   * @param endOperationTrace 事务的结束操作，commit/rollback
    */
-  public static void perfectProfile(
-      String transactionID,
-      long endStartTimestamp,
-      long endFinishTimestamp,
-      OperationTraceType operationTraceType) {
-    Profile profile = profileMap.get(transactionID);
+  public static void perfectProfile(OperationTrace endOperationTrace) {
+    String transactionID = endOperationTrace.getTransactionID();
+    Profile profile = state().profileMap.get(transactionID);
     if (profile == null) {
       throw new RuntimeException("profile must not be null: " + transactionID);
     }
 
-    profile.setEndStartTimestamp(endStartTimestamp);
-    profile.setEndFinishTimestamp(endFinishTimestamp);
-    profile.setEndType(operationTraceType);
+    profile.setEndStartTimestamp(endOperationTrace.getStartTimestamp());
+    profile.setEndFinishTimestamp(endOperationTrace.getFinishTimestamp());
+    profile.setEndType(endOperationTrace.getOperationTraceType());
+    profile.setEndOperationTrace(endOperationTrace);
   }
 
   /**
@@ -94,7 +97,7 @@ public class ProfileMap {
    * @return 如果包含结束操作则为true
    */
   public static boolean isPerfect(String transactionID) {
-    Profile profile = profileMap.get(transactionID);
+    Profile profile = state().profileMap.get(transactionID);
     if (profile == null) {
       return false;
     }
@@ -110,7 +113,7 @@ public class ProfileMap {
    * @param transactionID 事务id
    */
   public static Profile getProfile(String transactionID) {
-    return profileMap.get(transactionID);
+    return state().profileMap.get(transactionID);
   }
 
   /**
@@ -119,7 +122,7 @@ public class ProfileMap {
    * @param transactionID 事务id
    */
   public static void removeProfile(String transactionID) {
-    profileMap.remove(transactionID);
+    state().profileMap.remove(transactionID);
   }
 
   /**
@@ -128,7 +131,7 @@ public class ProfileMap {
    * @return 事务id
    */
   public static Set<String> getAllProfile() {
-    return profileMap.keySet();
+    return state().profileMap.keySet();
   }
 
   /**
@@ -137,6 +140,6 @@ public class ProfileMap {
    * @return 对象
    */
   public static Object[] getAllObject() {
-    return new Object[] {profileMap};
+    return new Object[] {state().profileMap};
   }
 }
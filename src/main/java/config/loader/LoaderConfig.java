@@ -15,6 +15,7 @@ import org.dom4j.io.SAXReader;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
 import trace.IsolationLevel;
+import trace.TraceFormat;
 
 @Data
 public class LoaderConfig {
@@ -23,6 +24,12 @@ public class LoaderConfig {
   // 是否使用load data local infile进行初始数据导入（需要服务器开启此功能）
   private boolean useLoadInfile;
 
+  // 初始数据导入时一条多行INSERT包含的行数，为1时逐行执行
+  private int initialDataBatchSize = 200;
+
+  // 初始数据导入的并行度，外键上互不依赖的表用各自的连接并行导入
+  private int initialDataParallelism = 4;
+
   // transactionLoader 的数目，即线程数目，因为每个loader会创建一个线程
   private int numberOfLoader;
 
@@ -81,6 +88,9 @@ public class LoaderConfig {
 
   private int slice;
 
+  // trace文件格式，JSON或BINARY（二进制格式更紧凑、解析更快，可用 convert 子命令互相转换）
+  private TraceFormat traceFormat = TraceFormat.JSON;
+
   public static LoaderConfig parse(String configPath) throws IOException, DocumentException {
     if (configPath.endsWith("xml")) {
       return parseXML(configPath);
@@ -1,5 +1,6 @@
 package config.replay;
 
+import ana.output.OutputStructure;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,6 +42,30 @@ public class ReplayConfig {
 
   private String buggyOpId = null;
 
+  // 变异检查时回放产生的trace是否在内存中直接交给分析，不写JSON文件
+  private boolean inMemoryTrace = true;
+
+  // 内存交接模式下，是否仍然把每次变异回放的trace写到文件中（用于debug）
+  private boolean dumpReplayTrace = false;
+
+  // 同时验证的变异候选数，每个候选在各自的数据库上回放和分析，为1时按原先的方式逐个验证
+  private int parallelism = 1;
+
+  // 并行验证使用的数据库JDBC URL，为空时在原数据库名后加上 _p<i> 作为第i个数据库
+  private List<String> parallelUrls = new ArrayList<>();
+
+  // 是否按实际执行的操作集合缓存变异检查的结论，结论保存在输出目录中，重新开始的约简可以直接复用
+  private boolean verdictCache = true;
+
+  // 内存交接模式下是否边回放边分析，分析出与原始错误相同的错误时立即终止回放
+  private boolean pipelinedAnalysis = false;
+
+  // 每个回放连接上缓存的PreparedStatement数，按LRU淘汰
+  private int statementCacheSize = 256;
+
+  // 分析时debug.json的输出级别，OFF时不构造任何debug记录
+  private OutputStructure.Level structureOutputLevel = OutputStructure.Level.ALL;
+
   public List<List<String>> parseOperationSequence() {
     if (operationSequence == null) return null;
 
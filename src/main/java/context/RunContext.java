@@ -0,0 +1,111 @@
+package context;
+
+import io.IOPath;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 一次回放/分析运行的上下文。ReplayController、ErrorStatistics、AnalysisWindow、HistoryVersion、DependencyGraph
+ * 等类的状态都按运行保存在这里，各类仍然通过静态方法对外提供接口，内部经由 current() 找到所属运行的状态。
+ *
+ * <p>线程通过 bind 绑定到某个运行，其创建的子线程（回放线程、IO线程等）自动继承该运行；未绑定的线程都属于默认运行，
+ * 与原先单例的行为一致。这样多个变异候选可以在同一进程中、各自的数据库上并发地回放和分析
+ */
+public class RunContext {
+  private static final RunContext DEFAULT = new RunContext("default");
+
+  private static final InheritableThreadLocal<RunContext> CURRENT = new InheritableThreadLocal<>();
+
+  @Getter private final String name;
+
+  /** 各类在本次运行中的状态，key为各类内部的状态类 */
+  private final Map<Class<?>, Object> states = new ConcurrentHashMap<>();
+
+  /** 本次运行使用的数据库名称与JDBC URL，为null时使用全局数据源 */
+  @Getter @Setter private String dbName;
+
+  @Getter @Setter private String jdbcUrl;
+
+  /** 本次运行的输出目录，为null时使用全局的输出路径 */
+  @Getter private String outputDir;
+
+  private IOPath ioPath;
+
+  /** 本次运行的数据库是否已经保存过快照，保存之后的重置都从快照恢复 */
+  @Getter @Setter private boolean snapshotSaved = false;
+
+  public RunContext(String name) {
+    super();
+    this.name = name;
+  }
+
+  public static RunContext current() {
+    RunContext context = CURRENT.get();
+    return context == null ? DEFAULT : context;
+  }
+
+  public static RunContext getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * 将当前线程（以及之后创建的子线程）绑定到指定的运行
+   *
+   * @param context 运行上下文
+   */
+  public static void bind(RunContext context) {
+    CURRENT.set(context);
+  }
+
+  public static void unbind() {
+    CURRENT.remove();
+  }
+
+  /**
+   * 获取某个类在本次运行中的状态，不存在时创建
+   *
+   * @param type 状态类
+   * @param factory 创建初始状态
+   * @return 状态
+   */
+  public <T> T getState(Class<T> type, Supplier<T> factory) {
+    Object state = states.get(type);
+    if (state == null) {
+      state = states.computeIfAbsent(type, k -> factory.get());
+    }
+    return type.cast(state);
+  }
+
+  public <T> void setState(Class<T> type, T state) {
+    states.put(type, state);
+  }
+
+  /**
+   * 设置本次运行的输出目录，trace、certificate 等输出都放在该目录下
+   *
+   * @param configDir 配置目录
+   * @param outputDir 输出目录
+   */
+  public void setOutputDir(String configDir, String outputDir) {
+    this.outputDir = outputDir;
+    this.ioPath = new IOPath(configDir, outputDir);
+  }
+
+  public IOPath getIoPath() {
+    return ioPath == null ? OrcaContext.ioPath : ioPath;
+  }
+
+  /**
+   * 将全局的输出路径映射到本次运行的输出目录下
+   *
+   * @param globalPath 全局路径，默认运行直接使用
+   * @param relativePath 相对于本次运行输出目录的路径
+   * @return 本次运行应当使用的路径
+   */
+  public String resolveOutput(String globalPath, String relativePath) {
+    return outputDir == null ? globalPath : outputDir + "/" + relativePath;
+  }
+}
@@ -1,49 +1,108 @@
 package dbloader.distribution;
 
 import config.schema.DistributionType;
-import org.apache.commons.math3.distribution.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * loader的访问分布。分布在构造时一次性预处理，之后每次抽样都是O(1)，对象本身不可变，可以在线程之间共享，
+ * 随机数由调用方传入，每个loader使用自己的（可设种子的）随机数生成器
+ *
+ * <p>zipf分布预先计算Walker别名表，抽样只需要一次随机下标和一次比较；正态分布直接由nextGaussian变换得到
+ */
 public class VisitDistribution {
 
   private final DistributionType distributionType;
-  private AbstractRealDistribution realDistribution;
-  private AbstractIntegerDistribution integerDistribution;
+
+  /** 均匀分布的区间[begin, end]，或正态分布的均值 */
+  private double first;
+
+  /** 均匀分布的区间[begin, end]，或正态分布的标准差 */
+  private double second;
+
+  /** zipf别名表：下标i保留自身的概率 */
+  private double[] probability;
+
+  /** zipf别名表：下标i未保留时转向的下标 */
+  private int[] alias;
 
   public VisitDistribution(DistributionType type, String params) {
     super();
     this.distributionType = type;
-    if (type == DistributionType.NORMAL) {
-      realDistribution = getNormalDistribution(params);
-    } else if (type == DistributionType.UNIFORM) {
-      integerDistribution = getUniformIntegerDistribution(params);
+    if (type == DistributionType.NORMAL || type == DistributionType.UNIFORM) {
+      first = Double.parseDouble(params.split(",")[0].trim());
+      second = Double.parseDouble(params.split(",")[1].trim());
     } else if (type == DistributionType.ZIPF) {
-      integerDistribution = getZipfDistribution(params);
+      int r = Integer.parseInt(params.split(",")[0].trim());
+      double alpha = Double.parseDouble(params.split(",")[1].trim());
+      buildZipfAliasTable(r, alpha);
     }
   }
 
   public int sample() {
-    if (distributionType == DistributionType.NORMAL) {
-      return (int) realDistribution.sample();
-    } else {
-      return integerDistribution.sample();
-    }
+    return sample(ThreadLocalRandom.current());
   }
 
-  public NormalDistribution getNormalDistribution(String params) {
-    double mu = Double.parseDouble(params.split(",")[0].trim());
-    double sigma = Double.parseDouble(params.split(",")[1].trim());
-    return new NormalDistribution(mu, sigma);
+  /**
+   * 按分布抽取一个值
+   *
+   * @param random 调用方的随机数生成器
+   * @return 正态分布取整后的值，均匀分布为[begin, end]中的整数，zipf分布为排名[1, r]
+   */
+  public int sample(Random random) {
+    if (distributionType == DistributionType.NORMAL) {
+      return (int) (first + second * random.nextGaussian());
+    } else if (distributionType == DistributionType.UNIFORM) {
+      return (int) first + random.nextInt((int) second - (int) first + 1);
+    } else if (distributionType == DistributionType.ZIPF) {
+      int i = random.nextInt(probability.length);
+      return (random.nextDouble() < probability[i] ? i : alias[i]) + 1;
+    }
+    throw new IllegalStateException("Unsupported visit distribution: " + distributionType);
   }
 
-  public UniformIntegerDistribution getUniformIntegerDistribution(String params) {
-    int begin = Integer.parseInt(params.split(",")[0].trim());
-    int end = Integer.parseInt(params.split(",")[1].trim());
-    return new UniformIntegerDistribution(begin, end);
-  }
+  /** Vose 方法构造别名表，排名k的权重为 1/k^alpha */
+  private void buildZipfAliasTable(int r, double alpha) {
+    double[] weight = new double[r];
+    double sum = 0;
+    for (int k = 0; k < r; k++) {
+      weight[k] = 1.0 / Math.pow(k + 1, alpha);
+      sum += weight[k];
+    }
 
-  public ZipfDistribution getZipfDistribution(String params) {
-    int r = Integer.parseInt(params.split(",")[0].trim());
-    double alpha = Double.parseDouble(params.split(",")[1].trim());
-    return new ZipfDistribution(r, alpha);
+    probability = new double[r];
+    alias = new int[r];
+    Deque<Integer> small = new ArrayDeque<>();
+    Deque<Integer> large = new ArrayDeque<>();
+    for (int k = 0; k < r; k++) {
+      // 缩放到平均值为1
+      weight[k] = weight[k] * r / sum;
+      if (weight[k] < 1) {
+        small.push(k);
+      } else {
+        large.push(k);
+      }
+    }
+    while (!small.isEmpty() && !large.isEmpty()) {
+      int less = small.pop();
+      int more = large.pop();
+      probability[less] = weight[less];
+      alias[less] = more;
+      weight[more] = weight[more] + weight[less] - 1;
+      if (weight[more] < 1) {
+        small.push(more);
+      } else {
+        large.push(more);
+      }
+    }
+    // 剩下的下标由于浮点误差没有配对，权重都视为1
+    while (!large.isEmpty()) {
+      probability[large.pop()] = 1;
+    }
+    while (!small.isEmpty()) {
+      probability[small.pop()] = 1;
+    }
   }
 }
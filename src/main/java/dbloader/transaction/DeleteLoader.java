@@ -156,7 +156,9 @@ public class DeleteLoader extends OperationLoader {
       int updateCount = executeWriteOperation(operationTrace, pStat);
       if (updateCount == 1) {
         // 添加 setTag 命令
-        commandList.add(new SetTagCommand(currentRecord, PartitionTag.DYNAMIC_NOT_EXISTS));
+        commandList.add(
+            new SetTagCommand(
+                tableMirror.dynamicRecordMap, currentRecord, PartitionTag.DYNAMIC_NOT_EXISTS));
 
         // 修改 privateTagMap
         privateRecord.setTag(PartitionTag.DYNAMIC_NOT_EXISTS);
@@ -343,7 +345,11 @@ public class DeleteLoader extends OperationLoader {
           .clear();
 
       // 添加 setTag 命令
-      commandList.add(new SetTagCommand(record, PartitionTag.DYNAMIC_NOT_EXISTS));
+      commandList.add(
+          new SetTagCommand(
+              loader.getDbMirror().getTableMirrorById(table.getTableId()).dynamicRecordMap,
+              record,
+              PartitionTag.DYNAMIC_NOT_EXISTS));
 
       // 维护 privateRecordMap
       privateRecordMap
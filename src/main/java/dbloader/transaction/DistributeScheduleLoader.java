@@ -15,7 +15,6 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
 import lombok.Cleanup;
 import org.apache.logging.log4j.LogManager;
@@ -66,12 +65,12 @@ public class DistributeScheduleLoader extends OperationLoader {
       // 如果是大于partition的枚举常量，里面都是rg region一类与TDSQL绑定的命令
       if (type.ordinal() > DistributeScheduleType.SplitPartition.ordinal()) {
         int idx = -1;
-        if ((new Random().nextInt(10)) < 1) { // 10% 概率选择最近出现过的数据
+        if (loader.getVisitRandom().nextInt(10) < 1) { // 10% 概率选择最近出现过的数据
           Integer tmp =
               loader
                   .getDbMirror()
                   .getTableMirrorById(table.getTableId())
-                  .getRandomRecentAccessData();
+                  .getRandomRecentAccessData(loader.getVisitRandom());
           if (tmp != null) {
             idx = tmp;
           }
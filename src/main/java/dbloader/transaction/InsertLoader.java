@@ -148,7 +148,9 @@ public class InsertLoader extends OperationLoader {
       int updateCount = executeWriteOperation(operationTrace, pStat);
       // 如果执行成功，则修改Record中此条数据的状态
       if (updateCount == 1) {
-        commandList.add(new SetTagCommand(currentRecord, PartitionTag.DYNAMIC_EXISTS));
+        commandList.add(
+            new SetTagCommand(
+                tableMirror.dynamicRecordMap, currentRecord, PartitionTag.DYNAMIC_EXISTS));
 
         // 修改 privateTagMap
         // 维护私有Record
@@ -104,8 +104,8 @@ public class OperationLoader {
           loader.getDbMirror().getTableMirrorById(table.getTableId()),
           privateRecordMap,
           tags,
-          loader.getLoaderConfig().getVisitDistribution(),
-          loader.getLoaderConfig().getDistributionParams());
+          loader.getVisitDistribution(),
+          loader.getVisitRandom());
     } catch (NoProperRecordFoundException e) {
       throw new NoProperRecordFoundException("未找到合适的可删除参数", e);
     }
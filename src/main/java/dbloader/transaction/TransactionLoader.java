@@ -4,6 +4,7 @@ import adapter.Adapter;
 import com.mysql.cj.jdbc.exceptions.MySQLTimeoutException;
 import com.mysql.cj.jdbc.exceptions.MySQLTransactionRollbackException;
 import config.loader.LoaderConfig;
+import dbloader.distribution.VisitDistribution;
 import dbloader.transaction.command.Command;
 import dbloader.transaction.savepoint.OrcaSavePoint;
 import dbloader.util.TraceUtils;
@@ -35,6 +36,8 @@ import util.rand.RandUtils;
 public class TransactionLoader extends Thread {
   public static final Logger logger = LogManager.getLogger(TransactionLoader.class);
   private static boolean isRunning = false;
+  // 访问分布抽样的种子与loaderId混合，避免与RandUtil（同样以loaderId为种子）的随机序列相关
+  private static final long VISIT_SEED_MIX = 0x9E3779B97F4A7C15L;
   private final int loaderId;
   private final DBMirror dbMirror;
   private final Adapter adapter;
@@ -48,6 +51,9 @@ public class TransactionLoader extends Thread {
   private final CountDownLatch mainCountDownLatch;
   private final Map<Integer, Set<Integer>> globalAlteredRecordMap;
   private final Map<Integer, Set<Integer>> alteredRecordMap = new HashMap<>();
+  // 访问分布只在构造时预处理一次，抽样使用loader自己的随机数生成器
+  private final VisitDistribution visitDistribution;
+  private final Random visitRandom;
 
   /**
    * 构造函数
@@ -83,6 +89,10 @@ public class TransactionLoader extends Thread {
     this.idAsSeed = idAsSeed;
     this.iter = iter;
     this.isolation = 0;
+    this.visitDistribution =
+        new VisitDistribution(
+            loaderConfig.getVisitDistribution(), loaderConfig.getDistributionParams());
+    this.visitRandom = idAsSeed ? new Random(loaderId * VISIT_SEED_MIX + 1) : new Random();
   }
 
   public void setLog(Connection conn) throws SQLException {
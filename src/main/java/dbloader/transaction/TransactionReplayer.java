@@ -6,6 +6,8 @@ import adapter.Adapter;
 import ana.output.ErrorStatistics;
 import com.mysql.cj.jdbc.exceptions.MySQLTimeoutException;
 import context.OrcaContext;
+import context.RunContext;
+import dbloader.util.StatementCache;
 import exception.CommitException;
 import exception.OperationFailException;
 import gen.operation.enums.OperationLockMode;
@@ -38,13 +40,20 @@ public class TransactionReplayer extends Thread {
   private int isolation;
   private final CountDownLatch countDownLatch;
 
+  /** 正在执行的语句，提前终止回放时用于取消 */
+  private volatile Statement runningStatement;
+
+  /** 该loader连接上的语句缓存 */
+  private StatementCache statementCache;
+
   int iter;
   private long beforeLoadTimestamp;
   private long logBeforeLoadTimestamp;
 
   public void init() {
     adapter = DataSourceUtils.getAdapter();
-    this.traceDest = String.format("%s/loader-%d", OrcaContext.ioPath.traceDir, loaderId);
+    this.traceDest =
+        String.format("%s/loader-%d", RunContext.current().getIoPath().traceDir, loaderId);
   }
 
   public void setLog(Connection conn) throws SQLException {
@@ -74,14 +83,16 @@ public class TransactionReplayer extends Thread {
   public void run() {
 
     Connection conn = DataSourceUtils.getJDBCConnection(true);
-    @Cleanup
-    TransactionTraceWriter traceWriter =
-        new TransactionTraceWriter(traceDest, OrcaContext.configColl.getLoader().isTrace());
 
     // 关闭自动提交，即开启事务
     conn.setAutoCommit(false);
     // 初始化Session
     adapter.sessionConfig(conn);
+    statementCache =
+        new StatementCache(
+            conn,
+            OrcaContext.configColl.getReplay().getStatementCacheSize(),
+            OrcaContext.configColl.getLoader().getQueryTimeout());
 
     // 判断是否应当终止执行
     // 如果 execCountPerLoader 有效，则以此为依据
@@ -91,6 +102,9 @@ public class TransactionReplayer extends Thread {
 
     List<OperationTrace> logs = new ArrayList<>();
     for (int i = 0; i < allTxns.size(); ++i) {
+      if (ReplayController.isAborted()) {
+        break;
+      }
       try {
         // 处理TiDB #49811 导致的连接异常断开
         //        if (conn.isClosed()) {
@@ -106,24 +120,77 @@ public class TransactionReplayer extends Thread {
         //                  + "; reopen: "
         //                  + !conn.isClosed());
         //        }
-        logs.addAll(loadTransactionCase(allTxns.get(i), i, conn));
+        List<OperationTrace> txnLogs = loadTransactionCase(allTxns.get(i), i, conn);
+        logs.addAll(txnLogs);
+        // 边回放边分析时每完成一个事务就交给分析端，提前终止时事务没有执行完，不再交出
+        if (!ReplayController.isAborted()) {
+          MemoryTraceStore.append(loaderId, txnLogs, traceDest);
+        }
       } catch (SQLException e) {
         throw new RuntimeException("出错了!!!!!!!!!!", e);
       }
     }
+    MemoryTraceStore.closeStream(loaderId);
 
     logger.info(String.format("Logger-%d>> transaction loaded", loaderId));
     logger.info(String.format("Logger-%d>> exit", loaderId));
-    for (OperationTrace trace : logs) {
-      traceWriter.writeOperationTrace(trace);
+    // 内存交接模式下直接把trace交给分析端，只有在debug开关打开时才额外落盘
+    if (MemoryTraceStore.isActive()) {
+      MemoryTraceStore.publish(loaderId, logs, traceDest);
+    }
+    if (!MemoryTraceStore.isActive() || OrcaContext.configColl.getReplay().isDumpReplayTrace()) {
+      @Cleanup
+      TransactionTraceWriter traceWriter =
+          new TransactionTraceWriter(traceDest, OrcaContext.configColl.getLoader().isTrace());
+      for (OperationTrace trace : logs) {
+        traceWriter.writeOperationTrace(trace);
+      }
     }
 
+    statementCache.close();
     conn.close();
 
     // 通知主线程
     countDownLatch.countDown();
   }
 
+  /**
+   * 获取回放时实际执行的SQL：经过adapter的SQLFilter，select去掉for update并补上pkId。
+   * 结果缓存在trace上，每个trace只计算一次
+   *
+   * @param trace 原始用例中的trace
+   * @param adapter 数据库适配器
+   * @return 回放时执行的SQL
+   */
+  public static String getReplaySQL(OperationTrace trace, Adapter adapter) {
+    String replaySQL = trace.getReplaySQL();
+    if (replaySQL != null) {
+      return replaySQL;
+    }
+    replaySQL = adapter.getSQLFilter().filter(trace.getSql());
+    if (TraceUtil.operationTraceType2OperationType(trace.getOperationTraceType())
+        == OperationType.SELECT) {
+      replaySQL = replaySQL.replace("for update", "");
+      if (!replaySQL.contains("pkId")) {
+        replaySQL = replaySQL.replace("select ", "select pkId, ");
+      }
+    }
+    trace.setReplaySQL(replaySQL);
+    return replaySQL;
+  }
+
+  /** 提前终止回放：取消正在执行的语句，之后的操作不再执行 */
+  public void cancel() {
+    Statement statement = runningStatement;
+    if (statement != null) {
+      try {
+        statement.cancel();
+      } catch (SQLException e) {
+        logger.warn(e);
+      }
+    }
+  }
+
   /**
    * 执行单个事务
    *
@@ -160,8 +227,8 @@ public class TransactionReplayer extends Thread {
 
       for (OperationTrace trace : originTraces) {
 
-        if (!ReplayController.isExecute(trace.getOperationID())) {
-          ReplayController.addFinishOp(trace.getOperationID());
+        if (!ReplayController.isExecute(trace)) {
+          ReplayController.addFinishOp(trace);
           continue;
         }
 
@@ -170,6 +237,10 @@ public class TransactionReplayer extends Thread {
         //                }
 
         ReplayController.isPause(trace); // 判断是否可以在当前时间段执行，不执行时锁住
+        if (ReplayController.isAborted()) {
+          conn.rollback();
+          return logs;
+        }
 
         //                if (!OrcaContext.configColl.getLoader().isClearDebugInfo()){
         //                    System.out.println("after isPause:" + trace.getOperationID());
@@ -183,8 +254,7 @@ public class TransactionReplayer extends Thread {
         operationTrace.setBeforeLoadTime(System.nanoTime());
         int writeNum = 1;
 
-        String originSQL = trace.getSql();
-        String rawSQL = adapter.getSQLFilter().filter(originSQL);
+        String rawSQL = getReplaySQL(trace, adapter);
         operationTrace.setStartTime(System.nanoTime());
 
         OperationType type =
@@ -193,18 +263,8 @@ public class TransactionReplayer extends Thread {
         assert type != null;
         switch (type) {
           case SELECT:
-            //            if (OrcaContext.configColl.getReplay().isSkipEmptySelect()) {
-            //                            ReplayController.addFinishOp(trace.getOperationID());
-            //                            continue;
-            rawSQL = rawSQL.replace("for update", "");
-            //            }
-
-            if (!rawSQL.contains("pkId")) {
-              rawSQL = rawSQL.replace("select ", "select pkId, ");
-            }
-
-            pStat = conn.prepareStatement(rawSQL);
-            pStat.setQueryTimeout(OrcaContext.configColl.getLoader().getQueryTimeout());
+            pStat = statementCache.prepare(rawSQL);
+            runningStatement = pStat;
             ResultSet resultSet = pStat.executeQuery();
 
             // 写读到的数据
@@ -218,18 +278,17 @@ public class TransactionReplayer extends Thread {
             // 结束时间
             operationTrace.setFinishTime(System.nanoTime());
 
-            //                        pStat.close();
             break;
           case UPDATE:
           case INSERT:
           case DELETE:
             if (operationTrace.getWriteTupleList() == null
                 || operationTrace.getWriteTupleList().isEmpty()) {
-              ReplayController.addFinishOp(trace.getOperationID());
+              ReplayController.addFinishOp(trace);
               continue;
             }
-            pStat = conn.prepareStatement(rawSQL);
-            pStat.setQueryTimeout(OrcaContext.configColl.getLoader().getQueryTimeout());
+            pStat = statementCache.prepare(rawSQL);
+            runningStatement = pStat;
             //                        operationTrace.setStartTime(System.nanoTime());
             writeNum = pStat.executeUpdate();
             //                        if (operationTrace.getSavepoint() != null) {
@@ -239,7 +298,6 @@ public class TransactionReplayer extends Thread {
             // 结束时间
             operationTrace.setFinishTime(System.nanoTime());
 
-            //                        pStat.close();
             break;
           case START:
           case DDL:
@@ -249,12 +307,15 @@ public class TransactionReplayer extends Thread {
             if (rawSQL.isEmpty()) {
               continue;
             }
-            pStat = conn.prepareStatement(rawSQL);
-            pStat.setQueryTimeout(OrcaContext.configColl.getLoader().getQueryTimeout());
+            pStat = statementCache.prepare(rawSQL);
+            runningStatement = pStat;
             pStat.execute();
             // 结束时间
             operationTrace.setFinishTime(System.nanoTime());
-            //                        pStat.close();
+            if (type == OperationType.DDL) {
+              // 表结构变了，之前prepare的语句不再复用
+              statementCache.clear();
+            }
             break;
 
           case COMMIT:
@@ -288,8 +349,8 @@ public class TransactionReplayer extends Thread {
             //                        }
             //                        conn.rollback();
 
-            pStat = conn.prepareStatement("rollback;");
-            pStat.setQueryTimeout(OrcaContext.configColl.getLoader().getQueryTimeout());
+            pStat = statementCache.prepare("rollback;");
+            runningStatement = pStat;
             pStat.execute();
 
             operationTrace.setSql(null);
@@ -319,7 +380,7 @@ public class TransactionReplayer extends Thread {
         //                }
 
         //                traceWriter.writeOperationTrace(operationTrace);
-        ReplayController.addFinishOp(trace.getOperationID());
+        ReplayController.addFinishOp(trace);
         logs.add(operationTrace);
         //                OperationSequence.increaseCounter(loaderId);
         if (TraceUtil.operationTraceType2OperationType(trace.getOperationTraceType())
@@ -329,6 +390,11 @@ public class TransactionReplayer extends Thread {
       }
 
     } catch (Exception e) { // 操作无法执行或者更新失败时需要手动回滚
+      // 提前终止时语句是被主动取消的，直接回滚，不作为回放结果
+      if (ReplayController.isAborted()) {
+        conn.rollback();
+        return logs;
+      }
 
       if (OrcaContext.configColl.getReplay().getBuggyOpId() != null
           && operationTrace != null
@@ -336,7 +402,7 @@ public class TransactionReplayer extends Thread {
               .getReplay()
               .getBuggyOpId()
               .equals(operationTrace.getOperationID())) {
-        ErrorStatistics.triggerBug = true;
+        ErrorStatistics.setTriggerBug(true);
       }
 
       // 如果是 SQLException，交给adapter做进一步处理
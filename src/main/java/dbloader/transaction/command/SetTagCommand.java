@@ -2,14 +2,17 @@ package dbloader.transaction.command;
 
 import gen.shadow.PartitionTag;
 import gen.shadow.Record;
+import gen.shadow.RecordIndex;
 
 public class SetTagCommand implements Command {
+  private final RecordIndex recordIndex;
   private final Record record;
   private final PartitionTag oldTag;
   private final PartitionTag newTag;
 
-  public SetTagCommand(Record record, PartitionTag newTag) {
+  public SetTagCommand(RecordIndex recordIndex, Record record, PartitionTag newTag) {
     super();
+    this.recordIndex = recordIndex;
     this.oldTag = record.getTag();
     this.record = record;
     this.newTag = newTag;
@@ -17,11 +20,11 @@ public class SetTagCommand implements Command {
 
   @Override
   public void execute() {
-    record.setTag(newTag);
+    recordIndex.setTag(record, newTag);
   }
 
   @Override
   public void undo() {
-    record.setTag(oldTag);
+    recordIndex.setTag(record, oldTag);
   }
 }
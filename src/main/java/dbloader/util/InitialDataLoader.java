@@ -0,0 +1,222 @@
+package dbloader.util;
+
+import static context.OrcaContext.configColl;
+
+import adapter.Adapter;
+import gen.data.InitialData;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.Cleanup;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import util.jdbc.DataSourceUtils;
+
+/**
+ * 初始数据的批量导入。每张表的INSERT合并成多行INSERT分批执行；表之间按外键分层，同一层的表互不依赖，
+ * 用各自的连接并行导入，上一层全部导入之后再开始下一层
+ *
+ * <p>表的先后顺序沿用初始数据中表出现的顺序，即生成时 DBMirror.topologyOrder 给出的拓扑序，
+ * 外键关系从schema语句中解析，因此回放时只有SQL文件也可以分层
+ */
+public class InitialDataLoader {
+  private static final Logger logger = LogManager.getLogger(InitialDataLoader.class);
+
+  private static final Pattern TABLE_PATTERN =
+      Pattern.compile("^\\s*(?:create|alter)\\s+table\\s+[`\"]?(\\w+)", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern REFERENCE_PATTERN =
+      Pattern.compile("references\\s+[`\"]?(\\w+)", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * 导入INSERT语句形式的初始数据，语句无法解析时退回到逐条执行
+   *
+   * @param schema 建表语句，用于解析外键
+   * @param insertList 按拓扑序排列的INSERT语句
+   */
+  public static void loadInsertList(List<String> schema, List<String> insertList)
+      throws SQLException {
+    Adapter adapter = DataSourceUtils.getAdapter();
+    int batchSize = configColl.getLoader().getInitialDataBatchSize();
+    Map<String, List<String>> statements =
+        batch(insertList, adapter.getInsertPattern(), Math.max(batchSize, 1));
+    if (statements == null) {
+      logger.warn("Unrecognized initial data, load the insert statements one by one");
+      DataSourceUtils.loadInertList(insertList);
+      return;
+    }
+
+    load(
+        levels(schema, new ArrayList<>(statements.keySet())),
+        tableName -> {
+          @Cleanup Connection conn = DataSourceUtils.getJDBCConnection(true);
+          adapter.loadInsertList(conn, statements.get(tableName));
+        });
+  }
+
+  /**
+   * 导入CSV形式的初始数据（LOAD DATA / COPY），分层方式与 loadInsertList 相同
+   *
+   * @param schema 建表语句，用于解析外键
+   * @param initialData 初始数据
+   * @param srcDir CSV文件所在的目录
+   */
+  public static void loadCSV(List<String> schema, InitialData initialData, String srcDir)
+      throws SQLException {
+    Adapter adapter = DataSourceUtils.getAdapter();
+    Map<String, InitialData.TableData> tableDataMap = initialData.getTableDataMap();
+    load(
+        levels(schema, new ArrayList<>(tableDataMap.keySet())),
+        tableName -> {
+          InitialData.TableData tableData = tableDataMap.get(tableName);
+          String src = String.format("%s/%s.csv", srcDir, tableData.tableName);
+          @Cleanup Connection conn = DataSourceUtils.getJDBCConnection(true);
+          adapter.loadCSV(conn, tableData.tableName, tableData.columns, src);
+        });
+  }
+
+  private interface TableLoader {
+    void load(String tableName) throws SQLException;
+  }
+
+  private static void load(List<List<String>> levels, TableLoader tableLoader)
+      throws SQLException {
+    int parallelism = Math.max(configColl.getLoader().getInitialDataParallelism(), 1);
+    if (!DataSourceUtils.getAdapter().supportsConcurrentWrites()) {
+      parallelism = 1;
+    }
+    // 线程在提交任务时创建，继承当前的运行，连接到该运行的数据库
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      for (List<String> level : levels) {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (String tableName : level) {
+          futures.add(
+              executor.submit(
+                  () -> {
+                    tableLoader.load(tableName);
+                    return null;
+                  }));
+        }
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * 按表把INSERT语句合并成多行INSERT，表内行的顺序不变，列不同的相邻行不会合并
+   *
+   * @param insertList INSERT语句
+   * @param insertPattern adapter的INSERT语句格式，依次匹配表名、列和值
+   * @param batchSize 一条多行INSERT最多包含的行数
+   * @return <表名, 合并后的语句>，表按第一次出现的顺序排列，有语句无法解析时返回null
+   */
+  static Map<String, List<String>> batch(
+      List<String> insertList, Pattern insertPattern, int batchSize) {
+    Map<String, List<String>> statements = new LinkedHashMap<>();
+    Map<String, StringBuilder> pending = new HashMap<>();
+    Map<String, String> pendingHeader = new HashMap<>();
+    Map<String, Integer> pendingRows = new HashMap<>();
+
+    for (String sql : insertList) {
+      Matcher matcher = insertPattern.matcher(sql);
+      if (!matcher.find()) {
+        return null;
+      }
+      String tableName = matcher.group(1);
+      // 表名和列部分，例如 insert into table0 (pkId,coAttr0_0) values
+      String header = sql.substring(0, matcher.start(3) - 1);
+      String row = sql.substring(matcher.start(3) - 1, matcher.end(3) + 1);
+
+      statements.computeIfAbsent(tableName, k -> new ArrayList<>());
+      StringBuilder builder = pending.get(tableName);
+      if (builder != null
+          && (!header.equals(pendingHeader.get(tableName))
+              || pendingRows.get(tableName) >= batchSize)) {
+        statements.get(tableName).add(builder.append(';').toString());
+        builder = null;
+      }
+      if (builder == null) {
+        pending.put(tableName, new StringBuilder(header).append(row));
+        pendingHeader.put(tableName, header);
+        pendingRows.put(tableName, 1);
+      } else {
+        builder.append(',').append(row);
+        pendingRows.merge(tableName, 1, Integer::sum);
+      }
+    }
+    for (Map.Entry<String, List<String>> entry : statements.entrySet()) {
+      entry.getValue().add(pending.get(entry.getKey()).append(';').toString());
+    }
+    return statements;
+  }
+
+  /**
+   * 将表分层：有外键关系的两张表保持原来的先后顺序，分在不同的层，其余的表尽量靠前
+   *
+   * @param schema 建表语句
+   * @param tables 按导入顺序排列的表名
+   * @return 每一层的表
+   */
+  static List<List<String>> levels(List<String> schema, List<String> tables) {
+    // 外键关系，不区分方向
+    Map<String, Set<String>> related = new HashMap<>();
+    for (String sql : schema) {
+      Matcher table = TABLE_PATTERN.matcher(sql);
+      if (!table.find()) {
+        continue;
+      }
+      Matcher reference = REFERENCE_PATTERN.matcher(sql);
+      while (reference.find()) {
+        String from = table.group(1);
+        String to = reference.group(1);
+        if (!from.equals(to)) {
+          related.computeIfAbsent(from, k -> new HashSet<>()).add(to);
+          related.computeIfAbsent(to, k -> new HashSet<>()).add(from);
+        }
+      }
+    }
+
+    List<List<String>> levels = new ArrayList<>();
+    Map<String, Integer> levelOf = new HashMap<>();
+    for (String tableName : tables) {
+      int level = 0;
+      for (String other : related.getOrDefault(tableName, new HashSet<>())) {
+        Integer otherLevel = levelOf.get(other);
+        if (otherLevel != null) {
+          level = Math.max(level, otherLevel + 1);
+        }
+      }
+      levelOf.put(tableName, level);
+      if (level == levels.size()) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(level).add(tableName);
+    }
+    return levels;
+  }
+}
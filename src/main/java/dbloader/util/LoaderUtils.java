@@ -1,6 +1,5 @@
 package dbloader.util;
 
-import config.schema.DistributionType;
 import dbloader.distribution.VisitDistribution;
 import exception.NoProperRecordFoundException;
 import gen.data.generator.PKGenerator;
@@ -9,6 +8,7 @@ import gen.data.value.AttrValue;
 import gen.schema.table.Table;
 import gen.shadow.PartitionTag;
 import gen.shadow.Record;
+import gen.shadow.RecordIndex;
 import gen.shadow.TableMirror;
 import java.io.InputStream;
 import java.sql.PreparedStatement;
@@ -16,8 +16,6 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.apache.commons.lang3.NotImplementedException;
 import util.rand.RandUtils;
 
@@ -30,6 +28,8 @@ public class LoaderUtils {
    * @param tableMirror tableGenModel
    * @param privateRecordMap privateRecordMap
    * @param expectedTagSet expectedTagSet
+   * @param distribution loader的访问分布
+   * @param random loader的随机数生成器
    * @return pkId
    * @throws NoProperRecordFoundException 如果找不到参数将会抛出该错误
    */
@@ -38,68 +38,140 @@ public class LoaderUtils {
       TableMirror tableMirror,
       Map<String, Record> privateRecordMap,
       Set<PartitionTag> expectedTagSet,
-      DistributionType distributionType,
-      String distributionParams)
+      VisitDistribution distribution,
+      Random random)
       throws NoProperRecordFoundException {
-    Set<Integer> dynamicIdSet = tableMirror.dynamicRecordMap.keySet();
+    int size = table.getTableSize();
+    RecordIndex index = tableMirror.dynamicRecordMap;
 
-    VisitDistribution distribution = new VisitDistribution(distributionType, distributionParams);
+    int pkId = distribution.sample(random);
+    pkId = (pkId % size + size) % size;
 
-    int pkId = distribution.sample();
-    pkId = (pkId + table.getTableSize()) % table.getTableSize();
-
-    if ((new Random().nextInt(10)) < 1) { // 10% 概率选择最近出现过的数据
-      Integer tmp = tableMirror.getRandomRecentAccessData();
+    if (random.nextInt(10) < 1) { // 10% 概率选择最近出现过的数据
+      Integer tmp = tableMirror.getRandomRecentAccessData(random);
       if (tmp != null) {
         pkId = tmp;
       }
     }
 
-    int delta = 0;
-
-    // 临近搜索
-    while (delta < table.getTableSize()) {
-      int upPkId = (pkId + delta + table.getTableSize()) % table.getTableSize();
-      int downPkId = (pkId - delta + table.getTableSize()) % table.getTableSize();
-      delta += 1;
-
-      // 利用Set避免重复上锁
-      Set<Integer> idSet = new HashSet<>(Arrays.asList(upPkId, downPkId));
+    // 索引的位图只反映全局的tag，事务私有记录满足条件的pkId单独作为候选
+    TreeSet<Integer> privateIds = new TreeSet<>();
+    for (Record privateRecord : privateRecordMap.values()) {
+      if (privateRecord.getTableId() == table.getTableId()
+          && expectedTagSet.contains(privateRecord.getTag())) {
+        privateIds.add(privateRecord.getPkId());
+      }
+    }
 
-      for (int id : idSet) {
-        // 静态区
-        if (expectedTagSet.contains(PartitionTag.STATIC) && !dynamicIdSet.contains(id)) {
-          tableMirror.addRecentAccessData(id);
+    // 临近搜索：分别向上、向下找到最近的候选，先尝试距离近的一侧
+    int up = upDistance(index, privateIds, expectedTagSet, pkId, 0, size);
+    int down = downDistance(index, privateIds, expectedTagSet, pkId, 0, size);
+    while (up < size || down < size) {
+      boolean upward = up <= down;
+      int id = upward ? (pkId + up) % size : (pkId - down + size) % size;
+
+      // 静态区
+      if (expectedTagSet.contains(PartitionTag.STATIC) && !index.containsKey(id)) {
+        tableMirror.addRecentAccessData(id, random);
+        return id;
+      }
+      // 动态区
+      Record record = index.get(id);
+      // 尝试上读锁
+      // 如果无法上锁则放弃此pkId，直接尝试下一个pkId
+      if (record != null && record.lock.readLock().tryLock()) {
+        // 如果私有tagMap包含该记录，则以私有记录为准
+        PartitionTag tag;
+        tag = privateRecordMap.getOrDefault(priTagKey(table, id), record).getTag();
+
+        // 找到了一条满足寻找条件的记录，保持上锁状态，退出循环
+        if (expectedTagSet.contains(tag)) { // expectedTagSet里是 NOT_EXISTS
+          tableMirror.addRecentAccessData(id, random);
           return id;
         }
-        // 动态区
-        else if (dynamicIdSet.contains(id)) {
-          Record record = tableMirror.dynamicRecordMap.get(id);
-          // 尝试上读锁
-          // 如果无法上锁则放弃此pkId，直接尝试下一个pkId
-          if (!record.lock.readLock().tryLock()) {
-            continue;
-          }
-
-          // 如果私有tagMap包含该记录，则以私有记录为准
-          PartitionTag tag;
-          tag = privateRecordMap.getOrDefault(priTagKey(table, id), record).getTag();
-
-          // 找到了一条满足寻找条件的记录，保持上锁状态，退出循环
-          if (expectedTagSet.contains(tag)) { // expectedTagSet里是 NOT_EXISTS
-            tableMirror.addRecentAccessData(id);
-            return id;
-          }
-
-          // 解锁
-          record.lock.readLock().unlock();
-        }
+
+        // 解锁
+        record.lock.readLock().unlock();
+      }
+
+      if (upward) {
+        up = upDistance(index, privateIds, expectedTagSet, pkId, up + 1, size);
+      } else {
+        down = downDistance(index, privateIds, expectedTagSet, pkId, down + 1, size);
       }
     }
 
     throw new NoProperRecordFoundException();
   }
 
+  /**
+   * 从pkId向上（循环）距离distance处开始，找到最近的候选pkId
+   *
+   * @return 候选与pkId的距离，没有候选时返回size
+   */
+  private static int upDistance(
+      RecordIndex index,
+      TreeSet<Integer> privateIds,
+      Set<PartitionTag> tags,
+      int pkId,
+      int distance,
+      int size) {
+    if (distance >= size) {
+      return size;
+    }
+    int from = (pkId + distance) % size;
+    int next = nextCandidate(index, privateIds, tags, from, size);
+    if (next >= 0) {
+      return distance + next - from;
+    }
+    next = nextCandidate(index, privateIds, tags, 0, from);
+    return next >= 0 ? Math.min(distance + size - from + next, size) : size;
+  }
+
+  /**
+   * 从pkId向下（循环）距离distance处开始，找到最近的候选pkId
+   *
+   * @return 候选与pkId的距离，没有候选时返回size
+   */
+  private static int downDistance(
+      RecordIndex index,
+      TreeSet<Integer> privateIds,
+      Set<PartitionTag> tags,
+      int pkId,
+      int distance,
+      int size) {
+    if (distance >= size) {
+      return size;
+    }
+    int from = ((pkId - distance) % size + size) % size;
+    int previous = previousCandidate(index, privateIds, tags, from);
+    if (previous >= 0) {
+      return distance + from - previous;
+    }
+    previous = previousCandidate(index, privateIds, tags, size - 1);
+    return previous > from ? Math.min(distance + from + size - previous, size) : size;
+  }
+
+  private static int nextCandidate(
+      RecordIndex index, TreeSet<Integer> privateIds, Set<PartitionTag> tags, int from, int bound) {
+    int next = index.nextCandidate(from, bound, tags);
+    Integer privateId = privateIds.ceiling(from);
+    if (privateId != null && privateId < bound && (next < 0 || privateId < next)) {
+      next = privateId;
+    }
+    return next;
+  }
+
+  private static int previousCandidate(
+      RecordIndex index, TreeSet<Integer> privateIds, Set<PartitionTag> tags, int from) {
+    int previous = index.previousCandidate(from, tags);
+    Integer privateId = privateIds.floor(from);
+    if (privateId != null && privateId > previous) {
+      previous = privateId;
+    }
+    return previous;
+  }
+
   /**
    * 向下搜寻一个当前存在于数据库中的存在的pkId（如果属于动态区，将会为相应Record加ReadLock） 该操作用于动态生成fkId，因此可能会跳过某些无法获取锁的项目，不能保证确定性
    *
@@ -134,11 +206,14 @@ public class LoaderUtils {
   public static int randStaticPkId(Table table, TableMirror tableMirror) {
 
     // 构造静态集
-    Set<Integer> staticFkIdSet =
-        IntStream.range(0, table.getTableSize()).boxed().collect(Collectors.toSet());
-    staticFkIdSet.removeAll(tableMirror.dynamicRecordMap.keySet());
+    List<Integer> staticFkIdList = new ArrayList<>();
+    for (int pkId = 0; pkId < table.getTableSize(); pkId++) {
+      if (!tableMirror.dynamicRecordMap.containsKey(pkId)) {
+        staticFkIdList.add(pkId);
+      }
+    }
 
-    return RandUtils.getRandElement(new ArrayList<>(staticFkIdSet));
+    return RandUtils.getRandElement(staticFkIdList);
   }
 
   private static boolean isThisPkIdOk(
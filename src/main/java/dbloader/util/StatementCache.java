@@ -0,0 +1,89 @@
+package dbloader.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * 一个连接上的PreparedStatement缓存，以SQL为key，超过容量时淘汰最久没有使用的语句并关闭。
+ * 同一个SQL在约简过程中会被反复回放，复用语句可以省去重复的（服务端）prepare，也不再泄漏语句
+ *
+ * <p>只能由持有连接的线程使用
+ */
+public class StatementCache implements AutoCloseable {
+  private static final Logger logger = LogManager.getLogger(StatementCache.class);
+
+  private final Connection conn;
+
+  private final int queryTimeout;
+
+  private final LinkedHashMap<String, PreparedStatement> statements;
+
+  /**
+   * @param conn 语句所属的连接
+   * @param capacity 最多缓存的语句数
+   * @param queryTimeout 语句的执行超时时间（秒）
+   */
+  public StatementCache(Connection conn, int capacity, int queryTimeout) {
+    this.conn = conn;
+    this.queryTimeout = queryTimeout;
+    this.statements =
+        new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > Math.max(capacity, 1)) {
+              closeQuietly(eldest.getValue());
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /**
+   * 获取SQL对应的语句，没有缓存或者已经失效（例如连接断开后）时重新prepare
+   *
+   * @param sql 要执行的SQL
+   * @return 设置好超时时间的语句
+   */
+  public PreparedStatement prepare(String sql) throws SQLException {
+    PreparedStatement statement = statements.get(sql);
+    if (statement != null && !statement.isClosed()) {
+      return statement;
+    }
+    statement = conn.prepareStatement(sql);
+    statement.setQueryTimeout(queryTimeout);
+    statements.put(sql, statement);
+    return statement;
+  }
+
+  /** 关闭并移除所有缓存的语句，例如执行DDL之后 */
+  public void clear() {
+    List<PreparedStatement> closing = new ArrayList<>(statements.values());
+    statements.clear();
+    closing.forEach(StatementCache::closeQuietly);
+  }
+
+  public int size() {
+    return statements.size();
+  }
+
+  @Override
+  public void close() {
+    clear();
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      logger.warn(e);
+    }
+  }
+}
@@ -26,6 +26,9 @@ import gen.schema.table.Table;
 import gen.schema.view.View;
 import io.Storable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.util.Pair;
 import org.apache.logging.log4j.LogManager;
@@ -193,6 +196,18 @@ public class DBMirror extends Storable {
    * @return List of insert SQL
    */
   public InitialData initData(Adapter adapter) throws InterruptedException {
+    return initData(adapter, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * 生成初始数据。每一行的值只取决于表的生成参数和pkId，因此可以按拓扑层并行生成：同一层的表同时生成，
+   * 大表再按pkId区间拆分给fork-join线程池，各区间的结果按pkId顺序拼接，输出与串行生成完全相同
+   *
+   * @param adapter adapter提供insert方法
+   * @param parallelism 并行度，为1时串行生成
+   * @return List of insert SQL
+   */
+  public InitialData initData(Adapter adapter, int parallelism) throws InterruptedException {
 
     // 首先建立DynamicRecord结构
     schema.getTableList().forEach(this::initDynamicRecordForTable);
@@ -203,23 +218,35 @@ public class DBMirror extends Storable {
     Set<Table> unInitTableSet = new HashSet<>(schema.getTableList());
     List<Table> topologyOrderedTableList = topologyOrder(unInitTableSet);
     HashMap<Integer, List<String>> sqlListOfTables = new HashMap<>();
-    //    List<Thread> subThreads = new ArrayList<>();
-    //    CountDownLatch countDownLatch = new CountDownLatch(topologyOrderedTableList.size());
-    for (Table table : topologyOrderedTableList) {
-      //      Thread t =
-      //          new Thread(
-      //              () -> {
-      //
-      //              });
-      //      subThreads.add(t);
-      logger.info(String.format("Initiating table%d...", table.getTableId()));
-      List<String> sqlList = initDataForTable(adapter, table);
-      sqlListOfTables.put(table.getTableId(), sqlList);
-      logger.info(String.format("Initiating table%d... FINISHED!!!", table.getTableId()));
-      //      countDownLatch.countDown();
+    if (parallelism <= 1) {
+      for (Table table : topologyOrderedTableList) {
+        logger.info(String.format("Initiating table%d...", table.getTableId()));
+        List<String> sqlList =
+            initDataForTable(
+                adapter, table, 0, getTableMirrorById(table.getTableId()).getMaxSize());
+        sqlListOfTables.put(table.getTableId(), sqlList);
+        logger.info(String.format("Initiating table%d... FINISHED!!!", table.getTableId()));
+      }
+    } else {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        for (List<Table> level : topologyLevels(topologyOrderedTableList)) {
+          List<ForkJoinTask<List<String>>> tasks = new ArrayList<>();
+          for (Table table : level) {
+            logger.info(String.format("Initiating table%d...", table.getTableId()));
+            int maxSize = getTableMirrorById(table.getTableId()).getMaxSize();
+            tasks.add(pool.submit(new TableDataTask(adapter, table, 0, maxSize)));
+          }
+          for (int i = 0; i < level.size(); i++) {
+            sqlListOfTables.put(level.get(i).getTableId(), tasks.get(i).join());
+            logger.info(
+                String.format("Initiating table%d... FINISHED!!!", level.get(i).getTableId()));
+          }
+        }
+      } finally {
+        pool.shutdown();
+      }
     }
-    //    subThreads.forEach(Thread::start);
-    //    countDownLatch.await();
 
     for (Table table : topologyOrderedTableList) {
       insertSQLList.addAll(sqlListOfTables.get(table.getTableId()));
@@ -231,6 +258,68 @@ public class DBMirror extends Storable {
     return new InitialData(insertSQLList);
   }
 
+  /** 一张表在一个pkId区间上的初始数据，区间较大时对半拆分 */
+  private class TableDataTask extends RecursiveTask<List<String>> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 不再拆分的区间大小 */
+    private static final int SPLIT_THRESHOLD = 2048;
+
+    private final Adapter adapter;
+    private final Table table;
+    private final int from;
+    private final int to;
+
+    TableDataTask(Adapter adapter, Table table, int from, int to) {
+      this.adapter = adapter;
+      this.table = table;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<String> compute() {
+      if (to - from <= SPLIT_THRESHOLD) {
+        return initDataForTable(adapter, table, from, to);
+      }
+      int middle = (from + to) >>> 1;
+      TableDataTask left = new TableDataTask(adapter, table, from, middle);
+      left.fork();
+      List<String> right = new TableDataTask(adapter, table, middle, to).compute();
+      List<String> result = left.join();
+      result.addAll(right);
+      return result;
+    }
+  }
+
+  /**
+   * 将按拓扑序排列的表分层：有依赖关系的两张表保持原来的先后顺序并分在不同的层，同一层的表之间没有依赖
+   *
+   * @param topologyOrderedTableList 按拓扑序排列的表
+   * @return 每一层的表，层内保持拓扑序
+   */
+  public List<List<Table>> topologyLevels(List<Table> topologyOrderedTableList) {
+    List<List<Table>> levels = new ArrayList<>();
+    Map<Table, Integer> levelOf = new HashMap<>();
+    for (Table table : topologyOrderedTableList) {
+      Set<Table> dependTableSet = table.getDependTableSet();
+      int level = 0;
+      for (Map.Entry<Table, Integer> entry : levelOf.entrySet()) {
+        Table other = entry.getKey();
+        if (dependTableSet.contains(other) || other.getDependTableSet().contains(table)) {
+          level = Math.max(level, entry.getValue() + 1);
+        }
+      }
+      levelOf.put(table, level);
+      if (level == levels.size()) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(level).add(table);
+    }
+    return levels;
+  }
+
   /**
    * 对表进行拓扑排序
    *
@@ -297,20 +386,22 @@ public class DBMirror extends Storable {
   }
 
   /**
-   * 为某一张表生成初始数据
+   * 为某一张表在一个pkId区间上生成初始数据
    *
    * @param adapter adapter提供insert方法
+   * @param from 起始pkId（包含）
+   * @param to 结束pkId（不包含）
    * @return sqlList
    */
-  private List<String> initDataForTable(Adapter adapter, Table table) {
+  private List<String> initDataForTable(Adapter adapter, Table table, int from, int to) {
     // todo lxr DYNAMIC_NOT_EXISTS时怎么办
     // 检测
 
     List<String> insertSQLList = new ArrayList<>();
     TableMirror tableMirror = getTableMirrorById(table.getTableId());
 
-    // 表的每一个pkId
-    for (int pkId = 0; pkId < tableMirror.getMaxSize(); pkId++) {
+    // 区间内的每一个pkId
+    for (int pkId = from; pkId < to; pkId++) {
       PartitionTag partitionTag = PKGenerator.calcPartition(pkId, tableMirror.getPkPartitionAlg());
 
       // 若该pkId属于动态区且不存在初始数据
@@ -428,7 +519,10 @@ public class DBMirror extends Storable {
           refInfo.refFromMap.put(RefInfo.fromKey(table, attr), reference);
           // 反向引用信息
           Record refToRecord = refToTableMirror.dynamicRecordMap.get(fkId);
-          refToRecord.getRefInfo().refToMap.put(RefInfo.toKey(table, attr, pkId), reference);
+          // 并行生成时，引用同一条记录的行可能在不同的线程中
+          synchronized (refToRecord.getRefInfo()) {
+            refToRecord.getRefInfo().refToMap.put(RefInfo.toKey(table, attr, pkId), reference);
+          }
         }
 
         // 去掉了前缀外键，不存在级联引用
@@ -0,0 +1,200 @@
+package gen.shadow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 动态区Record的索引（pkId -> Record）。Record按pkId放在数组中，另外为每种PartitionTag维护一个位图，
+ * 寻找最近的满足tag的pkId时按64位一组扫描位图，不需要逐个pkId查询
+ *
+ * <p>读操作（get、位图扫描）不加锁；put和setTag很少发生，在索引上同步。位图只是提示，
+ * 调用方拿到候选pkId之后仍需在Record的锁下确认tag
+ */
+public class RecordIndex {
+  private volatile AtomicReferenceArray<Record> records;
+
+  /** 位图：pkId是否属于动态区 */
+  private volatile AtomicLongArray present;
+
+  /** 位图：按PartitionTag.ordinal()，动态区中tag为该值的pkId */
+  private volatile AtomicLongArray[] tagBits;
+
+  private int size = 0;
+
+  public RecordIndex() {
+    this(0);
+  }
+
+  public RecordIndex(int capacity) {
+    records = new AtomicReferenceArray<>(capacity);
+    present = new AtomicLongArray(words(capacity));
+    tagBits = new AtomicLongArray[PartitionTag.values().length];
+    for (int i = 0; i < tagBits.length; i++) {
+      tagBits[i] = new AtomicLongArray(words(capacity));
+    }
+  }
+
+  private static int words(int capacity) {
+    return (capacity + 63) >>> 6;
+  }
+
+  public Record get(int pkId) {
+    AtomicReferenceArray<Record> records = this.records;
+    return pkId >= 0 && pkId < records.length() ? records.get(pkId) : null;
+  }
+
+  public boolean containsKey(int pkId) {
+    return get(pkId) != null;
+  }
+
+  public synchronized void put(int pkId, Record record) {
+    if (pkId >= records.length()) {
+      grow(pkId + 1);
+    }
+    Record old = records.get(pkId);
+    if (old != null) {
+      clear(tagBits[old.getTag().ordinal()], pkId);
+    } else {
+      size++;
+    }
+    records.set(pkId, record);
+    set(present, pkId);
+    set(tagBits[record.getTag().ordinal()], pkId);
+  }
+
+  /**
+   * 修改全局Record的tag，同时维护位图。事务私有的Record不在索引中，直接修改即可
+   *
+   * @param record 索引中的Record
+   * @param tag 新的tag
+   */
+  public synchronized void setTag(Record record, PartitionTag tag) {
+    if (get(record.getPkId()) == record) {
+      clear(tagBits[record.getTag().ordinal()], record.getPkId());
+      set(tagBits[tag.ordinal()], record.getPkId());
+    }
+    record.setTag(tag);
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /** @return 按pkId排序的所有Record */
+  public List<Record> values() {
+    AtomicReferenceArray<Record> records = this.records;
+    List<Record> values = new ArrayList<>();
+    for (int pkId = 0; pkId < records.length(); pkId++) {
+      Record record = records.get(pkId);
+      if (record != null) {
+        values.add(record);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * 在[from, bound)中找到第一个可能满足tags的pkId。不属于动态区的pkId视为STATIC
+   *
+   * @param from 起点（含）
+   * @param bound 终点（不含）
+   * @param tags 期望的tag
+   * @return pkId，没有时返回-1
+   */
+  public int nextCandidate(int from, int bound, Set<PartitionTag> tags) {
+    if (from >= bound) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long bits = candidateWord(word, tags) & (-1L << (from & 63));
+    while (true) {
+      if (bits != 0) {
+        int pkId = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return pkId < bound ? pkId : -1;
+      }
+      word++;
+      if (word << 6 >= bound) {
+        return -1;
+      }
+      bits = candidateWord(word, tags);
+    }
+  }
+
+  /**
+   * 在[0, from]中找到最后一个可能满足tags的pkId
+   *
+   * @param from 起点（含）
+   * @param tags 期望的tag
+   * @return pkId，没有时返回-1
+   */
+  public int previousCandidate(int from, Set<PartitionTag> tags) {
+    if (from < 0) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long bits = candidateWord(word, tags) & (-1L >>> (63 - (from & 63)));
+    while (true) {
+      if (bits != 0) {
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+      }
+      word--;
+      if (word < 0) {
+        return -1;
+      }
+      bits = candidateWord(word, tags);
+    }
+  }
+
+  private long candidateWord(int word, Set<PartitionTag> tags) {
+    AtomicLongArray present = this.present;
+    AtomicLongArray[] tagBits = this.tagBits;
+    long bits = 0;
+    for (PartitionTag tag : tags) {
+      if (word < present.length()) {
+        bits |= tagBits[tag.ordinal()].get(word);
+        if (tag == PartitionTag.STATIC) {
+          bits |= ~present.get(word);
+        }
+      } else if (tag == PartitionTag.STATIC) {
+        bits = -1L;
+      }
+    }
+    return bits;
+  }
+
+  private void grow(int capacity) {
+    capacity = Math.max(capacity, records.length() * 2);
+    AtomicReferenceArray<Record> newRecords = new AtomicReferenceArray<>(capacity);
+    for (int i = 0; i < records.length(); i++) {
+      newRecords.set(i, records.get(i));
+    }
+    AtomicLongArray[] newTagBits = new AtomicLongArray[tagBits.length];
+    for (int i = 0; i < tagBits.length; i++) {
+      newTagBits[i] = copy(tagBits[i], words(capacity));
+    }
+    AtomicLongArray newPresent = copy(present, words(capacity));
+    // 先发布位图，再发布records，读到新records的线程一定能看到新的位图
+    tagBits = newTagBits;
+    present = newPresent;
+    records = newRecords;
+  }
+
+  private static AtomicLongArray copy(AtomicLongArray bits, int length) {
+    AtomicLongArray copy = new AtomicLongArray(length);
+    for (int i = 0; i < bits.length(); i++) {
+      copy.set(i, bits.get(i));
+    }
+    return copy;
+  }
+
+  private static void set(AtomicLongArray bits, int pkId) {
+    bits.set(pkId >>> 6, bits.get(pkId >>> 6) | (1L << (pkId & 63)));
+  }
+
+  private static void clear(AtomicLongArray bits, int pkId) {
+    bits.set(pkId >>> 6, bits.get(pkId >>> 6) & ~(1L << (pkId & 63)));
+  }
+}
@@ -21,8 +21,7 @@ public class TableMirror implements Serializable, Cloneable {
   private Map<Integer, PKParam> pkParamMap;
 
   // 动态区Record列表 (pkId -> Record)
-  public transient Map<Integer, Record> dynamicRecordMap =
-      Collections.synchronizedMap(new LinkedHashMap<>());
+  public transient RecordIndex dynamicRecordMap = new RecordIndex();
 
   // 主键前缀外键生成参数
   private FKParam pk2fkParam;
@@ -45,14 +44,15 @@ public class TableMirror implements Serializable, Cloneable {
    * 插入新数据，如果cache超过阈值（20），丢弃最旧的数据
    *
    * @param newPkId 新的数据的pkid int
+   * @param random 调用方的随机数生成器
    */
-  public void addRecentAccessData(int newPkId) {
+  public void addRecentAccessData(int newPkId, Random random) {
     if (!recentAccessData.contains(newPkId)) {
       recentAccessData.add(newPkId);
     }
 
     if (recentAccessData.size() > 20) {
-      recentAccessData.remove(new Random().nextInt(20));
+      recentAccessData.remove(random.nextInt(20));
     }
   }
 
@@ -112,7 +112,7 @@ public class TableMirror implements Serializable, Cloneable {
   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
     // invoke default serialization method
     in.defaultReadObject();
-    dynamicRecordMap = new LinkedHashMap<>();
+    dynamicRecordMap = new RecordIndex(maxSize);
   }
 
   @Override
@@ -127,16 +127,19 @@ public class TableMirror implements Serializable, Cloneable {
     clone.ukFuncMap = this.ukFuncMap;
     clone.attrParamMap = this.attrParamMap;
     clone.ukParamMap = this.ukParamMap;
-    clone.dynamicRecordMap = Collections.synchronizedMap(new LinkedHashMap<>());
-    for (Integer key : this.dynamicRecordMap.keySet()) {
-      clone.dynamicRecordMap.put(key, this.dynamicRecordMap.get(key).clone());
+    clone.dynamicRecordMap = new RecordIndex(this.maxSize);
+    for (Record record : this.dynamicRecordMap.values()) {
+      clone.dynamicRecordMap.put(record.getPkId(), record.clone());
     }
     return clone;
   }
 
-  /** @return 最近（20）访问过的一个pkId，可能为空 */
-  public Integer getRandomRecentAccessData() {
-    int idx = new Random().nextInt(20);
+  /**
+   * @param random 调用方的随机数生成器
+   * @return 最近（20）访问过的一个pkId，可能为空
+   */
+  public Integer getRandomRecentAccessData(Random random) {
+    int idx = random.nextInt(20);
     if (recentAccessData.size() <= idx) {
       return null;
     }
@@ -4,6 +4,7 @@ import ana.main.OrcaVerify;
 import java.io.IOException;
 import java.sql.SQLException;
 import replay.main.OrcaReplay;
+import trace.TraceConverter;
 
 public class Main {
   public static void main(String[] args) throws InterruptedException, SQLException, IOException {
@@ -13,16 +14,19 @@ public class Main {
     String subProgram = args[0];
     if ("replay".equals(subProgram)) {
       OrcaReplay.main(args);
+    } else if ("convert".equals(subProgram)) {
+      TraceConverter.main(args);
     } else {
       printUsageAndExit();
     }
   }
 
   public static void printUsageAndExit() {
-    System.err.println("Usage: java -jar $jarfile [replay] ...");
+    System.err.println("Usage: java -jar $jarfile [replay|convert] ...");
     System.err.println();
     System.err.println("Other parameters are described as follows.");
     System.err.println("For replay : configDir originOutputDir newOutputDir");
+    System.err.println("For convert : srcTraceDir destTraceDir json|binary");
     System.exit(-1);
   }
 }
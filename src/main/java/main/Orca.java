@@ -8,6 +8,7 @@ import adapter.AdapterHelper;
 import config.ConfigCollection;
 import config.jdbc.DataSourceConfig;
 import dbloader.scheduler.OrcaScheduler;
+import dbloader.util.InitialDataLoader;
 import dbloader.util.QueryExecutor;
 import dbloader.util.SchemaLoader;
 import gen.data.InitialData;
@@ -142,14 +143,14 @@ public class Orca {
 
       // 数据导入数据库
       logger.info(String.format("Loading initial data to database: %s-%s", dbType, dbName));
-      DataSourceUtils.loadCSV(initialData, ioPath.initialDataDir);
+      InitialDataLoader.loadCSV(schema, initialData, ioPath.initialDataDir);
     } else {
       // 存储数据SQL
       logger.info("Writing initial data as SQL......");
       initialData.writeSQL(ioPath.initialSQLDest);
       // 数据导入数据库
       logger.info(String.format("Loading initial data to database: %s-%s", dbType, dbName));
-      DataSourceUtils.loadInertList(initialData.toSQLList());
+      InitialDataLoader.loadInsertList(schema, initialData.toSQLList());
     }
   }
 
@@ -3,95 +3,189 @@ package replay.controller;
 import static context.OrcaContext.configColl;
 
 import ana.main.Config;
+import context.RunContext;
 import java.util.*;
-import java.util.stream.Collectors;
-import lombok.Getter;
-import lombok.Setter;
+import java.util.concurrent.atomic.AtomicLongArray;
 import replay.controller.cascadeDetect.CascadeDelete;
 import replay.controller.cascadeDetect.VersionOperationGraph;
+import replay.controller.executecontrol.ExecuteFilterFixed;
 import replay.controller.executecontrol.ExecuteFilterMutationAbs;
 import replay.controller.executecontrol.ExecuteMeaninglessCrop;
 import replay.controller.executecontrol.ExecutionFilterCropRollback;
 import replay.controller.pausecontrol.serial.OperationSequence;
 import replay.controller.pausecontrol.serial.SequenceDependency;
+import trace.OperationId;
 import trace.OperationTrace;
-import trace.TraceUtil;
+import util.collection.LongIntHashMap;
 
 public class ReplayController {
-  // 需要执行的操作序列
-  @Getter private static OperationSequence operationSequence;
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    // 需要执行的操作序列
+    private OperationSequence operationSequence;
 
-  private static List<ExecuteFilterMutationAbs> executeFilters;
+    private List<ExecuteFilterMutationAbs> executeFilters;
 
-  public static SequenceDependency sequenceDependency;
+    private SequenceDependency sequenceDependency;
 
-  @Getter private static List<OperationTrace> errorTraces;
+    private List<OperationTrace> errorTraces;
 
-  public static final Map<String, Map.Entry<Integer, Integer>> op2ids = new HashMap<>();
+    // 映射txnid和filter表, <压缩后的事务id, txn no>，见 OperationId.txnKey
+    private LongIntHashMap txnIdMappings;
+    // 映射thread id和filter表, <压缩后的线程id, execute thread no>，见 OperationId.threadKey
+    private LongIntHashMap threadIdMappings;
 
-  // 映射txnid和filter表, <thread id, <txn id, txn no>>
-  private static Map<Integer, Map<Integer, Integer>> txnIdMappings;
-  // 映射thread id和filter表, <thread id, execute thread no>
-  private static Map<Integer, Integer> threadIdMappings;
+    // 版本链构成的依赖图
+    private VersionOperationGraph versionOperationGraph;
 
-  // 版本链构成的依赖图
-  @Getter private static VersionOperationGraph versionOperationGraph;
+    private ExecuteFilterMutationAbs meaninglessCleaner;
 
-  @Setter private static ExecuteFilterMutationAbs meaninglessCleaner;
+    // 所有操作按编号排列，以及压缩后的操作id到编号的映射
+    private OperationTrace[] operations;
+    private LongIntHashMap operationIndex;
+
+    // 当前变换下每个操作是否需要执行，回放期间有效，为null时逐个询问filter
+    private volatile ExecutePlan executePlan;
+
+    // 回放是否已经被提前终止，回放线程在每个操作之前检查
+    private volatile boolean aborted = false;
+  }
+
+  /** 按操作编号存放的位图，回放线程并发读取，回滚事务时由回放线程清除对应位 */
+  private static class ExecutePlan {
+    private final AtomicLongArray words;
+
+    ExecutePlan(int size) {
+      words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    boolean get(int index) {
+      return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    void set(int index) {
+      words.getAndUpdate(index >>> 6, word -> word | (1L << index));
+    }
+
+    void clear(int index) {
+      words.getAndUpdate(index >>> 6, word -> word & ~(1L << index));
+    }
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  public static OperationSequence getOperationSequence() {
+    return state().operationSequence;
+  }
+
+  public static SequenceDependency getSequenceDependency() {
+    return state().sequenceDependency;
+  }
+
+  public static List<OperationTrace> getErrorTraces() {
+    return state().errorTraces;
+  }
+
+  public static VersionOperationGraph getVersionOperationGraph() {
+    return state().versionOperationGraph;
+  }
+
+  public static void setMeaninglessCleaner(ExecuteFilterMutationAbs meaninglessCleaner) {
+    state().meaninglessCleaner = meaninglessCleaner;
+  }
 
   public static void init() {
-    executeFilters = new ArrayList<>();
+    state().executeFilters = new ArrayList<>();
 
-    errorTraces = new ArrayList<>();
+    state().errorTraces = new ArrayList<>();
 
-    sequenceDependency = new SequenceDependency();
-    sequenceDependency.init();
+    state().sequenceDependency = new SequenceDependency();
+    state().sequenceDependency.init();
 
-    txnIdMappings = new HashMap<>();
-    threadIdMappings = new HashMap<>();
+    state().txnIdMappings = new LongIntHashMap();
+    state().threadIdMappings = new LongIntHashMap();
   }
 
   public static void initializeWithAllTxn(List<List<List<OperationTrace>>> allTxns) {
-    versionOperationGraph = new VersionOperationGraph(allTxns);
+    state().versionOperationGraph = new VersionOperationGraph(allTxns);
 
+    List<OperationTrace> operations = new ArrayList<>();
+    state().operationIndex = new LongIntHashMap();
     int threadCnt = 0;
     for (List<List<OperationTrace>> thread : allTxns) {
       int txnCnt = 0;
 
-      int threadId = TraceUtil.getThreadIdFromOpId(thread.get(0).get(0).getOperationID());
+      long threadKey = OperationId.threadKey(thread.get(0).get(0).getPackedOperationID());
       // 真实的thread id 当前线程的序号
-      threadIdMappings.put(threadId, threadCnt);
-      Map<Integer, Integer> txnMappings = new HashMap<>();
+      state().threadIdMappings.put(threadKey, threadCnt);
       for (List<OperationTrace> txn : thread) {
-        int txnId = TraceUtil.getTxnIdFromOpId(txn.get(0).getOperationID());
-        txnMappings.put(txnId, txnCnt);
+        long txnKey = OperationId.txnKey(txn.get(0).getPackedOperationID());
+        state().txnIdMappings.put(txnKey, txnCnt);
         txnCnt++;
-
-        op2ids.putAll(
-            txn.stream()
-                .parallel()
-                .collect(
-                    Collectors.toMap(
-                        OperationTrace::getOperationID, op -> Map.entry(threadId, txnId))));
+        for (OperationTrace op : txn) {
+          state().operationIndex.put(op.getPackedOperationID(), operations.size());
+          operations.add(op);
+        }
       }
-      txnIdMappings.put(threadId, txnMappings);
       threadCnt++;
     }
+    state().operations = operations.toArray(new OperationTrace[0]);
   }
 
   public static void addExecuteFilter(ExecuteFilterMutationAbs filter) {
-    executeFilters.add(filter);
+    state().executeFilters.add(filter);
+  }
+
+  /**
+   * 替换一个已经加入的filter，用于把filter回退到之前拷贝的状态
+   *
+   * @param oldFilter 当前的filter
+   * @param newFilter 替换后的filter
+   */
+  public static void replaceExecuteFilter(
+      ExecuteFilterMutationAbs oldFilter, ExecuteFilterMutationAbs newFilter) {
+    List<ExecuteFilterMutationAbs> executeFilters = state().executeFilters;
+    executeFilters.set(executeFilters.indexOf(oldFilter), newFilter);
+  }
+
+  /**
+   * 在另一个运行中建立只执行给定操作的回放控制状态，操作序列与id映射取自当前运行
+   *
+   * @param context 目标运行
+   * @param executedOpID 需要执行的操作
+   */
+  public static void initReplica(RunContext context, Set<String> executedOpID) {
+    State current = state();
+    State replica = new State();
+    replica.operationSequence =
+        new OperationSequence(
+            current.operationSequence.getThreadNum(),
+            new ArrayList<>(current.operationSequence.getOperationSeq()));
+    replica.executeFilters = new ArrayList<>();
+    replica.executeFilters.add(new ExecuteFilterFixed(executedOpID));
+    replica.sequenceDependency = new SequenceDependency();
+    replica.sequenceDependency.init();
+    replica.errorTraces = new ArrayList<>();
+    replica.txnIdMappings = current.txnIdMappings;
+    replica.threadIdMappings = current.threadIdMappings;
+    replica.versionOperationGraph = current.versionOperationGraph;
+    replica.operations = current.operations;
+    replica.operationIndex = current.operationIndex;
+    context.setState(State.class, replica);
   }
 
   public static void initOperationSequence() {
     if (configColl.getReplay().getOperationSequence() != null) {
-      operationSequence =
+      state().operationSequence =
           new OperationSequence(
               Config.NUMBER_THREAD, configColl.getReplay().parseOperationSequence());
       return;
     }
-    operationSequence =
-        new OperationSequence(Config.NUMBER_THREAD, sequenceDependency.generateOperationSequence());
+    state().operationSequence =
+        new OperationSequence(
+            Config.NUMBER_THREAD, state().sequenceDependency.generateOperationSequence());
     //        sequenceDependency.pinData();
     //        for (int i = 5000; i < 25000; i += 5000) {
     //            if (!sequenceDependency.setOperationListSize(i)){
@@ -119,87 +213,202 @@ public class ReplayController {
     //        System.out.println("[initOperationSequence] " +
     // operationSequence.getOperationSeq().toString());
     if (configColl.getReplay().isFlatten()) {
-      operationSequence.flatten();
+      state().operationSequence.flatten();
     }
   }
 
   public static void initVersionGraph(List<List<List<OperationTrace>>> allTxn) {
-    versionOperationGraph = new VersionOperationGraph(allTxn);
+    state().versionOperationGraph = new VersionOperationGraph(allTxn);
   }
 
   public static Set<String> getTailOperationSet(Set<OperationTrace> errorTraces) {
-    return operationSequence.getTailOpId(errorTraces);
+    return state().operationSequence.getTailOpId(errorTraces);
   }
 
   public static void addErrorTrace(OperationTrace trace) {
-    errorTraces.add(trace);
+    state().errorTraces.add(trace);
   }
 
   public static void reset() {
-    sequenceDependency.init();
-    operationSequence.reset();
+    state().sequenceDependency.init();
+    state().operationSequence.reset();
+    state().aborted = false;
+  }
+
+  /** 提前终止本次回放：之后回放线程不再执行新的操作，正在按序列等待的操作全部放行 */
+  public static void abort() {
+    state().aborted = true;
+    if (state().operationSequence != null) {
+      state().operationSequence.release();
+    }
+  }
+
+  public static boolean isAborted() {
+    return state().aborted;
   }
 
   public static boolean isExecute(String operationId) {
+    return isExecute(OperationId.parse(operationId), operationId);
+  }
+
+  public static boolean isExecute(OperationTrace operationTrace) {
+    return isExecute(operationTrace.getPackedOperationID(), operationTrace.getOperationID());
+  }
+
+  /**
+   * 判断操作是否需要执行
+   *
+   * @param operationKey 压缩后的操作id，见 OperationId
+   * @param operationId 操作id
+   * @return 当前操作是否该被执行
+   */
+  public static boolean isExecute(long operationKey, String operationId) {
+    State state = state();
+    ExecutePlan plan = state.executePlan;
+    if (plan != null) {
+      int index = state.operationIndex.get(operationKey, -1);
+      if (index >= 0) {
+        return plan.get(index);
+      }
+    }
     // 如果被级联删除了，提前判并终止
-    if (CascadeDelete.isCascadeDelete(operationId)) {
+    if (CascadeDelete.isCascadeDelete(operationKey)) {
       return false;
     }
-    int threadId = op2ids.get(operationId).getKey();
-    int txnId = op2ids.get(operationId).getValue();
+    int threadNo = state.threadIdMappings.get(OperationId.threadKey(operationKey), -1);
+    int txnNo = state.txnIdMappings.get(OperationId.txnKey(operationKey), -1);
+    if (threadNo < 0 || txnNo < 0) {
+      throw new IllegalArgumentException("Unknown operation: " + operationId);
+    }
+    return isExecute(threadNo, txnNo, operationKey, operationId);
+  }
 
-    int threadNo = threadIdMappings.get(threadId);
-    int txnNo = txnIdMappings.get(threadId).get(txnId);
-    return isExecute(threadNo, txnNo, operationId);
+  /**
+   * 按当前的filter与级联删除状态计算所有操作是否需要执行，之后的isExecute直接查表，直到clearExecutePlan。
+   * 回放期间filter的状态不会改变（回滚事务除外，见 addRollbackTxn），所以每次回放前计算一次即可
+   */
+  public static void compileExecutePlan() {
+    State state = state();
+    state.executePlan = null;
+    if (state.operations == null) {
+      return;
+    }
+    ExecutePlan plan = new ExecutePlan(state.operations.length);
+    for (int i = 0; i < state.operations.length; i++) {
+      if (isExecute(state.operations[i])) {
+        plan.set(i);
+      }
+    }
+    state.executePlan = plan;
   }
 
-  public static boolean isExecute(int threadNo, int transactionNo, String operationId) {
+  /**
+   * 还没有执行计划时按当前状态计算一个，已有时直接沿用
+   *
+   * @return 是否新计算了执行计划，新计算的执行计划由调用方负责clearExecutePlan
+   */
+  public static boolean ensureExecutePlan() {
+    if (state().executePlan != null) {
+      return false;
+    }
+    compileExecutePlan();
+    return state().executePlan != null;
+  }
+
+  /** 丢弃compileExecutePlan的结果，filter变换之前必须调用 */
+  public static void clearExecutePlan() {
+    state().executePlan = null;
+  }
+
+  /**
+   * 当前所有filter与级联删除下需要执行的操作，按线程、事务、操作的顺序。已有执行计划时直接读位图
+   *
+   * @return 需要执行的操作
+   */
+  public static List<OperationTrace> getExecutedOperations() {
+    State state = state();
+    ExecutePlan plan = state.executePlan;
+    List<OperationTrace> executed = new ArrayList<>();
+    for (int i = 0; i < state.operations.length; i++) {
+      if (plan != null ? plan.get(i) : isExecute(state.operations[i])) {
+        executed.add(state.operations[i]);
+      }
+    }
+    return executed;
+  }
+
+  public static boolean isExecute(
+      int threadNo, int transactionNo, long operationKey, String operationId) {
     // 挨个判断该不该执行，只要有一个filter认为不该执行，就不执行，这样可以避免合并不同逻辑的filter
-    for (ExecuteFilterMutationAbs filter : executeFilters) {
-      if (!filter.isExecute(threadNo, transactionNo, operationId)) return false;
+    for (ExecuteFilterMutationAbs filter : state().executeFilters) {
+      if (!filter.isExecute(threadNo, transactionNo, operationKey, operationId)) return false;
     }
     return true;
   }
 
   public static void isPause(OperationTrace operationTrace) {
-    String operationId = operationTrace.getOperationID();
-
     if (configColl.getReplay().isSerial()) {
-      operationSequence.execute(operationId);
+      state()
+          .operationSequence
+          .execute(operationTrace.getPackedOperationID(), operationTrace.getOperationID());
     }
   }
 
-  public static void addFinishOp(String operationId) {
-    operationSequence.executeFinish(operationId);
+  public static void addFinishOp(OperationTrace operationTrace) {
+    state()
+        .operationSequence
+        .executeFinish(operationTrace.getPackedOperationID(), operationTrace.getOperationID());
   }
 
-  public static synchronized void addRollbackTxn(List<OperationTrace> rollbackTxn) {
-
-    for (ExecuteFilterMutationAbs filter : executeFilters) {
-      if (filter instanceof ExecutionFilterCropRollback) {
-        ((ExecutionFilterCropRollback) filter).addRollback(rollbackTxn);
-        return;
+  public static void addRollbackTxn(List<OperationTrace> rollbackTxn) {
+    State state = state();
+    // 同一次运行的回放线程互斥，不同运行之间互不影响
+    synchronized (state) {
+      for (ExecuteFilterMutationAbs filter : state.executeFilters) {
+        if (filter instanceof ExecutionFilterCropRollback) {
+          ((ExecutionFilterCropRollback) filter).addRollback(rollbackTxn);
+          // 回滚的事务之后不再执行，同步到已经计算好的执行计划
+          ExecutePlan plan = state.executePlan;
+          if (plan != null) {
+            for (OperationTrace op : rollbackTxn) {
+              int index = state.operationIndex.get(op.getPackedOperationID(), -1);
+              if (index >= 0) {
+                plan.clear(index);
+              }
+            }
+          }
+          return;
+        }
       }
     }
   }
 
   public static void printFinalSequence() {
-    OperationSequence finalSequence = new OperationSequence(operationSequence);
-    finalSequence.filterExecuteOp();
+    OperationSequence finalSequence = new OperationSequence(state().operationSequence);
+    // 过滤序列中的操作时直接查表
+    boolean compiled = ensureExecutePlan();
+    try {
+      finalSequence.filterExecuteOp();
+    } finally {
+      if (compiled) {
+        clearExecutePlan();
+      }
+    }
     finalSequence.print();
   }
 
   public static void moveCursor() {
-    operationSequence.moveCursor();
+    state().operationSequence.moveCursor();
   }
 
   public static String getLastFilterClassName() {
+    List<ExecuteFilterMutationAbs> executeFilters = state().executeFilters;
     return executeFilters.get(executeFilters.size() - 1).getClass().getName();
   }
 
   // 去除无意义的操作
   public static void cropMeaninglessOp() {
-    for (ExecuteFilterMutationAbs filter : executeFilters) {
+    for (ExecuteFilterMutationAbs filter : state().executeFilters) {
       if (filter instanceof ExecuteMeaninglessCrop) {
         filter.mutation();
         return;
@@ -208,8 +417,8 @@ public class ReplayController {
   }
 
   public static void cleanMeaningless() {
-    if (meaninglessCleaner != null) {
-      meaninglessCleaner.mutation();
+    if (state().meaninglessCleaner != null) {
+      state().meaninglessCleaner.mutation();
     }
   }
 }
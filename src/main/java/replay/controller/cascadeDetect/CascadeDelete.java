@@ -1,27 +1,36 @@
 package replay.controller.cascadeDetect;
 
-import java.util.HashSet;
+import context.RunContext;
 import java.util.Set;
 import replay.controller.ReplayController;
+import trace.OperationId;
+import util.collection.LongHashSet;
 
 public class CascadeDelete {
-  // 已经确定需要被级联删除操作的集合: 删除这些操作，并不能触发bug
-  static final Set<String> historySet = new HashSet<>();
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    // 已经确定需要被级联删除操作的集合: 删除这些操作，并不能触发bug，元素是压缩后的操作id
+    private final LongHashSet historySet = new LongHashSet();
 
-  // 当前被级联删除操作的集合
-  static final Set<String> currentSet = new HashSet<>();
+    // 当前被级联删除操作的集合
+    private final LongHashSet currentSet = new LongHashSet();
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
 
   // new_Set add into historySet
   public static void addIntoHistory() {
-    historySet.addAll(currentSet);
-    currentSet.clear();
+    state().historySet.addAll(state().currentSet);
+    state().currentSet.clear();
     // 持久化依赖图里的变化
     ReplayController.getVersionOperationGraph().persist();
   }
 
   // clear currentSet
   public static void clearNewSet() {
-    currentSet.clear();
+    state().currentSet.clear();
   }
 
   /**
@@ -31,18 +40,43 @@ public class CascadeDelete {
    */
   public static void addIntoCurrentSet(Set<String> operationIDs) {
 
-    Set<String> cascadeDeleteSet = new HashSet<>();
-    for (String operationID : operationIDs) {
-      cascadeDeleteSet.addAll(
-          ReplayController.getVersionOperationGraph().updateDepend(operationID, operationIDs));
-    }
+    Set<String> cascadeDeleteSet =
+        ReplayController.getVersionOperationGraph().updateDepend(operationIDs);
 
     cascadeDeleteSet.addAll(operationIDs);
-    currentSet.addAll(cascadeDeleteSet);
+    for (String operationID : cascadeDeleteSet) {
+      state().currentSet.add(OperationId.parse(operationID));
+    }
+  }
+
+  /**
+   * check whether an operationTrace is in historySet and currentSet
+   *
+   * @param operationKey 压缩后的操作id，见 OperationId
+   * @return 操作是否被级联删除
+   */
+  public static boolean isCascadeDelete(long operationKey) {
+    State state = state();
+    return state.historySet.contains(operationKey) || state.currentSet.contains(operationKey);
   }
 
-  // check whether an operationTrace is in historySet and currentSet
-  public static boolean isCascadeDelete(String operationID) {
-    return historySet.contains(operationID) || currentSet.contains(operationID);
+  /**
+   * 拷贝已经确定的级联删除集合，用于之后回退到此刻的状态
+   *
+   * @return historySet的拷贝
+   */
+  public static LongHashSet snapshotHistory() {
+    return new LongHashSet(state().historySet);
+  }
+
+  /**
+   * 回退到snapshotHistory时的状态，currentSet被清空
+   *
+   * @param history snapshotHistory的返回值
+   */
+  public static void restoreHistory(LongHashSet history) {
+    state().historySet.clear();
+    state().historySet.addAll(history);
+    state().currentSet.clear();
   }
 }
@@ -0,0 +1,63 @@
+package replay.controller.cascadeDetect;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import trace.OperationTrace;
+import trace.OperationTraceType;
+
+/**
+ * 一个数据的版本链（见 DataChainBuilder），附带按位置的索引，服务于级联删除时寻找依赖版本
+ *
+ * <p>记录每个操作在链上的位置，以及每个位置之前（含）最近的一个可能被依赖的操作，即不是读操作和回滚的操作。
+ * 从某个操作向前寻找依赖版本时直接跳到这些位置，不再逐个跳过读操作
+ */
+class DataChain {
+
+  private final OperationTrace[] operations;
+
+  /** key:操作id value:操作在链上第一次出现的位置 */
+  private final Map<String, Integer> positions;
+
+  /** 每个位置之前（含）最近的不是读操作和回滚的位置，不存在时为-1 */
+  private final int[] candidates;
+
+  DataChain(List<OperationTrace> chain) {
+    operations = chain.toArray(new OperationTrace[0]);
+    positions = new HashMap<>(operations.length * 2);
+    candidates = new int[operations.length];
+    int candidate = -1;
+    for (int i = 0; i < operations.length; i++) {
+      positions.putIfAbsent(operations[i].getOperationID(), i);
+      OperationTraceType type = operations[i].getOperationTraceType();
+      if (type != OperationTraceType.SELECT && type != OperationTraceType.ROLLBACK) {
+        candidate = i;
+      }
+      candidates[i] = candidate;
+    }
+  }
+
+  OperationTrace get(int index) {
+    return operations[index];
+  }
+
+  /**
+   * 操作在链上的位置，与List.indexOf相同
+   *
+   * @param operationId 操作id
+   * @return 不在链上时返回-1
+   */
+  int indexOf(String operationId) {
+    return positions.getOrDefault(operationId, -1);
+  }
+
+  /**
+   * 从index向前（含index）第一个不是读操作和回滚的位置
+   *
+   * @param index 位置，可以为-1
+   * @return 不存在时返回-1
+   */
+  int previousCandidate(int index) {
+    return index < 0 ? -1 : candidates[index];
+  }
+}
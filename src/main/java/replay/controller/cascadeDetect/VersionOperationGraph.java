@@ -6,15 +6,17 @@ import java.util.*;
 import java.util.stream.Collectors;
 import replay.controller.ReplayController;
 import trace.IsolationLevel;
+import trace.OperationId;
 import trace.OperationTrace;
 import trace.OperationTraceType;
 import trace.TraceUtil;
+import util.collection.LongIntHashMap;
 import util.jdbc.DataSourceUtils;
 
 public class VersionOperationGraph {
   // 两种边
   // 1. chain edge 按数据划分的版本链,每个key value对表示一个数据的版本链,key对应tuple trace里的get key方法，是表名+主键
-  private final Map<String, List<OperationTrace>> chainEdge;
+  private final Map<String, DataChain> chainEdge = new HashMap<>();
 
   // 2. depend edge用map<string,set<string>>存储 key是被依赖的前面的操作，value是依赖它的操作
   private final Map<String, Set<String>> dependEdge;
@@ -27,11 +29,19 @@ public class VersionOperationGraph {
 
   private final Map<String, VersionDependencyType> versionDependencyTypeMap;
 
+  // 每个事务获取快照的操作在事务中的序号，key是txnId，value为-1表示事务中没有获取快照的操作，首次使用时计算
+  private final Map<String, Integer> snapshotOps = new HashMap<>();
+
+  // 一次级联删除的计算中操作是否需要执行，key是压缩后的操作id，value为1表示执行、0表示不执行。
+  // 计算期间filter和已经级联删除的操作都不会改变，所以每个操作只需要判断一次
+  private LongIntHashMap executeCache = null;
+
   public VersionOperationGraph(List<List<List<OperationTrace>>> allTxns) {
     buildOpMap(allTxns);
-    chainEdge = new DataChainBuilder().build(operationMap);
+    Map<String, List<OperationTrace>> chains = new DataChainBuilder().build(operationMap);
 
-    dependEdge = new DependBuilder().build(chainEdge);
+    dependEdge = new DependBuilder().build(chains);
+    chains.forEach((key, chain) -> chainEdge.put(key, new DataChain(chain)));
 
     versionDependencyTypeMap = new HashMap<>();
     // 构造初始时的依赖关系
@@ -68,20 +78,14 @@ public class VersionOperationGraph {
    */
   private String findSnapshotOp(String operationId) {
 
-    Map.Entry<Integer, Integer> ids = ReplayController.op2ids.get(operationId);
-    int threadId = ids.getKey();
-    int txnId = ids.getValue();
-    String[] tmp = operationId.split(",");
-    int nowOpId = Integer.parseInt(tmp[tmp.length - 1]);
+    OperationTrace nowOp = operationMap.get(operationId);
+    int nowOpId = OperationId.opOf(nowOp.getPackedOperationID());
     OperationType nowOpType =
-        TraceUtil.operationTraceType2OperationType(
-            operationMap.get(operationId).getOperationTraceType());
+        TraceUtil.operationTraceType2OperationType(nowOp.getOperationTraceType());
 
     // 目前op id 的 0-0-threadId,txnId,opId, 而start一定是事务的第一个操作，所以op id=0
-    int opId = 0;
-    String opHeader = String.format("0-0-%d,%d,", threadId, txnId);
-    String startOpId = opHeader + opId;
-    OperationTrace startOp = operationMap.get(startOpId);
+    String opHeader = nowOp.getTransactionID() + OperationTrace.LINKER;
+    OperationTrace startOp = operationMap.get(opHeader + 0);
 
     IsolationLevel isolationLevel = startOp.getIsolationLevel();
     Adapter adapter = DataSourceUtils.getAdapter();
@@ -89,17 +93,28 @@ public class VersionOperationGraph {
     if (adapter.isCurrentRead(isolationLevel, nowOpType)) {
       return operationId;
     }
+    // 事务中第一个获取快照的操作，在当前操作之后则当前操作还没有获取快照
+    int snapshotOpId =
+        snapshotOps.computeIfAbsent(
+            nowOp.getTransactionID(), k -> scanSnapshotOp(opHeader, isolationLevel, adapter));
+    if (snapshotOpId < 0 || snapshotOpId > nowOpId) {
+      return null;
+    }
+    return opHeader + snapshotOpId;
+  }
+
+  /**
+   * 按顺序扫描事务，找到第一个获取快照的操作
+   *
+   * @param opHeader 事务中操作id的前缀
+   * @return 操作在事务中的序号，不存在时返回-1
+   */
+  private int scanSnapshotOp(String opHeader, IsolationLevel isolationLevel, Adapter adapter) {
     // 记录是不是第一个读或写
     boolean isFirstRead = true, isFirstWrite = true;
-    // 按顺序扫描这个事务，找到获取快照的操作
-    for (; opId <= nowOpId; opId++) {
+    OperationTrace snapshotOp;
+    for (int opId = 0; (snapshotOp = operationMap.get(opHeader + opId)) != null; opId++) {
       // 提取当前操作的信息
-      String snapshotOpId = opHeader + opId;
-      // 如果当前操作不需要执行，那直接跳过
-      //            if (!ReplayController.isExecute(snapshotOpId)){
-      //                continue;
-      //            }
-      OperationTrace snapshotOp = operationMap.get(snapshotOpId);
       OperationType opType =
           TraceUtil.operationTraceType2OperationType(snapshotOp.getOperationTraceType());
       assert opType != null;
@@ -110,7 +125,7 @@ public class VersionOperationGraph {
           opType,
           isFirstRead & TraceUtil.isReadOperation(snapshotOp),
           isFirstWrite & TraceUtil.isWriteOperation(snapshotOp))) {
-        return snapshotOpId;
+        return opId;
       }
       // 如果是读或者写操作，则后续的操作必不是第一个，把标志位去掉
       if (TraceUtil.isReadOperation(snapshotOp)) {
@@ -120,8 +135,26 @@ public class VersionOperationGraph {
         isFirstWrite = false;
       }
     }
-    // 理论上上面的遍历一定能找到，所以不会走到这里
-    return null;
+    return -1;
+  }
+
+  /**
+   * 一次删除多个操作后的更新，依次从每个操作开始级联，返回删除这些操作后需要级联删除的操作
+   *
+   * @param operationIds 被删除的操作，同时也是需要忽略的依赖操作
+   * @return 需要级联删除的操作
+   */
+  public Set<String> updateDepend(Set<String> operationIds) {
+    executeCache = new LongIntHashMap();
+    try {
+      Set<String> deleteOpIds = new HashSet<>();
+      for (String operationId : operationIds) {
+        deleteOpIds.addAll(cascade(operationId, operationIds));
+      }
+      return deleteOpIds;
+    } finally {
+      executeCache = null;
+    }
   }
 
   /**
@@ -131,7 +164,7 @@ public class VersionOperationGraph {
    * @param ignoreOpIds 需要忽略的依赖操作，即将要删除的操作
    * @return 需要级联删除的操作
    */
-  public Set<String> updateDepend(String operationId, Set<String> ignoreOpIds) {
+  private Set<String> cascade(String operationId, Set<String> ignoreOpIds) {
     Set<String> deleteOpIds = new HashSet<>();
     Queue<String> cascadeDeleteOpIds = new LinkedList<>();
     tempDependEdge = new HashMap<>();
@@ -190,7 +223,7 @@ public class VersionOperationGraph {
     if (opType == OperationType.START
         || opType == OperationType.COMMIT
         || opType == OperationType.ROLLBACK
-        || !ReplayController.isExecute(operationId)) {
+        || !isExecute(op)) {
       return true;
     }
 
@@ -202,24 +235,23 @@ public class VersionOperationGraph {
 
     // 对每个数据项找依赖版本
     for (String key : dataSet) {
-      List<OperationTrace> chain = chainEdge.get(key);
+      DataChain chain = chainEdge.get(key);
       // 当前操作的位置
-      int opIndex = chain.indexOf(op);
+      int opIndex = chain.indexOf(operationId);
 
       // 存储可能可见的事务候选集
       Set<String> candidateTxns = new HashSet<>();
       // 操作自己的事务肯定是可见的
       candidateTxns.add(op.getTransactionID());
 
-      // 扫描一下
+      // 扫描一下，读操作和rollback已经由索引跳过
       int tmpIdx;
-      for (tmpIdx = opIndex; tmpIdx >= 0; tmpIdx--) {
+      for (tmpIdx = chain.previousCandidate(opIndex);
+          tmpIdx >= 0;
+          tmpIdx = chain.previousCandidate(tmpIdx - 1)) {
         OperationTrace tmpOp = chain.get(tmpIdx);
-        // 无视读操作和rollback，无视指定无视的操作和不执行的操作
-        if (tmpOp.getOperationTraceType() == OperationTraceType.SELECT
-            || tmpOp.getOperationTraceType() == OperationTraceType.ROLLBACK
-            || ignoreOpIds.contains(tmpOp.getOperationID())
-            || !ReplayController.isExecute(tmpOp.getOperationID())) {
+        // 无视指定无视的操作和不执行的操作
+        if (ignoreOpIds.contains(tmpOp.getOperationID()) || !isExecute(tmpOp)) {
           continue;
         }
         // 可能可见的事务id
@@ -255,6 +287,22 @@ public class VersionOperationGraph {
     return true;
   }
 
+  /**
+   * 判断操作是否需要执行，一次级联删除的计算中每个操作只向ReplayController查询一次
+   *
+   * @param op 操作
+   * @return 当前操作是否该被执行
+   */
+  private boolean isExecute(OperationTrace op) {
+    long key = op.getPackedOperationID();
+    int execute = executeCache.get(key, -1);
+    if (execute < 0) {
+      execute = ReplayController.isExecute(op) ? 1 : 0;
+      executeCache.put(key, execute);
+    }
+    return execute == 1;
+  }
+
   // 判断依赖关系，依赖类型以被依赖的操作为准；如果没有合法的依赖关系，返回null
   private VersionDependencyType getDepend(
       OperationTrace dependOp, OperationTrace referOp, String key) {
@@ -313,4 +361,26 @@ public class VersionOperationGraph {
   public void persist() {
     updateDependEdges();
   }
+
+  /**
+   * 拷贝当前的依赖边，用于之后回退到此刻的状态
+   *
+   * @return dependEdge的深拷贝
+   */
+  public Map<String, Set<String>> snapshotDependEdge() {
+    Map<String, Set<String>> snapshot = new HashMap<>();
+    dependEdge.forEach((keyId, dependIds) -> snapshot.put(keyId, new HashSet<>(dependIds)));
+    return snapshot;
+  }
+
+  /**
+   * 回退到snapshotDependEdge时的状态
+   *
+   * @param snapshot snapshotDependEdge的返回值
+   */
+  public void restoreDependEdge(Map<String, Set<String>> snapshot) {
+    dependEdge.clear();
+    snapshot.forEach((keyId, dependIds) -> dependEdge.put(keyId, new HashSet<>(dependIds)));
+    tempDependEdge = new HashMap<>();
+  }
 }
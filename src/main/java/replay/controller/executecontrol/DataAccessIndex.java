@@ -0,0 +1,275 @@
+package replay.controller.executecontrol;
+
+import context.RunContext;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import replay.controller.ReplayController;
+import trace.OperationTrace;
+import trace.TupleTrace;
+import util.collection.LongIntHashMap;
+
+/**
+ * 事务访问的数据的倒排索引：数据 -> 访问该数据的事务 -> 事务中的操作，服务于按数据分组的filter
+ *
+ * <p>操作访问的数据是readTupleList中的主键，以及writeTupleList只有一个tuple时写入的主键。数据按事务的顺序第一次出现时编号，
+ * 事务和操作按allTxns中的顺序编号，同一个事务的操作编号连续。访问每个数据的事务和操作记录为位图，一组数据删去的事务即位图的并集。
+ * 同一次运行中对同一份allTxns只建立一次，各个filter共享
+ */
+class DataAccessIndex {
+
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    private List<List<List<OperationTrace>>> allTxns;
+    private DataAccessIndex index;
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  /**
+   * 获取allTxns的索引，同一次运行中对同一份allTxns只建立一次
+   *
+   * @param allTxns 所有事务，thread, txn, operation
+   * @return 共享的索引
+   */
+  static DataAccessIndex of(List<List<List<OperationTrace>>> allTxns) {
+    State state = state();
+    if (state.allTxns != allTxns) {
+      state.index = new DataAccessIndex(allTxns);
+      state.allTxns = allTxns;
+    }
+    return state.index;
+  }
+
+  // 所有操作按编号排列，以及压缩后的操作id到编号的映射
+  private final OperationTrace[] operations;
+  private final LongIntHashMap operationNos;
+
+  // thread no -> 线程第一个事务的编号，最后一项是事务总数
+  private final int[] threadStarts;
+  // 事务编号 -> 事务第一个操作的编号，最后一项是操作总数
+  private final int[] txnStarts;
+
+  // 事务、操作访问的数据编号
+  private final int[][] txnData;
+  private final int[][] operationData;
+
+  // 数据编号 -> 访问该数据的事务、操作
+  private final BitSet[] dataTxns;
+  private final BitSet[] dataOperations;
+
+  // 数据编号按操作的顺序第一次出现的次序
+  private final int[] operationOrder;
+
+  DataAccessIndex(List<List<List<OperationTrace>>> allTxns) {
+    Map<String, Integer> dataNos = new HashMap<>();
+    List<OperationTrace> operationList = new ArrayList<>();
+    List<int[]> txnDataList = new ArrayList<>();
+    List<int[]> operationDataList = new ArrayList<>();
+    List<Integer> txnStartList = new ArrayList<>();
+    threadStarts = new int[allTxns.size() + 1];
+
+    for (int threadNo = 0; threadNo < allTxns.size(); threadNo++) {
+      threadStarts[threadNo] = txnDataList.size();
+      for (List<OperationTrace> txn : allTxns.get(threadNo)) {
+        txnStartList.add(operationList.size());
+        // 按原先的插入顺序构造集合，数据编号的次序与之前逐个查找列表时相同
+        Set<String> dataInTxn = new HashSet<>();
+        List<Set<String>> dataInOperations = new ArrayList<>(txn.size());
+        for (OperationTrace operationTrace : txn) {
+          Set<String> keys = new HashSet<>();
+          if (operationTrace.getReadTupleList() != null) {
+            for (TupleTrace tupleTrace : operationTrace.getReadTupleList()) {
+              keys.add(tupleTrace.getPrimaryKey());
+              dataInTxn.add(tupleTrace.getPrimaryKey());
+            }
+          }
+          if (operationTrace.getWriteTupleList() != null
+              && operationTrace.getWriteTupleList().size() == 1) {
+            for (TupleTrace tupleTrace : operationTrace.getWriteTupleList()) {
+              keys.add(tupleTrace.getPrimaryKey());
+              dataInTxn.add(tupleTrace.getPrimaryKey());
+            }
+          }
+          dataInOperations.add(keys);
+          operationList.add(operationTrace);
+        }
+
+        txnDataList.add(toDataNos(dataInTxn, dataNos));
+        for (Set<String> keys : dataInOperations) {
+          operationDataList.add(toDataNos(keys, dataNos));
+        }
+      }
+    }
+    threadStarts[allTxns.size()] = txnDataList.size();
+    txnStartList.add(operationList.size());
+
+    operations = operationList.toArray(new OperationTrace[0]);
+    operationNos = new LongIntHashMap(operations.length);
+    for (int i = 0; i < operations.length; i++) {
+      operationNos.put(operations[i].getPackedOperationID(), i);
+    }
+    txnStarts = txnStartList.stream().mapToInt(Integer::intValue).toArray();
+    txnData = txnDataList.toArray(new int[0][]);
+    operationData = operationDataList.toArray(new int[0][]);
+
+    dataTxns = new BitSet[dataNos.size()];
+    dataOperations = new BitSet[dataNos.size()];
+    for (int dataNo = 0; dataNo < dataNos.size(); dataNo++) {
+      dataTxns[dataNo] = new BitSet();
+      dataOperations[dataNo] = new BitSet();
+    }
+    for (int txnNo = 0; txnNo < txnData.length; txnNo++) {
+      for (int dataNo : txnData[txnNo]) {
+        dataTxns[dataNo].set(txnNo);
+      }
+    }
+    operationOrder = new int[dataNos.size()];
+    int ordered = 0;
+    for (int operationNo = 0; operationNo < operationData.length; operationNo++) {
+      for (int dataNo : operationData[operationNo]) {
+        if (dataOperations[dataNo].isEmpty()) {
+          operationOrder[ordered++] = dataNo;
+        }
+        dataOperations[dataNo].set(operationNo);
+      }
+    }
+  }
+
+  /** 按集合的遍历顺序给数据编号，未出现过的数据分配新的编号 */
+  private static int[] toDataNos(Set<String> keys, Map<String, Integer> dataNos) {
+    int[] result = new int[keys.size()];
+    int i = 0;
+    for (String key : keys) {
+      Integer dataNo = dataNos.get(key);
+      if (dataNo == null) {
+        dataNo = dataNos.size();
+        dataNos.put(key, dataNo);
+      }
+      result[i++] = dataNo;
+    }
+    return result;
+  }
+
+  int getDataCount() {
+    return dataTxns.length;
+  }
+
+  /**
+   * 全局的事务编号
+   *
+   * @param threadNo 事务所在线程的序号
+   * @param transactionNo 事务在线程中的序号
+   * @return 事务编号
+   */
+  int txnNo(int threadNo, int transactionNo) {
+    return threadStarts[threadNo] + transactionNo;
+  }
+
+  /**
+   * 操作的编号
+   *
+   * @param operationKey 压缩后的操作id，见 OperationId
+   * @return 不存在时返回-1
+   */
+  int operationNo(long operationKey) {
+    return operationNos.get(operationKey, -1);
+  }
+
+  /** 事务访问的数据编号，调用方不能修改 */
+  int[] getTxnData(int txnNo) {
+    return txnData[txnNo];
+  }
+
+  /** 操作访问的数据编号，调用方不能修改 */
+  int[] getOperationData(int operationNo) {
+    return operationData[operationNo];
+  }
+
+  /** 所有数据编号，按在操作中第一次出现的次序，调用方不能修改 */
+  int[] getOperationOrder() {
+    return operationOrder;
+  }
+
+  /** 访问该数据的操作，调用方不能修改 */
+  BitSet getDataOperations(int dataNo) {
+    return dataOperations[dataNo];
+  }
+
+  /**
+   * 访问一组数据中任意一个数据的事务
+   *
+   * @param data 数据编号的集合
+   * @return 事务编号的集合
+   */
+  BitSet txnsOf(BitSet data) {
+    BitSet txns = new BitSet(txnData.length);
+    for (int dataNo = data.nextSetBit(0); dataNo >= 0; dataNo = data.nextSetBit(dataNo + 1)) {
+      txns.or(dataTxns[dataNo]);
+    }
+    return txns;
+  }
+
+  /**
+   * 按编号的顺序把事务中所有操作的id加入集合
+   *
+   * @param txns 事务编号的集合
+   * @param operationIds 操作id的集合
+   */
+  void addTxnOperationIds(BitSet txns, Set<String> operationIds) {
+    for (int txnNo = txns.nextSetBit(0); txnNo >= 0; txnNo = txns.nextSetBit(txnNo + 1)) {
+      for (int i = txnStarts[txnNo]; i < txnStarts[txnNo + 1]; i++) {
+        operationIds.add(operations[i].getOperationID());
+      }
+    }
+  }
+
+  /**
+   * 按编号的顺序把操作的id加入集合
+   *
+   * @param operationNos 操作编号的集合
+   * @param operationIds 操作id的集合
+   */
+  void addOperationIds(BitSet operationNos, Set<String> operationIds) {
+    for (int i = operationNos.nextSetBit(0); i >= 0; i = operationNos.nextSetBit(i + 1)) {
+      operationIds.add(operations[i].getOperationID());
+    }
+  }
+
+  /**
+   * 当前不执行的操作，与 ExecuteFilterMutationAbs.getReducedOpID 相同
+   *
+   * @return 操作编号的集合
+   */
+  BitSet reducedOperations() {
+    BitSet reduced = new BitSet(operations.length);
+    for (int i = 0; i < operations.length; i++) {
+      if (!ReplayController.isExecute(operations[i])) {
+        reduced.set(i);
+      }
+    }
+    return reduced;
+  }
+
+  /**
+   * 事务中的所有操作是否都不执行
+   *
+   * @param reduced 不执行的操作，见 reducedOperations
+   * @param txns 事务编号的集合
+   * @return 所有事务的所有操作都在reduced中时返回true
+   */
+  boolean isReduced(BitSet reduced, BitSet txns) {
+    for (int txnNo = txns.nextSetBit(0); txnNo >= 0; txnNo = txns.nextSetBit(txnNo + 1)) {
+      if (reduced.nextClearBit(txnStarts[txnNo]) < txnStarts[txnNo + 1]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
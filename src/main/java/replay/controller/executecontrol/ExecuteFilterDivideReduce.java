@@ -3,10 +3,14 @@ package replay.controller.executecontrol;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
+import trace.OperationId;
 import trace.OperationTrace;
+import util.collection.LongHashSet;
 
 public class ExecuteFilterDivideReduce extends ExecuteFilterMutationAbs {
 
+  private static final long serialVersionUID = 1L;
+
   /** 这个mutation会分块地逐步删除case，首先将最大的块作为删除的内容，如果删除失败，把它切分成小块加入队列，进行迭代bfs */
   // 用一个队列存储等待删除的事务
   private final LinkedList<List<String>> txnGroupQueue = new LinkedList<>();
@@ -16,6 +20,10 @@ public class ExecuteFilterDivideReduce extends ExecuteFilterMutationAbs {
 
   // 当前准备删除的事务
   private List<String> currentTxnGroup = new ArrayList<>();
+
+  // 与reduceTxn、currentTxnGroup相同，压缩后的事务id，见 OperationId.txnKey
+  private final LongHashSet reduceTxnKey = new LongHashSet();
+  private LongHashSet currentTxnGroupKey = new LongHashSet();
   // 切分的数量
   private final int splitNum = 4;
 
@@ -27,7 +35,6 @@ public class ExecuteFilterDivideReduce extends ExecuteFilterMutationAbs {
     // 初始化一个空的字符串列表，用于存储所有事务的第一个元素的事务ID
     List<String> initGroup =
         allTxns_.stream()
-            .parallel()
             // 将所有事务组合到一个单独的流中
             .flatMap(
                 txnGroup ->
@@ -57,7 +64,9 @@ public class ExecuteFilterDivideReduce extends ExecuteFilterMutationAbs {
   @Override
   public void mutation() {
     reduceTxn.addAll(currentTxnGroup);
+    reduceTxnKey.addAll(currentTxnGroupKey);
     currentTxnGroup = new CopyOnWriteArrayList<>(txnGroupQueue.poll());
+    currentTxnGroupKey = toKeys(currentTxnGroup);
   }
 
   /**
@@ -69,9 +78,15 @@ public class ExecuteFilterDivideReduce extends ExecuteFilterMutationAbs {
    * @return 当前操作是否该被执行
    */
   @Override
-  public synchronized boolean isExecute(int threadNo, int transactionNo, String operationId) {
-    String txnId = operationId.substring(0, operationId.lastIndexOf(","));
-    return !(reduceTxn.contains(txnId)) && !currentTxnGroup.contains(txnId);
+  public boolean isExecute(int threadNo, int transactionNo, String operationId) {
+    return isExecute(threadNo, transactionNo, OperationId.parse(operationId), operationId);
+  }
+
+  @Override
+  public synchronized boolean isExecute(
+      int threadNo, int transactionNo, long operationKey, String operationId) {
+    long txnKey = OperationId.txnKey(operationKey);
+    return !(reduceTxnKey.contains(txnKey)) && !currentTxnGroupKey.contains(txnKey);
   }
 
   /** 回滚最后一次变换，并且把对应的事务组切分成更小的部分，加入队列里 然后把mutation失败的计数器+1 */
@@ -80,6 +95,7 @@ public class ExecuteFilterDivideReduce extends ExecuteFilterMutationAbs {
     // 如果只剩一个事务，就不用再切了
     if (currentTxnGroup.size() == 1) {
       currentTxnGroup.clear();
+      currentTxnGroupKey.clear();
       return;
     }
     // 计算每个子列表的基本大小
@@ -108,6 +124,7 @@ public class ExecuteFilterDivideReduce extends ExecuteFilterMutationAbs {
     }
 
     currentTxnGroup.clear();
+    currentTxnGroupKey.clear();
   }
 
   /**
@@ -123,15 +140,10 @@ public class ExecuteFilterDivideReduce extends ExecuteFilterMutationAbs {
             txnGroup ->
                 txnGroup.stream() // 将每个线程事务转换为流式计算
                     .filter(txn -> !txn.isEmpty()) // 过滤掉空的事务
-                    .flatMap(
-                        txn ->
-                            txn.stream()
-                                .map(OperationTrace::getOperationID))) // 将每个事务的所有操作ID转换为流式计算
-        .filter(
-            operationId -> { // 把操作id转化为事务id
-              String txnId = operationId.substring(0, operationId.lastIndexOf(","));
-              return currentTxnGroup.contains(txnId);
-            })
+                    .flatMap(List::stream)) // 将每个事务的所有操作转换为流式计算
+        .filter( // 把操作id转化为事务id
+            op -> currentTxnGroupKey.contains(OperationId.txnKey(op.getPackedOperationID())))
+        .map(OperationTrace::getOperationID)
         .collect(Collectors.toSet());
   }
 }
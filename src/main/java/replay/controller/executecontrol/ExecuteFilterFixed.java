@@ -0,0 +1,45 @@
+package replay.controller.executecontrol;
+
+import java.util.HashSet;
+import java.util.Set;
+import trace.OperationId;
+import util.collection.LongHashSet;
+
+/** 只执行给定操作集合的filter，并行验证变异候选时，用于在其他运行中重现某一次变异后的测试案例 */
+public class ExecuteFilterFixed extends ExecuteFilterMutationAbs {
+
+  private static final long serialVersionUID = 1L;
+
+  // 需要执行的操作，压缩后的操作id
+  private final LongHashSet executedOpKey;
+
+  public ExecuteFilterFixed(Set<String> executedOpID) {
+    this.executedOpKey = toKeys(executedOpID);
+  }
+
+  @Override
+  public boolean isMutationEnd() {
+    return true;
+  }
+
+  @Override
+  public void mutation() {}
+
+  @Override
+  public boolean isExecute(int threadNo, int transactionNo, String operationId) {
+    return executedOpKey.contains(OperationId.parse(operationId));
+  }
+
+  @Override
+  public boolean isExecute(int threadNo, int transactionNo, long operationKey, String operationId) {
+    return executedOpKey.contains(operationKey);
+  }
+
+  @Override
+  public void revertMutation() {}
+
+  @Override
+  public Set<String> getDeleteOperationTraces() {
+    return new HashSet<>();
+  }
+}
@@ -1,15 +1,26 @@
 package replay.controller.executecontrol;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import replay.controller.ReplayController;
+import trace.OperationId;
 import trace.OperationTrace;
+import util.collection.LongHashSet;
 
-public abstract class ExecuteFilterMutationAbs {
+public abstract class ExecuteFilterMutationAbs implements Serializable {
 
-  public List<List<List<OperationTrace>>> allTxns_;
+  private static final long serialVersionUID = 1L;
+
+  public transient List<List<List<OperationTrace>>> allTxns_;
 
   /**
    * 判断是不是已经枚举完所有的情形
@@ -26,6 +37,16 @@ public abstract class ExecuteFilterMutationAbs {
   /** 进行一次变换，减少测试案例的规模 */
   public abstract void mutation();
 
+  /**
+   * 判断最后一次变换是否什么都没有去掉。按指针枚举的filter在变换之前不知道后面是否还有可去掉的组，
+   * 指针越过最后一组时，这次变换为空，不需要再验证
+   *
+   * @return true if the last mutation reduced nothing
+   */
+  public boolean isMutationEmpty() {
+    return false;
+  }
+
   /**
    * 判断输入操作是否包含在变换后的测试案例中
    *
@@ -36,6 +57,20 @@ public abstract class ExecuteFilterMutationAbs {
    */
   public abstract boolean isExecute(int threadNo, int transactionNo, String operationId);
 
+  /**
+   * 同 isExecute(int, int, String)，额外传入压缩后的操作id，回放时由 ReplayController 调用。
+   * 按操作、事务或线程id过滤的filter重写这个方法，直接比较压缩后的id，不再切分字符串
+   *
+   * @param threadNo 操作所在线程id
+   * @param transactionNo 操作所在事务id
+   * @param operationKey 压缩后的操作id，见 OperationId
+   * @param operationId 操作id
+   * @return 当前操作是否该被执行
+   */
+  public boolean isExecute(int threadNo, int transactionNo, long operationKey, String operationId) {
+    return isExecute(threadNo, transactionNo, operationId);
+  }
+
   /** 回滚最后一次变换 */
   public abstract void revertMutation();
 
@@ -46,13 +81,50 @@ public abstract class ExecuteFilterMutationAbs {
    */
   public abstract Set<String> getDeleteOperationTraces();
 
+  /**
+   * 拷贝当前的变换状态，allTxns_与原filter共享，用于之后回退到此刻的状态
+   *
+   * @return 与当前状态相同的filter
+   */
+  public ExecuteFilterMutationAbs copy() {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(this);
+      }
+      ExecuteFilterMutationAbs filter;
+      try (ObjectInputStream in =
+          new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+        filter = (ExecuteFilterMutationAbs) in.readObject();
+      }
+      filter.allTxns_ = allTxns_;
+      return filter;
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Copy execute filter failed: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * 把一组id（操作id、事务id或线程id）转换为压缩后的形式
+   *
+   * @param ids 字符串形式的id
+   * @return 压缩后的id集合，见 OperationId
+   */
+  protected static LongHashSet toKeys(Collection<String> ids) {
+    LongHashSet keys = new LongHashSet(ids.size());
+    for (String id : ids) {
+      keys.add(OperationId.parse(id));
+    }
+    return keys;
+  }
+
   protected Set<String> getReducedOpID() {
     Set<String> opSet = new HashSet<>();
 
     for (List<List<OperationTrace>> thread : allTxns_) {
       for (List<OperationTrace> txn : thread) {
         for (OperationTrace op : txn) {
-          if (!ReplayController.isExecute(op.getOperationID())) {
+          if (!ReplayController.isExecute(op)) {
             opSet.add(op.getOperationID());
           }
         }
@@ -9,12 +9,16 @@ import trace.OperationTrace;
  */
 public class ExecuteFilterMutationDataGroup extends ExecuteFilterMutationAbs {
 
-  // txn no 到group的映射，便于查找事务是否被去掉，具体是<thread no,txn no, set{group no}>的结构
-  private Map<Integer, Map<Integer, Set<Integer>>> txn2Group;
+  private static final long serialVersionUID = 1L;
+
+  // 事务访问的数据的倒排索引，与原filter共享，见 copy
+  private transient DataAccessIndex index;
 
   private LinkedList<List<Integer>> executeDataGroupQueue;
   private List<Integer> currentDataGroup;
-  private final Set<Integer> reducedDataGroup = new HashSet<>();
+  // 当前尝试删去的数据组，以及已经删去的数据，按数据编号
+  private BitSet currentData = new BitSet();
+  private final BitSet reducedData = new BitSet();
 
   // 返回当前需要删去操作的集合
   final Set<String> cascade_operation = new HashSet<>();
@@ -23,57 +27,12 @@ public class ExecuteFilterMutationDataGroup extends ExecuteFilterMutationAbs {
   @Override
   public void initializeWithAllTxn(List<List<List<OperationTrace>>> allTxns) {
     super.initializeWithAllTxn(allTxns);
-    // 构造txnGroup和txn2Group
-
-    // 事务访问的数据记录在trace的writeTupleList和readTupleList里的PrimaryKey（具体看操作是读操作还是写操作
-
-    // 数据的集合，datum 维护的 dataNo 分别是数据的编号
-    List<String> dataSet = new ArrayList<>();
-    txn2Group = new HashMap<>();
-
-    // 在这遍历所有的trace，把里面的数据提取出来
-    int threadCnt = 0;
-    for (List<List<OperationTrace>> thread : allTxns) {
-      int txnCnt = 0;
-      Map<Integer, Set<Integer>> txns = new HashMap<>(); // txn, 每个组包含数据的编号集合
-      for (List<OperationTrace> transaction : thread) {
-        Set<String> dataInTxn = new HashSet<>();
-        // 在这里把所有的数据都放进dataInTxn里
-        for (OperationTrace operationTrace : transaction) {
-          if (operationTrace.getReadTupleList() != null) {
-            operationTrace
-                .getReadTupleList()
-                .forEach(trace -> dataInTxn.add(trace.getPrimaryKey()));
-          }
-          if (operationTrace.getWriteTupleList() != null
-              && operationTrace.getWriteTupleList().size() == 1) {
-            operationTrace
-                .getWriteTupleList()
-                .forEach(trace -> dataInTxn.add(trace.getPrimaryKey()));
-          }
-        }
-
-        // 然后把数据转换为编号记录下来
-        Set<Integer> datum = new HashSet<>(); // 一个 datum 代表一个事务所有操作涉及到的数据
-        for (String data : dataInTxn) {
-          if (!dataSet.contains(data)) { // 如果是一个未知的数据
-            dataSet.add(data);
-          }
-
-          int dataNo = dataSet.indexOf(data);
-          datum.add(dataNo);
-        }
-        txns.put(txnCnt, datum);
-        txnCnt++;
-      }
-
-      txn2Group.put(threadCnt, txns);
-      threadCnt++;
-    }
+    // 事务访问的数据记录在trace的writeTupleList和readTupleList里的PrimaryKey，按数据编号分组，见 DataAccessIndex
+    index = DataAccessIndex.of(allTxns);
 
     executeDataGroupQueue = new LinkedList<>();
 
-    for (int i = 0; i < dataSet.size(); i++) {
+    for (int i = 0; i < index.getDataCount(); i++) {
       List<Integer> initDataGroup = new ArrayList<>();
       initDataGroup.add(i);
       executeDataGroupQueue.add(initDataGroup);
@@ -93,53 +52,57 @@ public class ExecuteFilterMutationDataGroup extends ExecuteFilterMutationAbs {
   // 依次尝试去掉一个操作：用指针维护
   @Override
   public void mutation() {
-    Set<String> opSet = getReducedOpID();
+    BitSet reducedOps = index.reducedOperations();
 
-    reducedDataGroup.addAll(currentDataGroup);
-    currentDataGroup = executeDataGroupQueue.poll();
+    reducedData.or(currentData);
+    pollDataGroup();
 
     // 如果没删除新的操作，继续迭代
-    while (!isMutationEnd() && opSet.containsAll(getDeleteOperationTraces())) {
-      reducedDataGroup.addAll(currentDataGroup);
-      currentDataGroup = executeDataGroupQueue.poll();
+    while (!isMutationEnd() && index.isReduced(reducedOps, index.txnsOf(currentData))) {
+      reducedData.or(currentData);
+      pollDataGroup();
     }
     System.out.println("Mutation group is: " + currentDataGroup);
   }
 
+  private void pollDataGroup() {
+    currentDataGroup = executeDataGroupQueue.poll();
+    currentData = new BitSet();
+    if (currentDataGroup != null) {
+      currentDataGroup.forEach(currentData::set);
+    }
+  }
+
   // 判断当前的事务该不该执行，只要事务访问的一个数据项对应的组不执行，这个事务就不执行
   @Override
   public boolean isExecute(int threadNo, int transactionNo, String operationId) {
-    return txn2Group.get(threadNo).get(transactionNo).stream()
-        .parallel()
-        .noneMatch(
-            dataNo -> reducedDataGroup.contains(dataNo) || currentDataGroup.contains(dataNo));
+    for (int dataNo : index.getTxnData(index.txnNo(threadNo, transactionNo))) {
+      if (reducedData.get(dataNo) || currentData.get(dataNo)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   // 如果发现去掉操作之后不能复现，那就回滚这个操作，表示它应该被执行
   @Override
   public void revertMutation() {
     currentDataGroup.clear();
+    currentData.clear();
   }
 
   @Override
   public Set<String> getDeleteOperationTraces() {
     cascade_operation.clear();
-    for (int threadId = 0; threadId < allTxns_.size(); threadId++) {
-      for (int trxId = 0; trxId < allTxns_.get(threadId).size(); trxId++) {
-        // 如果事务包含当前遍历到的组，那这个事务所有操作不需要执行
-        Set<Integer> txnSet = new HashSet<>(txn2Group.get(threadId).get(trxId));
-        // 和当前删除的data group取交集
-        txnSet.retainAll(currentDataGroup);
-        // 交集为空说明没有被当前mutation删除
-        boolean dataExist = txnSet.isEmpty();
-        if (!dataExist) {
-          for (OperationTrace op : allTxns_.get(threadId).get(trxId)) {
-            cascade_operation.add(op.getOperationID());
-          }
-        }
-      }
-    }
-
+    // 访问当前删除的data group的事务，这些事务所有操作不需要执行
+    index.addTxnOperationIds(index.txnsOf(currentData), cascade_operation);
     return cascade_operation;
   }
+
+  @Override
+  public ExecuteFilterMutationDataGroup copy() {
+    ExecuteFilterMutationDataGroup filter = (ExecuteFilterMutationDataGroup) super.copy();
+    filter.index = index;
+    return filter;
+  }
 }
@@ -1,18 +1,19 @@
 package replay.controller.executecontrol;
 
 import java.util.*;
+import trace.OperationId;
 import trace.OperationTrace;
 
 /** 本算子/过滤器基于事务访问的数据进行筛选 在初始化阶段，initializeWithAllTxn将操作按访问的数据分组，以组为单位去掉操作 */
 public class ExecuteFilterMutationDataGroupOp extends ExecuteFilterMutationAbs {
 
-  // opid -> key
-  private Map<String, Set<String>> op2keys;
+  private static final long serialVersionUID = 1L;
 
-  private List<String> keyList;
+  // 事务访问的数据的倒排索引，与原filter共享，见 copy
+  private transient DataAccessIndex index;
 
-  // 记录每组事务需不需要执行
-  private List<Boolean> groupExecutionFlag; // thread, trx, operation, 0/1 代表是否可以执行
+  // 不执行的数据组，按数据编号；每个数据是一组，组的次序见 DataAccessIndex.getOperationOrder
+  private final BitSet reducedData = new BitSet();
 
   private int groupCursor = -1; // 实际维护的是分组的数量
 
@@ -23,73 +24,72 @@ public class ExecuteFilterMutationDataGroupOp extends ExecuteFilterMutationAbs {
   @Override
   public void initializeWithAllTxn(List<List<List<OperationTrace>>> allTxns) {
     super.initializeWithAllTxn(allTxns);
-
-    keyList = new ArrayList<>();
-    op2keys = new HashMap<>();
-
-    for (List<List<OperationTrace>> thread : allTxns) {
-      for (List<OperationTrace> trx : thread) {
-        for (OperationTrace operationTrace : trx) {
-          Set<String> keys = new HashSet<>();
-
-          if (operationTrace.getReadTupleList() != null) {
-            operationTrace.getReadTupleList().forEach(trace -> keys.add(trace.getPrimaryKey()));
-          }
-          if (operationTrace.getWriteTupleList() != null
-              && operationTrace.getWriteTupleList().size() == 1) {
-            operationTrace.getWriteTupleList().forEach(trace -> keys.add(trace.getPrimaryKey()));
-          }
-
-          for (String key : keys) {
-            if (!keyList.contains(key)) {
-              keyList.add(key);
-            }
-          }
-
-          op2keys.put(operationTrace.getOperationID(), keys);
-        }
-      }
-    }
-
-    // 初始化flag
-    // 根据dataSet的大小把groupExecutionFlag全部初始化为true
-    groupExecutionFlag = new ArrayList<>(Collections.nCopies(keyList.size(), true));
+    index = DataAccessIndex.of(allTxns);
   }
 
   // 判断是不是所有的操作都试着去掉过了
   @Override
   public boolean isMutationEnd() {
-    return groupCursor >= groupExecutionFlag.size();
+    return groupCursor >= index.getDataCount();
+  }
+
+  // 指针越过最后一组时，这次变换什么都没有去掉
+  @Override
+  public boolean isMutationEmpty() {
+    return isMutationEnd();
+  }
+
+  // 当前组的数据编号
+  private int currentData() {
+    return index.getOperationOrder()[groupCursor];
   }
 
   // 依次尝试去掉一个操作：用指针维护
   @Override
   public void mutation() {
-    Set<String> opSet = getReducedOpID();
+    BitSet reducedOps = index.reducedOperations();
 
     groupCursor++;
     if (isMutationEnd()) return;
 
-    groupExecutionFlag.set(groupCursor, false);
+    reducedData.set(currentData());
 
     // 如果没有减少数量，继续迭代
-    while (!isMutationEnd() && opSet.containsAll(getDeleteOperationTraces())) {
+    while (!isMutationEnd() && isReduced(reducedOps, index.getDataOperations(currentData()))) {
       groupCursor++;
-      groupExecutionFlag.set(groupCursor, false);
+      if (isMutationEnd()) return;
+      reducedData.set(currentData());
     }
   }
 
-  // 判断当前的事务该不该执行，只要事务访问的一个数据项对应的组不执行，这个事务就不执行
+  // 操作是否都已经不执行
+  private static boolean isReduced(BitSet reducedOps, BitSet operations) {
+    BitSet rest = (BitSet) operations.clone();
+    rest.andNot(reducedOps);
+    return rest.isEmpty();
+  }
+
+  // 判断当前的操作该不该执行，只要操作访问的一个数据项对应的组不执行，这个操作就不执行
   @Override
   public boolean isExecute(int threadNo, int transactionNo, String operationId) {
     if (operationId == null) {
       return true;
     }
+    return isExecute(threadNo, transactionNo, OperationId.parse(operationId), operationId);
+  }
+
+  @Override
+  public boolean isExecute(int threadNo, int transactionNo, long operationKey, String operationId) {
+    if (operationId == null) {
+      return true;
+    }
 
-    Set<String> keys = op2keys.get(operationId);
-    for (String key : keys) {
-      int idx = keyList.indexOf(key);
-      if (!groupExecutionFlag.get(idx)) {
+    int operationNo = index.operationNo(operationKey);
+    if (operationNo < 0) {
+      return true;
+    }
+    for (int dataNo : index.getOperationData(operationNo)) {
+      if (reducedData.get(dataNo)) {
         return false;
       }
     }
@@ -99,27 +99,24 @@ public class ExecuteFilterMutationDataGroupOp extends ExecuteFilterMutationAbs {
   // 如果发现去掉操作之后不能复现，那就回滚这个操作，表示它应该被执行
   @Override
   public void revertMutation() {
-    groupExecutionFlag.set(groupCursor, true);
+    if (isMutationEnd()) return;
+    reducedData.clear(currentData());
   }
 
   @Override
   public Set<String> getDeleteOperationTraces() {
     cascade_operation.clear();
-    for (List<List<OperationTrace>> lists : allTxns_) {
-      for (List<OperationTrace> list : lists) {
-        for (OperationTrace op : list) {
-          Set<String> keys = op2keys.get(op.getOperationID());
-          for (String key : keys) {
-            int idx = keyList.indexOf(key);
-            if (idx == groupCursor) {
-              cascade_operation.add(op.getOperationID());
-              break;
-            }
-          }
-        }
-      }
+    if (groupCursor >= 0 && !isMutationEnd()) {
+      index.addOperationIds(index.getDataOperations(currentData()), cascade_operation);
     }
 
     return cascade_operation;
   }
+
+  @Override
+  public ExecuteFilterMutationDataGroupOp copy() {
+    ExecuteFilterMutationDataGroupOp filter = (ExecuteFilterMutationDataGroupOp) super.copy();
+    filter.index = index;
+    return filter;
+  }
 }
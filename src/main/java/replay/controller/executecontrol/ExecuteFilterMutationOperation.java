@@ -6,6 +6,9 @@ import trace.OperationTrace;
 import trace.OperationTraceType;
 
 public class ExecuteFilterMutationOperation extends ExecuteFilterMutationAbs {
+
+  private static final long serialVersionUID = 1L;
+
   // 记录每个操作是否要执行
   private Map<String, Boolean> operationMap; // < operationId, operationCursor > 映射关系
 
@@ -28,7 +31,6 @@ public class ExecuteFilterMutationOperation extends ExecuteFilterMutationAbs {
       for (List<OperationTrace> txn : thread) {
         // 只考虑非开头结尾的操作，因为开头结尾不能删除，否则事务完整性会被破坏
         txn.stream()
-            .parallel()
             .filter(this::checkOperationType)
             .map(OperationTrace::getOperationID)
             .filter(ReplayController::isExecute)
@@ -50,6 +52,12 @@ public class ExecuteFilterMutationOperation extends ExecuteFilterMutationAbs {
     return operationCursor >= operations.size();
   }
 
+  // 指针越过最后一组时，这次变换什么都没有去掉
+  @Override
+  public boolean isMutationEmpty() {
+    return isMutationEnd();
+  }
+
   // 依次尝试去掉一个操作：用指针维护
   @Override
   public void mutation() {
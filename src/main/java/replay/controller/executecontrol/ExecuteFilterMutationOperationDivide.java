@@ -4,11 +4,15 @@ import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 import replay.controller.ReplayController;
+import trace.OperationId;
 import trace.OperationTrace;
 import trace.OperationTraceType;
+import util.collection.LongHashSet;
 
 public class ExecuteFilterMutationOperationDivide extends ExecuteFilterMutationAbs {
 
+  private static final long serialVersionUID = 1L;
+
   /** 这个mutation会分块地逐步删除case，首先将最大的块作为删除的内容，如果删除失败，把它切分成小块加入队列，进行迭代bfs */
   // 用一个队列存储等待删除的事务
   private final LinkedList<List<String>> operationGroupQueue = new LinkedList<>();
@@ -18,6 +22,10 @@ public class ExecuteFilterMutationOperationDivide extends ExecuteFilterMutationA
 
   // 当前准备删除的事务
   private List<String> currentOperationGroup = new ArrayList<>();
+
+  // 与reduceOperation、currentOperationGroup相同，压缩后的操作id
+  private final LongHashSet reduceOperationKey = new LongHashSet();
+  private LongHashSet currentOperationKey = new LongHashSet();
   // 切分的数量
   private final int splitNum = 4;
 
@@ -32,7 +40,6 @@ public class ExecuteFilterMutationOperationDivide extends ExecuteFilterMutationA
         // 只考虑非开头结尾的操作，因为开头结尾不能删除，否则事务完整性会被破坏
         operations.addAll(
             txn.stream()
-                .parallel()
                 .filter(this::checkOperationType)
                 .map(OperationTrace::getOperationID)
                 .collect(Collectors.toList()));
@@ -65,23 +72,26 @@ public class ExecuteFilterMutationOperationDivide extends ExecuteFilterMutationA
   @Override
   public void mutation() {
     reduceOperation.addAll(currentOperationGroup);
+    reduceOperationKey.addAll(currentOperationKey);
     // check whether a txn has only two op: begin and end, if so, remove this txn
     for (List<List<OperationTrace>> thread : allTxns_) {
       for (List<OperationTrace> txn : thread) {
         int reducedCnt =
             (int)
                 txn.stream()
-                    .parallel()
                     .map(OperationTrace::getOperationID)
                     .filter(ReplayController::isExecute)
                     .count();
         if (reducedCnt == 2) {
           reduceOperation.add(txn.get(0).getOperationID());
           reduceOperation.add(txn.get(txn.size() - 1).getOperationID());
+          reduceOperationKey.add(txn.get(0).getPackedOperationID());
+          reduceOperationKey.add(txn.get(txn.size() - 1).getPackedOperationID());
         }
       }
     }
     currentOperationGroup = new CopyOnWriteArrayList<>(operationGroupQueue.poll());
+    currentOperationKey = toKeys(currentOperationGroup);
   }
 
   /**
@@ -93,9 +103,16 @@ public class ExecuteFilterMutationOperationDivide extends ExecuteFilterMutationA
    * @return 当前操作是否该被执行
    */
   @Override
-  public synchronized boolean isExecute(int threadNo, int transactionNo, String operationId) {
+  public boolean isExecute(int threadNo, int transactionNo, String operationId) {
     //        String txnId = operationId.substring(0, operationId.lastIndexOf(","));
-    return !(reduceOperation.contains(operationId)) && !currentOperationGroup.contains(operationId);
+    return isExecute(threadNo, transactionNo, OperationId.parse(operationId), operationId);
+  }
+
+  @Override
+  public synchronized boolean isExecute(
+      int threadNo, int transactionNo, long operationKey, String operationId) {
+    return !(reduceOperationKey.contains(operationKey))
+        && !currentOperationKey.contains(operationKey);
   }
 
   /** 回滚最后一次变换，并且把对应的事务组切分成更小的部分，加入队列里 然后把mutation失败的计数器+1 */
@@ -105,6 +122,7 @@ public class ExecuteFilterMutationOperationDivide extends ExecuteFilterMutationA
     System.out.println("Divide operation group's size is: " + currentOperationGroup.size());
     if (currentOperationGroup.size() == 1) {
       currentOperationGroup.clear();
+      currentOperationKey.clear();
       return;
     }
 
@@ -141,6 +159,7 @@ public class ExecuteFilterMutationOperationDivide extends ExecuteFilterMutationA
     }
 
     currentOperationGroup.clear();
+    currentOperationKey.clear();
     System.out.println("Divide operation group's number is: " + operationGroupQueue.size());
   }
 
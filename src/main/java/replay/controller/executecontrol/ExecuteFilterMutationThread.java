@@ -4,14 +4,22 @@ import static dbloader.transaction.TransactionReplayer.logger;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import trace.OperationId;
 import trace.OperationTrace;
+import util.collection.LongHashSet;
 
 public class ExecuteFilterMutationThread extends ExecuteFilterMutationAbs {
+
+  private static final long serialVersionUID = 1L;
+
   // 需要执行的事务列表
 
   protected LinkedList<List<String>> executeThreadQueue;
   protected List<String> currentThread = new ArrayList<>();
   protected final Set<String> reducedThreadID = new HashSet<>();
+  // 与reducedThreadID、currentThread相同，压缩后的线程id，见 OperationId.threadKey
+  protected final LongHashSet reducedThreadKey = new LongHashSet();
+  protected LongHashSet currentThreadKey = new LongHashSet();
   // 返回当前需要删去操作的集合
   protected Set<String> cascade_operation = new HashSet<>();
 
@@ -20,7 +28,6 @@ public class ExecuteFilterMutationThread extends ExecuteFilterMutationAbs {
     super.initializeWithAllTxn(allTxns);
     executeThreadQueue = new LinkedList<>();
     allTxns.stream()
-        .parallel()
         .filter(thread -> thread != null && !thread.isEmpty() && !thread.get(0).isEmpty())
         .forEach(
             thread -> {
@@ -41,30 +48,44 @@ public class ExecuteFilterMutationThread extends ExecuteFilterMutationAbs {
   public void mutation() {
     Set<String> opSet = getReducedOpID();
 
-    reducedThreadID.addAll(currentThread);
-    currentThread = executeThreadQueue.poll();
+    reduceCurrentThread();
 
     // 如果没删除新的操作，继续迭代
     while (!isMutationEnd() && opSet.containsAll(getDeleteOperationTraces())) {
-      reducedThreadID.addAll(currentThread);
-      currentThread = executeThreadQueue.poll();
+      reduceCurrentThread();
     }
     logger.info("Mutation group is: {}", currentThread);
   }
 
+  /** 把当前的线程组加入已删除的线程，并从队列中取出下一组 */
+  private void reduceCurrentThread() {
+    reducedThreadID.addAll(currentThread);
+    reducedThreadKey.addAll(currentThreadKey);
+    currentThread = executeThreadQueue.poll();
+    currentThreadKey = currentThread == null ? new LongHashSet() : toKeys(currentThread);
+  }
+
   @Override
   public boolean isExecute(int threadNo, int transactionNo, String operationId) {
     if (operationId == null || currentThread == null) {
       return true;
     }
-    String threadId = operationId.substring(0, operationId.indexOf(","));
+    return isExecute(threadNo, transactionNo, OperationId.parse(operationId), operationId);
+  }
 
-    return !(reducedThreadID.contains(threadId)) && !currentThread.contains(threadId);
+  @Override
+  public boolean isExecute(int threadNo, int transactionNo, long operationKey, String operationId) {
+    if (currentThread == null) {
+      return true;
+    }
+    long threadKey = OperationId.threadKey(operationKey);
+    return !(reducedThreadKey.contains(threadKey)) && !currentThreadKey.contains(threadKey);
   }
 
   @Override
   public void revertMutation() {
     currentThread.clear();
+    currentThreadKey.clear();
   }
 
   @Override
@@ -75,12 +96,13 @@ public class ExecuteFilterMutationThread extends ExecuteFilterMutationAbs {
                 txnGroup ->
                     txnGroup.stream() // 将每个线程转换为流式计算
                         .filter(txn -> !txn.isEmpty()) // 过滤掉空的线程
-                        .flatMap(txn -> txn.stream().map(OperationTrace::getOperationID)))
-            .filter(
-                operationId -> { // 把操作id转化为线程id
-                  String threadId = operationId.substring(0, operationId.indexOf(","));
-                  return currentThread != null && currentThread.contains(threadId);
-                })
+                        .flatMap(List::stream))
+            .filter( // 把操作id转化为线程id
+                op ->
+                    currentThread != null
+                        && currentThreadKey.contains(
+                            OperationId.threadKey(op.getPackedOperationID())))
+            .map(OperationTrace::getOperationID)
             .collect(Collectors.toSet()); // 将过滤后的操作ID收集到Set中
 
     return cascade_operation;
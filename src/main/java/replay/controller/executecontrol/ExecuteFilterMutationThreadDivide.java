@@ -8,13 +8,14 @@ import trace.OperationTrace;
 
 public class ExecuteFilterMutationThreadDivide extends ExecuteFilterMutationThread {
 
+  private static final long serialVersionUID = 1L;
+
   @Override
   public void initializeWithAllTxn(List<List<List<OperationTrace>>> allTxns) {
     super.initializeWithAllTxn(allTxns);
     executeThreadQueue = new LinkedList<>();
     executeThreadQueue.add(
         allTxns.stream()
-            .parallel()
             .filter(thread -> thread != null && !thread.isEmpty() && !thread.get(0).isEmpty())
             .map(thread -> thread.get(0).get(0).getThreadID())
             .collect(Collectors.toList()));
@@ -28,6 +29,7 @@ public class ExecuteFilterMutationThreadDivide extends ExecuteFilterMutationThre
     // 如果只剩一个线程，就不用再切了
     if (currentThread.size() == 1) {
       currentThread.clear();
+      currentThreadKey.clear();
       return;
     }
     // 计算每个子列表的基本大小
@@ -56,5 +58,6 @@ public class ExecuteFilterMutationThreadDivide extends ExecuteFilterMutationThre
     }
 
     currentThread.clear();
+    currentThreadKey.clear();
   }
 }
@@ -5,14 +5,22 @@ import static dbloader.transaction.TransactionReplayer.logger;
 import java.util.*;
 import java.util.stream.Collectors;
 import replay.controller.ReplayController;
+import trace.OperationId;
 import trace.OperationTrace;
+import util.collection.LongHashSet;
 
 public class ExecuteFilterMutationTransaction extends ExecuteFilterMutationAbs {
+
+  private static final long serialVersionUID = 1L;
+
   // 需要执行的事务列表
 
   protected LinkedList<List<String>> executeTxnQueue;
   protected List<String> currentTxn;
   protected final Set<String> reducedTxnID = new HashSet<>();
+  // 与reducedTxnID、currentTxn相同，压缩后的事务id，见 OperationId.txnKey
+  protected final LongHashSet reducedTxnKey = new LongHashSet();
+  protected LongHashSet currentTxnKey = new LongHashSet();
   // 返回当前需要删去操作的集合
   protected Set<String> cascade_operation = new HashSet<>();
 
@@ -23,11 +31,10 @@ public class ExecuteFilterMutationTransaction extends ExecuteFilterMutationAbs {
 
     List<String> txnID =
         allTxns_.stream()
-            .parallel()
             .flatMap(
                 thread ->
                     thread.stream()
-                        .filter(txn -> ReplayController.isExecute(txn.get(0).getOperationID()))
+                        .filter(txn -> ReplayController.isExecute(txn.get(0)))
                         .map(txn -> txn.get(0).getTransactionID()))
             .collect(Collectors.toList());
     executeTxnQueue.add(txnID);
@@ -46,25 +53,36 @@ public class ExecuteFilterMutationTransaction extends ExecuteFilterMutationAbs {
   public void mutation() {
     Set<String> opSet = getReducedOpID();
 
-    reducedTxnID.addAll(currentTxn);
-    currentTxn = executeTxnQueue.poll();
+    reduceCurrentTxn();
 
     // 如果没删除新的操作，继续迭代
     while (!isMutationEnd() && opSet.containsAll(getDeleteOperationTraces())) {
-      reducedTxnID.addAll(currentTxn);
-      currentTxn = executeTxnQueue.poll();
+      reduceCurrentTxn();
     }
 
     logger.info("Mutation group is: {}", currentTxn);
   }
 
+  /** 把当前的事务组加入已删除的事务，并从队列中取出下一组 */
+  private void reduceCurrentTxn() {
+    reducedTxnID.addAll(currentTxn);
+    reducedTxnKey.addAll(currentTxnKey);
+    currentTxn = executeTxnQueue.poll();
+    currentTxnKey = currentTxn == null ? new LongHashSet() : toKeys(currentTxn);
+  }
+
   @Override
   public boolean isExecute(int threadNo, int transactionNo, String operationId) {
     if (operationId == null) {
       return true;
     }
-    String threadId = operationId.substring(0, operationId.lastIndexOf(","));
-    return !(reducedTxnID.contains(threadId)) && !currentTxn.contains(threadId);
+    return isExecute(threadNo, transactionNo, OperationId.parse(operationId), operationId);
+  }
+
+  @Override
+  public boolean isExecute(int threadNo, int transactionNo, long operationKey, String operationId) {
+    long txnKey = OperationId.txnKey(operationKey);
+    return !(reducedTxnKey.contains(txnKey)) && !currentTxnKey.contains(txnKey);
   }
 
   @Override
@@ -79,6 +97,7 @@ public class ExecuteFilterMutationTransaction extends ExecuteFilterMutationAbs {
     }
 
     currentTxn.clear();
+    currentTxnKey.clear();
   }
 
   @Override
@@ -89,12 +108,10 @@ public class ExecuteFilterMutationTransaction extends ExecuteFilterMutationAbs {
                 txnGroup ->
                     txnGroup.stream() // 将每个线程转换为流式计算
                         .filter(txn -> !txn.isEmpty()) // 过滤掉空的线程
-                        .flatMap(txn -> txn.stream().map(OperationTrace::getOperationID)))
-            .filter(
-                operationId -> { // 把操作id转化为线程id
-                  String threadId = operationId.substring(0, operationId.lastIndexOf(","));
-                  return currentTxn.contains(threadId);
-                })
+                        .flatMap(List::stream))
+            .filter( // 把操作id转化为事务id
+                op -> currentTxnKey.contains(OperationId.txnKey(op.getPackedOperationID())))
+            .map(OperationTrace::getOperationID)
             .collect(Collectors.toSet()); // 将过滤后的操作ID收集到Set中
 
     return cascade_operation;
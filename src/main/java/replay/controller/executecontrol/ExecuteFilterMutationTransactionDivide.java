@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ExecuteFilterMutationTransactionDivide extends ExecuteFilterMutationTransaction {
+
+  private static final long serialVersionUID = 1L;
+
   // 需要执行的事务列表
 
   @Override
@@ -21,6 +24,7 @@ public class ExecuteFilterMutationTransactionDivide extends ExecuteFilterMutatio
     // 如果只剩一个线程，就不用再切了
     if (currentTxn.size() == 1) {
       currentTxn.clear();
+      currentTxnKey.clear();
       return;
     }
     // 计算每个子列表的基本大小
@@ -47,5 +51,6 @@ public class ExecuteFilterMutationTransactionDivide extends ExecuteFilterMutatio
     }
 
     currentTxn.clear();
+    currentTxnKey.clear();
   }
 }
@@ -6,6 +6,8 @@ import trace.OperationTrace;
 
 public class ExecuteFilterRandomTransactionSerial extends ExecuteFilterMutationAbs {
 
+  private static final long serialVersionUID = 1L;
+
   // 需要执行的事务列表
   private List<List<Integer>> executeTxn; // 1: will be executed, 0: will not be executed
 
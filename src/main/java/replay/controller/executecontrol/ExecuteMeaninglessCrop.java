@@ -1,20 +1,24 @@
 package replay.controller.executecontrol;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import replay.controller.ReplayController;
+import trace.OperationId;
 import trace.OperationTrace;
+import util.collection.LongHashSet;
 
 public class ExecuteMeaninglessCrop extends ExecuteFilterMutationAbs {
 
-  private Set<String> meaninglessOpID;
+  private static final long serialVersionUID = 1L;
+
+  // 无意义的操作，压缩后的操作id
+  private LongHashSet meaninglessOpKey;
 
   @Override
   public void initializeWithAllTxn(List<List<List<OperationTrace>>> allTxns) {
     super.initializeWithAllTxn(allTxns);
 
-    meaninglessOpID = new HashSet<>();
+    meaninglessOpKey = new LongHashSet();
   }
 
   /**
@@ -33,16 +37,11 @@ public class ExecuteMeaninglessCrop extends ExecuteFilterMutationAbs {
     for (List<List<OperationTrace>> thread : allTxns_) {
       for (List<OperationTrace> txn : thread) {
         // 计算事务里还有多少个操作需要执行
-        int cnt =
-            (int)
-                txn.stream()
-                    .parallel()
-                    .filter(op -> ReplayController.isExecute(op.getOperationID()))
-                    .count();
+        int cnt = (int) txn.stream().filter(op -> ReplayController.isExecute(op)).count();
         // 如果只剩三个以内，说明只剩头尾或者单行事务，这样可以去掉这个事务的头尾 TODO 这里会把ddl都滤掉，但修改的话会有验证问题，暂时没去处理，所以保留
         if (cnt < 3) {
-          meaninglessOpID.add(txn.get(0).getOperationID());
-          meaninglessOpID.add(txn.get(txn.size() - 1).getOperationID());
+          meaninglessOpKey.add(txn.get(0).getPackedOperationID());
+          meaninglessOpKey.add(txn.get(txn.size() - 1).getPackedOperationID());
         }
       }
     }
@@ -62,7 +61,12 @@ public class ExecuteMeaninglessCrop extends ExecuteFilterMutationAbs {
       return true;
     }
 
-    return !meaninglessOpID.contains(operationId);
+    return !meaninglessOpKey.contains(OperationId.parse(operationId));
+  }
+
+  @Override
+  public boolean isExecute(int threadNo, int transactionNo, long operationKey, String operationId) {
+    return !meaninglessOpKey.contains(operationKey);
   }
 
   /** 回滚最后一次变换 */
@@ -5,11 +5,17 @@ import java.util.List;
 import java.util.Set;
 import trace.OperationTrace;
 import trace.OperationTraceType;
+import util.collection.LongHashSet;
 
 public class ExecutionFilterCropRollback extends ExecuteFilterMutationAbs {
 
+  private static final long serialVersionUID = 1L;
+
   Set<String> rollbackOpID;
 
+  // 与rollbackOpID相同，压缩后的操作id
+  LongHashSet rollbackOpKey;
+
   // 返回当前需要删去操作的集合
   final Set<String> cascade_operation = new HashSet<>();
 
@@ -18,6 +24,7 @@ public class ExecutionFilterCropRollback extends ExecuteFilterMutationAbs {
   public void initializeWithAllTxn(List<List<List<OperationTrace>>> allTxns) {
     super.initializeWithAllTxn(allTxns);
     rollbackOpID = new HashSet<>();
+    rollbackOpKey = new LongHashSet();
     for (List<List<OperationTrace>> thread : allTxns) {
       if (thread.isEmpty() || thread.get(0).isEmpty()) {
         continue;
@@ -27,6 +34,7 @@ public class ExecutionFilterCropRollback extends ExecuteFilterMutationAbs {
         if (txn.get(txn.size() - 1).getOperationTraceType() == OperationTraceType.ROLLBACK) {
           for (OperationTrace op : txn) {
             rollbackOpID.add(op.getOperationID());
+            rollbackOpKey.add(op.getPackedOperationID());
           }
         }
       }
@@ -37,6 +45,7 @@ public class ExecutionFilterCropRollback extends ExecuteFilterMutationAbs {
   public void addRollback(List<OperationTrace> rollbackTxn) {
     for (OperationTrace op : rollbackTxn) {
       rollbackOpID.add(op.getOperationID());
+      rollbackOpKey.add(op.getPackedOperationID());
     }
   }
 
@@ -72,10 +81,16 @@ public class ExecutionFilterCropRollback extends ExecuteFilterMutationAbs {
     return !rollbackOpID.contains(operationId);
   }
 
+  @Override
+  public boolean isExecute(int threadNo, int transactionNo, long operationKey, String operationId) {
+    return !rollbackOpKey.contains(operationKey);
+  }
+
   /** 回滚最后一次变换 */
   @Override
   public void revertMutation() {
     rollbackOpID.clear();
+    rollbackOpKey.clear();
   }
 
   /**
@@ -5,11 +5,17 @@ import java.util.List;
 import java.util.Set;
 import replay.controller.ReplayController;
 import trace.OperationTrace;
+import util.collection.LongHashSet;
 
 public class ExecutionFilterCropTailTxn extends ExecuteFilterMutationAbs {
 
+  private static final long serialVersionUID = 1L;
+
   private Set<String> tailOpID = null;
 
+  // 与tailOpID相同，压缩后的操作id
+  private LongHashSet tailOpKey = null;
+
   // 返回当前需要删去操作的集合
   final Set<String> cascade_operation = new HashSet<>();
 
@@ -35,6 +41,7 @@ public class ExecutionFilterCropTailTxn extends ExecuteFilterMutationAbs {
     Set<OperationTrace> errorTrace = new HashSet<>(ReplayController.getErrorTraces());
     // 获得最后一个错误trace执行后的操作id
     tailOpID = ReplayController.getTailOperationSet(errorTrace);
+    tailOpKey = toKeys(tailOpID);
   }
 
   /**
@@ -61,10 +68,16 @@ public class ExecutionFilterCropTailTxn extends ExecuteFilterMutationAbs {
     return !tailOpID.contains(operationId);
   }
 
+  @Override
+  public boolean isExecute(int threadNo, int transactionNo, long operationKey, String operationId) {
+    return !tailOpKey.contains(operationKey);
+  }
+
   /** 回滚最后一次变换 */
   @Override
   public void revertMutation() {
     tailOpID = null;
+    tailOpKey = null;
   }
 
   @Override
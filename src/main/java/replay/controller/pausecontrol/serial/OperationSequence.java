@@ -1,17 +1,17 @@
 package replay.controller.pausecontrol.serial;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerArray;
-import java.util.stream.Collectors;
 import lombok.Getter;
 import replay.controller.ReplayController;
+import trace.OperationId;
 import trace.OperationTrace;
-import trace.TraceUtil;
+import util.collection.LongIntHashMap;
 
 /**
  * 存储和使用存储序列的类。 操作序列指对所有操作按一定规则推断后得到的序列，这个序列由若干个操作集合组成，集合内的操作可以以任意顺序并行执行，各集合间按序列顺序串行执行。 本类提供两种功能： 1.
@@ -28,14 +28,17 @@ public class OperationSequence {
   private AtomicInteger cursor = new AtomicInteger(0);
 
   // 记录已经发送的操作
-  private CopyOnWriteArraySet<String> executedOperation;
+  private Set<String> executedOperation;
 
   private AtomicIntegerArray executedOpNumber;
 
   // 维护每个序列的锁结构
   private List<ConcurrentLinkedQueue<String>> lockList = new CopyOnWriteArrayList<>();
-  // 辅助结构，用来存每个操作在序列上的位置
-  Map<String, Integer> id2Cursor;
+  // 辅助结构，用来存每个操作在序列上的位置，key为压缩后的操作id
+  LongIntHashMap id2Cursor;
+
+  // 与operationSeq一一对应的压缩后的操作id，见 OperationId
+  private long[][] operationKeys;
 
   // 这个监听周期有没有推进过
   private AtomicBoolean pushed = new AtomicBoolean(false);
@@ -56,17 +59,21 @@ public class OperationSequence {
   /** 初始化数据结构 */
   public void reset() {
     cursor = new AtomicInteger(0);
-    id2Cursor = new HashMap<>();
+    id2Cursor = new LongIntHashMap();
+    operationKeys = new long[operationSeq.size()][];
     lockList = new CopyOnWriteArrayList<>();
     executedOpNumber = new AtomicIntegerArray(operationSeq.size());
     for (int i = 0; i < operationSeq.size(); i++) {
-      for (String opId : operationSeq.get(i)) {
-        id2Cursor.put(opId, i); // < operation_id, trx_id >
+      List<String> ops = operationSeq.get(i);
+      operationKeys[i] = new long[ops.size()];
+      for (int j = 0; j < ops.size(); j++) {
+        operationKeys[i][j] = OperationId.parse(ops.get(j));
+        id2Cursor.put(operationKeys[i][j], i); // < operation_id, trx_id >
       }
       lockList.add(new ConcurrentLinkedQueue<>());
       executedOpNumber.set(i, 0);
     }
-    executedOperation = new CopyOnWriteArraySet<>();
+    executedOperation = ConcurrentHashMap.newKeySet();
   }
 
   /**
@@ -102,8 +109,9 @@ public class OperationSequence {
       // 如果错误trace已经都经过了，结束扫描
       if (exeCnt >= 1) {
         for (String opId : currentSet) {
-          int threadID = TraceUtil.getThreadIdFromOpId(opId);
-          int opIdx = Integer.parseInt(opId.split(",")[2]);
+          long opKey = OperationId.parse(opId);
+          int threadID = OperationId.threadOf(opKey);
+          int opIdx = OperationId.opOf(opKey);
           // 如果是start
           if (opIdx == 0) {
             tailTxnStart.add(threadID);
@@ -171,33 +179,38 @@ public class OperationSequence {
    * @param operationId 需要执行的操作
    */
   public void execute(String operationId) {
+    execute(OperationId.parse(operationId), operationId);
+  }
+
+  /**
+   * 同 execute(String)，操作id已经解析为压缩形式
+   *
+   * @param operationKey 压缩后的操作id，见 OperationId
+   * @param operationId 需要执行的操作
+   */
+  public void execute(long operationKey, String operationId) {
     // 当前操作在序列上的位置
-    Integer executeCursor = id2Cursor.get(operationId);
+    int executeCursor = id2Cursor.get(operationKey, -1);
 
-    if (executeCursor == null) {
+    if (executeCursor < 0) {
       return;
     }
 
     // 考虑到有些操作可能被跳掉，在这里额外更新一下已完成操作的信息，把同个线程之前的操作全部标记为已完成
     // 当前操作所在的线程
-    String threadId = operationId.split(",")[0];
+    long threadKey = OperationId.threadKey(operationKey);
     // 从执行位置到当前操作位置遍历序列的内容，因为这部分操作是被跳过的
 
     // executedOperation 添加上一个执行位置到当前执行位置，被跳过的操作
     // executedOpNumber 每个组已完成或跳过的操作的数量
     int finishCursor = executeCursor - 1;
     while (finishCursor >= 0) {
-      Set<String> skipOps =
-          operationSeq.get(finishCursor).stream()
-              .filter(id -> id.startsWith(threadId) && !executedOperation.contains(id))
-              .collect(Collectors.toSet());
-
-      if (!skipOps.isEmpty()) {
-        for (String skipOp : skipOps) {
-          int skipCursor = id2Cursor.get(skipOp);
-          executedOpNumber.updateAndGet(skipCursor, count -> count + 1);
+      List<String> ops = operationSeq.get(finishCursor);
+      long[] keys = operationKeys[finishCursor];
+      for (int i = 0; i < keys.length; i++) {
+        if (OperationId.threadKey(keys[i]) == threadKey && executedOperation.add(ops.get(i))) {
+          executedOpNumber.incrementAndGet(finishCursor);
         }
-        executedOperation.addAll(skipOps);
       }
       finishCursor--;
     }
@@ -213,8 +226,9 @@ public class OperationSequence {
 
       try {
         // 使用 Condition 等待，而不是直接阻塞线程
-        while (executeCursor > cursor.get()) {
-          synchronized (waitingQueue) {
+        // 在锁内检查执行位置，推进执行位置之后才会加锁唤醒，不会错过唤醒
+        synchronized (waitingQueue) {
+          while (executeCursor > cursor.get()) {
             waitingQueue.wait();
           }
         }
@@ -228,16 +242,19 @@ public class OperationSequence {
   }
 
   public void executeFinish(String operationId) {
-    Integer skipCursor = id2Cursor.get(operationId);
-    if (skipCursor == null) {
+    executeFinish(OperationId.parse(operationId), operationId);
+  }
+
+  public void executeFinish(long operationKey, String operationId) {
+    int skipCursor = id2Cursor.get(operationKey, -1);
+    if (skipCursor < 0) {
       return;
     }
 
-    if (!executedOperation.contains(operationId)) {
+    if (executedOperation.add(operationId)) {
       // 使用 AtomicIntegerArray 来更新 executedOpNumber
-      executedOpNumber.updateAndGet(skipCursor, count -> count + 1);
+      executedOpNumber.incrementAndGet(skipCursor);
     }
-    executedOperation.add(operationId);
     updateCursor();
   }
   //  public void executeFinish(String operationId) {
@@ -308,6 +325,16 @@ public class OperationSequence {
     }
   }
 
+  /** 终止回放：把执行位置推到序列末尾并唤醒所有等待的操作，之后任何操作都不再等待 */
+  public void release() {
+    cursor.set(operationSeq.size());
+    for (ConcurrentLinkedQueue<String> waitingQueue : lockList) {
+      synchronized (waitingQueue) {
+        waitingQueue.notifyAll();
+      }
+    }
+  }
+
   /** 最终保险，直接推进执行位置，在程序卡死时由主程序调用 找到下一个可以被执行的操作 => cursor，将上一个执行位置的组到当前的组的所有锁全部唤醒 */
   public void moveCursor() {
     if (pushed.get()) {
@@ -1,6 +1,5 @@
 package replay.controller.pausecontrol.serial;
 
-import context.OrcaContext;
 import java.util.*;
 import java.util.stream.Collectors;
 import trace.OperationTrace;
@@ -131,35 +130,102 @@ public class SequenceDependency {
   }
 
   /**
-   * 生成操作序列，即对应现在seq.json的内容 下面提供了一些算法抽象出来的方法
+   * 生成操作序列，即对应现在seq.json的内容
+   *
+   * <p>每一步的候选操作是开始时间早于剩余操作中最早结束时间的操作，候选中没有未满足前驱依赖的操作构成下一个集合，
+   * 都有依赖时（冲突）候选全部加入。剩余操作中最早的结束时间只增不减，所以候选集合用一条按开始时间推进的扫描线维护，
+   * 前驱依赖用计数器维护，一个操作加入序列时只更新它的后继，整体为O(n log n)
    *
    * @return 返回操作序列
    */
   public List<List<String>> generateOperationSequence() {
     ArrayList<List<String>> sequence = new ArrayList<>();
     updateDependencies();
-    operationTraceList.sort(Comparator.comparing(OperationTrace::getFinishTimestamp));
-    while (!operationTraceList.isEmpty()) {
-      Set<String> ret = null;
-      Set<OperationTrace> candidates = new HashSet<>();
-      for (int i = 0; i < OrcaContext.configColl.getReplay().getSequenceBatchNumber(); i++) {
-        candidates.addAll(getCandidateOperationId(operationTraceList.get(0)));
-        ret = getNotDependOperationId(candidates);
-        if (ret.isEmpty()) { // 如果没有满足条件的op，说明这里有冲突，干脆全加
-          ret = candidates.stream().map(OperationTrace::getOperationID).collect(Collectors.toSet());
+
+    // 按结束时间排序，下标即操作的编号
+    List<OperationTrace> byFinish = new ArrayList<>(operationTraceList);
+    byFinish.sort(Comparator.comparing(OperationTrace::getFinishTimestamp));
+    int n = byFinish.size();
+    Map<String, Integer> indexOf = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      indexOf.putIfAbsent(byFinish.get(i).getOperationID(), i);
+    }
+    Integer[] byStart = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      byStart[i] = i;
+    }
+    Arrays.sort(byStart, Comparator.comparing(i -> byFinish.get(i).getStartTimestamp()));
+
+    // 每个操作还未满足的前驱依赖数，以及前驱 -> 后继
+    Map<String, Integer> waiting = new HashMap<>();
+    Map<String, List<String>> successors = new HashMap<>();
+    for (Map.Entry<String, List<String>> entry : operationDependencies.entrySet()) {
+      waiting.put(entry.getKey(), entry.getValue().size());
+      for (String front : entry.getValue()) {
+        if (front != null) {
+          successors.computeIfAbsent(front, k -> new ArrayList<>()).add(entry.getKey());
         }
       }
-      //                  System.out.println("ret.size() = " + Objects.requireNonNull(ret).size());
+    }
 
-      removeDependency(ret);
-      // seq append these key
+    boolean[] sequenced = new boolean[n];
+    // 候选操作中没有依赖的和有依赖的
+    List<Integer> ready = new ArrayList<>();
+    Set<Integer> blocked = new LinkedHashSet<>();
+    int head = 0;
+    int sweep = 0;
+    while (true) {
+      while (head < n && sequenced[head]) {
+        head++;
+      }
+      if (head == n) {
+        break;
+      }
+      long earliestFinish = byFinish.get(head).getFinishTimestamp();
+      while (sweep < n && byFinish.get(byStart[sweep]).getStartTimestamp() < earliestFinish) {
+        int i = byStart[sweep++];
+        if (waiting.getOrDefault(byFinish.get(i).getOperationID(), 0) > 0) {
+          blocked.add(i);
+        } else {
+          ready.add(i);
+        }
+      }
 
-      List<String> key_list = new ArrayList<>(ret);
-      sequence.add(key_list);
+      List<Integer> next;
+      if (!ready.isEmpty()) {
+        next = ready;
+        ready = new ArrayList<>();
+      } else if (!blocked.isEmpty()) { // 如果没有满足条件的op，说明这里有冲突，干脆全加
+        next = new ArrayList<>(blocked);
+        blocked.clear();
+      } else {
+        // 最早结束的操作的开始时间不早于其结束时间，没有候选，单独加入以保证推进
+        next = Collections.singletonList(head);
+      }
 
-      removeOperationTraces(ret);
+      Set<String> ret = new HashSet<>();
+      for (int i : next) {
+        sequenced[i] = true;
+        ret.add(byFinish.get(i).getOperationID());
+      }
+      sequence.add(new ArrayList<>(ret));
+
+      // 加入序列的操作不再阻碍后继
+      for (String id : ret) {
+        for (String back : successors.getOrDefault(id, Collections.emptyList())) {
+          if (waiting.merge(back, -1, Integer::sum) == 0) {
+            Integer i = indexOf.get(back);
+            if (i != null && blocked.remove(i)) {
+              ready.add(i);
+            }
+          }
+        }
+      }
     }
 
+    // 所有操作都已确定顺序
+    operationTraceList.clear();
+    operationDependencies.clear();
     return sequence;
   }
 
@@ -180,7 +246,7 @@ public class SequenceDependency {
 
   /**
    * add operation dependency to operationDependencies 根据依赖的出边构造邻接表 called by
-   * ana/thread/AnalysisThread.java, after "OutputStructure.outputStructure(\"ME:\""
+   * ana/thread/AnalysisThread.java, after "OutputStructure.outputInference(Kind.ME, ...)"
    *
    * @param frontOperationTraceId front operation id
    * @param backOperationTraceId back operation id
@@ -198,53 +264,6 @@ public class SequenceDependency {
     }
   }
 
-  /**
-   * add candidate operation ids, whose start timestamp is smaller than the smallest end timestamp
-   * 因为我们只知道每个操作的执行时间段，所以我们不知道具体数据库怎么调度时间有重叠的操作顺序。 也就是执行时间段重叠，可能在下一个执行的操作都是候选的操作。
-   *
-   * @return candidate operation ids
-   */
-  private Set<OperationTrace> getCandidateOperationId(OperationTrace operationTrace) {
-    Long finishTimestamp = operationTrace.getFinishTimestamp();
-    Set<OperationTrace> operations;
-    //        Set<String> threadIds = new HashSet<>();
-    //        for (OperationTrace candidate: operationTraceList){
-    //            if (!threadIds.contains(candidate.getThreadID()) && candidate.getStartTimestamp()
-    // < finishTimestamp ){
-    //                operations.add(candidate);
-    //                threadIds.add(candidate.getThreadID());
-    //            }
-    //
-    //            if (threadIds.size() >= OrcaContext.configColl.getLoader().getNumberOfLoader()){
-    //                break;
-    //            }
-    //        }
-
-    operations =
-        operationTraceList.stream()
-            //            .parallel()
-            .filter(op -> op.getStartTimestamp() < finishTimestamp)
-            .collect(Collectors.toCollection(HashSet::new));
-    return operations;
-  }
-
-  /**
-   * 从候选集中筛掉有前驱依赖的操作，这些操作不可能在下一个执行，因为要等他们的前驱操作执行完 具体有没有前驱依赖查询邻接表
-   *
-   * @param operations candidate operation ids
-   * @return operation ids that has not front dependency
-   */
-  private Set<String> getNotDependOperationId(Set<OperationTrace> operations) {
-    HashSet<String> notDependOperationIds = new HashSet<>();
-
-    for (OperationTrace op : operations) {
-      if (!operationDependencies.containsKey(op.getOperationID())) {
-        notDependOperationIds.add(op.getOperationID());
-      }
-    }
-    return notDependOperationIds;
-  }
-
   /**
    * 把要执行的操作从邻接表里删掉，表示他们已经被执行完了，不会阻碍后续操作的执行
    *
@@ -262,7 +281,6 @@ public class SequenceDependency {
     // 使用流遍历并过滤符合条件的 entry，即 value_list 不包含 operationIds 中的元素
     Set<String> key_null =
         operationDependencies.entrySet().stream()
-            .parallel()
             .filter(
                 entry -> {
                   List<String> value_list = entry.getValue();
@@ -278,38 +296,6 @@ public class SequenceDependency {
     }
   }
 
-  /**
-   * 把要执行的操作从列表里删掉，表示他们已经被执行完了，不会阻碍后续操作的执行
-   *
-   * @param operationIds 要删除的op id
-   */
-  private void removeOperationTraces(Set<String> operationIds) {
-    // 可能要用迭代器删除(solve)
-    //        operationTraceList.removeIf(operationTrace ->
-    // operationIds.contains(operationTrace.getOperationID()));
-
-    //        operationTraceList.removeIf(operationTrace ->
-    // operationIds.contains(operationTrace.getOperationID()));
-
-    Iterator<OperationTrace> iter = operationTraceList.iterator();
-
-    while (iter.hasNext()) {
-      OperationTrace op = iter.next();
-      if (operationIds.contains(op.getOperationID())) {
-        iter.remove();
-        operationIds.remove(op.getOperationID());
-      }
-      if (operationIds.isEmpty()) {
-        break;
-      }
-    }
-
-    //        operationTraceList = operationTraceList.stream().parallel()
-    //                .filter(operationTrace ->
-    // !operationIds.contains(operationTrace.getOperationID()))
-    //                .collect(Collectors.toList());
-  }
-
   public boolean setOperationListSize(int opSize) {
     if (opSize > operationTraceListRaw.size()) {
       return false;
@@ -3,17 +3,22 @@ package replay.main;
 import static context.OrcaContext.configColl;
 import static context.OrcaContext.ioPath;
 
+import adapter.Adapter;
+import adapter.SnapshotStrategy;
 import ana.buffer.PrivateTraceBuffer;
-import ana.buffer.ShareTraceBufferHeap;
+import ana.buffer.ShareTraceBufferMerge;
 import ana.io.HandlerFactory;
 import ana.main.Config;
 import ana.main.OrcaVerify;
 import ana.output.ErrorStatistics;
 import ana.output.OutputCertificate;
+import ana.output.OutputStructure;
 import ana.thread.AnalysisThread;
 import config.ConfigCollection;
 import context.OrcaContext;
+import context.RunContext;
 import dbloader.transaction.TransactionReplayer;
+import dbloader.util.InitialDataLoader;
 import dbloader.util.QueryExecutor;
 import dbloader.util.SchemaLoader;
 import io.IOPath;
@@ -24,9 +29,17 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import main.Main;
 import main.Orca;
 import org.apache.logging.log4j.LogManager;
@@ -36,8 +49,11 @@ import replay.controller.cascadeDetect.CascadeDelete;
 import replay.controller.executecontrol.ExecuteFilterMutationAbs;
 import replay.controller.executecontrol.ExecutionFilterCropTailTxn;
 import replay.controller.util.ReduceMutationType;
+import trace.MemoryTraceStore;
+import trace.OperationId;
 import trace.OperationTrace;
-import trace.TraceUtil;
+import trace.OperationTraceType;
+import util.collection.LongHashSet;
 import util.jdbc.DataSourceUtils;
 
 public class OrcaReplay {
@@ -50,7 +66,16 @@ public class OrcaReplay {
   private static String sourceDir;
   private static String outputDir;
 
-  private static boolean restore = false;
+  // 数据库重置（快照恢复）的次数与总耗时(ms)，并行验证时各个运行都会累加
+  private static final AtomicInteger resetCount = new AtomicInteger();
+  private static final AtomicLong resetTotalTime = new AtomicLong();
+
+  // 并行验证变异候选时各个worker的运行上下文，及执行它们的线程池
+  private static List<RunContext> workerContexts;
+  private static ExecutorService workerPool;
+
+  // 变异检查结论的缓存，未开启时为null
+  private static VerdictCache verdictCache;
 
   public static void main(String[] args) throws SQLException, InterruptedException, IOException {
     if (args.length == 4) {
@@ -100,6 +125,16 @@ public class OrcaReplay {
       }
     }
 
+    // 回放时执行的SQL在约简过程中不会变化，加载用例时一次算好
+    Adapter adapter = DataSourceUtils.getAdapter();
+    for (List<List<OperationTrace>> thread : allTxn) {
+      for (List<OperationTrace> txn : thread) {
+        for (OperationTrace trace : txn) {
+          TransactionReplayer.getReplaySQL(trace, adapter);
+        }
+      }
+    }
+
     // 清理输出文件夹
     // 重新更新一下序列，运行分析，把依赖啥的都给加上去
     analyseCase();
@@ -111,9 +146,20 @@ public class OrcaReplay {
     ReplayController.getOperationSequence().print();
 
     if (configColl.getReplay().isAnaOnly()) {
+      OutputStructure.close();
       return;
     }
 
+    if (configColl.getReplay().isVerdictCache()) {
+      List<OperationTrace> allOperations = new ArrayList<>();
+      for (List<List<OperationTrace>> thread : allTxn) {
+        for (List<OperationTrace> txn : thread) {
+          allOperations.addAll(txn);
+        }
+      }
+      verdictCache = new VerdictCache(outputDir, allOperations);
+    }
+
     // 开始迭代
     // 1.ExecutionFilterCropTailTxn
     ExecuteFilterMutationAbs filter;
@@ -144,8 +190,22 @@ public class OrcaReplay {
       }
     }
 
+    if (workerPool != null) {
+      workerPool.shutdown();
+      // worker的运行到此结束
+      for (RunContext context : workerContexts) {
+        RunContext.bind(context);
+        try {
+          OutputStructure.close();
+        } finally {
+          RunContext.unbind();
+        }
+      }
+    }
+
     // 执行所有的 allTxn
     checkUtilValid(allTxn);
+    OutputStructure.close();
     //        System.out.printf("Replay:%d/%d%n", bugTrigger, loopNum);
     System.exit(0);
   }
@@ -154,16 +214,23 @@ public class OrcaReplay {
       ExecuteFilterMutationAbs filter, List<List<List<OperationTrace>>> allTxn) {
     filter.initializeWithAllTxn(allTxn);
     ReplayController.addExecuteFilter(filter);
+    if (configColl.getReplay().getParallelism() > 1) {
+      parallelMutation(filter, allTxn);
+      return;
+    }
     boolean CascadeDeleteValid = OrcaContext.configColl.getReplay().isCascadeDeleteValid();
     try {
       while (!filter.isMutationEnd()) {
         filter.mutation();
+        if (filter.isMutationEmpty()) {
+          break;
+        }
         // 处理级联删除
         if (CascadeDeleteValid) {
           CascadeDelete.addIntoCurrentSet(filter.getDeleteOperationTraces());
         }
 
-        int bugTrigger = checkValid(allTxn);
+        int bugTrigger = checkValidCached(allTxn);
         // 如果没触发bug，则回滚当前的mutation，以及级联删除
         if (bugTrigger == 0) {
           filter.revertMutation();
@@ -184,27 +251,159 @@ public class OrcaReplay {
     }
   }
 
+  /**
+   * 并行地验证变异候选。每一批先在主运行中依次模拟parallelism个候选都未触发bug时的变换（变换后回滚），记录每个候选要执行的操作，
+   * 然后在各个worker的数据库上同时验证。第一个触发bug的候选被保留，其后的候选作废，从该候选之前拷贝的状态重新变换，
+   * 因此得到的变换序列与逐个验证时完全一致
+   *
+   * @param filter 已经加入ReplayController的filter
+   * @param allTxn 所有事务
+   */
+  private static void parallelMutation(
+      ExecuteFilterMutationAbs filter, List<List<List<OperationTrace>>> allTxn) {
+    boolean cascadeDeleteValid = configColl.getReplay().isCascadeDeleteValid();
+    int parallelism = configColl.getReplay().getParallelism();
+    try {
+      if (workerContexts == null) {
+        initWorkers(parallelism);
+      }
+      while (!filter.isMutationEnd()) {
+        // 每个候选变换之前的状态
+        List<ExecuteFilterMutationAbs> filterCopies = new ArrayList<>();
+        List<LongHashSet> cascadeCopies = new ArrayList<>();
+        List<Map<String, Set<String>>> dependEdgeCopies = new ArrayList<>();
+        // 每个候选需要执行的操作
+        List<Set<String>> candidates = new ArrayList<>();
+
+        while (candidates.size() < parallelism && !filter.isMutationEnd()) {
+          filterCopies.add(filter.copy());
+          if (cascadeDeleteValid) {
+            cascadeCopies.add(CascadeDelete.snapshotHistory());
+            dependEdgeCopies.add(ReplayController.getVersionOperationGraph().snapshotDependEdge());
+          }
+
+          filter.mutation();
+          if (filter.isMutationEmpty()) {
+            // 没有新的候选，丢掉为它拷贝的状态
+            filterCopies.remove(filterCopies.size() - 1);
+            if (cascadeDeleteValid) {
+              cascadeCopies.remove(cascadeCopies.size() - 1);
+              dependEdgeCopies.remove(dependEdgeCopies.size() - 1);
+            }
+            break;
+          }
+          if (cascadeDeleteValid) {
+            CascadeDelete.addIntoCurrentSet(filter.getDeleteOperationTraces());
+          }
+          candidates.add(getExecutedOpID());
+
+          // 假设该候选没有触发bug，继续产生下一个候选
+          filter.revertMutation();
+          if (cascadeDeleteValid) {
+            CascadeDelete.clearNewSet();
+            CascadeDelete.addIntoHistory();
+          }
+          ReplayController.cleanMeaningless();
+        }
+
+        if (candidates.isEmpty()) {
+          break;
+        }
+        int bugCandidate = checkValidParallel(candidates, allTxn);
+        logger.info(
+            String.format(
+                "Checked %d mutation candidates in parallel, first bug candidate: %d",
+                candidates.size(), bugCandidate));
+        if (bugCandidate >= 0) {
+          // 回退到该候选变换之前的状态，重新变换并保留
+          ExecuteFilterMutationAbs restored = filterCopies.get(bugCandidate);
+          ReplayController.replaceExecuteFilter(filter, restored);
+          filter = restored;
+          if (cascadeDeleteValid) {
+            CascadeDelete.restoreHistory(cascadeCopies.get(bugCandidate));
+            ReplayController.getVersionOperationGraph()
+                .restoreDependEdge(dependEdgeCopies.get(bugCandidate));
+          }
+
+          filter.mutation();
+          if (cascadeDeleteValid) {
+            CascadeDelete.addIntoCurrentSet(filter.getDeleteOperationTraces());
+            CascadeDelete.addIntoHistory();
+          }
+          ReplayController.cleanMeaningless();
+        }
+        printMutationResult(allTxn);
+      }
+    } catch (Exception e) {
+      logger.error(e);
+    }
+  }
+
+  /**
+   * 为每个worker创建运行上下文，第i个worker使用parallelUrls中的第i个URL，未配置时使用原数据库名加上_p<i>的数据库
+   *
+   * @param parallelism worker数量
+   */
+  private static void initWorkers(int parallelism) {
+    List<String> parallelUrls = configColl.getReplay().getParallelUrls();
+    String url = configColl.getDatasource().getUrl();
+    workerContexts = new ArrayList<>();
+    for (int i = 0; i < parallelism; i++) {
+      String workerUrl;
+      if (parallelUrls != null && i < parallelUrls.size()) {
+        workerUrl = parallelUrls.get(i);
+      } else {
+        workerUrl =
+            url.substring(0, url.lastIndexOf("/") + 1)
+                + dbName
+                + "_p"
+                + i
+                + url.substring(url.indexOf("?"));
+      }
+      RunContext context = new RunContext("parallel-" + i);
+      context.setJdbcUrl(workerUrl);
+      context.setDbName(
+          workerUrl.substring(workerUrl.lastIndexOf("/") + 1, workerUrl.indexOf("?")));
+      context.setOutputDir(configDir, outputDir + "/parallel-" + i);
+      workerContexts.add(context);
+    }
+    workerPool = Executors.newFixedThreadPool(parallelism);
+  }
+
+  /**
+   * 当前所有filter与级联删除下需要执行的操作
+   *
+   * @return 需要执行的操作id
+   */
+  private static Set<String> getExecutedOpID() {
+    Set<String> opSet = new HashSet<>();
+    for (OperationTrace op : ReplayController.getExecutedOperations()) {
+      opSet.add(op.getOperationID());
+    }
+    return opSet;
+  }
+
   private static void printMutationResult(List<List<List<OperationTrace>>> allTxns) {
     Set<String> opSet = new HashSet<>();
     Set<String> txnSet = new HashSet<>();
     // 在输出结果前清理一下无意义的操作，也即没有实际操作的事务
     ReplayController.cropMeaninglessOp();
 
-    for (List<List<OperationTrace>> thread : allTxns) {
-      for (List<OperationTrace> txn : thread) {
-        for (OperationTrace op : txn) {
-          if (ReplayController.isExecute(op.getOperationID())) {
-            opSet.add(op.getOperationID());
-            txnSet.add(op.getTransactionID());
-          }
-        }
-      }
+    for (OperationTrace op : ReplayController.getExecutedOperations()) {
+      opSet.add(op.getOperationID());
+      txnSet.add(op.getTransactionID());
     }
     String filterName = ReplayController.getLastFilterClassName();
     logger.info(
         String.format(
             "End Mutation %s , with %d transactions and %d operations.",
             filterName, txnSet.size(), opSet.size()));
+    if (resetCount.get() > 0) {
+      logger.info(
+          String.format(
+              "Database reset %d times, total %d ms, average %d ms.",
+              resetCount.get(), resetTotalTime.get(), resetTotalTime.get() / resetCount.get()));
+    }
   }
 
   private static int checkValid(List<List<List<OperationTrace>>> allTxn)
@@ -215,20 +414,143 @@ public class OrcaReplay {
     List<String> schema = IOUtils.readString(sourceDir + "/schema/schema.sql");
     List<String> insertList = IOUtils.readString(sourceDir + "/init_data/dataInsert.sql");
 
-    int bugTrigger = 0;
     // 重定位
     Config.initialize(dbType, outputDir, outputDir, "start", false);
+    // 变异检查的中间结果不需要落盘，回放的trace直接在内存中交给分析
+    MemoryTraceStore.setActive(
+        configColl.getReplay().isInMemoryTrace() && !configColl.getReplay().isAnaOnly());
+    int bugTrigger = replayAndAnalyse(schema, insertList, allTxn);
+    MemoryTraceStore.setActive(false);
+    MemoryTraceStore.clear();
+    return bugTrigger;
+  }
+
+  /**
+   * 先查变异结论缓存，检查过的操作集合直接使用之前的结论，否则回放验证并记录结论
+   *
+   * @param allTxn 所有事务
+   * @return 触发bug的次数
+   */
+  private static int checkValidCached(List<List<List<OperationTrace>>> allTxn)
+      throws IOException, SQLException, InterruptedException {
+    if (verdictCache == null) {
+      return checkValid(allTxn);
+    }
+    // 指纹与之后的回放共用同一个执行计划
+    ReplayController.compileExecutePlan();
+    try {
+      String fingerprint = VerdictCache.fingerprint(ReplayController.getExecutedOperations());
+      Boolean bug = verdictCache.get(fingerprint);
+      if (bug != null) {
+        logger.info("Mutation verdict found in cache, skip replay: " + (bug ? "bug" : "no bug"));
+        return bug ? 1 : 0;
+      }
+      int bugTrigger = checkValid(allTxn);
+      verdictCache.put(fingerprint, bugTrigger > 0);
+      return bugTrigger;
+    } finally {
+      ReplayController.clearExecutePlan();
+    }
+  }
+
+  /**
+   * 在各个worker上同时验证一批变异候选
+   *
+   * @param candidates 每个候选需要执行的操作
+   * @param allTxn 所有事务
+   * @return 第一个触发bug的候选下标，都没有触发时返回-1
+   */
+  private static int checkValidParallel(
+      List<Set<String>> candidates, List<List<List<OperationTrace>>> allTxn)
+      throws IOException, InterruptedException, ExecutionException {
+    logger.info("Reading ObjectCollection ...");
+
+    List<String> schema = IOUtils.readString(sourceDir + "/schema/schema.sql");
+    List<String> insertList = IOUtils.readString(sourceDir + "/init_data/dataInsert.sql");
+
+    // 重定位，Config为所有运行共享，必须在worker开始前完成
+    Config.initialize(dbType, outputDir, outputDir, "start", false);
+    MemoryTraceStore.setActive(
+        configColl.getReplay().isInMemoryTrace() && !configColl.getReplay().isAnaOnly());
+
+    // 缓存中已有结论的候选不需要回放，某个候选已知触发bug时，它之后的候选都会作废，也不需要回放
+    List<String> fingerprints = new ArrayList<>();
+    List<Boolean> verdicts = new ArrayList<>();
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int i = 0; i < candidates.size(); i++) {
+      Boolean bug = null;
+      if (verdictCache != null) {
+        fingerprints.add(VerdictCache.fingerprintOfIds(candidates.get(i)));
+        bug = verdictCache.get(fingerprints.get(i));
+      }
+      verdicts.add(bug);
+      if (bug != null) {
+        results.add(null);
+        if (bug) {
+          break;
+        }
+        continue;
+      }
+
+      RunContext context = workerContexts.get(i);
+      ReplayController.initReplica(context, candidates.get(i));
+      results.add(
+          workerPool.submit(
+              () -> {
+                RunContext.bind(context);
+                try {
+                  return replayAndAnalyse(schema, insertList, allTxn);
+                } finally {
+                  MemoryTraceStore.clear();
+                  RunContext.unbind();
+                }
+              }));
+    }
+
+    int bugCandidate = -1;
+    for (int i = 0; i < results.size(); i++) {
+      boolean bug;
+      if (results.get(i) == null) {
+        bug = verdicts.get(i);
+      } else {
+        bug = results.get(i).get() > 0;
+        if (verdictCache != null) {
+          verdictCache.put(fingerprints.get(i), bug);
+        }
+      }
+      if (bug && bugCandidate < 0) {
+        bugCandidate = i;
+      }
+    }
+    MemoryTraceStore.setActive(false);
+    return bugCandidate;
+  }
+
+  /**
+   * 在当前运行的数据库上回放并分析loopNum次
+   *
+   * @return 触发bug的次数
+   */
+  private static int replayAndAnalyse(
+      List<String> schema, List<String> insertList, List<List<List<OperationTrace>>> allTxn)
+      throws IOException, SQLException, InterruptedException {
+    int bugTrigger = 0;
     for (int i = 0; i < loopNum; ++i) {
 
       ReplayController.reset();
-      ErrorStatistics.triggerBug = false;
+      ErrorStatistics.setTriggerBug(false);
 
       if (!configColl.getReplay().isAnaOnly()) {
-        OrcaContext.ioPath.cleanForReload();
+        MemoryTraceStore.clear();
+        RunContext.current().getIoPath().cleanForReload();
+        if (configColl.getReplay().isPipelinedAnalysis() && MemoryTraceStore.isActive()) {
+          bugTrigger += pipelineCase(schema, insertList, allTxn) ? 1 : 0;
+          continue;
+        }
         runCase(schema, insertList, allTxn);
       }
 
-      if (ErrorStatistics.triggerBug) {
+      if (ErrorStatistics.isTriggerBug()) {
         bugTrigger++;
       } else {
         analyseCase();
@@ -251,13 +573,15 @@ public class OrcaReplay {
 
     // 重定位
     Config.initialize(dbType, outputDir, outputDir, "first", false);
+    // 最终的最小化用例需要完整地落盘
+    MemoryTraceStore.setActive(false);
     for (int i = 0; i < configColl.getReplay().getLoopNumber(); i++) {
       ReplayController.reset();
 
       OrcaContext.ioPath.cleanForReload();
       runCase(schema, insertList, allTxn);
 
-      if (ErrorStatistics.triggerBug) {
+      if (ErrorStatistics.isTriggerBug()) {
         break;
       } else {
         analyseCase();
@@ -277,14 +601,96 @@ public class OrcaReplay {
     ReplayController.printFinalSequence();
   }
 
+  /**
+   * 边回放边分析：回放线程每完成一个事务就把trace交给并行的分析线程，分析出与原始错误（见
+   * ErrorStatistics.pinError）相同的错误时立即终止回放，取消正在执行的语句，并放行所有按序列等待的操作
+   *
+   * @return 是否触发了bug
+   */
+  private static boolean pipelineCase(
+      List<String> schema, List<String> insertList, List<List<List<OperationTrace>>> allTxns)
+      throws IOException, SQLException, InterruptedException {
+    List<TransactionReplayer> loaderList = new CopyOnWriteArrayList<>();
+    MemoryTraceStore.openStreams(configColl.getLoader().getNumberOfLoader());
+    ErrorStatistics.setSameErrorListener(
+        () -> {
+          if (!ReplayController.isAborted()) {
+            logger.info("The pinned error is reproduced, abort the replay");
+            ReplayController.abort();
+            loaderList.forEach(TransactionReplayer::cancel);
+            AnalysisThread.stop();
+          }
+        });
+
+    // 分析线程继承当前的运行，与回放线程共享同一套状态
+    Throwable[] analysisError = new Throwable[1];
+    Thread analysisThread =
+        new Thread(
+            () -> {
+              try {
+                analyseCase();
+              } catch (Throwable e) {
+                analysisError[0] = e;
+              }
+            });
+    analysisThread.start();
+    try {
+      runCase(schema, insertList, allTxns, loaderList);
+    } finally {
+      // 回放异常结束时loader可能没有关闭自己的trace流
+      MemoryTraceStore.closeStreams();
+      analysisThread.join();
+      ErrorStatistics.setSameErrorListener(null);
+    }
+
+    if (analysisError[0] instanceof IOException) {
+      throw (IOException) analysisError[0];
+    } else if (analysisError[0] != null) {
+      throw new RuntimeException(analysisError[0]);
+    }
+    return ErrorStatistics.isTriggerBug() || ErrorStatistics.hasError();
+  }
+
   private static void runCase(
       List<String> schema, List<String> insertList, List<List<List<OperationTrace>>> allTxns)
       throws SQLException, InterruptedException {
-    loadData2DB(dbType, dbName, schema, insertList);
+    runCase(schema, insertList, allTxns, new ArrayList<>());
+  }
+
+  /**
+   * 回放一次用例
+   *
+   * @param loaderList 用于存放创建的事务加载器
+   */
+  private static void runCase(
+      List<String> schema,
+      List<String> insertList,
+      List<List<List<OperationTrace>>> allTxns,
+      List<TransactionReplayer> loaderList)
+      throws SQLException, InterruptedException {
+    // 回放期间filter不再变换，先算好每个操作是否执行，回放线程直接查表；调用方已经算好时直接沿用
+    boolean compiled = ReplayController.ensureExecutePlan();
+    try {
+      replayCase(schema, insertList, allTxns, loaderList);
+    } finally {
+      if (compiled) {
+        ReplayController.clearExecutePlan();
+      }
+    }
+  }
+
+  private static void replayCase(
+      List<String> schema,
+      List<String> insertList,
+      List<List<List<OperationTrace>>> allTxns,
+      List<TransactionReplayer> loaderList)
+      throws SQLException, InterruptedException {
+    String runDbName = RunContext.current().getDbName();
+    loadData2DB(
+        dbType, runDbName == null ? dbName : runDbName, schema, insertList, containsDDL(allTxns));
 
     // 创建事务加载器
     logger.info("Creating transaction loaders......");
-    List<TransactionReplayer> loaderList = new ArrayList<>();
 
     // 用于主线程等待子线程结束
     CountDownLatch countDownLatch = new CountDownLatch(configColl.getLoader().getNumberOfLoader());
@@ -292,6 +698,7 @@ public class OrcaReplay {
     // 创建事务加载器
     for (int loaderId = 0; loaderId < configColl.getLoader().getNumberOfLoader(); loaderId++) {
       if (allTxns.get(loaderId).isEmpty()) {
+        MemoryTraceStore.closeStream(loaderId);
         continue;
       }
       TransactionReplayer transactionReplayer =
@@ -322,51 +729,85 @@ public class OrcaReplay {
     QueryExecutor.executor.shutdownNow();
   }
 
+  /**
+   * 将数据库置为初始状态：第一次导入schema和初始数据并保存快照，之后都从快照恢复
+   *
+   * @param schemaChanged 回放的用例是否包含DDL，不包含时快照策略可以只恢复数据
+   */
   public static void loadData2DB(
-      String dbType, String dbName, List<String> schema, List<String> insertList)
+      String dbType,
+      String dbName,
+      List<String> schema,
+      List<String> insertList,
+      boolean schemaChanged)
       throws SQLException {
-    // 将schema导入数据库中
-    logger.info(String.format("Loading schema to database: %s-%s", dbType, dbName));
-    SchemaLoader.loadToDB(dbName, schema);
-
     Set<String> tableList = new HashSet<>();
     for (String sql : schema) {
       String tableName = sql.split(" ")[2];
       tableList.add(tableName);
     }
 
-    if (restore) {
-      logger.info(String.format("Restore data to database: %s-%s", dbType, dbName));
-      SchemaLoader.restoreDB(dbName, tableList);
+    SnapshotStrategy snapshotStrategy = DataSourceUtils.getAdapter().getSnapshotStrategy();
+    RunContext context = RunContext.current();
+    if (context.isSnapshotSaved()) {
+      logger.info(
+          String.format(
+              "Restore data to database: %s-%s with %s",
+              dbType, dbName, snapshotStrategy.getClass().getSimpleName()));
+      long startTS = System.currentTimeMillis();
+      snapshotStrategy.restore(dbName, tableList, schema, schemaChanged);
+      long resetTime = System.currentTimeMillis() - startTS;
+      resetCount.incrementAndGet();
+      resetTotalTime.addAndGet(resetTime);
+      logger.info(String.format("Database reset in %d ms", resetTime));
     } else {
+      // 将schema导入数据库中
+      logger.info(String.format("Loading schema to database: %s-%s", dbType, dbName));
+      SchemaLoader.loadToDB(dbName, schema);
+
       // 数据导入数据库
       logger.info(String.format("Loading initial data to database: %s-%s", dbType, dbName));
-      DataSourceUtils.loadInertList(insertList);
+      InitialDataLoader.loadInsertList(schema, insertList);
 
-      SchemaLoader.copyDB(dbName, tableList, schema);
-      restore = true;
+      snapshotStrategy.save(dbName, tableList);
+      context.setSnapshotSaved(true);
+    }
+  }
+
+  private static boolean containsDDL(List<List<List<OperationTrace>>> allTxns) {
+    for (List<List<OperationTrace>> thread : allTxns) {
+      for (List<OperationTrace> txn : thread) {
+        for (OperationTrace op : txn) {
+          if (op.getOperationTraceType() == OperationTraceType.DDL) {
+            return true;
+          }
+        }
+      }
     }
+    return false;
   }
 
   private static void analyseCase() throws IOException {
     HandlerFactory.initialize();
 
-    OrcaVerify.shareTraceBuffer = new ShareTraceBufferHeap();
+    OrcaVerify.setShareTraceBuffer(new ShareTraceBufferMerge());
 
     // output
     ErrorStatistics.initialize();
     OutputCertificate.initialize();
+    OutputStructure.setLevel(configColl.getReplay().getStructureOutputLevel());
     // analysis
     AnalysisThread.initialize(Config.adapter);
 
     // 3.启动分析线程
-    OrcaVerify.analysisThread = new AnalysisThread();
-    OrcaVerify.analysisThread.run();
+    OrcaVerify.setAnalysisThread(new AnalysisThread());
+    OrcaVerify.getAnalysisThread().run();
     //    new Thread(new PerformanceStatisticThread()).start();
+    OutputStructure.flush();
 
     ErrorStatistics.outputStatistics();
 
-    OrcaContext.ioPath.copyTraceDir();
+    RunContext.current().getIoPath().copyTraceDir();
   }
 
   /**
@@ -385,7 +826,7 @@ public class OrcaReplay {
     while (operationTrace != null) {
 
       while (operationTrace != null
-          && TraceUtil.getTxnIdFromOpId(operationTrace.getTransactionID()) == transactionId) {
+          && OperationId.txnOf(operationTrace.getPackedOperationID()) == transactionId) {
         operationTraceList.add(operationTrace);
         operationTrace = privateTraceBuffer.removeTrace();
       }
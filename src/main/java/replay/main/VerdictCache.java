@@ -0,0 +1,141 @@
+package replay.main;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import trace.OperationId;
+import trace.OperationTrace;
+
+/**
+ * 变异检查结论的缓存。回放的结果只取决于实际执行的操作集合（所有filter和级联删除作用之后），
+ * 约简过程中经常会遇到已经检查过的操作集合，此时直接使用之前的结论，省去一次数据库重置和回放
+ *
+ * <p>key为操作集合的指纹（压缩操作id排序后的128位哈希），结论追加写入输出目录下的文件，重新开始的约简可以复用。
+ * 文件第一行记录原始用例全部操作的指纹，与当前用例不一致时丢弃旧的结论
+ */
+public class VerdictCache {
+  private static final Logger logger = LogManager.getLogger(VerdictCache.class);
+
+  public static final String FILE_NAME = "verdict_cache.txt";
+
+  private static final String HEADER = "# source ";
+
+  private final File file;
+
+  /** key:操作集合的指纹 value:是否触发bug */
+  private final Map<String, Boolean> verdicts = new HashMap<>();
+
+  /**
+   * 从输出目录中加载已有的结论
+   *
+   * @param outputDir 输出目录
+   * @param allOperations 原始用例的全部操作，用于判断已有的结论是否属于同一个用例
+   */
+  public VerdictCache(String outputDir, Collection<OperationTrace> allOperations)
+      throws IOException {
+    this.file = new File(outputDir, FILE_NAME);
+    String header = HEADER + fingerprint(allOperations);
+
+    if (file.exists()) {
+      List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+      if (!lines.isEmpty() && lines.get(0).equals(header)) {
+        for (String line : lines.subList(1, lines.size())) {
+          String[] fields = line.split(",");
+          if (fields.length == 2) {
+            verdicts.put(fields[0], fields[1].equals("1"));
+          }
+        }
+        logger.info(String.format("Loaded %d mutation verdicts from %s", verdicts.size(), file));
+        return;
+      }
+    }
+    Files.write(file.toPath(), Arrays.asList(header), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 获取操作集合的指纹，与操作的顺序无关
+   *
+   * @param operations 需要执行的操作
+   * @return 指纹
+   */
+  public static String fingerprint(Collection<OperationTrace> operations) {
+    long[] keys = new long[operations.size()];
+    int i = 0;
+    for (OperationTrace operation : operations) {
+      keys[i++] = operation.getPackedOperationID();
+    }
+    return fingerprint(keys);
+  }
+
+  /**
+   * 获取操作集合的指纹，与fingerprint(Collection)对同一个集合的结果相同
+   *
+   * @param operationIds 需要执行的操作id
+   * @return 指纹
+   */
+  public static String fingerprintOfIds(Collection<String> operationIds) {
+    long[] keys = new long[operationIds.size()];
+    int i = 0;
+    for (String operationId : operationIds) {
+      keys[i++] = OperationId.parse(operationId);
+    }
+    return fingerprint(keys);
+  }
+
+  private static String fingerprint(long[] keys) {
+    Arrays.sort(keys);
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    hasher.putInt(keys.length);
+    for (long key : keys) {
+      hasher.putLong(key);
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * 查询操作集合的结论
+   *
+   * @param fingerprint 操作集合的指纹
+   * @return 是否触发bug，没有检查过时返回null
+   */
+  public Boolean get(String fingerprint) {
+    return verdicts.get(fingerprint);
+  }
+
+  /**
+   * 记录一个新的结论并追加到文件中
+   *
+   * @param fingerprint 操作集合的指纹
+   * @param bug 是否触发bug
+   */
+  public void put(String fingerprint, boolean bug) {
+    if (verdicts.put(fingerprint, bug) != null) {
+      return;
+    }
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(
+            file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+      writer.write(fingerprint + "," + (bug ? "1" : "0"));
+      writer.newLine();
+    } catch (IOException e) {
+      // 写不进文件只影响之后重新开始的约简，本次仍然使用内存中的结论
+      logger.warn(e);
+    }
+  }
+
+  public int size() {
+    return verdicts.size();
+  }
+}
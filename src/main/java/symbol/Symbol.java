@@ -30,4 +30,6 @@ public class Symbol {
   public static final String TABLE_ATTRIBUTE_NAME_LINKER = "_";
 
   public static final String TRACE_EXTENSION = "json";
+
+  public static final String BINARY_TRACE_EXTENSION = "trc";
 }
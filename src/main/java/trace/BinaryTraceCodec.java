@@ -0,0 +1,600 @@
+package trace;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制trace的流式编解码器，一个实例对应一个trace文件，编码和解码时都要按文件中记录的顺序使用
+ *
+ * <p>文件格式：MAGIC + 若干条记录，每条记录为 varint(长度) + 内容。 表名、列名、线程id、异常信息等重复度高的字符串使用文件内字典编码，首次出现时内联字符串；
+ * 时间戳相对上一条记录的开始时间做zigzag差分后变长编码；形如 threadID,txn,op 的操作id只记录线程id和两个整数；
+ * 可读时间字符串如果能由毫秒时间戳还原，则只记录一个标志位
+ */
+public class BinaryTraceCodec {
+
+  /** 二进制trace文件头 */
+  public static final byte[] MAGIC = {'O', 'R', 'C', 'A', 'T', 'R', 'C', '1'};
+
+  // 记录内各字段的存在位
+  private static final int TRACE_FILE = 0;
+  private static final int THREAD_ID = 1;
+  private static final int TRANSACTION_ID = 2;
+  private static final int OPERATION_ID = 3;
+  private static final int SQL = 4;
+  private static final int OPERATION_TRACE_TYPE = 5;
+  private static final int BEFORE_LOAD_TS = 6;
+  private static final int START_TS = 7;
+  private static final int FINISH_TS = 8;
+  private static final int BEFORE_LOAD_MILLS = 9;
+  private static final int START_MILLS = 10;
+  private static final int FINISH_MILLS = 11;
+  private static final int BEFORE_LOAD_READABLE = 12;
+  private static final int START_READABLE = 13;
+  private static final int FINISH_READABLE = 14;
+  private static final int ISOLATION_LEVEL = 15;
+  private static final int EXCEPTION = 16;
+  private static final int PREDICATE_LOCK = 17;
+  private static final int TRACE_LOCK_MODE = 18;
+  private static final int READ_MODE = 19;
+  private static final int READ_TUPLE_LIST = 20;
+  private static final int WRITE_TUPLE_LIST = 21;
+  private static final int SAVEPOINT = 22;
+  private static final int IS_WHERE_VALID = 23;
+  private static final int IS_WHERE_VALID_VALUE = 24;
+  private static final int COMPACT_ID = 25;
+  private static final int BEFORE_LOAD_DERIVED = 26;
+  private static final int START_DERIVED = 27;
+  private static final int FINISH_DERIVED = 28;
+
+  // TupleTrace内各字段的存在位
+  private static final int TUPLE_TABLE = 0;
+  private static final int TUPLE_PRIMARY_KEY = 1;
+  private static final int TUPLE_VALUE_MAP = 2;
+  private static final int TUPLE_REAL_VALUE_MAP = 3;
+
+  /** 编码端的字典 <字符串, 编号> */
+  private final Map<String, Integer> dictionary = new HashMap<>();
+
+  /** 解码端的字典，下标即编号 */
+  private final List<String> entries = new ArrayList<>();
+
+  /** 上一条记录的开始时间戳，用于差分编码 */
+  private long lastTimestamp = 0;
+
+  private long lastMills = 0;
+
+  /** 可读时间字符串的格式与 DatetimeUtil 保持一致，每个编解码器独占一个实例以避免线程安全问题 */
+  private final DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+  private byte[] buffer = new byte[1024];
+  private int position = 0;
+
+  /**
+   * 写入文件头
+   *
+   * @param out 输出流
+   */
+  public static void writeHeader(OutputStream out) throws IOException {
+    out.write(MAGIC);
+  }
+
+  /**
+   * 判断文件头是否为二进制trace
+   *
+   * @param header 文件开头的字节，至少为MAGIC的长度
+   * @return 是否为二进制trace
+   */
+  public static boolean isBinary(byte[] header) {
+    return header.length >= MAGIC.length
+        && Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC);
+  }
+
+  /**
+   * 编码一条trace并以长度前缀的形式写入输出流
+   *
+   * @param trace 需要编码的trace
+   * @param out 输出流
+   */
+  public void write(OperationTrace trace, OutputStream out) throws IOException {
+    position = 0;
+    encode(trace);
+
+    // 长度前缀
+    long length = position;
+    while ((length & ~0x7FL) != 0) {
+      out.write((int) ((length & 0x7F) | 0x80));
+      length >>>= 7;
+    }
+    out.write((int) length);
+    out.write(buffer, 0, position);
+  }
+
+  /**
+   * 从输入流中读取并解码下一条trace
+   *
+   * @param in 输入流
+   * @return trace，如果已经读到文件末尾，返回null
+   */
+  public OperationTrace read(InputStream in) throws IOException {
+    long length = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.read();
+      if (b < 0) {
+        if (shift == 0) {
+          return null;
+        }
+        throw new EOFException("truncated binary trace record");
+      }
+      length |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+
+    // 解码出的字符串都是新建的，因此可以复用缓冲区
+    position = 0;
+    ensureCapacity((int) length);
+    int read = 0;
+    while (read < length) {
+      int n = in.read(buffer, read, (int) length - read);
+      if (n < 0) {
+        throw new EOFException("truncated binary trace record");
+      }
+      read += n;
+    }
+    return decode();
+  }
+
+  private void encode(OperationTrace trace) {
+    long mask = 0;
+    mask |= bit(TRACE_FILE, trace.getTraceFile() != null);
+    mask |= bit(THREAD_ID, trace.getThreadID() != null);
+    mask |= bit(TRANSACTION_ID, trace.getTransactionID() != null);
+    mask |= bit(OPERATION_ID, trace.getOperationID() != null);
+    mask |= bit(SQL, trace.getSql() != null);
+    mask |= bit(OPERATION_TRACE_TYPE, trace.getOperationTraceType() != null);
+    mask |= bit(BEFORE_LOAD_TS, trace.getBeforeLoadTimestamp() != null);
+    mask |= bit(START_TS, trace.getStartTimestamp() != null);
+    mask |= bit(FINISH_TS, trace.getFinishTimestamp() != null);
+    mask |= bit(BEFORE_LOAD_MILLS, trace.getBeforeLoadTimestampMills() != null);
+    mask |= bit(START_MILLS, trace.getStartTimestampMills() != null);
+    mask |= bit(FINISH_MILLS, trace.getFinishTimestampMills() != null);
+    mask |=
+        readableMask(
+            trace.getBeforeLoadTimestampMillsHumanReadable(),
+            trace.getBeforeLoadTimestampMills(),
+            BEFORE_LOAD_READABLE,
+            BEFORE_LOAD_DERIVED);
+    mask |=
+        readableMask(
+            trace.getStartTimestampMillsHumanReadable(),
+            trace.getStartTimestampMills(),
+            START_READABLE,
+            START_DERIVED);
+    mask |=
+        readableMask(
+            trace.getFinishTimestampMillsHumanReadable(),
+            trace.getFinishTimestampMills(),
+            FINISH_READABLE,
+            FINISH_DERIVED);
+    mask |= bit(ISOLATION_LEVEL, trace.getIsolationLevel() != null);
+    mask |= bit(EXCEPTION, trace.getException() != null);
+    mask |= bit(PREDICATE_LOCK, trace.getPredicateLock() != null);
+    mask |= bit(TRACE_LOCK_MODE, trace.getTraceLockMode() != null);
+    mask |= bit(READ_MODE, trace.getReadMode() != null);
+    mask |= bit(READ_TUPLE_LIST, trace.getReadTupleList() != null);
+    mask |= bit(WRITE_TUPLE_LIST, trace.getWriteTupleList() != null);
+    mask |= bit(SAVEPOINT, trace.getSavepoint() != null);
+    mask |= bit(IS_WHERE_VALID, trace.getIsWhereValid() != null);
+    mask |= bit(IS_WHERE_VALID_VALUE, Boolean.TRUE.equals(trace.getIsWhereValid()));
+    long[] compactId = compactId(trace);
+    mask |= bit(COMPACT_ID, compactId != null);
+    putVarint(mask);
+
+    if (has(mask, TRACE_FILE)) {
+      putDictionary(trace.getTraceFile());
+    }
+    if (compactId != null) {
+      putDictionary(trace.getThreadID());
+      putVarint(compactId[0]);
+      putVarint(compactId[1]);
+    } else {
+      if (has(mask, THREAD_ID)) {
+        putDictionary(trace.getThreadID());
+      }
+      if (has(mask, TRANSACTION_ID)) {
+        putString(trace.getTransactionID());
+      }
+      if (has(mask, OPERATION_ID)) {
+        putString(trace.getOperationID());
+      }
+    }
+    if (has(mask, SQL)) {
+      putString(trace.getSql());
+    }
+    if (has(mask, OPERATION_TRACE_TYPE)) {
+      putVarint(trace.getOperationTraceType().ordinal());
+    }
+
+    // 纳秒时间戳，开始时间相对上一条记录差分，其余相对本条记录的开始时间差分
+    if (has(mask, START_TS)) {
+      putZigzag(trace.getStartTimestamp() - lastTimestamp);
+      lastTimestamp = trace.getStartTimestamp();
+    }
+    if (has(mask, BEFORE_LOAD_TS)) {
+      putZigzag(trace.getBeforeLoadTimestamp() - lastTimestamp);
+    }
+    if (has(mask, FINISH_TS)) {
+      putZigzag(trace.getFinishTimestamp() - lastTimestamp);
+    }
+    // 毫秒时间戳
+    if (has(mask, START_MILLS)) {
+      putZigzag(trace.getStartTimestampMills() - lastMills);
+      lastMills = trace.getStartTimestampMills();
+    }
+    if (has(mask, BEFORE_LOAD_MILLS)) {
+      putZigzag(trace.getBeforeLoadTimestampMills() - lastMills);
+    }
+    if (has(mask, FINISH_MILLS)) {
+      putZigzag(trace.getFinishTimestampMills() - lastMills);
+    }
+    if (has(mask, BEFORE_LOAD_READABLE)) {
+      putString(trace.getBeforeLoadTimestampMillsHumanReadable());
+    }
+    if (has(mask, START_READABLE)) {
+      putString(trace.getStartTimestampMillsHumanReadable());
+    }
+    if (has(mask, FINISH_READABLE)) {
+      putString(trace.getFinishTimestampMillsHumanReadable());
+    }
+
+    if (has(mask, ISOLATION_LEVEL)) {
+      putVarint(trace.getIsolationLevel().ordinal());
+    }
+    if (has(mask, EXCEPTION)) {
+      putDictionary(trace.getException());
+    }
+    if (has(mask, PREDICATE_LOCK)) {
+      putString(trace.getPredicateLock());
+    }
+    if (has(mask, TRACE_LOCK_MODE)) {
+      putVarint(trace.getTraceLockMode().ordinal());
+    }
+    if (has(mask, READ_MODE)) {
+      putVarint(trace.getReadMode().ordinal());
+    }
+    if (has(mask, READ_TUPLE_LIST)) {
+      putTupleList(trace.getReadTupleList());
+    }
+    if (has(mask, WRITE_TUPLE_LIST)) {
+      putTupleList(trace.getWriteTupleList());
+    }
+    if (has(mask, SAVEPOINT)) {
+      putString(trace.getSavepoint());
+    }
+  }
+
+  private OperationTrace decode() {
+    OperationTrace trace = new OperationTrace();
+    long mask = getVarint();
+
+    if (has(mask, TRACE_FILE)) {
+      trace.setTraceFile(getDictionary());
+    }
+    if (has(mask, COMPACT_ID)) {
+      String threadID = getDictionary();
+      String transactionID = threadID + OperationTrace.LINKER + getVarint();
+      trace.setThreadID(threadID);
+      trace.setTransactionID(transactionID);
+      trace.setOperationID(transactionID + OperationTrace.LINKER + getVarint());
+    } else {
+      if (has(mask, THREAD_ID)) {
+        trace.setThreadID(getDictionary());
+      }
+      if (has(mask, TRANSACTION_ID)) {
+        trace.setTransactionID(getString());
+      }
+      if (has(mask, OPERATION_ID)) {
+        trace.setOperationID(getString());
+      }
+    }
+    if (has(mask, SQL)) {
+      trace.setSql(getString());
+    }
+    if (has(mask, OPERATION_TRACE_TYPE)) {
+      trace.setOperationTraceType(OperationTraceType.values()[(int) getVarint()]);
+    }
+
+    if (has(mask, START_TS)) {
+      lastTimestamp += getZigzag();
+      trace.setStartTimestamp(lastTimestamp);
+    }
+    if (has(mask, BEFORE_LOAD_TS)) {
+      trace.setBeforeLoadTimestamp(lastTimestamp + getZigzag());
+    }
+    if (has(mask, FINISH_TS)) {
+      trace.setFinishTimestamp(lastTimestamp + getZigzag());
+    }
+    if (has(mask, START_MILLS)) {
+      lastMills += getZigzag();
+      trace.setStartTimestampMills(lastMills);
+    }
+    if (has(mask, BEFORE_LOAD_MILLS)) {
+      trace.setBeforeLoadTimestampMills(lastMills + getZigzag());
+    }
+    if (has(mask, FINISH_MILLS)) {
+      trace.setFinishTimestampMills(lastMills + getZigzag());
+    }
+    if (has(mask, BEFORE_LOAD_READABLE)) {
+      trace.setBeforeLoadTimestampMillsHumanReadable(getString());
+    } else if (has(mask, BEFORE_LOAD_DERIVED)) {
+      trace.setBeforeLoadTimestampMillsHumanReadable(
+          df.format(new Date(trace.getBeforeLoadTimestampMills())));
+    }
+    if (has(mask, START_READABLE)) {
+      trace.setStartTimestampMillsHumanReadable(getString());
+    } else if (has(mask, START_DERIVED)) {
+      trace.setStartTimestampMillsHumanReadable(
+          df.format(new Date(trace.getStartTimestampMills())));
+    }
+    if (has(mask, FINISH_READABLE)) {
+      trace.setFinishTimestampMillsHumanReadable(getString());
+    } else if (has(mask, FINISH_DERIVED)) {
+      trace.setFinishTimestampMillsHumanReadable(
+          df.format(new Date(trace.getFinishTimestampMills())));
+    }
+
+    if (has(mask, ISOLATION_LEVEL)) {
+      trace.setIsolationLevel(IsolationLevel.values()[(int) getVarint()]);
+    }
+    if (has(mask, EXCEPTION)) {
+      trace.setException(getDictionary());
+    }
+    if (has(mask, PREDICATE_LOCK)) {
+      trace.setPredicateLock(getString());
+    }
+    if (has(mask, TRACE_LOCK_MODE)) {
+      trace.setTraceLockMode(TraceLockMode.values()[(int) getVarint()]);
+    }
+    if (has(mask, READ_MODE)) {
+      trace.setReadMode(ReadMode.values()[(int) getVarint()]);
+    }
+    if (has(mask, READ_TUPLE_LIST)) {
+      trace.setReadTupleList(getTupleList());
+    }
+    if (has(mask, WRITE_TUPLE_LIST)) {
+      trace.setWriteTupleList(getTupleList());
+    }
+    if (has(mask, SAVEPOINT)) {
+      trace.setSavepoint(getString());
+    }
+    if (has(mask, IS_WHERE_VALID)) {
+      trace.setIsWhereValid(has(mask, IS_WHERE_VALID_VALUE));
+    }
+    return trace;
+  }
+
+  /**
+   * 可读时间字符串能由毫秒时间戳还原时只记录标志位，否则原样记录
+   *
+   * @return 对应的存在位
+   */
+  private long readableMask(String readable, Long mills, int rawBit, int derivedBit) {
+    if (readable == null) {
+      return 0;
+    }
+    if (mills != null && readable.equals(df.format(new Date(mills)))) {
+      return bit(derivedBit, true);
+    }
+    return bit(rawBit, true);
+  }
+
+  /**
+   * 如果操作id满足 threadID,txn,op 的形式，返回 [txn, op]，否则返回null
+   *
+   * @param trace trace
+   * @return 压缩后的事务编号和操作编号
+   */
+  private static long[] compactId(OperationTrace trace) {
+    String threadID = trace.getThreadID();
+    String transactionID = trace.getTransactionID();
+    String operationID = trace.getOperationID();
+    if (threadID == null || transactionID == null || operationID == null) {
+      return null;
+    }
+    String txnPrefix = threadID + OperationTrace.LINKER;
+    if (!transactionID.startsWith(txnPrefix)
+        || !operationID.startsWith(transactionID + OperationTrace.LINKER)) {
+      return null;
+    }
+    String txn = transactionID.substring(txnPrefix.length());
+    String op = operationID.substring(transactionID.length() + OperationTrace.LINKER.length());
+    if (!isCanonicalNumber(txn) || !isCanonicalNumber(op)) {
+      return null;
+    }
+    return new long[] {Long.parseLong(txn), Long.parseLong(op)};
+  }
+
+  private static boolean isCanonicalNumber(String s) {
+    if (s.isEmpty() || s.length() > 18 || (s.length() > 1 && s.charAt(0) == '0')) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (!Character.isDigit(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void putTupleList(List<TupleTrace> tupleList) {
+    putVarint(tupleList.size());
+    for (TupleTrace tuple : tupleList) {
+      int mask = 0;
+      mask |= bit(TUPLE_TABLE, tuple.getTable() != null);
+      mask |= bit(TUPLE_PRIMARY_KEY, tuple.getPrimaryKey() != null);
+      mask |= bit(TUPLE_VALUE_MAP, tuple.getRawValueMap() != null);
+      mask |= bit(TUPLE_REAL_VALUE_MAP, tuple.getRealValueMap() != null);
+      putVarint(mask);
+      if (has(mask, TUPLE_TABLE)) {
+        putDictionary(tuple.getTable());
+      }
+      if (has(mask, TUPLE_PRIMARY_KEY)) {
+        putString(tuple.getPrimaryKey());
+      }
+      if (has(mask, TUPLE_VALUE_MAP)) {
+        putValueMap(tuple.getRawValueMap());
+      }
+      if (has(mask, TUPLE_REAL_VALUE_MAP)) {
+        putValueMap(tuple.getRealValueMap());
+      }
+    }
+  }
+
+  private List<TupleTrace> getTupleList() {
+    int size = (int) getVarint();
+    List<TupleTrace> tupleList = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      long mask = getVarint();
+      String table = has(mask, TUPLE_TABLE) ? getDictionary() : null;
+      String primaryKey = has(mask, TUPLE_PRIMARY_KEY) ? getString() : null;
+      Map<String, String> valueMap = has(mask, TUPLE_VALUE_MAP) ? getValueMap() : null;
+      Map<String, String> realValueMap = has(mask, TUPLE_REAL_VALUE_MAP) ? getValueMap() : null;
+      tupleList.add(new TupleTrace(table, primaryKey, valueMap, realValueMap));
+    }
+    return tupleList;
+  }
+
+  private void putValueMap(Map<String, String> valueMap) {
+    putVarint(valueMap.size());
+    for (Map.Entry<String, String> entry : valueMap.entrySet()) {
+      putDictionary(entry.getKey());
+      putNullableString(entry.getValue());
+    }
+  }
+
+  private Map<String, String> getValueMap() {
+    int size = (int) getVarint();
+    Map<String, String> valueMap = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      String column = getDictionary();
+      valueMap.put(column, getNullableString());
+    }
+    return valueMap;
+  }
+
+  /** 字典编码：已有的字符串只写编号，新字符串写入新编号后内联字符串 */
+  private void putDictionary(String s) {
+    Integer id = dictionary.get(s);
+    if (id != null) {
+      putVarint(id);
+      return;
+    }
+    id = dictionary.size();
+    dictionary.put(s, id);
+    putVarint(id);
+    putString(s);
+  }
+
+  private String getDictionary() {
+    int id = (int) getVarint();
+    if (id == entries.size()) {
+      entries.add(getString());
+    }
+    return entries.get(id);
+  }
+
+  private void putString(String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    putVarint(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private String getString() {
+    int length = (int) getVarint();
+    String s = new String(buffer, position, length, StandardCharsets.UTF_8);
+    position += length;
+    return s;
+  }
+
+  /** 长度加一编码，0表示null */
+  private void putNullableString(String s) {
+    if (s == null) {
+      putVarint(0);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    putVarint(bytes.length + 1L);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private String getNullableString() {
+    int length = (int) getVarint();
+    if (length == 0) {
+      return null;
+    }
+    String s = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+    position += length - 1;
+    return s;
+  }
+
+  private void putZigzag(long value) {
+    putVarint((value << 1) ^ (value >> 63));
+  }
+
+  private long getZigzag() {
+    long value = getVarint();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private void putVarint(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  private long getVarint() {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer[position++];
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private void ensureCapacity(int length) {
+    if (position + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+    }
+  }
+
+  private static long bit(int index, boolean present) {
+    return present ? 1L << index : 0;
+  }
+
+  private static boolean has(long mask, int index) {
+    return (mask & (1L << index)) != 0;
+  }
+}
@@ -7,11 +7,15 @@ import java.util.List;
 /** 对 TransactionTraceReader 进行一层缓存，可以用于在存在 SavePoint 时过滤掉被回滚的操作 */
 public class BufferedTransactionTraceReader {
 
-  private final TransactionTraceReader reader;
+  private final TraceReader reader;
   private final List<OperationTrace> bufferedTraces = new ArrayList<>();
 
   public BufferedTransactionTraceReader(String src) {
-    reader = new TransactionTraceReader(src);
+    this(new TransactionTraceReader(src));
+  }
+
+  public BufferedTransactionTraceReader(TraceReader reader) {
+    this.reader = reader;
   }
 
   public void begin() throws IOException {
@@ -35,9 +39,9 @@ public class BufferedTransactionTraceReader {
         // 则忽略被回滚的操作
         String savePoint = trace.getSavepoint();
         if (savePoint != null) {
-          int operationSequence = Integer.parseInt(savePoint.split(",")[2]);
+          int operationSequence = OperationId.opOf(OperationId.parse(savePoint));
           bufferedTraces.removeIf(
-              tr -> Integer.parseInt(tr.getOperationID().split(",")[2]) > operationSequence);
+              tr -> OperationId.opOf(tr.getPackedOperationID()) > operationSequence);
         }
         bufferedTraces.add(trace);
         return true;
@@ -0,0 +1,124 @@
+package trace;
+
+import context.OrcaContext;
+import context.RunContext;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 回放与分析之间的内存trace交接区 开启后，TransactionReplayer将每个loader产生的trace列表直接发布到这里，分析端从这里读取，省去JSON的序列化与解析
+ */
+public class MemoryTraceStore {
+
+  /** 是否启用内存交接 */
+  private static volatile boolean active = false;
+
+  /** 每次运行独立的状态，见 RunContext */
+  private static class State {
+    /** <loader id, 该loader回放产生的trace> */
+    private final Map<Integer, List<OperationTrace>> loaderTraces = new ConcurrentHashMap<>();
+
+    /** <loader id, 该loader正在产生的trace流>，只有边回放边分析时才不为空 */
+    private final Map<Integer, TraceStream> streams = new ConcurrentHashMap<>();
+  }
+
+  private static State state() {
+    return RunContext.current().getState(State.class, State::new);
+  }
+
+  public static boolean isActive() {
+    return active;
+  }
+
+  public static void setActive(boolean active) {
+    MemoryTraceStore.active = active;
+  }
+
+  /**
+   * 发布一个loader回放产生的全部trace，与TransactionTraceWriter写文件时的处理保持一致
+   *
+   * @param loaderId loader id，即线程id
+   * @param traces 按执行顺序排列的trace
+   * @param traceDest 该loader对应的trace文件前缀，用于填充traceFile
+   */
+  public static void publish(int loaderId, List<OperationTrace> traces, String traceDest) {
+    prepare(traces, traceDest);
+    state().loaderTraces.put(loaderId, traces);
+  }
+
+  private static void prepare(List<OperationTrace> traces, String traceDest) {
+    boolean clearDebugInfo = OrcaContext.configColl.getLoader().isClearDebugInfo();
+    for (OperationTrace trace : traces) {
+      if (clearDebugInfo) {
+        trace.clearDebugInfo();
+      }
+      trace.setTraceFile(traceDest);
+    }
+  }
+
+  /**
+   * 为每个loader打开一个trace流，之后分析端从流中读取，不再等待publish
+   *
+   * @param numberOfLoader loader的数量
+   */
+  public static void openStreams(int numberOfLoader) {
+    for (int loaderId = 0; loaderId < numberOfLoader; loaderId++) {
+      state().streams.put(loaderId, new TraceStream());
+    }
+  }
+
+  public static boolean isStreaming() {
+    return !state().streams.isEmpty();
+  }
+
+  public static TraceStream getStream(int loaderId) {
+    return state().streams.get(loaderId);
+  }
+
+  /**
+   * 追加一个loader新完成的一个事务的trace，没有打开trace流时什么都不做
+   *
+   * @param loaderId loader id
+   * @param traces 该事务按执行顺序排列的trace
+   * @param traceDest 该loader对应的trace文件前缀
+   */
+  public static void append(int loaderId, List<OperationTrace> traces, String traceDest) {
+    TraceStream stream = state().streams.get(loaderId);
+    if (stream != null) {
+      prepare(traces, traceDest);
+      stream.addAll(traces);
+    }
+  }
+
+  /**
+   * 关闭一个loader的trace流，loader结束（包括没有事务或者提前终止）时必须调用，否则分析端会一直等待
+   *
+   * @param loaderId loader id
+   */
+  public static void closeStream(int loaderId) {
+    TraceStream stream = state().streams.get(loaderId);
+    if (stream != null) {
+      stream.close();
+    }
+  }
+
+  public static void closeStreams() {
+    state().streams.values().forEach(TraceStream::close);
+  }
+
+  /**
+   * 获取某个loader的trace，如果该loader没有发布过trace，返回null
+   *
+   * @param loaderId loader id
+   * @return trace列表
+   */
+  public static List<OperationTrace> getTraces(int loaderId) {
+    return state().loaderTraces.get(loaderId);
+  }
+
+  public static void clear() {
+    state().loaderTraces.clear();
+    state().streams.clear();
+  }
+}
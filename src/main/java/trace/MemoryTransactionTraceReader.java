@@ -0,0 +1,35 @@
+package trace;
+
+import java.util.Collections;
+import java.util.List;
+
+/** 从内存中的 OperationTrace 列表流式读取，与 TransactionTraceReader 的读取语义一致 */
+public class MemoryTransactionTraceReader implements TraceReader {
+  private final List<OperationTrace> traces;
+  private int cursor = 0;
+
+  public MemoryTransactionTraceReader(List<OperationTrace> traces) {
+    super();
+    this.traces = traces == null ? Collections.emptyList() : traces;
+  }
+
+  @Override
+  public void begin() {
+    cursor = 0;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return cursor < traces.size();
+  }
+
+  @Override
+  public OperationTrace readOperationTrace() {
+    return traces.get(cursor++);
+  }
+
+  @Override
+  public void end() {
+    cursor = traces.size();
+  }
+}
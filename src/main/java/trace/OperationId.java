@@ -0,0 +1,108 @@
+package trace;
+
+/**
+ * 操作id的压缩形式。trace中的操作id形如 x-x-thread_id,txn_id,op_id，这里把线程、事务、操作三个编号压缩进一个long，
+ * 回放和分析中按id查找、按线程或事务比较时直接使用压缩后的值，避免反复切分字符串。
+ *
+ * <p>与 TraceUtil 一致，线程id只取第一段中最后一个"-"之后的编号；事务id（x-x-thread_id,txn_id）与线程id（x-x-thread_id）
+ * 也可以解析，缺少的编号按0处理，因此事务id解析的结果等于其中任意操作的 txnKey
+ */
+public final class OperationId {
+  private static final int OP_BITS = 20;
+  private static final int TXN_BITS = 27;
+  private static final int THREAD_BITS = 16;
+
+  private static final int TXN_SHIFT = OP_BITS;
+  private static final int THREAD_SHIFT = OP_BITS + TXN_BITS;
+
+  private static final long OP_MASK = (1L << OP_BITS) - 1;
+  private static final long TXN_MASK = (1L << TXN_BITS) - 1;
+  private static final long THREAD_MASK = (1L << THREAD_BITS) - 1;
+
+  private OperationId() {}
+
+  /**
+   * 压缩线程、事务、操作编号
+   *
+   * @param thread 线程编号
+   * @param txn 事务编号
+   * @param op 操作编号
+   * @return 压缩后的操作id
+   */
+  public static long pack(long thread, long txn, long op) {
+    if (thread < 0 || thread > THREAD_MASK || txn < 0 || txn > TXN_MASK || op < 0 || op > OP_MASK) {
+      throw new IllegalArgumentException(
+          String.format("operation id out of range: %d,%d,%d", thread, txn, op));
+    }
+    return (thread << THREAD_SHIFT) | (txn << TXN_SHIFT) | op;
+  }
+
+  /**
+   * 解析操作id、事务id或线程id，只扫描一遍字符串，不产生中间对象
+   *
+   * @param id 字符串形式的id
+   * @return 压缩后的id
+   */
+  public static long parse(String id) {
+    int comma = id.indexOf(',');
+    int threadEnd = comma < 0 ? id.length() : comma;
+    long thread = parseNumber(id, id.lastIndexOf('-', threadEnd - 1) + 1, threadEnd);
+    if (comma < 0) {
+      return pack(thread, 0, 0);
+    }
+    int nextComma = id.indexOf(',', comma + 1);
+    int txnEnd = nextComma < 0 ? id.length() : nextComma;
+    long txn = parseNumber(id, comma + 1, txnEnd);
+    if (nextComma < 0) {
+      return pack(thread, txn, 0);
+    }
+    return pack(thread, txn, parseNumber(id, nextComma + 1, id.length()));
+  }
+
+  private static long parseNumber(String id, int begin, int end) {
+    if (begin >= end || end - begin > 18) {
+      throw new IllegalArgumentException("malformed operation id: " + id);
+    }
+    long value = 0;
+    for (int i = begin; i < end; i++) {
+      char c = id.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("malformed operation id: " + id);
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  public static int threadOf(long id) {
+    return (int) ((id >>> THREAD_SHIFT) & THREAD_MASK);
+  }
+
+  public static int txnOf(long id) {
+    return (int) ((id >>> TXN_SHIFT) & TXN_MASK);
+  }
+
+  public static int opOf(long id) {
+    return (int) (id & OP_MASK);
+  }
+
+  /**
+   * 操作所在事务的压缩id，同一事务中的操作结果相同
+   *
+   * @param id 压缩后的操作id
+   * @return 压缩后的事务id
+   */
+  public static long txnKey(long id) {
+    return id & ~OP_MASK;
+  }
+
+  /**
+   * 操作所在线程的压缩id，同一线程中的操作结果相同
+   *
+   * @param id 压缩后的操作id
+   * @return 压缩后的线程id
+   */
+  public static long threadKey(long id) {
+    return id & (THREAD_MASK << THREAD_SHIFT);
+  }
+}
@@ -4,7 +4,11 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import util.time.DatetimeUtil;
 import util.time.TimestampBase;
 
@@ -30,9 +34,18 @@ public class OperationTrace implements Serializable {
   /** operation的ID,即operation在事务中的ID threadID,transactionID,operationID，可以唯一地标识一个操作 */
   private String operationID;
 
+  /** operationID的压缩形式（见 OperationId）加一，0表示尚未解析，首次使用时计算，不参与序列化 */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @ToString.Exclude
+  private transient long packedOperationID;
+
   /** debug信息：该操作对应的SQL */
   private String sql;
 
+  /** 回放时实际执行的SQL（见 TransactionReplayer.getReplaySQL），由sql推导，首次使用时计算，不参与序列化 */
+  @ToString.Exclude private transient String replaySQL;
+
   /** OperationTrace的类型，共五种 */
   private OperationTraceType operationTraceType;
 
@@ -90,6 +103,11 @@ public class OperationTrace implements Serializable {
   /** isValid 保存Where判别结果 */
   private Boolean isWhereValid;
 
+  /** 服务于trace的解码，各字段由解码器逐一填充 */
+  OperationTrace() {
+    super();
+  }
+
   public OperationTrace(OperationTrace trace) {
     this.setBeforeLoadTimestampMillsHumanReadable(trace.getBeforeLoadTimestampMillsHumanReadable());
     this.setBeforeLoadTimestamp(trace.getBeforeLoadTimestamp());
@@ -110,6 +128,7 @@ public class OperationTrace implements Serializable {
     threadID = trace.getThreadID();
     transactionID = trace.getTransactionID();
     operationID = trace.getOperationID();
+    packedOperationID = trace.packedOperationID;
 
     sql = trace.getSql();
     operationTraceType = trace.getOperationTraceType();
@@ -176,6 +195,28 @@ public class OperationTrace implements Serializable {
     this.operationID = threadID + LINKER + transactionID + LINKER + operationID;
   }
 
+  public void setOperationID(String operationID) {
+    this.operationID = operationID;
+    this.packedOperationID = 0;
+  }
+
+  public void setSql(String sql) {
+    this.sql = sql;
+    this.replaySQL = null;
+  }
+
+  /**
+   * 获取压缩后的操作id
+   *
+   * @return 压缩后的操作id，见 OperationId
+   */
+  public long getPackedOperationID() {
+    if (packedOperationID == 0) {
+      packedOperationID = OperationId.parse(operationID) + 1;
+    }
+    return packedOperationID - 1;
+  }
+
   public void clearDebugInfo() {
     this.setSql(null);
 
@@ -0,0 +1,38 @@
+package trace;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/** 从正在回放的 TraceStream 中读取，语义与 MemoryTransactionTraceReader 一致，只是hasNext会等待trace产生 */
+public class StreamTransactionTraceReader implements TraceReader {
+  private final TraceStream stream;
+  private int cursor = 0;
+
+  public StreamTransactionTraceReader(TraceStream stream) {
+    super();
+    this.stream = stream;
+  }
+
+  @Override
+  public void begin() {
+    cursor = 0;
+  }
+
+  @Override
+  public boolean hasNext() throws IOException {
+    try {
+      return stream.await(cursor);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for replayed traces");
+    }
+  }
+
+  @Override
+  public OperationTrace readOperationTrace() {
+    return stream.get(cursor++);
+  }
+
+  @Override
+  public void end() {}
+}
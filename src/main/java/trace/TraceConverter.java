@@ -0,0 +1,88 @@
+package trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import main.Main;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/** 在JSON与二进制trace格式之间转换，分片文件一一对应，traceFile等字段保持不变 */
+public class TraceConverter {
+  private static final Logger logger = LogManager.getLogger(TraceConverter.class);
+
+  private static final Pattern TRACE_FILE = Pattern.compile("^(.+\\.\\d+)\\.([A-Za-z]+)$");
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 4) {
+      // args[0] 是 convert
+      TraceFormat format;
+      try {
+        format = TraceFormat.valueOf(args[3].toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        Main.printUsageAndExit();
+        return;
+      }
+      convert(args[1], args[2], format);
+    } else {
+      Main.printUsageAndExit();
+    }
+  }
+
+  /**
+   * 将srcDir下的所有trace文件转换为指定格式写入destDir
+   *
+   * @param srcDir 原trace目录
+   * @param destDir 输出目录，不存在时自动创建
+   * @param format 目标格式
+   * @return 转换的文件数目
+   */
+  public static int convert(String srcDir, String destDir, TraceFormat format) throws IOException {
+    File[] files = new File(srcDir).listFiles();
+    if (files == null) {
+      throw new IOException(String.format("%s is not a directory", srcDir));
+    }
+    FileUtils.forceMkdir(new File(destDir));
+
+    int fileCount = 0;
+    long traceCount = 0, srcSize = 0, destSize = 0;
+    for (File file : files) {
+      Matcher matcher = TRACE_FILE.matcher(file.getName());
+      if (!file.isFile() || !matcher.matches() || !isTraceExtension(matcher.group(2))) {
+        continue;
+      }
+      File dest = new File(destDir, matcher.group(1) + "." + format.getExtension());
+      try (TraceFileInput input = new TraceFileInput(file.getPath());
+          TraceFileOutput output = new TraceFileOutput(dest.getPath(), format)) {
+        while (input.hasNext()) {
+          output.write(input.read());
+          traceCount++;
+        }
+      }
+      fileCount++;
+      srcSize += file.length();
+      destSize += dest.length();
+    }
+    logger.info(
+        "convert {} files ({} traces) from {} to {}: {} bytes -> {} bytes",
+        fileCount,
+        traceCount,
+        srcDir,
+        destDir,
+        srcSize,
+        destSize);
+    return fileCount;
+  }
+
+  private static boolean isTraceExtension(String extension) {
+    for (TraceFormat format : TraceFormat.values()) {
+      if (format.getExtension().equals(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,78 @@
+package trace;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/** 从单个trace文件中读取 OperationTrace，根据文件头自动识别JSON和二进制格式 */
+public class TraceFileInput implements Closeable {
+  private final TraceFormat format;
+  private JsonReader jsonReader;
+  private Gson gson;
+  private InputStream binaryInput;
+  private BinaryTraceCodec codec;
+
+  /** 二进制格式下预读的下一条trace */
+  private OperationTrace next;
+
+  public TraceFileInput(String path) throws IOException {
+    super();
+    InputStream in = new BufferedInputStream(new FileInputStream(path), 1 << 16);
+    byte[] header = new byte[BinaryTraceCodec.MAGIC.length];
+    in.mark(header.length);
+    int read = in.readNBytes(header, 0, header.length);
+
+    if (read == header.length && BinaryTraceCodec.isBinary(header)) {
+      format = TraceFormat.BINARY;
+      binaryInput = in;
+      codec = new BinaryTraceCodec();
+    } else {
+      in.reset();
+      format = TraceFormat.JSON;
+      gson = new Gson();
+      jsonReader = new JsonReader(new InputStreamReader(in));
+      jsonReader.beginArray();
+    }
+  }
+
+  public TraceFormat getFormat() {
+    return format;
+  }
+
+  public boolean hasNext() throws IOException {
+    if (format == TraceFormat.BINARY) {
+      if (next == null) {
+        next = codec.read(binaryInput);
+      }
+      return next != null;
+    }
+    return jsonReader.hasNext();
+  }
+
+  public OperationTrace read() throws IOException {
+    if (format == TraceFormat.BINARY) {
+      hasNext();
+      OperationTrace trace = next;
+      next = null;
+      return trace;
+    }
+    return gson.fromJson(jsonReader, OperationTrace.class);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (format == TraceFormat.BINARY) {
+      binaryInput.close();
+    } else {
+      if (!jsonReader.hasNext()) {
+        jsonReader.endArray();
+      }
+      jsonReader.close();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package trace;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** 按指定格式向单个trace文件写入 OperationTrace */
+public class TraceFileOutput implements Closeable {
+  private final TraceFormat format;
+  private JsonWriter jsonWriter;
+  private Gson gson;
+  private OutputStream binaryOutput;
+  private BinaryTraceCodec codec;
+
+  public TraceFileOutput(String path, TraceFormat format) throws IOException {
+    super();
+    this.format = format;
+    switch (format) {
+      case BINARY:
+        binaryOutput = new BufferedOutputStream(new FileOutputStream(path), 1 << 16);
+        codec = new BinaryTraceCodec();
+        BinaryTraceCodec.writeHeader(binaryOutput);
+        break;
+      case JSON:
+      default:
+        gson = new GsonBuilder().disableHtmlEscaping().create();
+        jsonWriter = new JsonWriter(new BufferedWriter(new FileWriter(path)));
+        jsonWriter.setIndent("    ");
+        jsonWriter.beginArray();
+        break;
+    }
+  }
+
+  public void write(OperationTrace operationTrace) throws IOException {
+    if (format == TraceFormat.BINARY) {
+      codec.write(operationTrace, binaryOutput);
+    } else {
+      gson.toJson(operationTrace, OperationTrace.class, jsonWriter);
+    }
+  }
+
+  public void flush() throws IOException {
+    if (format == TraceFormat.BINARY) {
+      binaryOutput.flush();
+    } else {
+      jsonWriter.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (format == TraceFormat.BINARY) {
+      binaryOutput.close();
+    } else {
+      jsonWriter.endArray();
+      jsonWriter.close();
+    }
+  }
+}
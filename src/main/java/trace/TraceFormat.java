@@ -0,0 +1,21 @@
+package trace;
+
+import symbol.Symbol;
+
+/** trace文件的存储格式 */
+public enum TraceFormat {
+  /** 带缩进的JSON数组，便于人工查看 */
+  JSON(Symbol.TRACE_EXTENSION),
+  /** 长度前缀的二进制记录，表名和列名字典编码，时间戳和操作id变长编码 */
+  BINARY(Symbol.BINARY_TRACE_EXTENSION);
+
+  private final String extension;
+
+  TraceFormat(String extension) {
+    this.extension = extension;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+}
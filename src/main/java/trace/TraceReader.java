@@ -0,0 +1,15 @@
+package trace;
+
+import java.io.IOException;
+
+/** 流式读取 OperationTrace 的统一接口，先begin，然后不断调用hasNext和read，最后end */
+public interface TraceReader {
+
+  void begin() throws IOException;
+
+  boolean hasNext() throws IOException;
+
+  OperationTrace readOperationTrace();
+
+  void end() throws IOException;
+}
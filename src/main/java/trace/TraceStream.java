@@ -0,0 +1,50 @@
+package trace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个loader正在回放时产生的trace流。回放线程每完成一个事务就追加该事务的trace，回放结束（或提前终止）时关闭，
+ * 分析端通过 StreamTransactionTraceReader 边回放边读取，读到尚未产生的位置时等待
+ */
+public class TraceStream {
+  private final List<OperationTrace> traces = new ArrayList<>();
+
+  private boolean closed = false;
+
+  /**
+   * 追加一批按执行顺序排列的trace
+   *
+   * @param newTraces 新完成的trace
+   */
+  public synchronized void addAll(List<OperationTrace> newTraces) {
+    if (closed) {
+      throw new IllegalStateException("trace stream has been closed");
+    }
+    traces.addAll(newTraces);
+    notifyAll();
+  }
+
+  /** 关闭流，之后不会再有新的trace */
+  public synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  /**
+   * 等待第index条trace产生
+   *
+   * @param index trace的位置
+   * @return 第index条trace存在时返回true，流已经关闭且没有这条trace时返回false
+   */
+  public synchronized boolean await(int index) throws InterruptedException {
+    while (index >= traces.size() && !closed) {
+      wait();
+    }
+    return index < traces.size();
+  }
+
+  public synchronized OperationTrace get(int index) {
+    return traces.get(index);
+  }
+}
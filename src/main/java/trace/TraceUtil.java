@@ -68,9 +68,7 @@ public class TraceUtil {
    * @return thread id
    */
   public static int getThreadIdFromOpId(String operationId) {
-    String[] id = operationId.split(",");
-    String[] txIds = id[0].split("-");
-    return Integer.parseInt(txIds[2]);
+    return OperationId.threadOf(OperationId.parse(operationId));
   }
 
   /**
@@ -80,8 +78,7 @@ public class TraceUtil {
    * @return txn id
    */
   public static int getTxnIdFromOpId(String operationId) {
-    String[] id = operationId.split(",");
-    return Integer.parseInt(id[1]);
+    return OperationId.txnOf(OperationId.parse(operationId));
   }
 
   /**
@@ -1,38 +1,43 @@
 package trace;
 
-import com.google.gson.Gson;
-import com.google.gson.stream.JsonReader;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import symbol.Symbol;
+import java.io.UncheckedIOException;
 
-/** 流式读取 OperationTrace 先begin，然后不断调用read，最后end */
-public class TransactionTraceReader {
-  private JsonReader reader;
-  private final Gson gson;
+/** 流式读取 OperationTrace 先begin，然后不断调用read，最后end。trace文件格式按文件头自动识别 */
+public class TransactionTraceReader implements TraceReader {
+  private TraceFileInput reader;
   private int fileno = 0;
-  private final int traceno = 0;
   private final String src;
   private String currentSrc;
 
   public TransactionTraceReader(String src) {
     super();
-    this.gson = new Gson();
     this.src = src;
   }
 
+  /** 查找当前分片对应的文件，按各格式扩展名依次尝试，找不到时返回JSON格式的路径 */
+  private String locate(int fileno) {
+    for (TraceFormat format : TraceFormat.values()) {
+      String path = String.format("%s.%s.%s", src, fileno, format.getExtension());
+      if (new File(path).exists() || new File(path + ".writing").exists()) {
+        return path;
+      }
+    }
+    return String.format("%s.%s.%s", src, fileno, TraceFormat.JSON.getExtension());
+  }
+
+  @Override
   public void begin() throws IOException {
-    currentSrc = String.format("%s.%s.%s", src, fileno, Symbol.TRACE_EXTENSION);
+    currentSrc = locate(fileno);
     File newFile = new File(currentSrc + ".writing");
     while (newFile.exists()) {}
     if (new File(currentSrc).exists()) {
-      this.reader = new JsonReader(new BufferedReader(new FileReader(currentSrc)));
-      reader.beginArray();
+      this.reader = new TraceFileInput(currentSrc);
     }
   }
 
+  @Override
   public boolean hasNext() throws IOException {
     if (reader == null) {
       return false;
@@ -41,25 +46,29 @@ public class TransactionTraceReader {
       return true;
     }
     fileno++;
-    currentSrc = String.format("%s.%s.%s", src, fileno, Symbol.TRACE_EXTENSION);
     this.end();
     this.begin();
     return reader != null && reader.hasNext();
   }
 
+  @Override
   public OperationTrace readOperationTrace() {
-    return gson.fromJson(reader, OperationTrace.class);
+    try {
+      return reader.read();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   public boolean isNull() {
     return reader == null;
   }
 
+  @Override
   public void end() throws IOException {
     if (reader == null) {
       return;
     }
-    reader.endArray();
     reader.close();
     reader = null;
   }
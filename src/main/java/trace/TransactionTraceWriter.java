@@ -1,19 +1,13 @@
 package trace;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.stream.JsonWriter;
 import context.OrcaContext;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import org.apache.commons.io.FileUtils;
-import symbol.Symbol;
 
 public class TransactionTraceWriter {
-  private JsonWriter writer;
-  private final Gson gson;
+  private TraceFileOutput writer;
+  private final TraceFormat format;
   private final boolean trace;
   private int fileno = 0;
   private int traceno = 0;
@@ -21,25 +15,24 @@ public class TransactionTraceWriter {
   private String currentDest;
 
   public TransactionTraceWriter(String dest, boolean trace) throws IOException {
+    this(dest, trace, OrcaContext.configColl.getLoader().getTraceFormat());
+  }
+
+  public TransactionTraceWriter(String dest, boolean trace, TraceFormat format)
+      throws IOException {
     super();
-    gson = new GsonBuilder().disableHtmlEscaping().create();
+    this.format = format == null ? TraceFormat.JSON : format;
     this.trace = trace;
     this.dest = dest;
     this.begin();
   }
 
   private void begin() throws IOException {
-    currentDest = String.format("%s.%s.%s", dest, fileno, Symbol.TRACE_EXTENSION);
-    writer = new JsonWriter(new BufferedWriter(new FileWriter(currentDest + ".writing")));
-    writer.setIndent("    ");
-    writer.beginArray();
+    currentDest = String.format("%s.%s.%s", dest, fileno, format.getExtension());
+    writer = new TraceFileOutput(currentDest + ".writing", format);
     fileno++;
   }
 
-  private void end() throws IOException {
-    writer.endArray();
-  }
-
   public void writeOperationTrace(OperationTrace operationTrace) throws IOException {
     if (trace) {
       if (OrcaContext.configColl.getLoader().isClearDebugInfo()) {
@@ -56,14 +49,13 @@ public class TransactionTraceWriter {
       }
 
       operationTrace.setTraceFile(currentDest);
-      gson.toJson(operationTrace, OperationTrace.class, writer);
+      writer.write(operationTrace);
       writer.flush();
     }
   }
 
   public void close() throws IOException {
     if (writer != null) {
-      this.end();
       writer.close();
       writer = null;
       FileUtils.moveFile(new File(currentDest + ".writing"), new File(currentDest));
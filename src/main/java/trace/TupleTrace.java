@@ -1,10 +1,16 @@
 package trace;
 
 import ana.main.Config;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java.io.Serializable;
 import java.util.Map;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 /**
  * 代表一个operation的最小读写单元 即一个object，关系型数据库中为一个tuple table、primarykey、valueSet三者必须都不为null
@@ -12,11 +18,13 @@ import lombok.Data;
  * @author like_
  */
 @Data
-@Builder
 public class TupleTrace implements Serializable {
 
   private static final long serialVersionUID = 1L;
 
+  /** 所有tuple共享同一个key对象，history version、write set中相同数据的key只保留一份 */
+  private static final Interner<String> keys = Interners.newWeakInterner();
+
   /** 访问的表 */
   private final String table;
 
@@ -29,6 +37,19 @@ public class TupleTrace implements Serializable {
   /** debug信息：保存valueMap对应的真实值 */
   private Map<String, String> realValueMap;
 
+  /** getKey的结果，首次使用时计算，不参与序列化 */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @ToString.Exclude
+  private transient String key;
+
+  /** valueMap的紧凑形式（见 ValueVector），首次使用时计算，不参与序列化 */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @ToString.Exclude
+  private transient ValueVector valueVector;
+
+  @Builder
   public TupleTrace(
       String table,
       String primaryKey,
@@ -57,8 +78,40 @@ public class TupleTrace implements Serializable {
     }
   }
 
+  /**
+   * 不受 Config.TAKE_VC 影响，直接返回保存的valueMap，服务于trace的编解码
+   *
+   * @return valueMap
+   */
+  Map<String, String> getRawValueMap() {
+    return valueMap;
+  }
+
+  /**
+   * ！！只有验证端代码调用 获取valueMap的紧凑形式，服务于读一致性验证和version的构造，与 getValueMap 一样受 Config.TAKE_VC 影响
+   *
+   * @return valueMap为null时返回null
+   */
+  public ValueVector getValueVector() {
+    ValueVector vector = valueVector;
+    if (vector == null) {
+      Map<String, String> valueMap = getValueMap();
+      if (valueMap == null) {
+        return null;
+      }
+      vector = ValueVector.of(valueMap);
+      valueVector = vector;
+    }
+    return vector;
+  }
+
   public String getKey() {
-    return table + LINKER + primaryKey;
+    String key = this.key;
+    if (key == null) {
+      key = keys.intern(table + LINKER + primaryKey);
+      this.key = key;
+    }
+    return key;
   }
 
   public void clearDebugInfo() {
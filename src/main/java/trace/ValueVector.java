@@ -0,0 +1,204 @@
+package trace;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个tuple的读写结果，即TupleTrace.valueMap的紧凑形式，服务于分析
+ *
+ * <p>列名映射为进程内唯一的列序号，按valueMap的遍历顺序保存列序号和值，数值在创建时解析一次。读一致性验证中
+ * 比较两个读写结果不再需要查找哈希表和反复解析数值；history version中的version也只保留这几个数组
+ */
+@JsonAdapter(ValueVector.Adapter.class)
+public final class ValueVector {
+
+  /** key:列名 value:列序号 */
+  private static final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+
+  /** 列序号对应的列名 */
+  private static final List<String> columns = new ArrayList<>();
+
+  private static final int[] NO_ORDINALS = new int[0];
+
+  /** 每一列的列序号，顺序与创建时valueMap的遍历顺序相同 */
+  private final int[] ordinalArray;
+
+  /** 每一列的值，可能为null */
+  private final String[] values;
+
+  /** 每一列按Double.parseDouble解析的数值，无法解析的列为0 */
+  private final double[] numbers;
+
+  /** 每一列的值是否可以解析为数值 */
+  private final boolean[] numeric;
+
+  private ValueVector(int size) {
+    ordinalArray = size == 0 ? NO_ORDINALS : new int[size];
+    values = new String[size];
+    numbers = new double[size];
+    numeric = new boolean[size];
+  }
+
+  /**
+   * 获取列名的列序号，第一次出现的列名分配一个新的序号
+   *
+   * @param column 列名
+   * @return 列序号
+   */
+  static int ordinalOf(String column) {
+    Integer ordinal = ordinals.get(column);
+    if (ordinal != null) {
+      return ordinal;
+    }
+    synchronized (columns) {
+      return ordinals.computeIfAbsent(
+          column,
+          k -> {
+            columns.add(k);
+            return columns.size() - 1;
+          });
+    }
+  }
+
+  private static String columnOf(int ordinal) {
+    synchronized (columns) {
+      return columns.get(ordinal);
+    }
+  }
+
+  /**
+   * 将读写结果转换为紧凑形式
+   *
+   * @param valueMap key为列名 value为对应的读写结果
+   * @return valueMap为null时返回null
+   */
+  public static ValueVector of(Map<String, String> valueMap) {
+    if (valueMap == null) {
+      return null;
+    }
+    ValueVector vector = new ValueVector(valueMap.size());
+    int i = 0;
+    for (Map.Entry<String, String> entry : valueMap.entrySet()) {
+      vector.ordinalArray[i] = ordinalOf(entry.getKey());
+      String value = entry.getValue();
+      vector.values[i] = value;
+      if (value != null) {
+        try {
+          vector.numbers[i] = Double.parseDouble(value);
+          vector.numeric[i] = true;
+        } catch (NumberFormatException e) {
+          // 按字符串比较
+        }
+      }
+      i++;
+    }
+    return vector;
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  public boolean isEmpty() {
+    return values.length == 0;
+  }
+
+  /**
+   * 查找某一列在另一个读写结果中的位置
+   *
+   * @param ordinal 列序号
+   * @param hint 优先比较的位置，两个读写结果的列顺序相同时恰好是该列的位置
+   * @return 不存在该列或者该列的值为null时返回-1
+   */
+  private int indexOf(int ordinal, int hint) {
+    if (hint < ordinalArray.length && ordinalArray[hint] == ordinal) {
+      return values[hint] == null ? -1 : hint;
+    }
+    for (int i = 0; i < ordinalArray.length; i++) {
+      if (ordinalArray[i] == ordinal) {
+        return values[i] == null ? -1 : i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * 与Version.isCompatible原先基于Map的比较相同：按本读写结果的列顺序找到第一个另一方也有值的列，
+   * 两个值都是数值时按数值比较，否则按字符串比较；没有这样的列时只要求两者同时为空或者同时不为空
+   *
+   * @param other 另一个读写结果
+   * @return 两个读写结果是否兼容
+   */
+  public boolean isCompatible(ValueVector other) {
+    for (int i = 0; i < ordinalArray.length; i++) {
+      int j = other.indexOf(ordinalArray[i], i);
+      if (j >= 0) {
+        if (numeric[i] && other.numeric[j]) {
+          return numbers[i] == other.numbers[j];
+        }
+        return other.values[j].equals(values[i]);
+      }
+    }
+    return isEmpty() == other.isEmpty();
+  }
+
+  /**
+   * 还原为Map，顺序与创建时相同
+   *
+   * @return key为列名 value为对应的读写结果
+   */
+  public Map<String, String> toMap() {
+    Map<String, String> valueMap = new LinkedHashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      valueMap.put(columnOf(ordinalArray[i]), values[i]);
+    }
+    return valueMap;
+  }
+
+  /** 与原先的Map输出相同的json格式，值为null的列不输出 */
+  static class Adapter extends TypeAdapter<ValueVector> {
+    @Override
+    public void write(JsonWriter out, ValueVector vector) throws IOException {
+      if (vector == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      for (int i = 0; i < vector.values.length; i++) {
+        out.name(columnOf(vector.ordinalArray[i]));
+        out.value(vector.values[i]);
+      }
+      out.endObject();
+    }
+
+    @Override
+    public ValueVector read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      Map<String, String> valueMap = new LinkedHashMap<>();
+      in.beginObject();
+      while (in.hasNext()) {
+        String column = in.nextName();
+        if (in.peek() == JsonToken.NULL) {
+          in.nextNull();
+          valueMap.put(column, null);
+        } else {
+          valueMap.put(column, in.nextString());
+        }
+      }
+      in.endObject();
+      return of(valueMap);
+    }
+  }
+}
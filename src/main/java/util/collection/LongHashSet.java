@@ -0,0 +1,86 @@
+package util.collection;
+
+import static util.collection.LongIntHashMap.EMPTY;
+import static util.collection.LongIntHashMap.checkKey;
+import static util.collection.LongIntHashMap.slot;
+import static util.collection.LongIntHashMap.tableSize;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/** long的开放寻址哈希集合，元素不装箱，并发规则与 LongIntHashMap 相同。元素不能是 Long.MIN_VALUE */
+public class LongHashSet implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private long[] keys;
+  private int size = 0;
+
+  public LongHashSet() {
+    this(16);
+  }
+
+  public LongHashSet(int expectedSize) {
+    keys = new long[tableSize(expectedSize)];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  public LongHashSet(LongHashSet other) {
+    keys = other.keys.clone();
+    size = other.size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(long key) {
+    return keys[slot(keys, key)] == key;
+  }
+
+  /**
+   * 加入一个元素
+   *
+   * @param key 元素
+   * @return 集合中原先是否没有这个元素
+   */
+  public boolean add(long key) {
+    checkKey(key);
+    int slot = slot(keys, key);
+    if (keys[slot] == key) {
+      return false;
+    }
+    keys[slot] = key;
+    if (++size * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+    return true;
+  }
+
+  public void addAll(LongHashSet other) {
+    for (long key : other.keys) {
+      if (key != EMPTY) {
+        add(key);
+      }
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    size = 0;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    keys = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    for (long key : oldKeys) {
+      if (key != EMPTY) {
+        keys[slot(keys, key)] = key;
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package util.collection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * long到int的开放寻址哈希表，键和值都不装箱。用于以压缩操作id（见 trace.OperationId）为键的大表，
+ * 构建完成之后的并发读是安全的，写入需要外部同步。键不能是 Long.MIN_VALUE
+ */
+public class LongIntHashMap implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  static final long EMPTY = Long.MIN_VALUE;
+
+  private long[] keys;
+  private int[] values;
+  private int size = 0;
+
+  public LongIntHashMap() {
+    this(16);
+  }
+
+  public LongIntHashMap(int expectedSize) {
+    int capacity = tableSize(expectedSize);
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  public LongIntHashMap(LongIntHashMap other) {
+    keys = other.keys.clone();
+    values = other.values.clone();
+    size = other.size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean containsKey(long key) {
+    return keys[slot(keys, key)] == key;
+  }
+
+  /**
+   * 查找键对应的值
+   *
+   * @param key 键
+   * @param defaultValue 键不存在时返回的值
+   * @return 键对应的值
+   */
+  public int get(long key, int defaultValue) {
+    int slot = slot(keys, key);
+    return keys[slot] == key ? values[slot] : defaultValue;
+  }
+
+  public void put(long key, int value) {
+    checkKey(key);
+    int slot = slot(keys, key);
+    if (keys[slot] != key) {
+      keys[slot] = key;
+      if (++size * 2 > keys.length) {
+        values[slot] = value;
+        rehash(keys.length * 2);
+        return;
+      }
+    }
+    values[slot] = value;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    size = 0;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = slot(keys, oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  static void checkKey(long key) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("Long.MIN_VALUE can not be used as a key");
+    }
+  }
+
+  /** 负载因子不超过0.5，容量为2的幂 */
+  static int tableSize(int expectedSize) {
+    int capacity = 16;
+    while (capacity < expectedSize * 2L) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /** 线性探测，返回键所在的位置或者第一个空位 */
+  static int slot(long[] table, long key) {
+    int mask = table.length - 1;
+    long h = key * 0x9E3779B97F4A7C15L;
+    int slot = (int) (h ^ (h >>> 32)) & mask;
+    while (table[slot] != EMPTY && table[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+}
@@ -4,6 +4,7 @@ import adapter.Adapter;
 import com.mchange.v2.c3p0.C3P0ProxyStatement;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
 import config.jdbc.DataSourceConfig;
+import context.RunContext;
 import gen.data.InitialData;
 import gen.data.value.AttrValue;
 import java.lang.reflect.InvocationTargetException;
@@ -83,7 +84,11 @@ public class DataSourceUtils {
    */
   public static Connection getJDBCConnection(boolean isContainDB) throws SQLException {
 
-    String jdbcURL = adapter.filterJDBCUrl(dataSource.getJdbcUrl(), isContainDB);
+    // 并行验证时每个运行连接各自的数据库
+    String runJdbcUrl = RunContext.current().getJdbcUrl();
+    String jdbcURL =
+        adapter.filterJDBCUrl(
+            runJdbcUrl == null ? dataSource.getJdbcUrl() : runJdbcUrl, isContainDB);
 
     return DriverManager.getConnection(jdbcURL, dataSource.getUser(), dataSource.getPassword());
   }
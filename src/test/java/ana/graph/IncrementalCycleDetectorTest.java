@@ -0,0 +1,76 @@
+package ana.graph;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.Test;
+
+public class IncrementalCycleDetectorTest {
+
+  private static boolean reachable(SimpleDirectedGraph<Integer, DefaultEdge> graph, int s, int t) {
+    Set<Integer> visited = new HashSet<>();
+    Deque<Integer> stack = new ArrayDeque<>();
+    stack.push(s);
+    while (!stack.isEmpty()) {
+      int v = stack.pop();
+      if (v == t) {
+        return true;
+      }
+      for (DefaultEdge e : graph.outgoingEdgesOf(v)) {
+        if (visited.add(graph.getEdgeTarget(e))) {
+          stack.push(graph.getEdgeTarget(e));
+        }
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void reportsOnlyEdgesClosingCycles() {
+    SimpleDirectedGraph<Integer, DefaultEdge> graph = new SimpleDirectedGraph<>(DefaultEdge.class);
+    IncrementalCycleDetector<Integer, DefaultEdge> detector = new IncrementalCycleDetector<>(graph);
+    for (int i = 0; i < 4; i++) {
+      graph.addVertex(i);
+      detector.addVertex(i);
+    }
+    graph.addEdge(2, 3);
+    assert !detector.addEdge(2, 3);
+    graph.addEdge(1, 2);
+    assert !detector.addEdge(1, 2);
+    graph.addEdge(3, 0);
+    assert !detector.addEdge(3, 0);
+    graph.addEdge(0, 1);
+    assert detector.addEdge(0, 1);
+    assert detector.getComponent(2).size() == 4;
+  }
+
+  @Test
+  public void matchesReachabilityOnRandomGraphs() {
+    Random random = new Random(7);
+    for (int round = 0; round < 50; round++) {
+      SimpleDirectedGraph<Integer, DefaultEdge> graph =
+          new SimpleDirectedGraph<>(DefaultEdge.class);
+      IncrementalCycleDetector<Integer, DefaultEdge> detector =
+          new IncrementalCycleDetector<>(graph);
+      int n = 30;
+      for (int i = 0; i < n; i++) {
+        graph.addVertex(i);
+        detector.addVertex(i);
+      }
+      for (int k = 0; k < 60; k++) {
+        int s = random.nextInt(n);
+        int t = random.nextInt(n);
+        if (s == t || graph.containsEdge(s, t)) {
+          continue;
+        }
+        boolean expected = reachable(graph, t, s);
+        graph.addEdge(s, t);
+        assert detector.addEdge(s, t) == expected;
+      }
+    }
+  }
+}
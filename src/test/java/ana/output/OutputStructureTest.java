@@ -0,0 +1,157 @@
+package ana.output;
+
+import com.google.gson.Gson;
+import context.RunContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class OutputStructureTest {
+
+  private static RunContext newRun(Path output) {
+    RunContext run = new RunContext("structure");
+    run.setOutputDir(output.toString(), output.toString());
+    return run;
+  }
+
+  @Test
+  public void concurrentRecordsKeepOrderAndFormat() throws Exception {
+    Path output = Files.createTempDirectory("structure");
+    int threads = 4;
+    // 超过环形缓冲区的大小，覆盖缓冲区写满的情况
+    int records = OutputStructure.RING_SIZE * 2;
+
+    RunContext.bind(newRun(output));
+    try {
+      Thread[] writers = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+        String thread = "0-0-" + t;
+        writers[t] =
+            new Thread(
+                () -> {
+                  for (int i = 0; i < records; i++) {
+                    String id = thread + "," + i;
+                    switch (i % 4) {
+                      case 0:
+                        OutputStructure.outputOperation(id);
+                        break;
+                      case 1:
+                        OutputStructure.outputInference(OutputStructure.Kind.ME, id, "x");
+                        break;
+                      case 2:
+                        OutputStructure.outputDependency("WR", id, "a=b<c>");
+                        break;
+                      default:
+                        OutputStructure.outputStructure(id);
+                    }
+                  }
+                });
+        writers[t].start();
+      }
+      for (Thread writer : writers) {
+        writer.join();
+      }
+      OutputStructure.flush();
+    } finally {
+      RunContext.unbind();
+    }
+
+    Gson gson = new Gson();
+    List<String> lines = Files.readAllLines(output.resolve("debug.json"), StandardCharsets.UTF_8);
+    assert lines.size() == threads * records;
+    int[] next = new int[threads];
+    for (String line : lines) {
+      String record = gson.fromJson(line, String.class);
+      assert line.equals(gson.toJson(record));
+      int comma = record.indexOf(',');
+      int thread = record.charAt(comma - 1) - '0';
+      int i = next[thread]++;
+      String id = "0-0-" + thread + "," + i;
+      String[] expected = {id, "ME:" + id + "*x", "SC+WR:" + id + "*a=b<c>", id};
+      assert record.equals(expected[i % 4]);
+    }
+    assert Files.size(output.resolve("unified.json")) == 0;
+  }
+
+  @Test
+  public void offBuildsNoRecords() throws Exception {
+    Path output = Files.createTempDirectory("structure");
+    RunContext.bind(newRun(output));
+    try {
+      OutputStructure.setLevel(OutputStructure.Level.OFF);
+      OutputStructure.outputOperation("0-0-0,0,0");
+      OutputStructure.outputInference(OutputStructure.Kind.FUW, "0-0-0,0", "0-0-1,0");
+      OutputStructure.outputStructure("0-0-0,0,0");
+      OutputStructure.flush();
+      assert !Files.exists(output.resolve("debug.json"));
+
+      // 只输出分析过的操作
+      OutputStructure.setLevel(OutputStructure.Level.OPERATION);
+      OutputStructure.outputOperation("0-0-0,0,0");
+      OutputStructure.outputInference(OutputStructure.Kind.FUW, "0-0-0,0", "0-0-1,0");
+      OutputStructure.flush();
+      assert Files.readAllLines(output.resolve("debug.json")).equals(List.of("\"0-0-0,0,0\""));
+    } finally {
+      RunContext.unbind();
+    }
+  }
+
+  private static Set<Thread> writerThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> thread.getName().equals("structure-writer"))
+        .collect(Collectors.toSet());
+  }
+
+  @Test
+  public void closeStopsWriterAndReopensForAppend() throws Exception {
+    Path output = Files.createTempDirectory("structure");
+    RunContext.bind(newRun(output));
+    try {
+      Set<Thread> before = writerThreads();
+      OutputStructure.outputOperation("0-0-0,0,0");
+      Set<Thread> started = writerThreads();
+      started.removeAll(before);
+      assert started.size() == 1;
+
+      OutputStructure.close();
+      assert !started.iterator().next().isAlive();
+      assert Files.readAllLines(output.resolve("debug.json")).equals(List.of("\"0-0-0,0,0\""));
+
+      // 同一运行中再次输出时追加写入
+      OutputStructure.outputOperation("0-0-0,0,1");
+      OutputStructure.close();
+      assert Files.readAllLines(output.resolve("debug.json"))
+          .equals(List.of("\"0-0-0,0,0\"", "\"0-0-0,0,1\""));
+    } finally {
+      RunContext.unbind();
+    }
+  }
+
+  @Test
+  public void flushFailsWhenWriterStopped() throws Exception {
+    Path output = Files.createTempDirectory("structure");
+    RunContext.bind(newRun(output));
+    try {
+      // 写线程格式化null时抛出NullPointerException并退出
+      OutputStructure.outputOperation(null);
+      try {
+        OutputStructure.flush();
+        assert false;
+      } catch (IllegalStateException e) {
+        assert e.getCause() instanceof NullPointerException;
+      }
+      try {
+        OutputStructure.close();
+        assert false;
+      } catch (IllegalStateException e) {
+        assert e.getCause() instanceof NullPointerException;
+      }
+    } finally {
+      RunContext.unbind();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package ana.thread;
+
+import ana.buffer.ShareTraceBufferMerge;
+import ana.io.HandlerFactory;
+import ana.main.Config;
+import ana.main.OrcaVerify;
+import ana.output.ErrorStatistics;
+import ana.output.OutputCertificate;
+import ana.output.OutputStructure;
+import context.RunContext;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import replay.controller.ReplayController;
+import trace.OperationTrace;
+import trace.TupleTrace;
+
+public class VerifyShardsTest {
+
+  private static final String CASE = "example/tidb_42487/out";
+
+  /** 一次分析的结论：错误、推断出的执行序列、error trace以及输出目录中的所有文件 */
+  private static List<Object> analyse(int shards) throws Exception {
+    Path output = Files.createTempDirectory("shards_output");
+    RunContext.bind(new RunContext("shards"));
+    try {
+      Config.initialize("tidb", CASE, output.toString(), "start", false);
+      ReplayController.init();
+      HandlerFactory.initialize();
+      OrcaVerify.setShareTraceBuffer(new ShareTraceBufferMerge());
+      ErrorStatistics.initialize();
+      OutputCertificate.initialize();
+      AnalysisThread.initialize(Config.adapter);
+      // 每条trace都按分片并行检查
+      VerifyShards.initialize(shards, 1);
+      new AnalysisThread().run();
+      OutputStructure.flush();
+
+      List<Set<String>> sequence =
+          ReplayController.getSequenceDependency().generateOperationSequence().stream()
+              .map(HashSet::new)
+              .collect(Collectors.toList());
+      List<String> errorTraces =
+          ReplayController.getErrorTraces().stream()
+              .map(OperationTrace::getOperationID)
+              .collect(Collectors.toList());
+      Map<String, List<String>> files = new HashMap<>();
+      for (File file : output.toFile().listFiles()) {
+        files.put(file.getName(), Files.readAllLines(file.toPath()));
+      }
+      return Arrays.asList(ErrorStatistics.getErrorStatistics(), sequence, errorTraces, files);
+    } finally {
+      RunContext.unbind();
+    }
+  }
+
+  @Test
+  public void parallelMatchesSequential() throws Exception {
+    List<Object> expected = analyse(1);
+    @SuppressWarnings("unchecked")
+    Map<String, List<String>> files = (Map<String, List<String>>) expected.get(3);
+    assert files.keySet().stream().anyMatch(name -> name.startsWith("certificate"));
+    assert analyse(4).equals(expected);
+  }
+
+  @Test
+  public void actionsFollowTupleOrder() {
+    RunContext.bind(new RunContext("shards"));
+    try {
+      VerifyShards.initialize(4, 1);
+      List<TupleTrace> tupleList = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        tupleList.add(new TupleTrace("t" + i % 7, String.valueOf(i), null, null));
+      }
+      Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+      List<String> applied = new ArrayList<>();
+      VerifyShards.verify(
+          tupleList,
+          tupleTrace -> {
+            threads.add(Thread.currentThread().getName());
+            String key = tupleTrace.getKey();
+            return Math.floorMod(key.hashCode(), 3) == 0 ? null : () -> applied.add(key);
+          });
+
+      List<String> expected =
+          tupleList.stream()
+              .map(TupleTrace::getKey)
+              .filter(key -> Math.floorMod(key.hashCode(), 3) != 0)
+              .collect(Collectors.toList());
+      assert applied.equals(expected);
+      assert threads.size() > 1;
+    } finally {
+      RunContext.unbind();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package ana.version;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class InitialVersionStoreTest {
+
+  private static Path writeTable(int rows) throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add("\"pkId\",\"coAttr0_0\",\"coAttr0_1\"");
+    // 倒序写入，并跳过部分pkId
+    for (int pkId = rows - 1; pkId >= 0; pkId--) {
+      if (pkId % 7 != 3) {
+        lines.add(String.format("%d,'v%d',%d", pkId, pkId, pkId * 2));
+      }
+    }
+    File file = File.createTempFile("table0", ".csv");
+    file.deleteOnExit();
+    Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    return file.toPath();
+  }
+
+  @Test
+  public void heapAndMappedStoresAgree() throws Exception {
+    Path file = writeTable(500);
+    InitialVersionStore heap = InitialVersionStore.load(file, Long.MAX_VALUE, 1L << 30);
+    // 很小的段，覆盖跨段的情况
+    InitialVersionStore mapped = InitialVersionStore.load(file, 0, 64);
+    for (int pkId = -1; pkId <= 501; pkId++) {
+      Map<String, String> values = heap.get(pkId);
+      assert values == null ? mapped.get(pkId) == null : values.equals(mapped.get(pkId));
+      if (pkId >= 0 && pkId < 500 && pkId % 7 != 3) {
+        assert values != null;
+        assert values.get("coAttr0_0").equals("v" + pkId);
+        assert values.get("coAttr0_1").equals(String.valueOf(pkId * 2));
+        assert values.size() == 2;
+      } else {
+        assert values == null;
+      }
+    }
+  }
+
+  @Test
+  public void reloadsChangedFile() throws Exception {
+    Path file = writeTable(10);
+    InitialVersionStore store = InitialVersionStore.of(file);
+    assert InitialVersionStore.of(file) == store;
+    assert store.get(12) == null;
+
+    Files.write(file, "pkId,coAttr0_0\n12,x\n".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+    InitialVersionStore reloaded = InitialVersionStore.of(file);
+    assert reloaded != store;
+    assert reloaded.get(12).get("coAttr0_0").equals("x");
+    assert reloaded.get(1) == null;
+  }
+}
@@ -0,0 +1,72 @@
+package ana.version;
+
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Random;
+
+/**
+ * VersionChain与原先链表实现的对比：热点数据上的长版本链，交替插入新version和查找与一致性读区间重叠的version。
+ * 不是单元测试，直接运行main即可，参数依次为版本链长度和查找次数
+ */
+public class VersionChainBenchmark {
+
+  public static void main(String[] args) {
+    int length = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+    int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+    for (int round = 0; round < 3; round++) {
+      System.out.printf(
+          "round %d: linked list %d ms, array %d ms%n",
+          round, runLinkedList(length, lookups), runArray(length, lookups));
+    }
+  }
+
+  private static long runLinkedList(int length, int lookups) {
+    Random random = new Random(0);
+    long begin = System.nanoTime();
+    LinkedList<Version> chain = new LinkedList<>();
+    long checksum = 0;
+    for (int i = 0; i < length; i++) {
+      VersionChainTest.addToLinkedList(chain, new Version(i * 10L, i * 10L + 5));
+    }
+    for (int k = 0; k < lookups; k++) {
+      long readStart = random.nextInt(length * 10);
+      Version interval = new Version(readStart, readStart + 20);
+      ListIterator<Version> listIterator = chain.listIterator();
+      Version nextVersion;
+      while (listIterator.hasNext()
+          && (nextVersion = listIterator.next()).getFinishTimestamp()
+              > interval.getStartTimestamp()) {
+        if (Version.isOverlapping(nextVersion, interval)) {
+          checksum++;
+        }
+      }
+    }
+    long elapsed = (System.nanoTime() - begin) / 1_000_000;
+    return checksum < 0 ? -1 : elapsed;
+  }
+
+  private static long runArray(int length, int lookups) {
+    Random random = new Random(0);
+    long begin = System.nanoTime();
+    VersionChain chain = new VersionChain();
+    long checksum = 0;
+    for (int i = 0; i < length; i++) {
+      chain.addVersion(new Version(i * 10L, i * 10L + 5));
+    }
+    for (int k = 0; k < lookups; k++) {
+      long readStart = random.nextInt(length * 10);
+      Version interval = new Version(readStart, readStart + 20);
+      ListIterator<Version> listIterator = chain.getIterator(interval.getFinishTimestamp());
+      Version nextVersion;
+      while (listIterator.hasNext()
+          && (nextVersion = listIterator.next()).getFinishTimestamp()
+              > interval.getStartTimestamp()) {
+        if (Version.isOverlapping(nextVersion, interval)) {
+          checksum++;
+        }
+      }
+    }
+    long elapsed = (System.nanoTime() - begin) / 1_000_000;
+    return checksum < 0 ? -1 : elapsed;
+  }
+}
@@ -0,0 +1,115 @@
+package ana.version;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+import org.junit.Test;
+
+public class VersionChainTest {
+
+  /** 原先基于链表的插入方式，作为对照 */
+  static void addToLinkedList(LinkedList<Version> chain, Version newVersion) {
+    ListIterator<Version> listIterator = chain.listIterator();
+    while (listIterator.hasNext()) {
+      if (listIterator.next().getFinishTimestamp() < newVersion.getFinishTimestamp()) {
+        listIterator.previous();
+        break;
+      }
+    }
+    listIterator.add(newVersion);
+  }
+
+  static List<Version> toList(ListIterator<Version> listIterator) {
+    List<Version> result = new ArrayList<>();
+    while (listIterator.hasNext()) {
+      result.add(listIterator.next());
+    }
+    return result;
+  }
+
+  @Test
+  public void keepsSameOrderAsLinkedList() {
+    Random random = new Random(1);
+    VersionChain versionChain = new VersionChain();
+    LinkedList<Version> expected = new LinkedList<>();
+    for (int i = 0; i < 2000; i++) {
+      long start = random.nextInt(500);
+      Version version = new Version(start, start + random.nextInt(20));
+      versionChain.addVersion(version);
+      addToLinkedList(expected, version);
+    }
+    assert versionChain.getLength() == expected.size();
+    List<Version> actual = toList(versionChain.getIterator());
+    for (int i = 0; i < actual.size(); i++) {
+      assert actual.get(i) == expected.get(i);
+      assert versionChain.get(i) == expected.get(i);
+    }
+  }
+
+  @Test
+  public void iteratorFromTimestampSkipsOnlyLaterVersions() {
+    Random random = new Random(2);
+    VersionChain versionChain = new VersionChain();
+    for (int i = 0; i < 1000; i++) {
+      long start = random.nextInt(10000);
+      versionChain.addVersion(new Version(start, start + random.nextInt(50)));
+    }
+    for (int k = 0; k < 200; k++) {
+      long timestamp = random.nextInt(11000);
+      ListIterator<Version> listIterator = versionChain.getIterator(timestamp);
+      int skipped = listIterator.nextIndex();
+      for (int i = 0; i < skipped; i++) {
+        assert versionChain.get(i).getStartTimestamp() > timestamp;
+      }
+      // 跳过的部分之后必须紧接着结束时间不晚于阈值的version，否则二分过于保守
+      assert skipped == versionChain.getLength()
+          || versionChain.get(skipped).getFinishTimestamp() <= timestamp + 49;
+    }
+    assert versionChain.getIterator(Long.MAX_VALUE).nextIndex() == 0;
+  }
+
+  @Test
+  public void truncateRemovesOldestVersions() {
+    VersionChain versionChain = new VersionChain();
+    for (int i = 0; i < 100; i++) {
+      versionChain.addVersion(new Version(i * 10, i * 10 + 5));
+    }
+    List<Version> removed = versionChain.truncate(60);
+    assert removed.size() == 40;
+    assert removed.get(0).getFinishTimestamp() == 395;
+    assert removed.get(39).getFinishTimestamp() == 5;
+    assert versionChain.getLength() == 60;
+    assert versionChain.get(59).getFinishTimestamp() == 405;
+
+    // 清理之后继续插入，复用数组头部腾出的空间
+    for (int i = 0; i < 100; i++) {
+      versionChain.addVersion(new Version(1000 + i, 1000 + i));
+    }
+    assert versionChain.getLength() == 160;
+    assert versionChain.get(0).getFinishTimestamp() == 1099;
+    assert versionChain.get(159).getFinishTimestamp() == 405;
+  }
+
+  @Test
+  public void iteratorRemoveAndPrevious() {
+    VersionChain versionChain = new VersionChain();
+    for (int i = 0; i < 5; i++) {
+      versionChain.addVersion(new Version(i, i));
+    }
+    ListIterator<Version> listIterator = versionChain.getIterator();
+    Version first = listIterator.next();
+    Version second = listIterator.next();
+    listIterator.remove();
+    Version third = listIterator.next();
+    Version thirdAgain = listIterator.previous();
+    Version firstAgain = listIterator.previous();
+    assert first.getFinishTimestamp() == 4;
+    assert second.getFinishTimestamp() == 3;
+    assert third.getFinishTimestamp() == 2;
+    assert thirdAgain.getFinishTimestamp() == 2;
+    assert firstAgain.getFinishTimestamp() == 4;
+    assert versionChain.getLength() == 4;
+  }
+}
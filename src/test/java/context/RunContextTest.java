@@ -0,0 +1,62 @@
+package context;
+
+import ana.main.OrcaVerify;
+import ana.output.ErrorStatistics;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class RunContextTest {
+
+  @Test
+  public void stateIsolatedBetweenRuns() {
+    RunContext run = new RunContext("run");
+    ErrorStatistics.initialize();
+    ErrorStatistics.setTriggerBug(false);
+
+    RunContext.bind(run);
+    try {
+      ErrorStatistics.initialize();
+      ErrorStatistics.increase(ErrorStatistics.ErrorType.READ_SELF_ERROR, "0-0-0,0");
+      ErrorStatistics.setTriggerBug(true);
+      assert ErrorStatistics.hasError();
+    } finally {
+      RunContext.unbind();
+    }
+
+    assert !ErrorStatistics.hasError();
+    assert !ErrorStatistics.isTriggerBug();
+  }
+
+  @Test
+  public void statisticsIsolatedBetweenRuns() {
+    long before = OrcaVerify.getRuntimeStatistic().getTrackWW();
+
+    RunContext.bind(new RunContext("run"));
+    try {
+      OrcaVerify.getRuntimeStatistic().increaseTrackWW(5);
+      assert OrcaVerify.getRuntimeStatistic().getTrackWW() == 5;
+    } finally {
+      RunContext.unbind();
+    }
+
+    assert OrcaVerify.getRuntimeStatistic().getTrackWW() == before;
+  }
+
+  @Test
+  public void childThreadInheritsRun() throws InterruptedException {
+    RunContext run = new RunContext("run");
+    AtomicBoolean inherited = new AtomicBoolean(false);
+
+    RunContext.bind(run);
+    try {
+      Thread child = new Thread(() -> inherited.set(RunContext.current() == run));
+      child.start();
+      child.join();
+    } finally {
+      RunContext.unbind();
+    }
+
+    assert inherited.get();
+    assert RunContext.current() == RunContext.getDefault();
+  }
+}
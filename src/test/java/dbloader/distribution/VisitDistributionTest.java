@@ -0,0 +1,62 @@
+package dbloader.distribution;
+
+import config.schema.DistributionType;
+import java.util.Random;
+import org.junit.Test;
+
+public class VisitDistributionTest {
+
+  @Test
+  public void zipfAliasTableMatchesWeights() {
+    int r = 50;
+    double alpha = 1.2;
+    VisitDistribution distribution = new VisitDistribution(DistributionType.ZIPF, r + "," + alpha);
+    Random random = new Random(3);
+    int n = 500000;
+    int[] count = new int[r + 1];
+    for (int i = 0; i < n; i++) {
+      int rank = distribution.sample(random);
+      assert rank >= 1 && rank <= r;
+      count[rank]++;
+    }
+
+    double sum = 0;
+    for (int k = 1; k <= r; k++) {
+      sum += 1.0 / Math.pow(k, alpha);
+    }
+    for (int k = 1; k <= r; k++) {
+      double expected = n / Math.pow(k, alpha) / sum;
+      // 允许5个标准差的偏差
+      assert Math.abs(count[k] - expected) < 5 * Math.sqrt(expected) + 1;
+    }
+  }
+
+  @Test
+  public void uniformCoversClosedRange() {
+    VisitDistribution distribution = new VisitDistribution(DistributionType.UNIFORM, "0, 10");
+    Random random = new Random(5);
+    boolean[] seen = new boolean[11];
+    for (int i = 0; i < 10000; i++) {
+      int value = distribution.sample(random);
+      assert value >= 0 && value <= 10;
+      seen[value] = true;
+    }
+    for (boolean s : seen) {
+      assert s;
+    }
+  }
+
+  @Test
+  public void sameSeedSameSequence() {
+    for (String params : new String[] {"100,0.9", "0,10"}) {
+      DistributionType type =
+          params.contains(".") ? DistributionType.ZIPF : DistributionType.NORMAL;
+      VisitDistribution distribution = new VisitDistribution(type, params);
+      Random a = new Random(11);
+      Random b = new Random(11);
+      for (int i = 0; i < 1000; i++) {
+        assert distribution.sample(a) == distribution.sample(b);
+      }
+    }
+  }
+}
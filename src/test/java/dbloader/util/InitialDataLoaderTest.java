@@ -0,0 +1,79 @@
+package dbloader.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class InitialDataLoaderTest {
+  private static final Pattern INSERT_PATTERN =
+      Pattern.compile("^insert into (table\\d+) \\((.+)\\) values \\((.*)\\);$");
+
+  private static String insert(String table, String columns, String values) {
+    return String.format("insert into %s (%s) values (%s);", table, columns, values);
+  }
+
+  @Test
+  public void batchRowsPerTable() throws Exception {
+    List<String> insertList = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      insertList.add(insert("table0", "pkId,coAttr0_0", "\"" + i + "\",\"" + i * 10 + "\""));
+    }
+    insertList.add(insert("table1", "pkId,coAttr1_0", "\"0\",\"a\""));
+    insertList.add(insert("table0", "pkId", "\"5\""));
+
+    Map<String, List<String>> statements = InitialDataLoader.batch(insertList, INSERT_PATTERN, 2);
+    assert new ArrayList<>(statements.keySet()).equals(Arrays.asList("table0", "table1"));
+    // 5行按2行一批，列不同的第6行单独一条
+    assert statements.get("table0").size() == 4;
+    assert statements
+        .get("table0")
+        .get(0)
+        .equals("insert into table0 (pkId,coAttr0_0) values (\"0\",\"0\"),(\"1\",\"10\");");
+
+    try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        Statement stat = conn.createStatement()) {
+      stat.execute("create table table0 (pkId integer, coAttr0_0 integer)");
+      stat.execute("create table table1 (pkId integer, coAttr1_0 varchar(10))");
+      for (List<String> tableStatements : statements.values()) {
+        for (String sql : tableStatements) {
+          stat.execute(sql);
+        }
+      }
+      try (ResultSet resultSet = stat.executeQuery("select count(*), sum(pkId) from table0")) {
+        assert resultSet.next() && resultSet.getInt(1) == 6 && resultSet.getInt(2) == 15;
+      }
+    }
+  }
+
+  @Test
+  public void unrecognizedStatement() {
+    List<String> insertList = Arrays.asList("delete from table0;");
+    assert InitialDataLoader.batch(insertList, INSERT_PATTERN, 2) == null;
+  }
+
+  @Test
+  public void levelsFollowForeignKeys() {
+    List<String> schema =
+        Arrays.asList(
+            "create table table0 (pkId integer, primary key(pkId));",
+            "create table table1 (pkId integer, fk integer);",
+            "create table table2 (pkId integer);",
+            "create table table3 (pkId integer, fk integer);",
+            "alter table table1 add constraint fk1 foreign key(fk) references table0(pkId);",
+            "alter table table3 add constraint fk3 foreign key(fk) references table1(pkId);",
+            "alter table table3 add constraint fk4 foreign key(fk) references table3(pkId);");
+    List<List<String>> levels =
+        InitialDataLoader.levels(schema, Arrays.asList("table0", "table2", "table1", "table3"));
+    assert levels.size() == 3;
+    assert levels.get(0).equals(Arrays.asList("table0", "table2"));
+    assert levels.get(1).equals(Arrays.asList("table1"));
+    assert levels.get(2).equals(Arrays.asList("table3"));
+  }
+}
@@ -0,0 +1,48 @@
+package dbloader.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+  @Test
+  public void reuseAndEvictLeastRecentlyUsed() throws Exception {
+    try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        StatementCache cache = new StatementCache(conn, 2, 10)) {
+      PreparedStatement one = cache.prepare("select 1");
+      PreparedStatement two = cache.prepare("select 2");
+      assert cache.prepare("select 1") == one;
+
+      // select 2 最久没有使用，被淘汰并关闭
+      PreparedStatement three = cache.prepare("select 3");
+      assert cache.size() == 2;
+      assert two.isClosed();
+      assert !one.isClosed() && !three.isClosed();
+      assert cache.prepare("select 2") != two;
+
+      try (ResultSet resultSet = cache.prepare("select 3").executeQuery()) {
+        assert resultSet.next() && resultSet.getInt(1) == 3;
+      }
+    }
+  }
+
+  @Test
+  public void clearClosesStatements() throws Exception {
+    try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+      StatementCache cache = new StatementCache(conn, 8, 10);
+      PreparedStatement statement = cache.prepare("select 1");
+      cache.clear();
+      assert statement.isClosed();
+      assert cache.size() == 0;
+
+      // 已经关闭的语句不会被复用
+      PreparedStatement reopened = cache.prepare("select 1");
+      reopened.close();
+      assert cache.prepare("select 1") != reopened;
+      cache.close();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package gen.shadow;
+
+import adapter.Adapter;
+import adapter.AdapterHelper;
+import config.ConfigCollection;
+import config.schema.UniqueKeyConfig;
+import context.OrcaContext;
+import gen.data.InitialData;
+import gen.schema.Schema;
+import gen.schema.table.Table;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Test;
+import util.jdbc.DataSourceUtils;
+import util.xml.Seed;
+
+public class DBMirrorInitDataTest {
+
+  @Test
+  public void parallelOutputMatchesSerial() throws Exception {
+    ConfigCollection configColl = ConfigCollection.parse("src/main/resources/config.yaml");
+    OrcaContext.configColl = configColl;
+    // 多张表、带外键、行数足够多，保证会分层并且大表会被拆分
+    configColl.getSchema().setTableNumber(new Seed(6, 7, "uniform"));
+    configColl.getSchema().getTable().setRecordNumber(new Seed(3000, 9000, "uniform"));
+    configColl
+        .getSchema()
+        .getTable()
+        .getForeignKey()
+        .setForeignKeyNumber(new Seed(1, 3, "uniform"));
+    if (configColl.getSchema().getTable().getUniqueKey() == null) {
+      UniqueKeyConfig uniqueKeyConfig = new UniqueKeyConfig();
+      uniqueKeyConfig.setAttributeNumber(new Seed(0, 1, "uniform"));
+      uniqueKeyConfig.setDataType(Collections.singletonMap("INTEGER", 100));
+      configColl.getSchema().getTable().setUniqueKey(uniqueKeyConfig);
+    }
+
+    Adapter adapter = AdapterHelper.resolveAdapter("mysql", configColl.getDataFormat());
+    if (DataSourceUtils.getAdapter() == null) {
+      DataSourceUtils.init(adapter, configColl.getDatasource());
+    }
+
+    Schema schema = new Schema(configColl.getSchema());
+    DBMirror dbMirror = new DBMirror(schema, configColl.getDataGenerate());
+    List<Table> tables = dbMirror.topologyOrder(new HashSet<>(schema.getTableList()));
+    assert dbMirror.topologyLevels(tables).size() > 1;
+
+    File serialDir = Files.createTempDirectory("serial").toFile();
+    File parallelDir = Files.createTempDirectory("parallel").toFile();
+    InitialData serial = dbMirror.initData(adapter, 1);
+    serial.writeCSV(serialDir.getPath());
+    InitialData parallel = dbMirror.initData(adapter, 8);
+    parallel.writeCSV(parallelDir.getPath());
+
+    assert parallel.toSQLList().equals(serial.toSQLList());
+    String[] files = serialDir.list();
+    assert files != null && files.length == schema.getTableList().size();
+    for (String file : files) {
+      assert Arrays.equals(
+          Files.readAllBytes(new File(serialDir, file).toPath()),
+          Files.readAllBytes(new File(parallelDir, file).toPath()));
+    }
+  }
+}
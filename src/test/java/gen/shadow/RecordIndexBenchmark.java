@@ -0,0 +1,98 @@
+package gen.shadow;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多个loader线程在同一张热点表上寻找最近的满足tag的pkId：原先的synchronizedMap逐个pkId探测，
+ * 与RecordIndex的位图扫描对比。不是单元测试，直接运行main即可，参数依次为线程数、表大小和每个线程的查找次数
+ */
+public class RecordIndexBenchmark {
+
+  public static void main(String[] args) throws InterruptedException {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+    int lookups = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+
+    Map<Integer, Record> map = Collections.synchronizedMap(new LinkedHashMap<>());
+    RecordIndex index = new RecordIndex(size);
+    Random random = new Random(0);
+    for (int pkId = 0; pkId < size; pkId++) {
+      // 动态区中只有少量记录不存在，查找NOT_EXISTS时需要探测较远
+      PartitionTag tag =
+          random.nextInt(50) == 0 ? PartitionTag.DYNAMIC_NOT_EXISTS : PartitionTag.DYNAMIC_EXISTS;
+      Record record = new Record(0, pkId, tag, new RefInfo());
+      map.put(pkId, record);
+      index.put(pkId, record.clone());
+    }
+
+    for (int round = 0; round < 3; round++) {
+      System.out.printf(
+          "round %d: synchronized map %d ms, record index %d ms%n",
+          round,
+          run(threads, lookups, size, pkId -> probeMap(map, size, pkId)),
+          run(threads, lookups, size, pkId -> probeIndex(index, size, pkId)));
+    }
+  }
+
+  private interface Probe {
+    int find(int pkId);
+  }
+
+  private static long run(int threads, int lookups, int size, Probe probe)
+      throws InterruptedException {
+    AtomicLong checksum = new AtomicLong();
+    Thread[] workers = new Thread[threads];
+    long begin = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      Random random = new Random(t);
+      workers[t] =
+          new Thread(
+              () -> {
+                long sum = 0;
+                for (int k = 0; k < lookups; k++) {
+                  sum += probe.find(random.nextInt(size));
+                }
+                checksum.addAndGet(sum);
+              });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long elapsed = (System.nanoTime() - begin) / 1_000_000;
+    return checksum.get() < 0 ? -1 : elapsed;
+  }
+
+  private static int probeMap(Map<Integer, Record> map, int size, int pkId) {
+    Set<Integer> dynamicIdSet = map.keySet();
+    for (int delta = 0; delta < size; delta++) {
+      Set<Integer> idSet =
+          new HashSet<>(Arrays.asList((pkId + delta) % size, (pkId - delta + size) % size));
+      for (int id : idSet) {
+        if (dynamicIdSet.contains(id)
+            && map.get(id).getTag() == PartitionTag.DYNAMIC_NOT_EXISTS) {
+          return id;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static int probeIndex(RecordIndex index, int size, int pkId) {
+    Set<PartitionTag> tags = EnumSet.of(PartitionTag.DYNAMIC_NOT_EXISTS);
+    int up = index.nextCandidate(pkId, size, tags);
+    int down = index.previousCandidate(pkId, tags);
+    if (up < 0) {
+      return down;
+    }
+    return down < 0 || up - pkId <= pkId - down ? up : down;
+  }
+}
@@ -0,0 +1,75 @@
+package gen.shadow;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class RecordIndexTest {
+
+  private static boolean matches(RecordIndex index, int pkId, Set<PartitionTag> tags) {
+    Record record = index.get(pkId);
+    return record == null ? tags.contains(PartitionTag.STATIC) : tags.contains(record.getTag());
+  }
+
+  @Test
+  public void candidatesMatchLinearScan() {
+    Random random = new Random(1);
+    // 从0开始，put时逐步扩容
+    RecordIndex index = new RecordIndex();
+    int size = 700;
+    for (int pkId = 0; pkId < size; pkId++) {
+      if (random.nextInt(3) > 0) {
+        PartitionTag tag =
+            random.nextBoolean() ? PartitionTag.DYNAMIC_EXISTS : PartitionTag.DYNAMIC_NOT_EXISTS;
+        index.put(pkId, new Record(0, pkId, tag, new RefInfo()));
+      }
+    }
+    for (Record record : index.values()) {
+      if (random.nextInt(4) == 0) {
+        index.setTag(record, PartitionTag.DYNAMIC_NOT_EXISTS);
+      }
+    }
+
+    for (Set<PartitionTag> tags :
+        Arrays.asList(
+            EnumSet.of(PartitionTag.STATIC),
+            EnumSet.of(PartitionTag.DYNAMIC_EXISTS),
+            EnumSet.of(PartitionTag.DYNAMIC_NOT_EXISTS),
+            EnumSet.of(PartitionTag.STATIC, PartitionTag.DYNAMIC_EXISTS))) {
+      for (int from = 0; from < size; from++) {
+        int next = -1;
+        for (int pkId = from; pkId < size; pkId++) {
+          if (matches(index, pkId, tags)) {
+            next = pkId;
+            break;
+          }
+        }
+        assert index.nextCandidate(from, size, tags) == next;
+
+        int previous = -1;
+        for (int pkId = from; pkId >= 0; pkId--) {
+          if (matches(index, pkId, tags)) {
+            previous = pkId;
+            break;
+          }
+        }
+        assert index.previousCandidate(from, tags) == previous;
+      }
+    }
+  }
+
+  @Test
+  public void privateRecordDoesNotTouchBitmap() {
+    RecordIndex index = new RecordIndex(10);
+    Record record = new Record(0, 3, PartitionTag.DYNAMIC_EXISTS, new RefInfo());
+    index.put(3, record);
+    Record copy = record.copy();
+    index.setTag(copy, PartitionTag.DYNAMIC_NOT_EXISTS);
+    assert copy.getTag() == PartitionTag.DYNAMIC_NOT_EXISTS;
+    assert index.nextCandidate(0, 10, EnumSet.of(PartitionTag.DYNAMIC_EXISTS)) == 3;
+    assert index.nextCandidate(0, 10, EnumSet.of(PartitionTag.DYNAMIC_NOT_EXISTS)) == -1;
+    assert index.size() == 1;
+  }
+}
@@ -0,0 +1,58 @@
+package replay.controller.cascadeDetect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import trace.OperationTrace;
+import trace.OperationTraceType;
+
+public class DataChainTest {
+
+  private static final OperationTraceType[] TYPES = {
+    OperationTraceType.SELECT,
+    OperationTraceType.UPDATE,
+    OperationTraceType.INSERT,
+    OperationTraceType.DELETE,
+    OperationTraceType.ROLLBACK,
+    OperationTraceType.COMMIT
+  };
+
+  private static List<OperationTrace> randomChain(Random random, int length) {
+    List<OperationTrace> chain = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      // 同一个操作可能多次出现在链上
+      int operation = random.nextInt(length);
+      OperationTrace trace =
+          new OperationTrace(String.valueOf(operation % 3), String.valueOf(operation), "0");
+      trace.setOperationTraceType(TYPES[random.nextInt(TYPES.length)]);
+      chain.add(trace);
+    }
+    return chain;
+  }
+
+  @Test
+  public void matchesLinearScan() {
+    Random random = new Random(24);
+    for (int round = 0; round < 500; round++) {
+      List<OperationTrace> chain = randomChain(random, random.nextInt(30));
+      DataChain dataChain = new DataChain(chain);
+      for (int i = 0; i < chain.size(); i++) {
+        String operationId = chain.get(i).getOperationID();
+        assert dataChain.get(i) == chain.get(i);
+        assert dataChain.indexOf(operationId) == chain.indexOf(chain.get(i));
+
+        // 原先寻找依赖版本时逐个跳过读操作和回滚
+        int expected = i;
+        while (expected >= 0
+            && (chain.get(expected).getOperationTraceType() == OperationTraceType.SELECT
+                || chain.get(expected).getOperationTraceType() == OperationTraceType.ROLLBACK)) {
+          expected--;
+        }
+        assert dataChain.previousCandidate(i) == expected;
+      }
+      assert dataChain.indexOf("missing") == -1;
+      assert dataChain.previousCandidate(-1) == -1;
+    }
+  }
+}
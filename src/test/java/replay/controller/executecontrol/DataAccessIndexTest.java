@@ -0,0 +1,160 @@
+package replay.controller.executecontrol;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import trace.OperationId;
+import trace.OperationTrace;
+import trace.TupleTrace;
+
+public class DataAccessIndexTest {
+
+  private static List<TupleTrace> randomTuples(Random random) {
+    if (random.nextInt(4) == 0) {
+      return null;
+    }
+    List<TupleTrace> tuples = new ArrayList<>();
+    int size = random.nextInt(3);
+    for (int i = 0; i < size; i++) {
+      String table = "table" + random.nextInt(2);
+      tuples.add(new TupleTrace(table, "pk" + random.nextInt(40), null, null));
+    }
+    return tuples;
+  }
+
+  private static List<List<List<OperationTrace>>> randomTxns(Random random) {
+    List<List<List<OperationTrace>>> allTxns = new ArrayList<>();
+    int threads = 1 + random.nextInt(4);
+    for (int thread = 0; thread < threads; thread++) {
+      List<List<OperationTrace>> txns = new ArrayList<>();
+      int txnCount = 1 + random.nextInt(5);
+      for (int txn = 0; txn < txnCount; txn++) {
+        List<OperationTrace> operations = new ArrayList<>();
+        int operationCount = 1 + random.nextInt(5);
+        for (int op = 0; op < operationCount; op++) {
+          OperationTrace trace =
+              new OperationTrace(
+                  String.valueOf(thread), String.valueOf(txn), String.valueOf(op));
+          trace.setReadTupleList(randomTuples(random));
+          trace.setWriteTupleList(randomTuples(random));
+          operations.add(trace);
+        }
+        txns.add(operations);
+      }
+      allTxns.add(txns);
+    }
+    return allTxns;
+  }
+
+  private static Set<String> keysOf(OperationTrace operationTrace) {
+    Set<String> keys = new HashSet<>();
+    addKeys(operationTrace, keys);
+    return keys;
+  }
+
+  /** 原先各个filter提取操作访问的数据的方式 */
+  private static void addKeys(OperationTrace operationTrace, Set<String> keys) {
+    if (operationTrace.getReadTupleList() != null) {
+      operationTrace.getReadTupleList().forEach(trace -> keys.add(trace.getPrimaryKey()));
+    }
+    if (operationTrace.getWriteTupleList() != null
+        && operationTrace.getWriteTupleList().size() == 1) {
+      operationTrace.getWriteTupleList().forEach(trace -> keys.add(trace.getPrimaryKey()));
+    }
+  }
+
+  @Test
+  public void matchesListNumbering() {
+    Random random = new Random(25);
+    for (int round = 0; round < 300; round++) {
+      List<List<List<OperationTrace>>> allTxns = randomTxns(random);
+      DataAccessIndex index = new DataAccessIndex(allTxns);
+
+      // 原先按事务分组时数据的编号，以及按操作分组时组的次序
+      List<String> dataSet = new ArrayList<>();
+      List<String> keyList = new ArrayList<>();
+      List<OperationTrace> operations = new ArrayList<>();
+      List<Set<Integer>> txnData = new ArrayList<>();
+      for (List<List<OperationTrace>> thread : allTxns) {
+        for (List<OperationTrace> txn : thread) {
+          Set<String> dataInTxn = new HashSet<>();
+          for (OperationTrace operationTrace : txn) {
+            addKeys(operationTrace, dataInTxn);
+            for (String key : keysOf(operationTrace)) {
+              if (!keyList.contains(key)) {
+                keyList.add(key);
+              }
+            }
+            operations.add(operationTrace);
+          }
+          Set<Integer> datum = new LinkedHashSet<>();
+          for (String data : dataInTxn) {
+            if (!dataSet.contains(data)) {
+              dataSet.add(data);
+            }
+            datum.add(dataSet.indexOf(data));
+          }
+          txnData.add(datum);
+        }
+      }
+
+      assert index.getDataCount() == dataSet.size();
+      for (int i = 0; i < keyList.size(); i++) {
+        assert index.getOperationOrder()[i] == dataSet.indexOf(keyList.get(i));
+      }
+      int txnNo = 0;
+      for (int threadNo = 0; threadNo < allTxns.size(); threadNo++) {
+        for (int i = 0; i < allTxns.get(threadNo).size(); i++, txnNo++) {
+          assert index.txnNo(threadNo, i) == txnNo;
+          Set<Integer> data = new LinkedHashSet<>();
+          for (int dataNo : index.getTxnData(txnNo)) {
+            data.add(dataNo);
+          }
+          assert new ArrayList<>(data).equals(new ArrayList<>(txnData.get(txnNo)));
+        }
+      }
+      for (int operationNo = 0; operationNo < operations.size(); operationNo++) {
+        OperationTrace operationTrace = operations.get(operationNo);
+        assert index.operationNo(OperationId.parse(operationTrace.getOperationID()))
+            == operationNo;
+        Set<String> keys = new HashSet<>();
+        for (int dataNo : index.getOperationData(operationNo)) {
+          keys.add(dataSet.get(dataNo));
+          assert index.getDataOperations(dataNo).get(operationNo);
+        }
+        assert keys.equals(keysOf(operationTrace));
+      }
+
+      // 一组数据删去的事务和操作
+      BitSet group = new BitSet();
+      for (int dataNo = 0; dataNo < dataSet.size(); dataNo++) {
+        if (random.nextInt(4) == 0) {
+          group.set(dataNo);
+        }
+      }
+      Set<String> expected = new HashSet<>();
+      for (int i = 0, start = 0; i < txnData.size(); i++) {
+        int end = start;
+        while (end < operations.size()
+            && operations.get(end).getTransactionID().equals(
+                operations.get(start).getTransactionID())) {
+          end++;
+        }
+        if (txnData.get(i).stream().anyMatch(group::get)) {
+          for (int j = start; j < end; j++) {
+            expected.add(operations.get(j).getOperationID());
+          }
+        }
+        start = end;
+      }
+      Set<String> deleted = new HashSet<>();
+      index.addTxnOperationIds(index.txnsOf(group), deleted);
+      assert deleted.equals(expected);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package replay.controller.pausecontrol.serial;
+
+import java.util.Random;
+
+/**
+ * 扫描线实现的generateOperationSequence与原先逐步重新扫描的实现在不同trace规模下的对比。
+ * 不是单元测试，直接运行main即可，参数依次为线程数和各个规模的操作数
+ */
+public class SequenceDependencyBenchmark {
+
+  public static void main(String[] args) {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int[] sizes = {1000, 5000, 20000, 50000};
+    if (args.length > 1) {
+      sizes = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        sizes[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+    for (int size : sizes) {
+      SequenceDependencyTest.Case c =
+          SequenceDependencyTest.randomCase(new Random(size), threads, size);
+
+      long begin = System.nanoTime();
+      int sweep = c.build().generateOperationSequence().size();
+      long sweepElapsed = (System.nanoTime() - begin) / 1_000_000;
+
+      begin = System.nanoTime();
+      int rescan = SequenceDependencyTest.rescanSequence(c).size();
+      long rescanElapsed = (System.nanoTime() - begin) / 1_000_000;
+
+      System.out.printf(
+          "%d operations (%d/%d steps): rescan %d ms, sweep line %d ms%n",
+          size, rescan, sweep, rescanElapsed, sweepElapsed);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package replay.controller.pausecontrol.serial;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import trace.OperationTrace;
+import trace.OperationTraceType;
+
+public class SequenceDependencyTest {
+
+  /** 随机生成的用例：若干线程上交错执行的事务，以及事务之间的ME依赖（后继操作 -> 前驱操作） */
+  static class Case {
+    final List<OperationTrace> traces = new ArrayList<>();
+    final List<String[]> dependencies = new ArrayList<>();
+
+    SequenceDependency build() {
+      SequenceDependency sequenceDependency = new SequenceDependency();
+      sequenceDependency.init();
+      for (OperationTrace trace : traces) {
+        sequenceDependency.addTrace(new OperationTrace(trace));
+      }
+      for (String[] dependency : dependencies) {
+        sequenceDependency.addDependency(dependency[0], dependency[1]);
+      }
+      return sequenceDependency;
+    }
+  }
+
+  static Case randomCase(Random random, int threads, int operations) {
+    Case c = new Case();
+    long[] clock = new long[threads];
+    int[] txn = new int[threads];
+    int[] op = new int[threads];
+    for (int k = 0; k < operations; k++) {
+      int thread = random.nextInt(threads);
+      OperationTrace trace =
+          new OperationTrace(
+              "0-0-" + thread, String.valueOf(txn[thread]), String.valueOf(op[thread]++));
+      clock[thread] += 1 + random.nextInt(20);
+      trace.setStartTimestamp(clock[thread]);
+      clock[thread] += 1 + random.nextInt(30);
+      trace.setFinishTimestamp(clock[thread]);
+      // 结束事务
+      if (op[thread] > 1 && random.nextInt(4) == 0) {
+        trace.setOperationTraceType(
+            random.nextInt(5) == 0 ? OperationTraceType.ROLLBACK : OperationTraceType.COMMIT);
+        txn[thread]++;
+        op[thread] = 0;
+      } else {
+        trace.setOperationTraceType(OperationTraceType.UPDATE);
+      }
+      c.traces.add(trace);
+    }
+    for (int k = 0; k < operations / 4; k++) {
+      OperationTrace front = c.traces.get(random.nextInt(c.traces.size()));
+      OperationTrace back = c.traces.get(random.nextInt(c.traces.size()));
+      if (front.getStartTimestamp() < back.getStartTimestamp()) {
+        c.dependencies.add(new String[] {front.getOperationID(), back.getOperationID()});
+      }
+    }
+    return c;
+  }
+
+  /** 原先逐步重新扫描剩余操作的实现，作为对照 */
+  static List<List<String>> rescanSequence(Case c) {
+    List<OperationTrace> operationTraceList = new ArrayList<>(c.traces);
+    Map<String, List<String>> operationDependencies = new HashMap<>();
+    for (String[] dependency : c.dependencies) {
+      operationDependencies
+          .computeIfAbsent(dependency[1], k -> new ArrayList<>())
+          .add(dependency[0]);
+    }
+    Map<String, String> trx2end = new HashMap<>();
+    for (OperationTrace trace : operationTraceList) {
+      if (trace.getOperationTraceType() == OperationTraceType.COMMIT
+          || trace.getOperationTraceType() == OperationTraceType.ROLLBACK) {
+        trx2end.put(trace.getTransactionID(), trace.getOperationID());
+      }
+    }
+    for (List<String> frontOp : operationDependencies.values()) {
+      frontOp.replaceAll(s -> trx2end.get(s.substring(0, s.lastIndexOf(","))));
+    }
+
+    List<List<String>> sequence = new ArrayList<>();
+    operationTraceList.sort(Comparator.comparing(OperationTrace::getFinishTimestamp));
+    while (!operationTraceList.isEmpty()) {
+      long finishTimestamp = operationTraceList.get(0).getFinishTimestamp();
+      Set<OperationTrace> candidates =
+          operationTraceList.stream()
+              .filter(op -> op.getStartTimestamp() < finishTimestamp)
+              .collect(Collectors.toSet());
+      Set<String> ret = new HashSet<>();
+      for (OperationTrace candidate : candidates) {
+        if (!operationDependencies.containsKey(candidate.getOperationID())) {
+          ret.add(candidate.getOperationID());
+        }
+      }
+      if (ret.isEmpty()) {
+        ret = candidates.stream().map(OperationTrace::getOperationID).collect(Collectors.toSet());
+      }
+      for (Iterator<List<String>> it = operationDependencies.values().iterator(); it.hasNext(); ) {
+        List<String> fronts = it.next();
+        fronts.removeAll(ret);
+        if (fronts.isEmpty()) {
+          it.remove();
+        }
+      }
+      sequence.add(new ArrayList<>(ret));
+      Set<String> sequenced = ret;
+      operationTraceList.removeIf(op -> sequenced.contains(op.getOperationID()));
+    }
+    return sequence;
+  }
+
+  private static List<Set<String>> asSets(List<List<String>> sequence) {
+    return sequence.stream().map(HashSet::new).collect(Collectors.toList());
+  }
+
+  @Test
+  public void matchesRescanOnRandomTraces() {
+    Random random = new Random(17);
+    for (int round = 0; round < 200; round++) {
+      Case c = randomCase(random, 1 + random.nextInt(8), 1 + random.nextInt(300));
+      List<List<String>> sequence = c.build().generateOperationSequence();
+      assert asSets(sequence).equals(asSets(rescanSequence(c)));
+      assert sequence.stream().mapToInt(List::size).sum() == c.traces.size();
+    }
+  }
+
+  @Test
+  public void dependencyOnUnfinishedTransactionFallsBackToConflict() {
+    Case c = new Case();
+    OperationTrace a = new OperationTrace("0-0-1", "0", "0");
+    a.setStartTimestamp(0L);
+    a.setFinishTimestamp(10L);
+    a.setOperationTraceType(OperationTraceType.UPDATE);
+    OperationTrace b = new OperationTrace("0-0-2", "0", "0");
+    b.setStartTimestamp(5L);
+    b.setFinishTimestamp(20L);
+    b.setOperationTraceType(OperationTraceType.UPDATE);
+    c.traces.add(a);
+    c.traces.add(b);
+    // a所在的事务没有结束操作，依赖永远无法满足
+    c.dependencies.add(new String[] {a.getOperationID(), b.getOperationID()});
+    List<List<String>> sequence = c.build().generateOperationSequence();
+    assert asSets(sequence).equals(asSets(rescanSequence(c)));
+  }
+}
@@ -0,0 +1,46 @@
+package replay.main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import trace.OperationTrace;
+
+public class VerdictCacheTest {
+
+  private static final List<OperationTrace> ALL =
+      Arrays.asList(
+          new OperationTrace("0-0-1", "0", "0"),
+          new OperationTrace("0-0-1", "0", "1"),
+          new OperationTrace("0-0-2", "3", "0"));
+
+  @Test
+  public void fingerprintIgnoresOrder() {
+    String fingerprint = VerdictCache.fingerprint(ALL);
+    assert fingerprint.equals(
+        VerdictCache.fingerprintOfIds(Arrays.asList("0-0-2,3,0", "0-0-1,0,0", "0-0-1,0,1")));
+    assert !fingerprint.equals(VerdictCache.fingerprint(ALL.subList(0, 2)));
+  }
+
+  @Test
+  public void verdictsSurviveRestart() throws IOException {
+    Path dir = Files.createTempDirectory("verdict");
+    String subset = VerdictCache.fingerprint(ALL.subList(1, 3));
+
+    VerdictCache cache = new VerdictCache(dir.toString(), ALL);
+    assert cache.get(subset) == null;
+    cache.put(subset, true);
+    cache.put(VerdictCache.fingerprint(ALL.subList(0, 1)), false);
+
+    VerdictCache restarted = new VerdictCache(dir.toString(), ALL);
+    assert restarted.size() == 2;
+    assert restarted.get(subset);
+    assert !restarted.get(VerdictCache.fingerprint(ALL.subList(0, 1)));
+
+    // 不同用例的结论不能复用
+    VerdictCache other = new VerdictCache(dir.toString(), ALL.subList(0, 2));
+    assert other.size() == 0;
+  }
+}
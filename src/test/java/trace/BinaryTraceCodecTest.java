@@ -0,0 +1,102 @@
+package trace;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class BinaryTraceCodecTest {
+
+  private static TupleTrace newTuple(String table, String pk, String value) {
+    // 列的顺序与哈希顺序不同，解码后需要保持
+    Map<String, String> valueMap = new LinkedHashMap<>();
+    valueMap.put("col0", value);
+    valueMap.put("col1", null);
+    valueMap.put("col2", pk);
+    Map<String, String> realValueMap = new HashMap<>();
+    realValueMap.put("c_name", value);
+    return new TupleTrace(table, pk, valueMap, realValueMap);
+  }
+
+  private static List<OperationTrace> newTraces() {
+    List<OperationTrace> traces = new ArrayList<>();
+
+    OperationTrace start = new OperationTrace("0-0-1", "3", "0");
+    start.setOperationTraceType(OperationTraceType.START);
+    start.setIsolationLevel(IsolationLevel.REPEATABLE_READ);
+    start.setStartTime(1_700_000_000_000_000_000L);
+    start.setFinishTime(1_700_000_000_000_500_000L);
+    start.setTraceFile("out/trace/loader-1.0.json");
+    traces.add(start);
+
+    OperationTrace update = new OperationTrace("0-0-1", "3", "1");
+    update.setOperationTraceType(OperationTraceType.UPDATE);
+    update.setSql("UPDATE t0 SET col0 = 'a' WHERE pk = 1");
+    update.setBeforeLoadTime(1_700_000_000_001_000_000L);
+    update.setStartTime(1_700_000_000_001_200_000L);
+    update.setFinishTime(1_700_000_000_002_000_000L);
+    update.setTraceLockMode(TraceLockMode.EXCLUSIVE_LOCK);
+    update.setReadMode(ReadMode.LOCKING_READ);
+    update.setPredicateLock("pk = 1");
+    update.setIsWhereValid(true);
+    update.setSavepoint("sp1");
+    update.setReadTupleList(new ArrayList<>());
+    update.getReadTupleList().add(newTuple("t0", "1", "old"));
+    update.setWriteTupleList(new ArrayList<>());
+    update.getWriteTupleList().add(newTuple("t0", "1", "a"));
+    update.getWriteTupleList().add(newTuple("t1", "7", null));
+    update.setTraceFile("out/trace/loader-1.0.json");
+    traces.add(update);
+
+    OperationTrace rollback = new OperationTrace("0-0-1", "3", "2");
+    rollback.setOperationTraceType(OperationTraceType.ROLLBACK);
+    rollback.setException("Deadlock found when trying to get lock");
+    rollback.setStartTime(1_700_000_000_003_000_000L);
+    // 人为修改过的可读时间，不能由毫秒时间戳还原
+    rollback.setStartTimestampMillsHumanReadable("manual");
+    traces.add(rollback);
+
+    // 非标准格式的id需要原样保留
+    OperationTrace custom = new OperationTrace("custom", "x", "y");
+    custom.setOperationTraceType(OperationTraceType.DDL);
+    traces.add(custom);
+    return traces;
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    List<OperationTrace> traces = newTraces();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryTraceCodec encoder = new BinaryTraceCodec();
+    BinaryTraceCodec.writeHeader(out);
+    for (OperationTrace trace : traces) {
+      encoder.write(trace, out);
+    }
+
+    byte[] bytes = out.toByteArray();
+    assert BinaryTraceCodec.isBinary(bytes);
+
+    ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+    in.skip(BinaryTraceCodec.MAGIC.length);
+    BinaryTraceCodec decoder = new BinaryTraceCodec();
+    Gson gson = new Gson();
+    for (OperationTrace trace : traces) {
+      OperationTrace decoded = decoder.read(in);
+      assert decoded != null;
+      assert gson.toJson(trace).equals(gson.toJson(decoded)) : gson.toJson(decoded);
+    }
+    assert decoder.read(in) == null;
+  }
+
+  @Test
+  public void jsonHeaderIsNotBinary() {
+    assert !BinaryTraceCodec.isBinary("[\n    {".getBytes());
+  }
+}
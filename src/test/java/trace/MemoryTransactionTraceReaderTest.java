@@ -0,0 +1,63 @@
+package trace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class MemoryTransactionTraceReaderTest {
+
+  private static OperationTrace newTrace(int txn, int op, OperationTraceType type) {
+    OperationTrace trace = new OperationTrace("0-0-0", String.valueOf(txn), String.valueOf(op));
+    trace.setOperationTraceType(type);
+    return trace;
+  }
+
+  @Test
+  public void readInOrder() throws IOException {
+    List<OperationTrace> traces = new ArrayList<>();
+    traces.add(newTrace(0, 0, OperationTraceType.START));
+    traces.add(newTrace(0, 1, OperationTraceType.SELECT));
+    traces.add(newTrace(0, 2, OperationTraceType.COMMIT));
+    traces.add(newTrace(1, 0, OperationTraceType.START));
+    traces.add(newTrace(1, 1, OperationTraceType.ROLLBACK));
+
+    BufferedTransactionTraceReader reader =
+        new BufferedTransactionTraceReader(new MemoryTransactionTraceReader(traces));
+    reader.begin();
+    List<OperationTrace> read = new ArrayList<>();
+    while (reader.hasNext()) {
+      read.add(reader.readOperationTrace());
+    }
+    assert read.equals(traces);
+  }
+
+  @Test
+  public void filterRollbackToSavepoint() throws IOException {
+    List<OperationTrace> traces = new ArrayList<>();
+    traces.add(newTrace(0, 0, OperationTraceType.START));
+    traces.add(newTrace(0, 1, OperationTraceType.UPDATE));
+    traces.add(newTrace(0, 2, OperationTraceType.UPDATE));
+    OperationTrace commit = newTrace(0, 3, OperationTraceType.COMMIT);
+    commit.setSavepoint("0-0-0,0,1");
+    traces.add(commit);
+
+    BufferedTransactionTraceReader reader =
+        new BufferedTransactionTraceReader(new MemoryTransactionTraceReader(traces));
+    reader.begin();
+    List<String> read = new ArrayList<>();
+    while (reader.hasNext()) {
+      read.add(reader.readOperationTrace().getOperationID());
+    }
+    assert read.size() == 3;
+    assert !read.contains("0-0-0,0,2");
+  }
+
+  @Test
+  public void emptyLoader() throws IOException {
+    BufferedTransactionTraceReader reader =
+        new BufferedTransactionTraceReader(new MemoryTransactionTraceReader(null));
+    reader.begin();
+    assert !reader.hasNext();
+  }
+}
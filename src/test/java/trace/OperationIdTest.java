@@ -0,0 +1,40 @@
+package trace;
+
+import org.junit.Test;
+
+public class OperationIdTest {
+
+  @Test
+  public void parseOperationId() {
+    long id = OperationId.parse("0-0-12,345,6");
+    assert OperationId.threadOf(id) == 12;
+    assert OperationId.txnOf(id) == 345;
+    assert OperationId.opOf(id) == 6;
+    assert id == OperationId.pack(12, 345, 6);
+    assert TraceUtil.getThreadIdFromOpId("0-0-12,345,6") == 12;
+    assert TraceUtil.getTxnIdFromOpId("0-0-12,345,6") == 345;
+  }
+
+  @Test
+  public void txnAndThreadKeys() {
+    long id = OperationId.parse("0-0-1,10,3");
+    assert OperationId.txnKey(id) == OperationId.parse("0-0-1,10");
+    assert OperationId.threadKey(id) == OperationId.parse("0-0-1");
+    // 线程id是另一线程id的前缀时不能混淆
+    assert OperationId.threadKey(id) != OperationId.threadKey(OperationId.parse("0-0-12,10,3"));
+  }
+
+  @Test
+  public void packedIdFollowsOperationTrace() {
+    OperationTrace trace = new OperationTrace("0-0-2", "7", "0");
+    assert trace.getPackedOperationID() == OperationId.pack(2, 7, 0);
+    trace.setOperationID("0-0-2,7,1");
+    assert trace.getPackedOperationID() == OperationId.pack(2, 7, 1);
+    assert new OperationTrace(trace).getPackedOperationID() == OperationId.pack(2, 7, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectMalformedId() {
+    OperationId.parse("0-0-1,10,+inf");
+  }
+}
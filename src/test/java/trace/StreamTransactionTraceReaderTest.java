@@ -0,0 +1,85 @@
+package trace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class StreamTransactionTraceReaderTest {
+
+  private static OperationTrace newTrace(int txn, int op, OperationTraceType type) {
+    OperationTrace trace = new OperationTrace("0-0-0", String.valueOf(txn), String.valueOf(op));
+    trace.setOperationTraceType(type);
+    return trace;
+  }
+
+  @Test(timeout = 10000)
+  public void readWhileReplaying() throws Exception {
+    List<List<OperationTrace>> txns = new ArrayList<>();
+    List<OperationTrace> expected = new ArrayList<>();
+    for (int txn = 0; txn < 50; txn++) {
+      List<OperationTrace> traces =
+          Arrays.asList(
+              newTrace(txn, 0, OperationTraceType.START),
+              newTrace(txn, 1, OperationTraceType.UPDATE),
+              newTrace(txn, 2, OperationTraceType.COMMIT));
+      txns.add(traces);
+      expected.addAll(traces);
+    }
+
+    TraceStream stream = new TraceStream();
+    Thread replayer =
+        new Thread(
+            () -> {
+              for (List<OperationTrace> traces : txns) {
+                stream.addAll(traces);
+                Thread.yield();
+              }
+              stream.close();
+            });
+    replayer.start();
+
+    BufferedTransactionTraceReader reader =
+        new BufferedTransactionTraceReader(new StreamTransactionTraceReader(stream));
+    reader.begin();
+    List<OperationTrace> read = new ArrayList<>();
+    while (reader.hasNext()) {
+      read.add(reader.readOperationTrace());
+    }
+    replayer.join();
+    assert read.equals(expected);
+  }
+
+  @Test(timeout = 10000)
+  public void closeReleasesWaitingReader() throws Exception {
+    TraceStream stream = new TraceStream();
+    stream.addAll(
+        Arrays.asList(
+            newTrace(0, 0, OperationTraceType.START), newTrace(0, 1, OperationTraceType.COMMIT)));
+
+    StreamTransactionTraceReader reader = new StreamTransactionTraceReader(stream);
+    reader.begin();
+    reader.readOperationTrace();
+    reader.readOperationTrace();
+
+    boolean[] hasNext = {true};
+    Thread waiting =
+        new Thread(
+            () -> {
+              try {
+                hasNext[0] = reader.hasNext();
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    waiting.start();
+    waiting.join(200);
+    assert waiting.isAlive();
+
+    // 提前终止的回放只会关闭流，不再追加trace
+    stream.close();
+    waiting.join();
+    assert !hasNext[0];
+  }
+}
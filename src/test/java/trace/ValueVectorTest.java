@@ -0,0 +1,88 @@
+package trace;
+
+import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class ValueVectorTest {
+
+  private static final String[] VALUES = {"1", "1.0", "01", "2", "1e0", "a", "A", "NaN", " 2", ""};
+
+  /** 原先Version.isCompatible基于Map的实现，作为对照 */
+  static boolean mapCompatible(Map<String, String> self, Map<String, String> valueSet) {
+    String value;
+    for (Map.Entry<String, String> entry : self.entrySet()) {
+      String key = entry.getKey();
+      if ((value = valueSet.get(key)) != null) {
+        try {
+          double valueNum = Double.parseDouble(value);
+          double enterNum = Double.parseDouble(entry.getValue());
+          return valueNum == enterNum;
+        } catch (NumberFormatException e) {
+          return value.equals(entry.getValue());
+        }
+      }
+    }
+    boolean thisEmpty = self.isEmpty();
+    boolean newEmpty = valueSet.isEmpty();
+    return (thisEmpty && newEmpty) || (!thisEmpty && !newEmpty);
+  }
+
+  private static Map<String, String> randomMap(Random random, boolean withNull) {
+    List<String> columns = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      if (random.nextInt(3) != 0) {
+        columns.add("col" + i);
+      }
+    }
+    Collections.shuffle(columns, random);
+    Map<String, String> valueMap =
+        random.nextBoolean() ? new HashMap<>() : new LinkedHashMap<>();
+    for (String column : columns) {
+      String value = VALUES[random.nextInt(VALUES.length)];
+      valueMap.put(column, withNull && random.nextInt(5) == 0 ? null : value);
+    }
+    return valueMap;
+  }
+
+  @Test
+  public void matchesMapComparison() {
+    Random random = new Random(23);
+    for (int round = 0; round < 20000; round++) {
+      // 原先的实现在自身的值为null时抛出NullPointerException，version的值不会为null
+      Map<String, String> self = randomMap(random, false);
+      Map<String, String> read = randomMap(random, true);
+      assert ValueVector.of(self).isCompatible(ValueVector.of(read)) == mapCompatible(self, read)
+          : self + " " + read;
+    }
+  }
+
+  @Test
+  public void jsonMatchesMap() {
+    Gson gson = new Gson();
+    Random random = new Random(29);
+    for (int round = 0; round < 1000; round++) {
+      Map<String, String> valueMap = randomMap(random, true);
+      ValueVector vector = ValueVector.of(valueMap);
+      assert gson.toJson(vector).equals(gson.toJson(valueMap));
+      assert vector.toMap().equals(valueMap);
+      ValueVector decoded = gson.fromJson(gson.toJson(vector), ValueVector.class);
+      assert gson.toJson(decoded).equals(gson.toJson(vector));
+    }
+  }
+
+  @Test
+  public void keysAreShared() {
+    TupleTrace first = new TupleTrace("table0", "3", null, null);
+    TupleTrace second = new TupleTrace("table0", "3", null, null);
+    assert first.getKey().equals("table0,3");
+    assert first.getKey() == second.getKey();
+    assert first.equals(second);
+  }
+}